@@ -21,6 +21,8 @@ import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
 import org.apache.ibatis.cache.decorators.SerializedCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
 
 import java.lang.annotation.*;
 
@@ -67,6 +69,14 @@ public @interface CacheNamespace {
    */
   boolean readWrite() default true;
 
+  /**
+   * 可读写缓存复制缓存值时使用的序列化器，默认使用Java原生序列化
+   *
+   * @return
+   * @since 3.5.3
+   */
+  Class<? extends CacheSerializer> serializer() default JavaCacheSerializer.class;
+
   /**
    * 默认缓存不阻塞，为true时，将被{@link BlockingCache}装饰器装饰
    *
@@ -63,4 +63,38 @@ public @interface Options {
   String keyColumn() default "";
 
   String resultSets() default "";
+
+  /**
+   * Returns whether the rows are ordered by the id of the root result.
+   * <p>
+   * When {@code true}, a root object mapped with nested result maps is handed to the {@code ResultHandler}
+   * or {@code Cursor} as soon as a row of the next root is read, and the nested result objects of the
+   * completed root are released, so memory is bounded by the size of a single root object.
+   * Same as the {@code resultOrdered} attribute of the {@code <select>} element.
+   *
+   * @return {@code true} if the rows are ordered by the root result
+   * @since 3.5.3
+   */
+  boolean resultOrdered() default false;
+
+  /**
+   * Returns whether rows are mapped to result objects by multiple threads.
+   * <p>
+   * Only applies to result maps without nested result maps or nested queries. Same as the
+   * {@code parallelMapping} attribute of the {@code <select>} element.
+   *
+   * @return {@code true} if rows are mapped in parallel
+   * @since 3.5.3
+   */
+  boolean parallelMapping() default false;
+
+  /**
+   * Returns the number of result objects a {@code Cursor} maps ahead on a background thread.
+   * <p>
+   * {@code 0} disables prefetching. Same as the {@code fetchAhead} attribute of the {@code <select>} element.
+   *
+   * @return the number of result objects to prefetch
+   * @since 3.5.3
+   */
+  int fetchAhead() default 0;
 }
@@ -20,6 +20,7 @@ import org.apache.ibatis.builder.xml.XMLMapperBuilder;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.mapping.*;
@@ -152,6 +153,14 @@ public class MapperBuilderAssistant extends BaseBuilder {
    */
   public Cache useNewCache(Class<? extends Cache> typeClass, Class<? extends Cache> evictionClass, Long flushInterval, Integer size,
                            boolean readWrite, boolean blocking, Properties props) {
+    return useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, null, blocking, props);
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public Cache useNewCache(Class<? extends Cache> typeClass, Class<? extends Cache> evictionClass, Long flushInterval, Integer size,
+                           boolean readWrite, Class<? extends CacheSerializer> serializerClass, boolean blocking, Properties props) {
     // 创建Cache对象，这里使用了建造者模式，CacheBuilder是建造者的角色，而Cache是生成的产品
     // 映射文件的命名空间作为缓存的唯一标识
     Cache cache = new CacheBuilder(currentNamespace)
@@ -161,6 +170,7 @@ public class MapperBuilderAssistant extends BaseBuilder {
       .clearInterval(flushInterval)
       .size(size)
       .readWrite(readWrite)
+      .serializer(serializerClass)
       .blocking(blocking)
       .properties(props)
       .build();
@@ -313,6 +323,39 @@ public class MapperBuilderAssistant extends BaseBuilder {
     String databaseId,
     LanguageDriver lang,
     String resultSets) {
+    return addMappedStatement(
+      id, sqlSource, statementType, sqlCommandType, fetchSize, timeout,
+      parameterMap, parameterType, resultMap, resultType, resultSetType,
+      flushCache, useCache, resultOrdered, keyGenerator, keyProperty,
+      keyColumn, databaseId, lang, resultSets, false, null);
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public MappedStatement addMappedStatement(
+    String id,
+    SqlSource sqlSource,
+    StatementType statementType,
+    SqlCommandType sqlCommandType,
+    Integer fetchSize,
+    Integer timeout,
+    String parameterMap,
+    Class<?> parameterType,
+    String resultMap,
+    Class<?> resultType,
+    ResultSetType resultSetType,
+    boolean flushCache,
+    boolean useCache,
+    boolean resultOrdered,
+    KeyGenerator keyGenerator,
+    String keyProperty,
+    String keyColumn,
+    String databaseId,
+    LanguageDriver lang,
+    String resultSets,
+    boolean parallelMapping,
+    Integer fetchAhead) {
 
     if (unresolvedCacheRef) {
       throw new IncompleteElementException("Cache-ref not yet resolved");
@@ -320,6 +363,11 @@ public class MapperBuilderAssistant extends BaseBuilder {
 
     id = applyCurrentNamespace(id, false);
     boolean isSelect = sqlCommandType == SqlCommandType.SELECT;
+    if (!isSelect && (sqlSource.isChunked() || sqlSource.isBucketed())) {
+      // 注解中的<script>无法在解析时得知语句类型，在这里检查。补齐会重复插入最后一个元素，分批只在查询时执行
+      throw new BuilderException("The bucketed and chunkSize attributes of <foreach> can only be used in select statements, but '"
+        + id + "' is " + sqlCommandType + ".");
+    }
 
     MappedStatement.Builder statementBuilder = new MappedStatement.Builder(configuration, id, sqlSource, sqlCommandType)
       .resource(resource)
@@ -332,6 +380,8 @@ public class MapperBuilderAssistant extends BaseBuilder {
       .databaseId(databaseId)
       .lang(lang)
       .resultOrdered(resultOrdered)
+      .parallelMapping(parallelMapping)
+      .fetchAhead(fetchAhead)
       .resultSets(resultSets)
       .resultMaps(getStatementResultMaps(resultMap, resultType, id))
       .resultSetType(resultSetType)
@@ -65,6 +65,19 @@ public class SqlSourceBuilder extends BaseBuilder {
     return new StaticSqlSource(configuration, sql, handler.getParameterMappings());
   }
 
+  /**
+   * 解析单个“#{}”占位符的内容并创建对应的 {@link ParameterMapping}，与 {@link #parse(String, Class, Map)} 处理每个占位符的方式相同
+   *
+   * @param content              “#{}”占位符中的内容，如：_frc.item_0, javaType=int
+   * @param parameterType        用户传入的实参类型
+   * @param additionalParameters DynamicContext.bindings 集合
+   * @return
+   * @since 3.5.3
+   */
+  public ParameterMapping buildParameterMapping(String content, Class<?> parameterType, Map<String, Object> additionalParameters) {
+    return new ParameterMappingTokenHandler(configuration, parameterType, additionalParameters).buildParameterMapping(content);
+  }
+
   private static class ParameterMappingTokenHandler extends BaseBuilder implements TokenHandler {
 
     /**
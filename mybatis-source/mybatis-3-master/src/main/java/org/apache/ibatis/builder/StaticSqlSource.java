@@ -49,4 +49,18 @@ public class StaticSqlSource implements SqlSource {
     return new BoundSql(configuration, sql, parameterMappings, parameterObject);
   }
 
+  /**
+   * @since 3.5.3
+   */
+  public String getSql() {
+    return sql;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public List<ParameterMapping> getParameterMappings() {
+    return parameterMappings;
+  }
+
 }
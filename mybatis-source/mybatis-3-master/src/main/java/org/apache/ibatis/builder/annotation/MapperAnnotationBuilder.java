@@ -181,7 +181,8 @@ public class MapperAnnotationBuilder {
       // 获取@CacheNamespace注解关于缓存的配置项
       Properties props = convertToProperties(cacheDomain.properties());
       // 创建缓存对象并加入Configuration对象中的caches集合
-      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, cacheDomain.readWrite(), cacheDomain.blocking(), props);
+      assistant.useNewCache(cacheDomain.implementation(), cacheDomain.eviction(), flushInterval, size, cacheDomain.readWrite(),
+        cacheDomain.serializer(), cacheDomain.blocking(), props);
     }
   }
 
@@ -332,6 +333,12 @@ public class MapperAnnotationBuilder {
       boolean flushCache = !isSelect;
       // 查询语句默认使用缓存
       boolean useCache = isSelect;
+      // 结果集是否按主结果对象排序，仅对嵌套映射有效
+      boolean resultOrdered = false;
+      // 是否并行映射结果集
+      boolean parallelMapping = false;
+      // 游标预读的结果对象个数
+      Integer fetchAhead = null;
 
       KeyGenerator keyGenerator;
       String keyProperty = null;
@@ -367,6 +374,9 @@ public class MapperAnnotationBuilder {
         fetchSize = options.fetchSize() > -1 || options.fetchSize() == Integer.MIN_VALUE ? options.fetchSize() : null; //issue #348
         timeout = options.timeout() > -1 ? options.timeout() : null;
         statementType = options.statementType();
+        resultOrdered = options.resultOrdered();
+        parallelMapping = options.parallelMapping();
+        fetchAhead = options.fetchAhead() > 0 ? options.fetchAhead() : null;
         if (options.resultSetType() != ResultSetType.DEFAULT) {
           resultSetType = options.resultSetType();
         }
@@ -396,8 +406,7 @@ public class MapperAnnotationBuilder {
         resultSetType,
         flushCache,
         useCache,
-        // TODO gcode issue #577
-        false,
+        resultOrdered,
         keyGenerator,
         keyProperty,
         keyColumn,
@@ -405,7 +414,9 @@ public class MapperAnnotationBuilder {
         null,
         languageDriver,
         // ResultSets
-        options != null ? nullOrEmpty(options.resultSets()) : null);
+        options != null ? nullOrEmpty(options.resultSets()) : null,
+        parallelMapping,
+        fetchAhead);
     }
   }
 
@@ -21,6 +21,7 @@ import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.datasource.DataSourceFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.loader.ProxyFactory;
+import org.apache.ibatis.executor.resultset.RowMapperFactory;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.io.VFS;
 import org.apache.ibatis.logging.Log;
@@ -381,10 +382,17 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setDefaultExecutorType(ExecutorType.valueOf(props.getProperty("defaultExecutorType", "SIMPLE")));
     configuration.setDefaultStatementTimeout(integerValueOf(props.getProperty("defaultStatementTimeout"), null));
     configuration.setDefaultFetchSize(integerValueOf(props.getProperty("defaultFetchSize"), null));
+    configuration.setDynamicSqlCacheSize(integerValueOf(props.getProperty("dynamicSqlCacheSize"), 64));
+    configuration.setDirectForEachParameters(booleanValueOf(props.getProperty("directForEachParameters"), false));
     configuration.setDefaultResultSetType(resolveResultSetType(props.getProperty("defaultResultSetType")));
     configuration.setMapUnderscoreToCamelCase(booleanValueOf(props.getProperty("mapUnderscoreToCamelCase"), false));
     configuration.setSafeRowBoundsEnabled(booleanValueOf(props.getProperty("safeRowBoundsEnabled"), false));
     configuration.setLocalCacheScope(LocalCacheScope.valueOf(props.getProperty("localCacheScope", "SESSION")));
+    configuration.setSkipUnusedCacheKey(booleanValueOf(props.getProperty("skipUnusedCacheKey"), false));
+    configuration.setUseColumnIndexForResults(booleanValueOf(props.getProperty("useColumnIndexForResults"), false));
+    configuration.setRowMapperFactory((RowMapperFactory) createInstance(props.getProperty("rowMapperFactory")));
+    configuration.setParallelMappingThreads(integerValueOf(props.getProperty("parallelMappingThreads"), Runtime.getRuntime().availableProcessors()));
+    configuration.setUseMethodHandleInvokers(booleanValueOf(props.getProperty("useMethodHandleInvokers"), false));
     configuration.setJdbcTypeForNull(JdbcType.valueOf(props.getProperty("jdbcTypeForNull", "OTHER")));
     // 如果开启了懒加载功能，默认触发加载的函数，equals、clone、hashCode和toString
     configuration.setLazyLoadTriggerMethods(stringSetValueOf(props.getProperty("lazyLoadTriggerMethods"), "equals,clone,hashCode,toString"));
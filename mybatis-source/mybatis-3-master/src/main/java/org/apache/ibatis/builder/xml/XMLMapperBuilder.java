@@ -18,6 +18,7 @@ package org.apache.ibatis.builder.xml;
 import org.apache.ibatis.builder.*;
 import org.apache.ibatis.builder.annotation.MapperAnnotationBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.mapping.*;
@@ -274,11 +275,13 @@ public class XMLMapperBuilder extends BaseBuilder {
       Integer size = context.getIntAttribute("size");
       // 获取<cache>的 readOnly（是否可读） 属性值，默认为true，为true时添加缓存序列化装饰器（SerializedCache）
       boolean readWrite = !context.getBooleanAttribute("readOnly", false);
+      // 获取<cache>的 serializer 属性值，可读写缓存使用该序列化器复制缓存值，没有配置时使用Java原生序列化
+      Class<? extends CacheSerializer> serializerClass = typeAliasRegistry.resolveAlias(context.getStringAttribute("serializer"));
       // 获取<cache>的 blocking（是否阻塞） 属性值，默认为false，为true时，添加缓存阻塞装饰器（BlockingCache）
       boolean blocking = context.getBooleanAttribute("blocking", false);
       // 获取封装<cache>的子标签<Properties>的name和value的属性值，用于初始化缓存或缓存装饰器对应的字段
       Properties props = context.getChildrenAsProperties();
-      builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, blocking, props);
+      builderAssistant.useNewCache(typeClass, evictionClass, flushInterval, size, readWrite, serializerClass, blocking, props);
     }
   }
 
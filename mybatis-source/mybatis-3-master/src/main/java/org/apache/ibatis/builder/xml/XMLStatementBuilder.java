@@ -76,6 +76,8 @@ public class XMLStatementBuilder extends BaseBuilder {
     boolean useCache = context.getBooleanAttribute("useCache", isSelect);
     // 默认为false，该属性值主要用于嵌套映射
     boolean resultOrdered = context.getBooleanAttribute("resultOrdered", false);
+    // 默认为false，是否并行映射结果集
+    boolean parallelMapping = context.getBooleanAttribute("parallelMapping", false);
 
     // Include Fragments before parsing
     // 在解析SQL语句之前，先处理其中的<include>节点，即将<include>节点替换为<sql>的文本节点
@@ -112,6 +114,8 @@ public class XMLStatementBuilder extends BaseBuilder {
     // 默认：PREPARED
     StatementType statementType = StatementType.valueOf(context.getStringAttribute("statementType", StatementType.PREPARED.toString()));
     Integer fetchSize = context.getIntAttribute("fetchSize");
+    // 游标预读的结果对象个数
+    Integer fetchAhead = context.getIntAttribute("fetchAhead");
     Integer timeout = context.getIntAttribute("timeout");
     String parameterMap = context.getStringAttribute("parameterMap");
     String resultType = context.getStringAttribute("resultType");
@@ -129,7 +133,7 @@ public class XMLStatementBuilder extends BaseBuilder {
     builderAssistant.addMappedStatement(id, sqlSource, statementType, sqlCommandType,
       fetchSize, timeout, parameterMap, parameterTypeClass, resultMap, resultTypeClass,
       resultSetTypeEnum, flushCache, useCache, resultOrdered,
-      keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets);
+      keyGenerator, keyProperty, keyColumn, databaseId, langDriver, resultSets, parallelMapping, fetchAhead);
   }
 
   /**
@@ -107,4 +107,19 @@ public interface Cache {
     return null;
   }
 
+  /**
+   * 是否可以被多个线程同时访问而不需要外部同步，为true时 {@link org.apache.ibatis.mapping.CacheBuilder}
+   * 不会再添加 {@link org.apache.ibatis.cache.decorators.SynchronizedCache} 装饰器
+   * <p>
+   * Optional. Returns whether this cache can be used by several threads at the same time without external
+   * synchronization. A decorator should return {@code true} only if it is thread-safe itself and either
+   * its delegate is concurrent-safe too or it never accesses the delegate concurrently.
+   *
+   * @return {@code true} if the cache is safe for concurrent use
+   * @since 3.5.3
+   */
+  default boolean isConcurrentSafe() {
+    return false;
+  }
+
 }
@@ -19,8 +19,13 @@ import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.reflection.ArrayUtil;
 import org.apache.ibatis.session.RowBounds;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.StringJoiner;
 
@@ -30,8 +35,11 @@ import java.util.StringJoiner;
  * 在一个CacheKey对象中可以封装多个影响缓存项的因素。
  * <p>
  * CacheKey中可以添加多个对象，由这些对象共同确定两个CacheKey 对象是否相同。<br>
- * 即：{@link CacheKey#multiplier}、{@link CacheKey#hashcode}、{@link CacheKey#checksum}和{@link CacheKey#updateList}集合
+ * 即：{@link CacheKey#count}、{@link CacheKey#hashcode}、{@link CacheKey#checksum}和{@link CacheKey#updateList}集合
  * 所有项共同确定是否为同一个CacheKey对象
+ * <p>
+ * 为了减少每次查询创建CacheKey的开销，所有项保存在一个按需扩容的数组中；{@link #clone()} 得到的副本与原对象共享该数组，
+ * 直到其中一方再次调用 {@link #update(Object)} 时才复制。序列化格式与旧版本保持一致。
  *
  * @author Clinton Begin
  */
@@ -39,6 +47,24 @@ public class CacheKey implements Cloneable, Serializable {
 
   private static final long serialVersionUID = 1146682552656046210L;
 
+  /**
+   * 保持与旧版本(使用ArrayList保存updateList)相同的序列化格式
+   */
+  private static final ObjectStreamField[] serialPersistentFields = {
+    new ObjectStreamField("multiplier", int.class),
+    new ObjectStreamField("hashcode", int.class),
+    new ObjectStreamField("checksum", long.class),
+    new ObjectStreamField("fingerprint", long.class),
+    new ObjectStreamField("count", int.class),
+    new ObjectStreamField("updateList", List.class)
+  };
+
+  private static final Object[] EMPTY_UPDATE_LIST = {};
+  /**
+   * 第一次调用update时分配的数组长度，足够容纳没有参数的查询语句对应的所有项
+   */
+  private static final int INITIAL_CAPACITY = 8;
+
   public static final CacheKey NULL_CACHE_KEY = new CacheKey() {
     @Override
     public void update(Object object) {
@@ -60,10 +86,6 @@ public class CacheKey implements Cloneable, Serializable {
    */
   private static final int DEFAULT_HASHCODE = 17;
 
-  /**
-   * 参与计算hashcode，默认值是 {@link CacheKey#DEFAULT_MULTIPLIER}，即37
-   */
-  private final int multiplier;
   /**
    * CacheKey的hashcode，默认值是{@link CacheKey#DEFAULT_HASHCODE}，即17
    */
@@ -72,6 +94,12 @@ public class CacheKey implements Cloneable, Serializable {
    * 校验和
    */
   private long checksum;
+  /**
+   * 64位指纹，由每一项的hashcode按照加入顺序混合而成。
+   * 相等的两个CacheKey指纹一定相同，指纹不同的两个CacheKey一定不相等，
+   * {@link org.apache.ibatis.cache.impl.CacheKeyMap} 通过比较指纹避免逐项比较updateList
+   */
+  private long fingerprint;
   // 8/21/2017 - Sonarlint flags this as needing to be marked transient.  While true if content is not serializable, this is not always true and thus should not be marked transient.
   /**
    * 由该集合中的所有对象决定CacheKey是否相同
@@ -82,19 +110,24 @@ public class CacheKey implements Cloneable, Serializable {
    * 4、用户传递给上述SQL语句的实际参数值
    * <p>
    * 向updateList添加对象时，使用的是{@link CacheKey#update(java.lang.Object)}方法
+   * <p>
+   * 只有前 {@link CacheKey#count} 个元素有效
    */
-  private List<Object> updateList;
+  private transient Object[] updateList;
   /**
-   * {@link CacheKey#updateList}集合的个数，初始值是0
+   * {@link CacheKey#updateList}中有效元素的个数，初始值是0
    */
   private int count;
+  /**
+   * updateList是否与clone出来的CacheKey共享，共享时修改前需要先复制
+   */
+  private transient boolean shared;
 
 
   public CacheKey() {
     this.hashcode = DEFAULT_HASHCODE;
-    this.multiplier = DEFAULT_MULTIPLIER;
     this.count = 0;
-    this.updateList = new ArrayList<>();
+    this.updateList = EMPTY_UPDATE_LIST;
   }
 
   /**
@@ -104,11 +137,12 @@ public class CacheKey implements Cloneable, Serializable {
    */
   public CacheKey(Object[] objects) {
     this();
+    this.updateList = new Object[Math.max(objects.length, INITIAL_CAPACITY)];
     updateAll(objects);
   }
 
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
   }
 
   /**
@@ -118,16 +152,42 @@ public class CacheKey implements Cloneable, Serializable {
    */
   public void update(Object object) {
     // 计算object的hashcode值，注意：空对象也加入，hashcode为1
-    int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object);
+    int objectHashCode = object == null ? 1 : ArrayUtil.hashCode(object);
+    int baseHashCode = objectHashCode;
+
+    if (shared || count == updateList.length) {
+      // 数组已满或者与clone出来的CacheKey共享，复制一份
+      int capacity = count == updateList.length ? Math.max(INITIAL_CAPACITY, count << 1) : updateList.length;
+      updateList = Arrays.copyOf(updateList, capacity);
+      shared = false;
+    }
+    updateList[count] = object;
 
     // 统计向update添加的的个数
     count++;
     checksum += baseHashCode;
     baseHashCode *= count;
 
-    hashcode = multiplier * hashcode + baseHashCode;
+    hashcode = DEFAULT_MULTIPLIER * hashcode + baseHashCode;
+    fingerprint = mixFingerprint(fingerprint, objectHashCode);
+  }
 
-    updateList.add(object);
+  /**
+   * 把一项的hashcode混入指纹中，混合结果与加入的顺序有关
+   */
+  private static long mixFingerprint(long fingerprint, int hash) {
+    long h = (Long.rotateLeft(fingerprint, 31) ^ (hash & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+    return h ^ (h >>> 29);
+  }
+
+  /**
+   * 64位指纹，相等的CacheKey指纹一定相同
+   *
+   * @return the fingerprint
+   * @since 3.5.3
+   */
+  public long getFingerprint() {
+    return fingerprint;
   }
 
   public void updateAll(Object[] objects) {
@@ -163,10 +223,14 @@ public class CacheKey implements Cloneable, Serializable {
     if (count != cacheKey.count) {  // 比较count
       return false;
     }
+    if (fingerprint != cacheKey.fingerprint) {  // 比较指纹
+      return false;
+    }
 
-    for (int i = 0; i < updateList.size(); i++) { // 比较updateList的每一项，有一项不相同则返回false
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
+    Object[] thatUpdateList = cacheKey.updateList;
+    for (int i = 0; i < count; i++) { // 比较updateList的每一项，有一项不相同则返回false
+      Object thisObject = updateList[i];
+      Object thatObject = thatUpdateList[i];
       if (!ArrayUtil.equals(thisObject, thatObject)) {
         return false;
       }
@@ -190,14 +254,54 @@ public class CacheKey implements Cloneable, Serializable {
     StringJoiner returnValue = new StringJoiner(":");
     returnValue.add(String.valueOf(hashcode));
     returnValue.add(String.valueOf(checksum));
-    updateList.stream().map(ArrayUtil::toString).forEach(returnValue::add);
+    for (int i = 0; i < count; i++) {
+      returnValue.add(ArrayUtil.toString(updateList[i]));
+    }
     return returnValue.toString();
   }
 
+  /**
+   * 按照旧版本的字段写出，updateList写成ArrayList
+   */
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    ObjectOutputStream.PutField fields = out.putFields();
+    fields.put("multiplier", DEFAULT_MULTIPLIER);
+    fields.put("hashcode", hashcode);
+    fields.put("checksum", checksum);
+    fields.put("fingerprint", fingerprint);
+    fields.put("count", count);
+    fields.put("updateList", new ArrayList<>(Arrays.asList(updateList).subList(0, count)));
+    out.writeFields();
+  }
+
+  /**
+   * 旧版本序列化的CacheKey中没有指纹，反序列化时根据updateList重新计算
+   */
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    ObjectInputStream.GetField fields = in.readFields();
+    hashcode = fields.get("hashcode", DEFAULT_HASHCODE);
+    checksum = fields.get("checksum", 0L);
+    fingerprint = fields.get("fingerprint", 0L);
+    List<?> list = (List<?>) fields.get("updateList", null);
+    updateList = list == null ? EMPTY_UPDATE_LIST : list.toArray();
+    count = updateList.length;
+    if (fingerprint == 0) {
+      for (Object object : updateList) {
+        fingerprint = mixFingerprint(fingerprint, object == null ? 1 : ArrayUtil.hashCode(object));
+      }
+    }
+  }
+
+  /**
+   * 副本与原对象共享updateList，任意一方再次update时才复制
+   */
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<>(updateList);
+    if (count > 0) {
+      shared = true;
+      clonedCacheKey.shared = true;
+    }
     return clonedCacheKey;
   }
 
@@ -19,13 +19,17 @@ import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * BlockingCache是阻塞版本的缓存装饰器，它会保证只有-个线程到数据库中查找指定key对应的数据。
  * <p>
+ * 第一个未命中的线程登记一次正在进行的加载(in-flight)，之后调用putObject()或者在回滚时调用removeObject()结束这次加载；
+ * 同一时间未命中同一个key的其他线程等待这次加载结束后直接读取它放入缓存的结果，不会重复查询数据库。
+ * 加载结束后登记项立即被删除，因此不会随着key的增多而无限增长。
+ * <p>
  * Simple blocking decorator
  * <p>
  * Simple and inefficient version of EhCache's BlockingCache decorator.
@@ -45,13 +49,29 @@ public class BlockingCache implements Cache {
    */
   private final Cache delegate;
   /**
-   * 每 key 都有对应的 {@link ReentrantLock}  对象
+   * 每个正在加载的key对应一个 {@link InFlight} 对象，加载结束后删除
+   */
+  private final ConcurrentHashMap<Object, InFlight> inFlights;
+  /**
+   * 等待其他线程加载的次数
+   */
+  private final LongAdder waitCount = new LongAdder();
+  /**
+   * 等待之后直接从缓存中得到结果的次数
+   */
+  private final LongAdder coalescedCount = new LongAdder();
+  /**
+   * 等待超时的次数
+   */
+  private final LongAdder timeoutCount = new LongAdder();
+  /**
+   * 累计等待时长(毫秒)
    */
-  private final ConcurrentHashMap<Object, ReentrantLock> locks;
+  private final LongAdder accumulatedWaitTime = new LongAdder();
 
   public BlockingCache(Cache delegate) {
     this.delegate = delegate;
-    this.locks = new ConcurrentHashMap<>();
+    this.inFlights = new ConcurrentHashMap<>();
   }
 
   @Override
@@ -65,7 +85,7 @@ public class BlockingCache implements Cache {
   }
 
   /**
-   * 向缓存中添加对象，并释放锁
+   * 向缓存中添加对象，并结束该key正在进行的加载，唤醒等待的线程
    *
    * @param key   Can be any object but usually it is a {@link CacheKey}
    * @param value The result of a select.
@@ -75,26 +95,66 @@ public class BlockingCache implements Cache {
     try {
       delegate.putObject(key, value);
     } finally {
-      releaseLock(key);
+      // 缓存中已经有了结果，无论是哪个线程放入的，等待的线程都可以直接读取
+      InFlight inFlight = inFlights.remove(key);
+      if (inFlight != null) {
+        inFlight.complete();
+      }
     }
   }
 
+  /**
+   * 缓存未命中时，如果没有其他线程在加载该key，则由当前线程负责加载并返回null；
+   * 否则等待其他线程加载结束后重新读取缓存
+   *
+   * @param key The key
+   * @return
+   */
   @Override
   public Object getObject(Object key) {
-    // 获取key的锁
-    acquireLock(key);
-    Object value = delegate.getObject(key);
-    // 通过key获取到对应的缓存，则释放锁，否则继续持有该锁
-    if (value != null) {
-      releaseLock(key);
+    while (true) {
+      Object value = delegate.getObject(key);
+      if (value != null) {
+        return value;
+      }
+      InFlight mine = new InFlight();
+      InFlight inFlight = inFlights.putIfAbsent(key, mine);
+      if (inFlight == null) {
+        // 登记之前可能已经有其他线程放入了结果
+        value = delegate.getObject(key);
+        if (value != null) {
+          release(key, mine);
+        }
+        return value;
+      }
+      if (inFlight.owner == Thread.currentThread()) {
+        // 当前线程已经在加载该key
+        return null;
+      }
+      await(key, inFlight);
+      value = delegate.getObject(key);
+      if (value != null) {
+        coalescedCount.increment();
+        return value;
+      }
+      // 加载被回滚或者结果已被清理，重新尝试
     }
-    return value;
   }
 
+  /**
+   * despite of its name, this method is called only to release locks
+   * <p>
+   * 只有加载该key的线程可以结束加载，例如 {@link TransactionalCache} 回滚时
+   *
+   * @param key The key
+   * @return
+   */
   @Override
   public Object removeObject(Object key) {
-    // despite of its name, this method is called only to release locks
-    releaseLock(key);
+    InFlight inFlight = inFlights.get(key);
+    if (inFlight != null && inFlight.owner == Thread.currentThread()) {
+      release(key, inFlight);
+    }
     return null;
   }
 
@@ -104,46 +164,42 @@ public class BlockingCache implements Cache {
   }
 
   /**
-   * 通过key获取 {@link ReentrantLock}对象，获取不到则创建
-   *
-   * @param key
-   * @return
+   * 按key加锁只用于阻塞并发的查询，对被装饰对象的访问是否安全取决于被装饰对象本身
    */
-  private ReentrantLock getLockForKey(Object key) {
-    return locks.computeIfAbsent(key, k -> new ReentrantLock());
+  @Override
+  public boolean isConcurrentSafe() {
+    return delegate.isConcurrentSafe();
   }
 
-  /**
-   * acquireLock() 方法中会尝试获取指定key对应的锁。如果该key没有对应的锁对象则为其创建新的{@link ReentrantLock}对象，
-   * 再加锁;如果获取锁失败，则阻塞一段时间。
-   *
-   * @param key
-   */
-  private void acquireLock(Object key) {
-    Lock lock = getLockForKey(key);
-    if (timeout > 0) {
-      try {
-        boolean acquired = lock.tryLock(timeout, TimeUnit.MILLISECONDS);
-        if (!acquired) {
-          throw new CacheException("Couldn't get a lock in " + timeout + " for the key " + key + " at the cache " + delegate.getId());
-        }
-      } catch (InterruptedException e) {
-        throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
-      }
-    } else {
-      lock.lock();
+  private void release(Object key, InFlight inFlight) {
+    if (inFlights.remove(key, inFlight)) {
+      inFlight.complete();
     }
   }
 
   /**
-   * 释放锁
+   * 等待其他线程加载结束，配置了timeout时最多等待timeout毫秒
    *
    * @param key
+   * @param inFlight
    */
-  private void releaseLock(Object key) {
-    ReentrantLock lock = locks.get(key);
-    if (lock.isHeldByCurrentThread()) { // 锁是否被当前线程持有
-      lock.unlock();
+  private void await(Object key, InFlight inFlight) {
+    waitCount.increment();
+    long start = System.currentTimeMillis();
+    try {
+      if (timeout > 0) {
+        if (!inFlight.latch.await(timeout, TimeUnit.MILLISECONDS)) {
+          timeoutCount.increment();
+          throw new CacheException("Couldn't get a lock in " + timeout + " for the key " + key + " at the cache " + delegate.getId());
+        }
+      } else {
+        inFlight.latch.await();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CacheException("Got interrupted while trying to acquire lock for key " + key, e);
+    } finally {
+      accumulatedWaitTime.add(System.currentTimeMillis() - start);
     }
   }
 
@@ -154,4 +210,57 @@ public class BlockingCache implements Cache {
   public void setTimeout(long timeout) {
     this.timeout = timeout;
   }
+
+  /**
+   * @return 正在加载的key的个数
+   * @since 3.5.3
+   */
+  public int getInFlightCount() {
+    return inFlights.size();
+  }
+
+  /**
+   * @return 未命中时等待其他线程加载的次数
+   * @since 3.5.3
+   */
+  public long getWaitCount() {
+    return waitCount.sum();
+  }
+
+  /**
+   * @return 等待之后直接得到其他线程加载结果的次数
+   * @since 3.5.3
+   */
+  public long getCoalescedCount() {
+    return coalescedCount.sum();
+  }
+
+  /**
+   * @return 等待超时的次数
+   * @since 3.5.3
+   */
+  public long getTimeoutCount() {
+    return timeoutCount.sum();
+  }
+
+  /**
+   * @return 累计等待时长(毫秒)
+   * @since 3.5.3
+   */
+  public long getAccumulatedWaitTime() {
+    return accumulatedWaitTime.sum();
+  }
+
+  /**
+   * 一次正在进行的加载
+   */
+  private static final class InFlight {
+    final Thread owner = Thread.currentThread();
+    final CountDownLatch latch = new CountDownLatch(1);
+
+    void complete() {
+      latch.countDown();
+    }
+  }
+
 }
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.cache.Cache;
+
+/**
+ * 可以被并发访问的 {@link LoggingCache}，使用 {@link LongAdder} 统计访问次数和命中次数.
+ * <p>
+ * 被装饰的缓存对象可以被并发访问时，{@link org.apache.ibatis.mapping.CacheBuilder} 使用该装饰器代替 {@link LoggingCache}。
+ *
+ * @since 3.5.3
+ */
+public class ConcurrentLoggingCache extends LoggingCache {
+
+  /**
+   * Cache的访问次数
+   */
+  private final LongAdder requestCount = new LongAdder();
+  /**
+   * Cache命中次数
+   */
+  private final LongAdder hitCount = new LongAdder();
+
+  public ConcurrentLoggingCache(Cache delegate) {
+    super(delegate);
+  }
+
+  @Override
+  protected void recordRequest(boolean hit) {
+    requestCount.increment();
+    if (hit) {
+      hitCount.increment();
+    }
+  }
+
+  @Override
+  public boolean isConcurrentSafe() {
+    return delegate.isConcurrentSafe();
+  }
+
+  /**
+   * 命中率 = Cache命中次数 / Cache访问次数，两个计数分别读取，并发时只是近似值
+   *
+   * @return
+   */
+  @Override
+  public double getHitRatio() {
+    return (double) hitCount.sum() / (double) requestCount.sum();
+  }
+
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import org.apache.ibatis.cache.CacheKey;
+
+/**
+ * {@link TinyLfuCache} 使用的访问频率估算器，是一个每个计数器占4位的 Count-Min Sketch.
+ * <p>
+ * 每个long保存16个计数器，每个key在4个long中各对应一个计数器，估算值取其中的最小值，最大为15。
+ * 所有计数器的累加次数达到样本数(容量的10倍)后，将所有计数器减半，使历史访问频率逐渐衰减。
+ * 该类不是线程安全的，由 {@link TinyLfuCache} 在持有锁时调用。
+ */
+final class FrequencySketch {
+
+  private static final long[] SEED = {
+    0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final long ONE_MASK = 0x1111111111111111L;
+
+  private long[] table;
+  private int tableMask;
+  private int sampleSize;
+  /**
+   * 上次减半之后的累加次数
+   */
+  private int size;
+
+  FrequencySketch() {
+    ensureCapacity(16);
+  }
+
+  /**
+   * 根据缓存项的最大个数调整计数器的个数，只会扩大，扩大时丢弃已有的统计
+   */
+  void ensureCapacity(long maximumSize) {
+    int maximum = (int) Math.min(Math.max(maximumSize, 16), Integer.MAX_VALUE >>> 1);
+    if (table != null && table.length >= maximum) {
+      return;
+    }
+    table = new long[Integer.highestOneBit(maximum - 1) << 1];
+    tableMask = table.length - 1;
+    sampleSize = (int) Math.min(10L * maximum, Integer.MAX_VALUE);
+    size = 0;
+  }
+
+  /**
+   * @return key的估算访问次数，0到15
+   */
+  int frequency(Object key) {
+    int hash = spread(key);
+    int start = (hash & 3) << 2;
+    int frequency = Integer.MAX_VALUE;
+    for (int i = 0; i < 4; i++) {
+      int index = indexOf(hash, i);
+      int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xFL);
+      frequency = Math.min(frequency, count);
+    }
+    return frequency;
+  }
+
+  /**
+   * 记录一次访问
+   */
+  void increment(Object key) {
+    int hash = spread(key);
+    int start = (hash & 3) << 2;
+    boolean added = false;
+    for (int i = 0; i < 4; i++) {
+      added |= incrementAt(indexOf(hash, i), start + i);
+    }
+    if (added && ++size == sampleSize) {
+      reset();
+    }
+  }
+
+  private boolean incrementAt(int index, int counter) {
+    int offset = counter << 2;
+    long mask = 0xFL << offset;
+    if ((table[index] & mask) != mask) {
+      table[index] += 1L << offset;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * 所有计数器减半
+   */
+  private void reset() {
+    int odd = 0;
+    for (int i = 0; i < table.length; i++) {
+      odd += Long.bitCount(table[i] & ONE_MASK);
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    size = (size - (odd >>> 2)) >>> 1;
+  }
+
+  private int indexOf(int hash, int i) {
+    long h = (hash + SEED[i]) * SEED[i];
+    h += h >>> 32;
+    return ((int) h) & tableMask;
+  }
+
+  /**
+   * CacheKey使用64位指纹，其他key使用hashCode，再次打散
+   */
+  private static int spread(Object key) {
+    int x;
+    if (key instanceof CacheKey) {
+      long fingerprint = ((CacheKey) key).getFingerprint();
+      x = (int) (fingerprint ^ (fingerprint >>> 32));
+    } else {
+      x = key.hashCode();
+    }
+    x = ((x >>> 16) ^ x) * 0x45D9F3B;
+    x = ((x >>> 16) ^ x) * 0x45D9F3B;
+    return (x >>> 16) ^ x;
+  }
+
+}
@@ -34,7 +34,7 @@ public class LoggingCache implements Cache {
   /**
    * 底层被修饰的缓存对象
    */
-  private final Cache delegate;
+  protected final Cache delegate;
   /**
    * Cache的访问次数
    */
@@ -66,13 +66,9 @@ public class LoggingCache implements Cache {
 
   @Override
   public Object getObject(Object key) {
-    // Cache访问次数
-    requests++;
     final Object value = delegate.getObject(key);
-    if (value != null) {  // 通过key能获取到缓存对象，则表示Cache命中
-      // 累计Cache命中次数
-      hits++;
-    }
+    // 通过key能获取到缓存对象，则表示Cache命中
+    recordRequest(value != null);
     if (log.isDebugEnabled()) {
       log.debug("Cache Hit Ratio [" + getId() + "]: " + getHitRatio());
     }
@@ -99,12 +95,25 @@ public class LoggingCache implements Cache {
     return delegate.equals(obj);
   }
 
+  /**
+   * 累计Cache访问次数和命中次数
+   *
+   * @param hit 是否命中
+   * @since 3.5.3
+   */
+  protected void recordRequest(boolean hit) {
+    requests++;
+    if (hit) {
+      hits++;
+    }
+  }
+
   /**
    * 命中率 = Cache命中次数 / Cache访问次数
    *
    * @return
    */
-  private double getHitRatio() {
+  protected double getHitRatio() {
     return (double) hits / (double) requests;
   }
 
@@ -41,7 +41,7 @@ public class ScheduledCache implements Cache {
   /**
    * 最近一次清理的时间戳
    */
-  protected long lastClear;
+  protected volatile long lastClear;
 
   public ScheduledCache(Cache delegate) {
     this.delegate = delegate;
@@ -92,6 +92,14 @@ public class ScheduledCache implements Cache {
     delegate.clear();
   }
 
+  /**
+   * 多个线程同时发现缓存过期时最多重复清空几次，不影响正确性
+   */
+  @Override
+  public boolean isConcurrentSafe() {
+    return delegate.isConcurrentSafe();
+  }
+
   @Override
   public int hashCode() {
     return delegate.hashCode();
@@ -16,10 +16,14 @@
 package org.apache.ibatis.cache.decorators;
 
 import org.apache.ibatis.cache.Cache;
-import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
 import org.apache.ibatis.io.Resources;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
 
 /**
  * SerializedCache提供了将value对象序列化的功能。
@@ -30,16 +34,25 @@ import java.io.*;
  * 使用前面介绍的Cache装饰器实现进行装饰之后，每次从缓存中获取同一key 对应的对象时，得到的都
  * 是同一对象，任意一个线程修改该对象都会影响到其他线程以及缓存中的对象；而SerializedCache每次从缓存中获取数据时，
  * 都会通过反序列化得到一个全新的对象。
- * SerializedCache使用的序列化方式是Java原生序列化。
+ * 序列化方式由 {@link CacheSerializer} 决定，默认使用Java原生序列化({@link JavaCacheSerializer})。
  *
  * @author Clinton Begin
  */
 public class SerializedCache implements Cache {
 
   private final Cache delegate;
+  private final CacheSerializer serializer;
 
   public SerializedCache(Cache delegate) {
+    this(delegate, new JavaCacheSerializer());
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public SerializedCache(Cache delegate, CacheSerializer serializer) {
     this.delegate = delegate;
+    this.serializer = serializer;
   }
 
   @Override
@@ -60,12 +73,8 @@ public class SerializedCache implements Cache {
    */
   @Override
   public void putObject(Object key, Object object) {
-    if (object == null || object instanceof Serializable) {
-      // 将值序列化后存入缓存中
-      delegate.putObject(key, serialize((Serializable) object));
-    } else {  // 对象不为null,且没有实现序列化接口，则抛出异常
-      throw new CacheException("SharedCache failed to make a copy of a non-serializable object: " + object);
-    }
+    // 将值序列化后存入缓存中，不能序列化的对象由序列化器抛出异常
+    delegate.putObject(key, serializer.serialize(object));
   }
 
   /**
@@ -77,7 +86,7 @@ public class SerializedCache implements Cache {
   @Override
   public Object getObject(Object key) {
     Object object = delegate.getObject(key);
-    return object == null ? null : deserialize((byte[]) object);
+    return object == null ? null : serializer.deserialize((byte[]) object);
   }
 
   @Override
@@ -93,6 +102,14 @@ public class SerializedCache implements Cache {
     delegate.clear();
   }
 
+  /**
+   * 序列化和反序列化都不依赖共享状态，是否线程安全取决于被装饰的缓存对象
+   */
+  @Override
+  public boolean isConcurrentSafe() {
+    return delegate.isConcurrentSafe();
+  }
+
   @Override
   public int hashCode() {
     return delegate.hashCode();
@@ -104,37 +121,11 @@ public class SerializedCache implements Cache {
   }
 
   /**
-   * 序列化
-   *
-   * @param value
-   * @return
-   */
-  private byte[] serialize(Serializable value) {
-    try (ByteArrayOutputStream bos = new ByteArrayOutputStream();
-         ObjectOutputStream oos = new ObjectOutputStream(bos)) {
-      oos.writeObject(value);
-      oos.flush();
-      return bos.toByteArray();
-    } catch (Exception e) {
-      throw new CacheException("Error serializing object.  Cause: " + e, e);
-    }
-  }
-
-  /**
-   * 反序列化
-   *
-   * @param value
-   * @return
+   * @return 缓存值使用的序列化器
+   * @since 3.5.3
    */
-  private Serializable deserialize(byte[] value) {
-    Serializable result;
-    try (ByteArrayInputStream bis = new ByteArrayInputStream(value);
-         ObjectInputStream ois = new CustomObjectInputStream(bis)) {
-      result = (Serializable) ois.readObject();
-    } catch (Exception e) {
-      throw new CacheException("Error deserializing object.  Cause: " + e, e);
-    }
-    return result;
+  public CacheSerializer getSerializer() {
+    return serializer;
   }
 
   public static class CustomObjectInputStream extends ObjectInputStream {
@@ -64,6 +64,11 @@ public class SynchronizedCache implements Cache {
     delegate.clear();
   }
 
+  @Override
+  public boolean isConcurrentSafe() {
+    return true;
+  }
+
   @Override
   public int hashCode() {
     return delegate.hashCode();
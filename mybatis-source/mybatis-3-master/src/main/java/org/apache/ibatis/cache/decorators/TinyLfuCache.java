@@ -0,0 +1,490 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntBiFunction;
+
+import org.apache.ibatis.cache.Cache;
+
+/**
+ * TinyLfuCache是按照 W-TinyLFU 算法进行缓存清理的装饰器.
+ * <p>
+ * 新加入的缓存项先进入一个很小的LRU窗口(容量的1%)，被挤出窗口后作为候选者与主空间(分段LRU，probation + protected)
+ * 中最久未被使用的缓存项比较访问频率，频率更高的一方留在缓存中。访问频率由 {@link FrequencySketch} 估算，
+ * 缓存被清空后仍然保留，因此偶发的大范围扫描不会把热点数据挤出缓存。
+ * <p>
+ * 该装饰器只记录缓存项的key、权重和所在的段，缓存的值仍然只保存在被装饰的缓存对象中，读操作也从被装饰的对象中获取。
+ * 该装饰器是线程安全的：被装饰的对象是线程安全的({@link Cache#isConcurrentSafe()})时读操作不加锁，
+ * 只把访问记录写入一个有损的环形缓冲区，由之后获得锁的线程批量处理；写操作在锁内同时更新被装饰的缓存对象。
+ * <p>
+ * 默认最多保存1024个缓存项；设置了 maximumWeight 后改为按权重限制，默认权重为集合类型结果的元素个数(至少为1)，
+ * 可以通过 {@link #setWeigher(ToIntBiFunction)} 自定义。
+ * W-TinyLFU (window tiny least frequently used) cache decorator.
+ *
+ * @since 3.5.3
+ */
+public class TinyLfuCache implements Cache {
+
+  private static final int DEFAULT_SIZE = 1024;
+  /**
+   * 窗口占总容量的比例
+   */
+  private static final double WINDOW_RATIO = 0.01d;
+  /**
+   * protected段占主空间的比例
+   */
+  private static final double PROTECTED_RATIO = 0.8d;
+  /**
+   * 读缓冲区大小，必须是2的幂
+   */
+  private static final int READ_BUFFER_SIZE = 64;
+  private static final int READ_BUFFER_MASK = READ_BUFFER_SIZE - 1;
+
+  private static final int WINDOW = 0;
+  private static final int PROBATION = 1;
+  private static final int PROTECTED = 2;
+  private static final int DEAD = -1;
+
+  /**
+   * 被装饰的Cache底层对象
+   */
+  private final Cache delegate;
+  /**
+   * 缓存项的元数据索引，不保存缓存的值
+   */
+  private final ConcurrentHashMap<Object, Node> data = new ConcurrentHashMap<>();
+  /**
+   * 保护 data 之外的所有状态以及对被装饰对象的修改
+   */
+  private final ReentrantLock evictionLock = new ReentrantLock();
+  private final FrequencySketch sketch = new FrequencySketch();
+  private final AtomicReferenceArray<Node> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+  private final AtomicLong readCount = new AtomicLong();
+  /**
+   * 上次处理读缓冲区时的readCount
+   */
+  private long drainedReadCount;
+
+  private final AccessOrder window = new AccessOrder();
+  private final AccessOrder probation = new AccessOrder();
+  private final AccessOrder protectedSegment = new AccessOrder();
+
+  private int size = DEFAULT_SIZE;
+  private long maximumWeight;
+  private ToIntBiFunction<Object, Object> weigher = TinyLfuCache::weighRows;
+
+  private long maximum;
+  private long windowMaximum;
+  private long protectedMaximum;
+  private long weightedSize;
+  private long windowWeightedSize;
+  private long protectedWeightedSize;
+
+  public TinyLfuCache(Cache delegate) {
+    this.delegate = delegate;
+    resize();
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    return delegate.getSize();
+  }
+
+  /**
+   * 设置最多保存的缓存项个数，默认1024。设置了maximumWeight时只作为访问频率统计的容量参考
+   *
+   * @param size
+   */
+  public void setSize(int size) {
+    evictionLock.lock();
+    try {
+      this.size = size;
+      resize();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * 设置缓存项的最大总权重，大于0时按权重而不是个数限制缓存
+   *
+   * @param maximumWeight
+   */
+  public void setMaximumWeight(long maximumWeight) {
+    evictionLock.lock();
+    try {
+      this.maximumWeight = maximumWeight;
+      resize();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  public long getMaximumWeight() {
+    return maximumWeight;
+  }
+
+  /**
+   * 设置计算缓存项权重的函数，只在设置了maximumWeight时使用
+   *
+   * @param weigher 参数为key和value，返回值不能为负数
+   */
+  public void setWeigher(ToIntBiFunction<Object, Object> weigher) {
+    this.weigher = weigher;
+  }
+
+  /**
+   * @return 当前所有缓存项的权重之和，没有设置maximumWeight时等于缓存项个数
+   */
+  public long getWeightedSize() {
+    evictionLock.lock();
+    try {
+      return weightedSize;
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    int weight = maximumWeight > 0 ? weigher.applyAsInt(key, value) : 1;
+    if (weight < 0) {
+      throw new IllegalArgumentException("Negative weight " + weight + " for cache key " + key);
+    }
+    evictionLock.lock();
+    try {
+      drainReadBuffer();
+      delegate.putObject(key, value);
+      Node node = data.get(key);
+      if (node == null) {
+        node = new Node(key, weight);
+        data.put(key, node);
+        sketch.increment(key);
+        window.linkLast(node);
+        windowWeightedSize += weight;
+        weightedSize += weight;
+      } else {
+        // 更新已有的缓存项，并调整所在段的权重
+        int delta = weight - node.weight;
+        node.weight = weight;
+        weightedSize += delta;
+        if (node.queue == WINDOW) {
+          windowWeightedSize += delta;
+        } else if (node.queue == PROTECTED) {
+          protectedWeightedSize += delta;
+        }
+        onAccess(node);
+      }
+      evict();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Node node = key == null ? null : data.get(key);
+    if (node == null) {
+      return null;
+    }
+    Object value;
+    if (delegate.isConcurrentSafe()) {
+      value = delegate.getObject(key);
+    } else {
+      evictionLock.lock();
+      try {
+        value = delegate.getObject(key);
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+    if (value != null) {
+      afterRead(node);
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    evictionLock.lock();
+    try {
+      Node node = key == null ? null : data.remove(key);
+      if (node != null && node.queue != DEAD) {
+        unlink(node);
+      }
+      return delegate.removeObject(key);
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * 被装饰的缓存对象不是线程安全的时候只在持有锁时访问，所以无论它是否线程安全，该装饰器都可以被并发访问
+   */
+  @Override
+  public boolean isConcurrentSafe() {
+    return true;
+  }
+
+  /**
+   * 清空缓存项，但保留访问频率的统计
+   */
+  @Override
+  public void clear() {
+    evictionLock.lock();
+    try {
+      for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+        readBuffer.lazySet(i, null);
+      }
+      for (Node node : data.values()) {
+        node.queue = DEAD;
+      }
+      data.clear();
+      window.clear();
+      probation.clear();
+      protectedSegment.clear();
+      weightedSize = 0;
+      windowWeightedSize = 0;
+      protectedWeightedSize = 0;
+      delegate.clear();
+    } finally {
+      evictionLock.unlock();
+    }
+  }
+
+  /**
+   * 记录一次命中，缓冲区写满一轮时尝试处理
+   */
+  private void afterRead(Node node) {
+    long index = readCount.getAndIncrement();
+    readBuffer.lazySet((int) index & READ_BUFFER_MASK, node);
+    if ((index & READ_BUFFER_MASK) == READ_BUFFER_MASK && evictionLock.tryLock()) {
+      try {
+        drainReadBuffer();
+      } finally {
+        evictionLock.unlock();
+      }
+    }
+  }
+
+  /**
+   * 处理上次之后写入读缓冲区的访问记录
+   */
+  private void drainReadBuffer() {
+    long count = readCount.get();
+    long start = Math.max(drainedReadCount, count - READ_BUFFER_SIZE);
+    drainedReadCount = count;
+    for (long i = start; i < count; i++) {
+      Node node = readBuffer.getAndSet((int) i & READ_BUFFER_MASK, null);
+      if (node != null && node.queue != DEAD) {
+        onAccess(node);
+      }
+    }
+  }
+
+  /**
+   * 缓存项被访问：窗口和protected段内移到队尾；probation段的缓存项晋升到protected段
+   */
+  private void onAccess(Node node) {
+    sketch.increment(node.key);
+    if (node.queue == WINDOW) {
+      window.moveToLast(node);
+    } else if (node.queue == PROBATION) {
+      probation.unlink(node);
+      node.queue = PROTECTED;
+      protectedSegment.linkLast(node);
+      protectedWeightedSize += node.weight;
+      // protected段超出容量时，把最久未被访问的缓存项降级到probation段
+      while (protectedWeightedSize > protectedMaximum) {
+        Node demoted = protectedSegment.first();
+        if (demoted == null || demoted == node) {
+          break;
+        }
+        protectedSegment.unlink(demoted);
+        protectedWeightedSize -= demoted.weight;
+        demoted.queue = PROBATION;
+        probation.linkLast(demoted);
+      }
+    } else if (node.queue == PROTECTED) {
+      protectedSegment.moveToLast(node);
+    }
+  }
+
+  /**
+   * 窗口超出容量时，把窗口中最久未被访问的缓存项作为候选者移到probation段；
+   * 总容量超出时，比较候选者与probation段中最久未被访问的缓存项(受害者)的访问频率，淘汰频率较低的一方
+   */
+  private void evict() {
+    Node candidate = null;
+    while (windowWeightedSize > windowMaximum) {
+      Node node = window.first();
+      window.unlink(node);
+      windowWeightedSize -= node.weight;
+      node.queue = PROBATION;
+      probation.linkLast(node);
+      if (candidate == null) {
+        candidate = node;
+      }
+    }
+    while (weightedSize > maximum) {
+      if (candidate == null) {
+        // 没有候选者(例如更新缓存项导致权重增加)，按probation、protected、窗口的顺序淘汰
+        Node node = firstNonNull(probation.first(), protectedSegment.first(), window.first());
+        if (node == null) {
+          break;
+        }
+        evictNode(node);
+        continue;
+      }
+      Node victim = probation.first();
+      if (victim == candidate) {
+        victim = protectedSegment.first();
+      }
+      Node next = probation.next(candidate);
+      if (victim == null || candidate.weight > maximum
+        || sketch.frequency(candidate.key) <= sketch.frequency(victim.key)) {
+        evictNode(candidate);
+        candidate = next;
+      } else {
+        evictNode(victim);
+      }
+    }
+  }
+
+  private static Node firstNonNull(Node first, Node second, Node third) {
+    return first != null ? first : second != null ? second : third;
+  }
+
+  private void evictNode(Node node) {
+    unlink(node);
+    data.remove(node.key, node);
+    delegate.removeObject(node.key);
+  }
+
+  private void unlink(Node node) {
+    if (node.queue == WINDOW) {
+      window.unlink(node);
+      windowWeightedSize -= node.weight;
+    } else if (node.queue == PROBATION) {
+      probation.unlink(node);
+    } else if (node.queue == PROTECTED) {
+      protectedSegment.unlink(node);
+      protectedWeightedSize -= node.weight;
+    }
+    weightedSize -= node.weight;
+    node.queue = DEAD;
+  }
+
+  /**
+   * 根据size和maximumWeight重新计算各段的容量
+   */
+  private void resize() {
+    maximum = maximumWeight > 0 ? maximumWeight : size;
+    windowMaximum = Math.max(1L, (long) (maximum * WINDOW_RATIO));
+    protectedMaximum = (long) ((maximum - windowMaximum) * PROTECTED_RATIO);
+    sketch.ensureCapacity(size);
+    evict();
+  }
+
+  /**
+   * 默认的权重：集合类型的结果为元素个数，其他为1
+   */
+  private static int weighRows(Object key, Object value) {
+    return value instanceof Collection ? Math.max(1, ((Collection<?>) value).size()) : 1;
+  }
+
+  private static final class Node {
+    final Object key;
+    int weight;
+    /**
+     * 所在的段：WINDOW、PROBATION、PROTECTED，已被移除时为DEAD
+     */
+    int queue;
+    Node prev;
+    Node next;
+
+    Node(Object key, int weight) {
+      this.key = key;
+      this.weight = weight;
+      this.queue = WINDOW;
+    }
+  }
+
+  /**
+   * 按访问顺序排列的双向链表，头部是最久未被访问的缓存项
+   */
+  private static final class AccessOrder {
+    private Node head;
+    private Node tail;
+
+    Node first() {
+      return head;
+    }
+
+    Node next(Node node) {
+      return node.next;
+    }
+
+    void linkLast(Node node) {
+      node.prev = tail;
+      node.next = null;
+      if (tail == null) {
+        head = node;
+      } else {
+        tail.next = node;
+      }
+      tail = node;
+    }
+
+    void unlink(Node node) {
+      if (node.prev == null) {
+        head = node.next;
+      } else {
+        node.prev.next = node.next;
+      }
+      if (node.next == null) {
+        tail = node.prev;
+      } else {
+        node.next.prev = node.prev;
+      }
+      node.prev = null;
+      node.next = null;
+    }
+
+    void moveToLast(Node node) {
+      if (node != tail) {
+        unlink(node);
+        linkLast(node);
+      }
+    }
+
+    void clear() {
+      head = null;
+      tail = null;
+    }
+  }
+
+}
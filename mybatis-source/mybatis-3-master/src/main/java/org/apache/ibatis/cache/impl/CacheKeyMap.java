@@ -0,0 +1,267 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.apache.ibatis.cache.CacheKey;
+
+/**
+ * 针对 {@link CacheKey} 优化的开放寻址(线性探测)哈希表，是 {@link PerpetualCache} 底层使用的Map.
+ * <p>
+ * 每个槽位同时保存key的64位指纹({@link CacheKey#getFingerprint()})，查找时先比较指纹，
+ * 只有指纹相同时才调用 {@link CacheKey#equals(Object)} 逐项比较updateList。
+ * 对于包含很长的 foreach IN 列表的语句，可以避免在哈希冲突的槽位上逐项比较；同时不为每个缓存项分配Node对象。
+ * <p>
+ * 其他类型的key保存在一个普通的 {@link HashMap} 中。与 {@link HashMap} 一样，该类不是线程安全的。
+ * 通过 {@link #entrySet()} 等视图只能遍历，不能修改。
+ */
+public class CacheKeyMap extends AbstractMap<Object, Object> {
+
+  private static final int DEFAULT_CAPACITY = 16;
+  /**
+   * 元素个数超过容量的该比例时扩容
+   */
+  private static final float LOAD_FACTOR = 0.6f;
+
+  private long[] fingerprints;
+  private Object[] keys;
+  private Object[] values;
+  private int mask;
+  private int threshold;
+  private int keyCount;
+  /**
+   * 非 CacheKey 类型的key
+   */
+  private Map<Object, Object> otherKeys;
+
+  public CacheKeyMap() {
+    allocate(DEFAULT_CAPACITY);
+  }
+
+  private void allocate(int capacity) {
+    fingerprints = new long[capacity];
+    keys = new Object[capacity];
+    values = new Object[capacity];
+    mask = capacity - 1;
+    threshold = (int) (capacity * LOAD_FACTOR);
+  }
+
+  /**
+   * 把指纹打散后映射到槽位
+   */
+  private int indexOf(long fingerprint) {
+    long h = fingerprint;
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    return (int) h & mask;
+  }
+
+  /**
+   * 查找key所在的槽位
+   *
+   * @return 槽位下标，不存在时返回 -1
+   */
+  private int find(CacheKey key) {
+    long fingerprint = key.getFingerprint();
+    Object[] keys = this.keys;
+    int mask = this.mask;
+    for (int i = indexOf(fingerprint); ; i = (i + 1) & mask) {
+      Object existing = keys[i];
+      if (existing == null) {
+        return -1;
+      }
+      if (fingerprints[i] == fingerprint && (existing == key || existing.equals(key))) {
+        return i;
+      }
+    }
+  }
+
+  @Override
+  public Object get(Object key) {
+    if (key instanceof CacheKey) {
+      int index = find((CacheKey) key);
+      return index < 0 ? null : values[index];
+    }
+    return otherKeys == null ? null : otherKeys.get(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    if (key instanceof CacheKey) {
+      return find((CacheKey) key) >= 0;
+    }
+    return otherKeys != null && otherKeys.containsKey(key);
+  }
+
+  @Override
+  public Object put(Object key, Object value) {
+    if (!(key instanceof CacheKey)) {
+      if (otherKeys == null) {
+        otherKeys = new HashMap<>();
+      }
+      return otherKeys.put(key, value);
+    }
+    CacheKey cacheKey = (CacheKey) key;
+    long fingerprint = cacheKey.getFingerprint();
+    int i = indexOf(fingerprint);
+    for (; keys[i] != null; i = (i + 1) & mask) {
+      if (fingerprints[i] == fingerprint && (keys[i] == key || keys[i].equals(key))) {
+        Object previous = values[i];
+        values[i] = value;
+        return previous;
+      }
+    }
+    fingerprints[i] = fingerprint;
+    keys[i] = key;
+    values[i] = value;
+    if (++keyCount > threshold) {
+      resize(keys.length << 1);
+    }
+    return null;
+  }
+
+  @Override
+  public Object remove(Object key) {
+    if (!(key instanceof CacheKey)) {
+      return otherKeys == null ? null : otherKeys.remove(key);
+    }
+    int index = find((CacheKey) key);
+    if (index < 0) {
+      return null;
+    }
+    Object previous = values[index];
+    delete(index);
+    return previous;
+  }
+
+  /**
+   * 删除槽位上的元素，并把后续探测链上的元素向前移动(backward shift)，保证查找时不会被空槽位提前中断
+   */
+  private void delete(int index) {
+    int hole = index;
+    for (int i = (hole + 1) & mask; keys[i] != null; i = (i + 1) & mask) {
+      int home = indexOf(fingerprints[i]);
+      // 元素的初始位置不在 (hole, i] 区间内时，才能移动到空出的槽位
+      if (((i - home) & mask) >= ((i - hole) & mask)) {
+        fingerprints[hole] = fingerprints[i];
+        keys[hole] = keys[i];
+        values[hole] = values[i];
+        hole = i;
+      }
+    }
+    keys[hole] = null;
+    values[hole] = null;
+    keyCount--;
+  }
+
+  private void resize(int capacity) {
+    long[] oldFingerprints = fingerprints;
+    Object[] oldKeys = keys;
+    Object[] oldValues = values;
+    allocate(capacity);
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldKeys[j] != null) {
+        int i = indexOf(oldFingerprints[j]);
+        while (keys[i] != null) {
+          i = (i + 1) & mask;
+        }
+        fingerprints[i] = oldFingerprints[j];
+        keys[i] = oldKeys[j];
+        values[i] = oldValues[j];
+      }
+    }
+  }
+
+  @Override
+  public void clear() {
+    if (keys.length > DEFAULT_CAPACITY * 4) {
+      // 一级缓存在每次更新时都会被清空，容量过大时直接重新分配，释放内存
+      allocate(DEFAULT_CAPACITY);
+    } else if (keyCount > 0) {
+      Arrays.fill(keys, null);
+      Arrays.fill(values, null);
+    }
+    keyCount = 0;
+    otherKeys = null;
+  }
+
+  @Override
+  public int size() {
+    return keyCount + (otherKeys == null ? 0 : otherKeys.size());
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public Set<Entry<Object, Object>> entrySet() {
+    return new AbstractSet<Entry<Object, Object>>() {
+      @Override
+      public Iterator<Entry<Object, Object>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return CacheKeyMap.this.size();
+      }
+    };
+  }
+
+  private class EntryIterator implements Iterator<Entry<Object, Object>> {
+
+    private int index = nextIndex(0);
+    private final Iterator<Entry<Object, Object>> others = otherKeys == null ? null : otherKeys.entrySet().iterator();
+
+    private int nextIndex(int from) {
+      int i = from;
+      while (i < keys.length && keys[i] == null) {
+        i++;
+      }
+      return i;
+    }
+
+    @Override
+    public boolean hasNext() {
+      return index < keys.length || (others != null && others.hasNext());
+    }
+
+    @Override
+    public Entry<Object, Object> next() {
+      if (index < keys.length) {
+        Entry<Object, Object> entry = new SimpleImmutableEntry<>(keys[index], values[index]);
+        index = nextIndex(index + 1);
+        return entry;
+      }
+      if (others != null) {
+        return others.next();
+      }
+      throw new NoSuchElementException();
+    }
+  }
+
+}
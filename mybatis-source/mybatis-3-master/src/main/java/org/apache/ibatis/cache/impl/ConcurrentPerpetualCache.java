@@ -0,0 +1,64 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 可以被并发访问的 {@link PerpetualCache}，底层使用 {@link ConcurrentHashMap} 记录缓存项.
+ * <p>
+ * 与 {@link PerpetualCache} 一样会被 {@link org.apache.ibatis.mapping.CacheBuilder} 添加标准装饰器；
+ * 如果所有装饰器也都可以被并发访问，则不会再添加 {@link org.apache.ibatis.cache.decorators.SynchronizedCache}。
+ * 例如：{@code <cache type="org.apache.ibatis.cache.impl.ConcurrentPerpetualCache" eviction="TINYLFU"/>}
+ *
+ * @since 3.5.3
+ */
+public class ConcurrentPerpetualCache extends PerpetualCache {
+
+  /**
+   * {@link ConcurrentHashMap} 不能保存null，用该对象代替null值
+   */
+  private static final Object NULL_VALUE = new Object();
+
+  public ConcurrentPerpetualCache(String id) {
+    super(id, new ConcurrentHashMap<>());
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    super.putObject(key, value == null ? NULL_VALUE : value);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    return unmask(super.getObject(key));
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    return unmask(super.removeObject(key));
+  }
+
+  @Override
+  public boolean isConcurrentSafe() {
+    return true;
+  }
+
+  private static Object unmask(Object value) {
+    return value == NULL_VALUE ? null : value;
+  }
+
+}
@@ -0,0 +1,389 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.ibatis.builder.InitializingObject;
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
+import org.apache.ibatis.cache.serializer.CompactCacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * 把序列化后的缓存值保存在堆外内存({@link ByteBuffer#allocateDirect(int)})中的二级缓存，
+ * 大量的缓存数据不会进入老年代，也就不会增加GC停顿的时间.
+ * <p>
+ * 堆外内存被划分为若干个大小相同的slab，按顺序循环写入：当前slab写满后写入下一个slab，
+ * 下一个slab中还有缓存项时，先把这些缓存项全部淘汰(按写入顺序的FIFO淘汰)，因此占用的堆外内存不会超过 {@code capacity}。
+ * 缓存项的位置记录在堆内的 {@link CacheKeyMap} 中，按 {@link CacheKey} 的指纹查找。
+ * <p>
+ * 与 {@link org.apache.ibatis.cache.decorators.SerializedCache} 一样，每次获取缓存项都会反序列化得到一个全新的对象。
+ * 该类自己完成淘汰、复制和同步，{@link org.apache.ibatis.mapping.CacheBuilder} 不会再为它添加装饰器。
+ * 可以通过 {@code <property>} 设置 {@code capacity}(字节，默认64MB)、{@code slabSize}(字节，默认4MB)
+ * 和 {@code serializer}(JAVA、COMPACT 或 {@link CacheSerializer} 实现类的全限定名，默认JAVA)。
+ * 例如：{@code <cache type="OFFHEAP"><property name="capacity" value="1073741824"/></cache>}
+ *
+ * @since 3.5.3
+ */
+public class OffHeapCache implements Cache, InitializingObject {
+
+  private static final long DEFAULT_CAPACITY = 64L * 1024 * 1024;
+  private static final int DEFAULT_SLAB_SIZE = 4 * 1024 * 1024;
+
+  private final String id;
+
+  private long capacity = DEFAULT_CAPACITY;
+  private int slabSize = DEFAULT_SLAB_SIZE;
+  private CacheSerializer serializer = new JavaCacheSerializer();
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  /**
+   * 缓存项在堆外内存中的位置
+   */
+  private final CacheKeyMap index = new CacheKeyMap();
+  /**
+   * 第一次写入时才分配
+   */
+  private ByteBuffer[] slabs;
+  /**
+   * 每个slab中仍然有效的key，淘汰slab时使用
+   */
+  private Set<Object>[] slabKeys;
+  private int currentSlab;
+  private int writeOffset;
+
+  private long usedBytes;
+  private long evictionCount;
+  private long rejectedCount;
+
+  public OffHeapCache(String id) {
+    this.id = id;
+    initialize();
+  }
+
+  /**
+   * 根据 capacity 和 slabSize 重新划分slab，设置属性之后由 {@link org.apache.ibatis.mapping.CacheBuilder} 调用
+   */
+  @Override
+  @SuppressWarnings("unchecked")
+  public void initialize() {
+    if (slabSize <= 0 || capacity < slabSize) {
+      throw new CacheException("Invalid off-heap cache sizes for '" + id + "': capacity " + capacity
+        + " must be greater than or equal to slabSize " + slabSize + ".");
+    }
+    lock.writeLock().lock();
+    try {
+      int slabCount = (int) Math.min(Integer.MAX_VALUE, capacity / slabSize);
+      slabs = new ByteBuffer[slabCount];
+      slabKeys = new Set[slabCount];
+      index.clear();
+      currentSlab = 0;
+      writeOffset = 0;
+      usedBytes = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  @Override
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * @return 缓存项的个数
+   */
+  @Override
+  public int getSize() {
+    lock.readLock().lock();
+    try {
+      return index.size();
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    // 在锁外完成序列化
+    byte[] bytes = serializer.serialize(value);
+    lock.writeLock().lock();
+    try {
+      release(key, (Location) index.remove(key));
+      if (bytes.length > slabSize) {
+        // 比一个slab还大的缓存项不缓存
+        rejectedCount++;
+        return;
+      }
+      if (writeOffset + bytes.length > slabSize) {
+        nextSlab();
+      }
+      ByteBuffer slab = slabs[currentSlab];
+      if (slab == null) {
+        slab = ByteBuffer.allocateDirect(slabSize);
+        slabs[currentSlab] = slab;
+        slabKeys[currentSlab] = new HashSet<>();
+      }
+      // 转换为Buffer调用，避免在JDK 9+上编译后链接到Java 8中不存在的 ByteBuffer.position(int)
+      ((Buffer) slab).position(writeOffset);
+      slab.put(bytes);
+      index.put(key, new Location(currentSlab, writeOffset, bytes.length));
+      slabKeys[currentSlab].add(key);
+      writeOffset += bytes.length;
+      usedBytes += bytes.length;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * 切换到下一个slab，并淘汰其中仍然有效的缓存项
+   */
+  private void nextSlab() {
+    currentSlab = (currentSlab + 1) % slabs.length;
+    writeOffset = 0;
+    Set<Object> keys = slabKeys[currentSlab];
+    if (keys == null) {
+      return;
+    }
+    for (Object key : keys) {
+      Location location = (Location) index.get(key);
+      if (location != null && location.slab == currentSlab) {
+        index.remove(key);
+        usedBytes -= location.length;
+        evictionCount++;
+      }
+    }
+    keys.clear();
+  }
+
+  /**
+   * 释放被删除或覆盖的缓存项，同时从所在slab的key集合中移除，避免无效的key不断堆积
+   */
+  private void release(Object key, Location location) {
+    if (location != null) {
+      usedBytes -= location.length;
+      slabKeys[location.slab].remove(key);
+    }
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    byte[] bytes;
+    lock.readLock().lock();
+    try {
+      Location location = (Location) index.get(key);
+      if (location == null) {
+        return null;
+      }
+      bytes = new byte[location.length];
+      // 多个线程可以同时读取，使用各自的position
+      ByteBuffer slab = slabs[location.slab].duplicate();
+      ((Buffer) slab).position(location.offset);
+      slab.get(bytes);
+    } finally {
+      lock.readLock().unlock();
+    }
+    return serializer.deserialize(bytes);
+  }
+
+  /**
+   * 被删除的缓存项占用的空间在slab被再次写入时回收
+   *
+   * @return 总是返回null，避免不必要的反序列化
+   */
+  @Override
+  public Object removeObject(Object key) {
+    lock.writeLock().lock();
+    try {
+      release(key, (Location) index.remove(key));
+      return null;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * 清空缓存，已经分配的堆外内存会被保留下来继续使用
+   */
+  @Override
+  public void clear() {
+    lock.writeLock().lock();
+    try {
+      index.clear();
+      for (Set<Object> keys : slabKeys) {
+        if (keys != null) {
+          keys.clear();
+        }
+      }
+      currentSlab = 0;
+      writeOffset = 0;
+      usedBytes = 0;
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  /**
+   * 所有操作都由内部的读写锁同步
+   */
+  @Override
+  public boolean isConcurrentSafe() {
+    return true;
+  }
+
+  public long getCapacity() {
+    return capacity;
+  }
+
+  public void setCapacity(long capacity) {
+    this.capacity = capacity;
+  }
+
+  public int getSlabSize() {
+    return slabSize;
+  }
+
+  public void setSlabSize(int slabSize) {
+    this.slabSize = slabSize;
+  }
+
+  public CacheSerializer getSerializer() {
+    return serializer;
+  }
+
+  /**
+   * @param serializer JAVA、COMPACT 或 {@link CacheSerializer} 实现类的全限定名
+   */
+  public void setSerializer(String serializer) {
+    String name = serializer.toUpperCase(Locale.ENGLISH);
+    if ("JAVA".equals(name)) {
+      this.serializer = new JavaCacheSerializer();
+    } else if ("COMPACT".equals(name)) {
+      this.serializer = new CompactCacheSerializer();
+    } else {
+      try {
+        this.serializer = (CacheSerializer) Resources.classForName(serializer).getConstructor().newInstance();
+      } catch (Exception e) {
+        throw new CacheException("Could not instantiate cache serializer (" + serializer + "). Cause: " + e, e);
+      }
+    }
+  }
+
+  /**
+   * @return 有效的缓存项占用的字节数
+   */
+  public long getUsedBytes() {
+    lock.readLock().lock();
+    try {
+      return usedBytes;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return 已经分配的堆外内存的字节数，包括被删除或覆盖的缓存项还没有回收的空间
+   */
+  public long getAllocatedBytes() {
+    lock.readLock().lock();
+    try {
+      long allocated = 0;
+      for (ByteBuffer slab : slabs) {
+        if (slab != null) {
+          allocated += slab.capacity();
+        }
+      }
+      return allocated;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return 因为slab被重新写入而淘汰的缓存项个数
+   */
+  public long getEvictionCount() {
+    lock.readLock().lock();
+    try {
+      return evictionCount;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  /**
+   * @return 因为超过slab的大小而没有缓存的缓存项个数
+   */
+  public long getRejectedCount() {
+    lock.readLock().lock();
+    try {
+      return rejectedCount;
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof Cache)) {
+      return false;
+    }
+
+    Cache otherCache = (Cache) o;
+    return getId().equals(otherCache.getId());
+  }
+
+  @Override
+  public int hashCode() {
+    if (getId() == null) {
+      throw new CacheException("Cache instances require an ID.");
+    }
+    return getId().hashCode();
+  }
+
+  /**
+   * 缓存项在堆外内存中的位置
+   */
+  private static final class Location {
+    private final int slab;
+    private final int offset;
+    private final int length;
+
+    Location(int slab, int offset, int length) {
+      this.slab = slab;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+}
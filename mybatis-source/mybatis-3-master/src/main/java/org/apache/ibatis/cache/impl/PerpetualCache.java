@@ -18,14 +18,13 @@ package org.apache.ibatis.cache.impl;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Cache接口的基本实现，其余大多数Cache实现类大部分是装饰类
  * <p>
  * PerpetualCache在缓存模块中扮演着ConcreteComponent的角色，其实现比较简单，底层使
- * 用HashMap记录缓存项，也是通过该HashMap对象的方法实现的Cache接口中定义的相应方法。
+ * 用 {@link CacheKeyMap} 记录缓存项，也是通过该Map对象的方法实现的Cache接口中定义的相应方法。
  * <p>
  * 重写了equals() 和 hashcode() 方法，id相同的Cache对象，将视为同一对象
  *
@@ -39,12 +38,22 @@ public class PerpetualCache implements Cache {
   private final String id;
 
   /**
-   * 缓存
+   * 缓存，使用针对 {@link org.apache.ibatis.cache.CacheKey} 优化的 {@link CacheKeyMap}
    */
-  private Map<Object, Object> cache = new HashMap<>();
+  private final Map<Object, Object> cache;
 
   public PerpetualCache(String id) {
+    this(id, new CacheKeyMap());
+  }
+
+  /**
+   * @param id    Cache对象的唯一标识
+   * @param cache 记录缓存项的Map
+   * @since 3.5.3
+   */
+  protected PerpetualCache(String id, Map<Object, Object> cache) {
     this.id = id;
+    this.cache = cache;
   }
 
   @Override
@@ -0,0 +1,177 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.io.Externalizable;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.ibatis.executor.loader.WriteReplaceInterface;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.invoker.AmbiguousMethodInvoker;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * 一个JavaBean类型的编解码器，由 {@link Reflector} 中的元数据生成.
+ * <p>
+ * 属性按名称排序后依次编码，getter和setter类型相同的基本类型属性不写类型标记。
+ */
+final class BeanCodec {
+
+  /**
+   * 表示该类型不能按JavaBean编码
+   */
+  static final BeanCodec UNSUPPORTED = new BeanCodec(null, null, new Invoker[0], new Invoker[0], new Class<?>[0], new boolean[0]);
+
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private final Class<?> type;
+  private final Constructor<?> constructor;
+  private final Invoker[] getters;
+  private final Invoker[] setters;
+  /**
+   * 直接编码的基本类型，需要写类型标记的属性为null
+   */
+  private final Class<?>[] primitiveTypes;
+  /**
+   * setter的参数是基本类型，值为null时不调用setter
+   */
+  private final boolean[] skipNulls;
+
+  private BeanCodec(Class<?> type, Constructor<?> constructor, Invoker[] getters, Invoker[] setters,
+                    Class<?>[] primitiveTypes, boolean[] skipNulls) {
+    this.type = type;
+    this.constructor = constructor;
+    this.getters = getters;
+    this.setters = setters;
+    this.primitiveTypes = primitiveTypes;
+    this.skipNulls = skipNulls;
+  }
+
+  static BeanCodec forReflector(Reflector reflector) {
+    Class<?> type = reflector.getType();
+    if (!isBeanType(type) || !reflector.hasDefaultConstructor()) {
+      return UNSUPPORTED;
+    }
+    Constructor<?> constructor = reflector.getDefaultConstructor();
+    if (!Modifier.isPublic(constructor.getModifiers()) || !Modifier.isPublic(type.getModifiers())) {
+      if (!Reflector.canControlMemberAccessible()) {
+        return UNSUPPORTED;
+      }
+      constructor.setAccessible(true);
+    }
+    List<String> names = new ArrayList<>();
+    for (String name : reflector.getGetablePropertyNames()) {
+      // 只读属性的状态无法通过setter还原，整个类型交给Java序列化处理
+      if (!reflector.hasSetter(name)) {
+        return UNSUPPORTED;
+      }
+      names.add(name);
+    }
+    Collections.sort(names);
+    int size = names.size();
+    Invoker[] getters = new Invoker[size];
+    Invoker[] setters = new Invoker[size];
+    Class<?>[] primitiveTypes = new Class<?>[size];
+    boolean[] skipNulls = new boolean[size];
+    for (int i = 0; i < size; i++) {
+      String name = names.get(i);
+      getters[i] = reflector.getGetInvoker(name);
+      setters[i] = reflector.getSetInvoker(name);
+      if (getters[i] instanceof AmbiguousMethodInvoker || setters[i] instanceof AmbiguousMethodInvoker) {
+        return UNSUPPORTED;
+      }
+      Class<?> getterType = reflector.getGetterType(name);
+      Class<?> setterType = reflector.getSetterType(name);
+      primitiveTypes[i] = getterType.isPrimitive() && getterType == setterType ? getterType : null;
+      skipNulls[i] = setterType.isPrimitive();
+    }
+    return new BeanCodec(type, constructor, getters, setters, primitiveTypes, skipNulls);
+  }
+
+  /**
+   * 数组、JDK中的类、延迟加载的代理对象以及自定义了Java序列化过程的类不按JavaBean编码
+   */
+  private static boolean isBeanType(Class<?> type) {
+    if (type.isArray() || type.isEnum() || type.isInterface() || type.isPrimitive()
+      || Modifier.isAbstract(type.getModifiers())) {
+      return false;
+    }
+    String name = type.getName();
+    if (name.startsWith("java.") || name.startsWith("javax.")) {
+      return false;
+    }
+    if (WriteReplaceInterface.class.isAssignableFrom(type) || Externalizable.class.isAssignableFrom(type)
+      || Proxy.isProxyClass(type)) {
+      return false;
+    }
+    for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+      if (Serializable.class.isAssignableFrom(current)
+        && (declaresMethod(current, "writeObject", ObjectOutputStream.class)
+        || declaresMethod(current, "readObject", ObjectInputStream.class)
+        || declaresMethod(current, "writeReplace")
+        || declaresMethod(current, "readResolve"))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean declaresMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+    try {
+      type.getDeclaredMethod(name, parameterTypes);
+      return true;
+    } catch (NoSuchMethodException e) {
+      return false;
+    }
+  }
+
+  Class<?> getType() {
+    return type;
+  }
+
+  Object newInstance() throws ReflectiveOperationException {
+    return constructor.newInstance();
+  }
+
+  void writeProperties(CompactWriter writer, Object bean) throws ReflectiveOperationException {
+    for (int i = 0; i < getters.length; i++) {
+      Object value = getters[i].invoke(bean, NO_ARGUMENTS);
+      if (primitiveTypes[i] == null) {
+        writer.writeValue(value);
+      } else {
+        writer.writePrimitive(primitiveTypes[i], value);
+      }
+    }
+  }
+
+  void readProperties(CompactReader reader, Object bean) throws ReflectiveOperationException {
+    for (int i = 0; i < setters.length; i++) {
+      Object value = primitiveTypes[i] == null ? reader.readValue() : reader.readPrimitive(primitiveTypes[i]);
+      if (value != null || !skipNulls[i]) {
+        setters[i].invoke(bean, new Object[]{value});
+      }
+    }
+  }
+
+}
@@ -0,0 +1,49 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+
+/**
+ * 缓存值的序列化器，{@link SerializedCache} 通过它为可读写的二级缓存生成对象的拷贝.
+ * <p>
+ * 实现类需要提供无参构造方法。同一个实例会被多个线程同时调用，因此实现类必须是线程安全的。
+ * 序列化失败时应抛出 {@link org.apache.ibatis.cache.CacheException}。
+ * <p>
+ * Serializer used by {@link SerializedCache} to copy the values of a read/write cache.
+ * Configured with the {@code serializer} attribute of {@code <cache>} or {@code @CacheNamespace}.
+ *
+ * @since 3.5.3
+ */
+public interface CacheSerializer {
+
+  /**
+   * 序列化缓存值
+   *
+   * @param object 缓存值，可能为null
+   * @return 序列化后的字节
+   */
+  byte[] serialize(Object object);
+
+  /**
+   * 反序列化，每次调用都返回一个全新的对象
+   *
+   * @param bytes {@link #serialize(Object)} 返回的字节
+   * @return 缓存值的拷贝
+   */
+  Object deserialize(byte[] bytes);
+
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+
+/**
+ * 基于 {@link Reflector} 元数据的紧凑二进制 {@link CacheSerializer}.
+ * <p>
+ * 每个值以一个字节的类型标记开头。常用的值类型(基本类型的包装类、String、BigDecimal、日期、枚举等)
+ * 以及 ArrayList、HashMap 等常用集合直接编码；JavaBean 先写入类名(同一次序列化中每个类只写一次)，
+ * 然后按属性名排序后的顺序依次写入各个属性的值，基本类型的属性不写类型标记。
+ * JavaBean 不需要实现 {@link java.io.Serializable}，但必须有无参构造方法，只有同时可读写的属性会被复制。
+ * 其他对象(例如 java.time 中的类型、延迟加载的代理对象)退化为Java原生序列化，此时要求对象实现 {@link java.io.Serializable}。
+ * <p>
+ * 同一个对象被多次引用时只编码一次，因此可以复制包含循环引用的结果对象。
+ * 序列化使用的缓冲区按线程复用，不会为每次序列化重新分配。
+ * 编码结果只在当前进程内有效，不能用于持久化或跨进程传输。
+ *
+ * @since 3.5.3
+ */
+public class CompactCacheSerializer implements CacheSerializer {
+
+  static final byte NULL = 0;
+  static final byte TRUE = 1;
+  static final byte FALSE = 2;
+  static final byte BYTE = 3;
+  static final byte SHORT = 4;
+  static final byte INT = 5;
+  static final byte LONG = 6;
+  static final byte FLOAT = 7;
+  static final byte DOUBLE = 8;
+  static final byte CHAR = 9;
+  static final byte STRING = 10;
+  static final byte BIG_DECIMAL = 11;
+  static final byte BIG_INTEGER = 12;
+  static final byte DATE = 13;
+  static final byte SQL_DATE = 14;
+  static final byte SQL_TIME = 15;
+  static final byte SQL_TIMESTAMP = 16;
+  static final byte BYTES = 17;
+  static final byte ENUM = 18;
+  static final byte ARRAY_LIST = 19;
+  static final byte LINKED_LIST = 20;
+  static final byte HASH_SET = 21;
+  static final byte LINKED_HASH_SET = 22;
+  static final byte HASH_MAP = 23;
+  static final byte LINKED_HASH_MAP = 24;
+  static final byte BEAN = 25;
+  /**
+   * 引用同一次序列化中已经写入过的对象
+   */
+  static final byte REFERENCE = 26;
+  /**
+   * 使用Java原生序列化的对象
+   */
+  static final byte JAVA = 27;
+
+  /**
+   * 每个线程复用的写缓冲区，多个序列化器实例共享
+   */
+  private static final ThreadLocal<CompactWriter> WRITERS = ThreadLocal.withInitial(CompactWriter::new);
+
+  private final ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+  private final ConcurrentMap<Class<?>, BeanCodec> codecs = new ConcurrentHashMap<>();
+  private final ConcurrentMap<String, Class<?>> classes = new ConcurrentHashMap<>();
+  private final ConcurrentMap<Class<?>, Object[]> enumConstants = new ConcurrentHashMap<>();
+  private final JavaCacheSerializer javaSerializer = new JavaCacheSerializer();
+
+  @Override
+  public byte[] serialize(Object object) {
+    CompactWriter writer = WRITERS.get();
+    if (writer.isInUse()) {
+      // getter方法中又触发了序列化，使用一个临时的写缓冲区
+      writer = new CompactWriter();
+    }
+    try {
+      return writer.write(this, object);
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error serializing object.  Cause: " + e, e);
+    } finally {
+      writer.release();
+    }
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) {
+    try {
+      return new CompactReader(this, bytes).read();
+    } catch (CacheException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CacheException("Error deserializing object.  Cause: " + e, e);
+    }
+  }
+
+  /**
+   * 获取类型对应的编解码器
+   *
+   * @param type 对象的类型
+   * @return 不能按JavaBean编码时返回null
+   */
+  BeanCodec codecFor(Class<?> type) {
+    BeanCodec codec = codecs.get(type);
+    if (codec == null) {
+      codec = BeanCodec.forReflector(reflectorFactory.findForClass(type));
+      codecs.putIfAbsent(type, codec);
+    }
+    return codec == BeanCodec.UNSUPPORTED ? null : codec;
+  }
+
+  Class<?> classForName(String name) throws ClassNotFoundException {
+    Class<?> type = classes.get(name);
+    if (type == null) {
+      type = Resources.classForName(name);
+      classes.putIfAbsent(name, type);
+    }
+    return type;
+  }
+
+  Object enumConstant(Class<?> type, int ordinal) {
+    // getEnumConstants()每次调用都会复制数组，这里缓存起来
+    return enumConstants.computeIfAbsent(type, Class::getEnumConstants)[ordinal];
+  }
+
+  byte[] javaSerialize(Object object) {
+    return javaSerializer.serialize(object);
+  }
+
+  Object javaDeserialize(byte[] bytes) {
+    return javaSerializer.deserialize(bytes);
+  }
+
+}
@@ -0,0 +1,267 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import static org.apache.ibatis.cache.serializer.CompactCacheSerializer.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.CacheException;
+
+/**
+ * 读取 {@link CompactWriter} 写入的数据，每次反序列化创建一个实例.
+ */
+final class CompactReader {
+
+  private final CompactCacheSerializer serializer;
+  private final byte[] buffer;
+  private int position;
+  /**
+   * 已经读取的对象，下标即写入时的编号
+   */
+  private final List<Object> references = new ArrayList<>();
+  private final List<Class<?>> classes = new ArrayList<>();
+
+  CompactReader(CompactCacheSerializer serializer, byte[] buffer) {
+    this.serializer = serializer;
+    this.buffer = buffer;
+  }
+
+  Object read() throws ReflectiveOperationException {
+    return readValue();
+  }
+
+  Object readValue() throws ReflectiveOperationException {
+    byte tag = buffer[position++];
+    switch (tag) {
+      case NULL:
+        return null;
+      case TRUE:
+        return Boolean.TRUE;
+      case FALSE:
+        return Boolean.FALSE;
+      case BYTE:
+        return buffer[position++];
+      case SHORT:
+        return (short) zigZag(readVarInt());
+      case INT:
+        return zigZag(readVarInt());
+      case LONG:
+        return zigZag(readVarLong());
+      case FLOAT:
+        return Float.intBitsToFloat(readInt());
+      case DOUBLE:
+        return Double.longBitsToDouble(readLong());
+      case CHAR:
+        return (char) readVarInt();
+      case STRING:
+        return readString();
+      case BIG_DECIMAL:
+        int scale = zigZag(readVarInt());
+        return new BigDecimal(new BigInteger(readBytes()), scale);
+      case BIG_INTEGER:
+        return new BigInteger(readBytes());
+      case DATE:
+        return new Date(readLong());
+      case SQL_DATE:
+        return new java.sql.Date(readLong());
+      case SQL_TIME:
+        return new Time(readLong());
+      case SQL_TIMESTAMP:
+        Timestamp timestamp = new Timestamp(readLong());
+        timestamp.setNanos(readVarInt());
+        return timestamp;
+      case BYTES:
+        return readBytes();
+      case ENUM:
+        Class<?> enumType = readClass();
+        return serializer.enumConstant(enumType, readVarInt());
+      case ARRAY_LIST:
+        int size = readVarInt();
+        return readCollection(new ArrayList<>(size), size);
+      case LINKED_LIST:
+        return readCollection(new LinkedList<>(), readVarInt());
+      case HASH_SET:
+        size = readVarInt();
+        return readCollection(new HashSet<>(capacity(size)), size);
+      case LINKED_HASH_SET:
+        size = readVarInt();
+        return readCollection(new LinkedHashSet<>(capacity(size)), size);
+      case HASH_MAP:
+        size = readVarInt();
+        return readMap(new HashMap<>(capacity(size)), size);
+      case LINKED_HASH_MAP:
+        size = readVarInt();
+        return readMap(new LinkedHashMap<>(capacity(size)), size);
+      case BEAN:
+        return readBean();
+      case REFERENCE:
+        return references.get(readVarInt());
+      case JAVA:
+        return serializer.javaDeserialize(readBytes());
+      default:
+        throw new CacheException("Unknown type tag " + tag + " at position " + (position - 1) + ".");
+    }
+  }
+
+  private Collection<Object> readCollection(Collection<Object> collection, int size) throws ReflectiveOperationException {
+    references.add(collection);
+    for (int i = 0; i < size; i++) {
+      collection.add(readValue());
+    }
+    return collection;
+  }
+
+  private Map<Object, Object> readMap(Map<Object, Object> map, int size) throws ReflectiveOperationException {
+    references.add(map);
+    for (int i = 0; i < size; i++) {
+      map.put(readValue(), readValue());
+    }
+    return map;
+  }
+
+  private Object readBean() throws ReflectiveOperationException {
+    Class<?> type = readClass();
+    BeanCodec codec = serializer.codecFor(type);
+    if (codec == null) {
+      throw new CacheException("Class " + type.getName() + " can not be decoded as a JavaBean.");
+    }
+    Object bean = codec.newInstance();
+    // 先登记再读取属性，属性中可以引用该对象自身
+    references.add(bean);
+    codec.readProperties(this, bean);
+    return bean;
+  }
+
+  Object readPrimitive(Class<?> type) {
+    if (type == int.class) {
+      return zigZag(readVarInt());
+    } else if (type == long.class) {
+      return zigZag(readVarLong());
+    } else if (type == boolean.class) {
+      return buffer[position++] == TRUE;
+    } else if (type == double.class) {
+      return Double.longBitsToDouble(readLong());
+    } else if (type == float.class) {
+      return Float.intBitsToFloat(readInt());
+    } else if (type == short.class) {
+      return (short) zigZag(readVarInt());
+    } else if (type == byte.class) {
+      return buffer[position++];
+    } else {
+      return (char) readVarInt();
+    }
+  }
+
+  private Class<?> readClass() throws ClassNotFoundException {
+    int id = readVarInt();
+    if (id > 0) {
+      return classes.get(id - 1);
+    }
+    Class<?> type = serializer.classForName(readString());
+    classes.add(type);
+    return type;
+  }
+
+  private String readString() {
+    int length = readVarInt();
+    char[] chars = new char[length];
+    byte[] buffer = this.buffer;
+    int position = this.position;
+    for (int i = 0; i < length; i++) {
+      int b = buffer[position++];
+      if (b >= 0) {
+        chars[i] = (char) b;
+      } else {
+        int c = b & 0x7F;
+        int shift = 7;
+        do {
+          b = buffer[position++];
+          c |= (b & 0x7F) << shift;
+          shift += 7;
+        } while (b < 0);
+        chars[i] = (char) c;
+      }
+    }
+    this.position = position;
+    return new String(chars);
+  }
+
+  private byte[] readBytes() {
+    int length = readVarInt();
+    byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+    position += length;
+    return bytes;
+  }
+
+  private int readVarInt() {
+    int value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = buffer[position++];
+      value |= (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  private long readVarLong() {
+    long value = 0;
+    for (int shift = 0; ; shift += 7) {
+      byte b = buffer[position++];
+      value |= (long) (b & 0x7F) << shift;
+      if (b >= 0) {
+        return value;
+      }
+    }
+  }
+
+  private int readInt() {
+    return (buffer[position++] & 0xFF) << 24 | (buffer[position++] & 0xFF) << 16
+      | (buffer[position++] & 0xFF) << 8 | (buffer[position++] & 0xFF);
+  }
+
+  private long readLong() {
+    return ((long) readInt() << 32) | (readInt() & 0xFFFFFFFFL);
+  }
+
+  private static int capacity(int size) {
+    return (int) (size / 0.75f) + 1;
+  }
+
+  private static int zigZag(int value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+  private static long zigZag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+
+}
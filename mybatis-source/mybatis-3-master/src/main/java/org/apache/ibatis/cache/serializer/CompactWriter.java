@@ -0,0 +1,328 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cache.serializer;
+
+import static org.apache.ibatis.cache.serializer.CompactCacheSerializer.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.Map;
+
+/**
+ * {@link CompactCacheSerializer} 的写缓冲区，每个线程复用一个实例.
+ */
+final class CompactWriter {
+
+  private static final int INITIAL_CAPACITY = 256;
+  /**
+   * 缓冲区超过该大小时，序列化结束后不再保留，避免长期占用内存
+   */
+  private static final int MAX_POOLED_CAPACITY = 1 << 20;
+  /**
+   * 引用表超过该大小时，序列化结束后重新创建(IdentityHashMap的clear()需要遍历整个table)
+   */
+  private static final int MAX_POOLED_REFERENCES = 1024;
+
+  private byte[] buffer = new byte[INITIAL_CAPACITY];
+  private int position;
+  /**
+   * 已经写入的对象及其编号
+   */
+  private IdentityHashMap<Object, Integer> references = new IdentityHashMap<>();
+  /**
+   * 已经写入的类及其编号
+   */
+  private final IdentityHashMap<Class<?>, Integer> classIds = new IdentityHashMap<>();
+  /**
+   * 正在使用该缓冲区的序列化器，为null时表示空闲
+   */
+  private CompactCacheSerializer serializer;
+
+  boolean isInUse() {
+    return serializer != null;
+  }
+
+  byte[] write(CompactCacheSerializer serializer, Object object) throws ReflectiveOperationException {
+    this.serializer = serializer;
+    writeValue(object);
+    return Arrays.copyOf(buffer, position);
+  }
+
+  /**
+   * 序列化结束后重置状态，以便下次复用
+   */
+  void release() {
+    serializer = null;
+    position = 0;
+    if (references.size() > MAX_POOLED_REFERENCES) {
+      references = new IdentityHashMap<>();
+    } else {
+      references.clear();
+    }
+    classIds.clear();
+    if (buffer.length > MAX_POOLED_CAPACITY) {
+      buffer = new byte[INITIAL_CAPACITY];
+    }
+  }
+
+  void writeValue(Object value) throws ReflectiveOperationException {
+    if (value == null) {
+      writeByte(NULL);
+      return;
+    }
+    Class<?> type = value.getClass();
+    if (type == String.class) {
+      writeByte(STRING);
+      writeString((String) value);
+    } else if (type == Integer.class) {
+      writeByte(INT);
+      writeVarInt(zigZag((Integer) value));
+    } else if (type == Long.class) {
+      writeByte(LONG);
+      writeVarLong(zigZag((Long) value));
+    } else if (type == Boolean.class) {
+      writeByte((Boolean) value ? TRUE : FALSE);
+    } else if (type == Double.class) {
+      writeByte(DOUBLE);
+      writeLong(Double.doubleToRawLongBits((Double) value));
+    } else if (type == BigDecimal.class) {
+      BigDecimal decimal = (BigDecimal) value;
+      writeByte(BIG_DECIMAL);
+      writeVarInt(zigZag(decimal.scale()));
+      writeBytes(decimal.unscaledValue().toByteArray());
+    } else if (type == Timestamp.class) {
+      Timestamp timestamp = (Timestamp) value;
+      writeByte(SQL_TIMESTAMP);
+      writeLong(timestamp.getTime());
+      writeVarInt(timestamp.getNanos());
+    } else if (type == Date.class) {
+      writeByte(DATE);
+      writeLong(((Date) value).getTime());
+    } else if (type == java.sql.Date.class) {
+      writeByte(SQL_DATE);
+      writeLong(((Date) value).getTime());
+    } else if (type == Time.class) {
+      writeByte(SQL_TIME);
+      writeLong(((Date) value).getTime());
+    } else if (type == Float.class) {
+      writeByte(FLOAT);
+      writeInt(Float.floatToRawIntBits((Float) value));
+    } else if (type == Short.class) {
+      writeByte(SHORT);
+      writeVarInt(zigZag((Short) value));
+    } else if (type == Byte.class) {
+      writeByte(BYTE);
+      writeByte((Byte) value);
+    } else if (type == Character.class) {
+      writeByte(CHAR);
+      writeVarInt((Character) value);
+    } else if (type == BigInteger.class) {
+      writeByte(BIG_INTEGER);
+      writeBytes(((BigInteger) value).toByteArray());
+    } else if (type == byte[].class) {
+      writeByte(BYTES);
+      writeBytes((byte[]) value);
+    } else if (value instanceof Enum) {
+      Enum<?> constant = (Enum<?>) value;
+      writeByte(ENUM);
+      writeClass(constant.getDeclaringClass());
+      writeVarInt(constant.ordinal());
+    } else {
+      writeObject(type, value);
+    }
+  }
+
+  /**
+   * 写入可能被多次引用的对象：集合、Map 和 JavaBean
+   */
+  private void writeObject(Class<?> type, Object value) throws ReflectiveOperationException {
+    Integer reference = references.get(value);
+    if (reference != null) {
+      writeByte(REFERENCE);
+      writeVarInt(reference);
+      return;
+    }
+    if (type == ArrayList.class) {
+      writeCollection(ARRAY_LIST, (Collection<?>) value);
+    } else if (type == HashMap.class) {
+      writeMap(HASH_MAP, (Map<?, ?>) value);
+    } else if (type == LinkedHashMap.class) {
+      writeMap(LINKED_HASH_MAP, (Map<?, ?>) value);
+    } else if (type == HashSet.class) {
+      writeCollection(HASH_SET, (Collection<?>) value);
+    } else if (type == LinkedHashSet.class) {
+      writeCollection(LINKED_HASH_SET, (Collection<?>) value);
+    } else if (type == LinkedList.class) {
+      writeCollection(LINKED_LIST, (Collection<?>) value);
+    } else {
+      BeanCodec codec = serializer.codecFor(type);
+      if (codec != null) {
+        references.put(value, references.size());
+        writeByte(BEAN);
+        writeClass(type);
+        codec.writeProperties(this, value);
+      } else {
+        // 其他对象使用Java原生序列化，不参与引用编号
+        writeByte(JAVA);
+        writeBytes(serializer.javaSerialize(value));
+      }
+    }
+  }
+
+  private void writeCollection(byte tag, Collection<?> collection) throws ReflectiveOperationException {
+    references.put(collection, references.size());
+    writeByte(tag);
+    writeVarInt(collection.size());
+    for (Object element : collection) {
+      writeValue(element);
+    }
+  }
+
+  private void writeMap(byte tag, Map<?, ?> map) throws ReflectiveOperationException {
+    references.put(map, references.size());
+    writeByte(tag);
+    writeVarInt(map.size());
+    for (Map.Entry<?, ?> entry : map.entrySet()) {
+      writeValue(entry.getKey());
+      writeValue(entry.getValue());
+    }
+  }
+
+  /**
+   * 写入基本类型属性的值，不写类型标记
+   */
+  void writePrimitive(Class<?> type, Object value) {
+    if (type == int.class) {
+      writeVarInt(zigZag((Integer) value));
+    } else if (type == long.class) {
+      writeVarLong(zigZag((Long) value));
+    } else if (type == boolean.class) {
+      writeByte((Boolean) value ? TRUE : FALSE);
+    } else if (type == double.class) {
+      writeLong(Double.doubleToRawLongBits((Double) value));
+    } else if (type == float.class) {
+      writeInt(Float.floatToRawIntBits((Float) value));
+    } else if (type == short.class) {
+      writeVarInt(zigZag((Short) value));
+    } else if (type == byte.class) {
+      writeByte((Byte) value);
+    } else {
+      writeVarInt((Character) value);
+    }
+  }
+
+  /**
+   * 同一次序列化中每个类只写一次类名，之后写入编号
+   */
+  private void writeClass(Class<?> type) {
+    Integer id = classIds.get(type);
+    if (id != null) {
+      writeVarInt(id + 1);
+    } else {
+      classIds.put(type, classIds.size());
+      writeVarInt(0);
+      writeString(type.getName());
+    }
+  }
+
+  private void writeString(String value) {
+    int length = value.length();
+    writeVarInt(length);
+    // 每个字符最多占3个字节
+    ensureCapacity(length * 3);
+    byte[] buffer = this.buffer;
+    int position = this.position;
+    for (int i = 0; i < length; i++) {
+      int c = value.charAt(i);
+      while ((c & ~0x7F) != 0) {
+        buffer[position++] = (byte) ((c & 0x7F) | 0x80);
+        c >>>= 7;
+      }
+      buffer[position++] = (byte) c;
+    }
+    this.position = position;
+  }
+
+  private void writeBytes(byte[] bytes) {
+    writeVarInt(bytes.length);
+    ensureCapacity(bytes.length);
+    System.arraycopy(bytes, 0, buffer, position, bytes.length);
+    position += bytes.length;
+  }
+
+  private void writeByte(int value) {
+    ensureCapacity(1);
+    buffer[position++] = (byte) value;
+  }
+
+  private void writeVarInt(int value) {
+    ensureCapacity(5);
+    while ((value & ~0x7F) != 0) {
+      buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+  }
+
+  private void writeVarLong(long value) {
+    ensureCapacity(10);
+    while ((value & ~0x7FL) != 0) {
+      buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+      value >>>= 7;
+    }
+    buffer[position++] = (byte) value;
+  }
+
+  private void writeInt(int value) {
+    ensureCapacity(4);
+    buffer[position++] = (byte) (value >>> 24);
+    buffer[position++] = (byte) (value >>> 16);
+    buffer[position++] = (byte) (value >>> 8);
+    buffer[position++] = (byte) value;
+  }
+
+  private void writeLong(long value) {
+    writeInt((int) (value >>> 32));
+    writeInt((int) value);
+  }
+
+  private void ensureCapacity(int length) {
+    if (position + length > buffer.length) {
+      buffer = Arrays.copyOf(buffer, Math.max(buffer.length << 1, position + length));
+    }
+  }
+
+  private static int zigZag(int value) {
+    return (value << 1) ^ (value >> 31);
+  }
+
+  private static long zigZag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+}
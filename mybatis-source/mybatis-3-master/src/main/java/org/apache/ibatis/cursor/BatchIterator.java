@@ -0,0 +1,62 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cursor;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link Cursor#batches(int)} 的默认实现：从游标的迭代器中逐个获取结果对象，填充到同一个 List 中
+ */
+class BatchIterator<T> implements Iterator<List<T>> {
+
+  private final Iterator<T> iterator;
+  private final int size;
+  private final List<T> batch;
+
+  BatchIterator(Cursor<T> cursor, int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("Batch size must be positive, but was " + size);
+    }
+    this.iterator = cursor.iterator();
+    this.size = size;
+    this.batch = new ArrayList<>(size);
+  }
+
+  @Override
+  public boolean hasNext() {
+    return iterator.hasNext();
+  }
+
+  @Override
+  public List<T> next() {
+    batch.clear();
+    while (batch.size() < size && iterator.hasNext()) {
+      batch.add(iterator.next());
+    }
+    if (batch.isEmpty()) {
+      throw new NoSuchElementException();
+    }
+    return batch;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException("Cannot remove element from Cursor");
+  }
+}
@@ -16,12 +16,16 @@
 package org.apache.ibatis.cursor;
 
 import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
 
 /**
  * Cursor contract to handle fetching items lazily using an Iterator.
  * Cursors are a perfect fit to handle millions of items queries that would not normally fits in memory.
- * If you use collections in resultMaps then cursor SQL queries must be ordered (resultOrdered="true")
- * using the id columns of the resultMap.
+ * If you use collections in resultMaps then cursor SQL queries must be ordered (resultOrdered="true",
+ * or {@code @Options(resultOrdered = true)} on mapper methods) using the id columns of the resultMap.
+ * Each item is then returned once all of its rows have been read, and only the nested objects of the
+ * current item are kept in memory.
  *
  * @author Guillaume Darmont / guillaume@dropinocean.com
  */
@@ -43,4 +47,21 @@ public interface Cursor<T> extends Closeable, Iterable<T> {
    * @return -1 if the first cursor item has not been retrieved. The index of the current item retrieved.
    */
   int getCurrentIndex();
+
+  /**
+   * Returns the remaining items in chunks of at most {@code size} items, for example for bulk writes.
+   * <p>
+   * The same list instance is refilled for every chunk, so a chunk is only valid until the next call to
+   * {@code hasNext()} or {@code next()} of the returned iterator. Copy it if it must be kept. Like
+   * {@link #iterator()}, this can only be called once, and not together with {@link #iterator()}.
+   * Implementations may map the rows straight into the chunk and adjust the JDBC fetch size to the chunk size.
+   *
+   * @param size the maximum number of items in a chunk
+   * @return the chunks of the remaining items
+   * @since 3.5.3
+   */
+  default Iterable<List<T>> batches(int size) {
+    Iterator<List<T>> batchIterator = new BatchIterator<>(this, size);
+    return () -> batchIterator;
+  }
 }
@@ -27,7 +27,9 @@ import org.apache.ibatis.session.SqlSession;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 
 /**
@@ -129,6 +131,42 @@ public class DefaultCursor<T> implements Cursor<T> {
     return cursorIterator;
   }
 
+  /**
+   * 每次调用 {@link DefaultResultSetHandler#handleRowValues} 映射一批结果对象，直接放入复用的 List 中，
+   * 而不是每个结果对象调用一次。如果结果集的 fetchSize 小于批次大小，会把它调整为批次大小
+   */
+  @Override
+  public Iterable<List<T>> batches(int size) {
+    if (size < 1) {
+      throw new IllegalArgumentException("Batch size must be positive, but was " + size);
+    }
+    if (iteratorRetrieved) {
+      throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+    }
+    if (isClosed()) {
+      throw new IllegalStateException("A Cursor is already closed.");
+    }
+    iteratorRetrieved = true;
+    alignFetchSize(size);
+    BatchIterator batchIterator = new BatchIterator(size);
+    return () -> batchIterator;
+  }
+
+  /**
+   * fetchSize 为负数时(例如 MySQL 的流式读取)保持不变
+   */
+  private void alignFetchSize(int size) {
+    try {
+      ResultSet rs = rsw.getResultSet();
+      int fetchSize = rs.getFetchSize();
+      if (fetchSize >= 0 && fetchSize < size) {
+        rs.setFetchSize(size);
+      }
+    } catch (SQLException e) {
+      // fetchSize 只是提示，驱动不支持时忽略
+    }
+  }
+
   /**
    * 关闭结果集对象和游标对象
    */
@@ -221,6 +259,33 @@ public class DefaultCursor<T> implements Cursor<T> {
     return indexWithRowBound + 1;
   }
 
+  /**
+   * 映射一批结果对象：忽略 {@link RowBounds#getOffset()} 之前的结果对象，批次已满或达到 {@link RowBounds#getLimit()} 时停止
+   */
+  private class BatchResultHandler implements ResultHandler<T> {
+
+    private final List<T> batch;
+    private final int size;
+    private boolean stopped;
+
+    BatchResultHandler(int size) {
+      this.batch = new ArrayList<>(size);
+      this.size = size;
+    }
+
+    @Override
+    public void handleResult(ResultContext<? extends T> context) {
+      indexWithRowBound++;
+      if (indexWithRowBound >= rowBounds.getOffset()) {
+        batch.add(context.getResultObject());
+      }
+      if (batch.size() == size || getReadItemsCount() == rowBounds.getOffset() + rowBounds.getLimit()) {
+        context.stop();
+        stopped = true;
+      }
+    }
+  }
+
   protected static class ObjectWrapperResultHandler<T> implements ResultHandler<T> {
 
     /**
@@ -237,6 +302,67 @@ public class DefaultCursor<T> implements Cursor<T> {
     }
   }
 
+  /**
+   * 按批次迭代的迭代器，每个批次复用同一个 List
+   */
+  private class BatchIterator implements Iterator<List<T>> {
+
+    private final BatchResultHandler handler;
+    /**
+     * 为true表示 handler.batch 中的结果对象还没有通过next()返回
+     */
+    private boolean fetched;
+
+    BatchIterator(int size) {
+      this.handler = new BatchResultHandler(size);
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (!fetched) {
+        fetchNextBatch();
+      }
+      return fetched;
+    }
+
+    private void fetchNextBatch() {
+      handler.batch.clear();
+      if (isClosed()) {
+        return;
+      }
+      try {
+        handler.stopped = false;
+        status = CursorStatus.OPEN;
+        if (!rsw.getResultSet().isClosed()) {
+          resultSetHandler.handleRowValues(rsw, resultMap, handler, RowBounds.DEFAULT, null);
+        }
+      } catch (SQLException e) {
+        throw new RuntimeException(e);
+      }
+      // 没有被handler停止说明结果集已经读完
+      if (!handler.stopped || getReadItemsCount() == rowBounds.getOffset() + rowBounds.getLimit()) {
+        close();
+        status = CursorStatus.CONSUMED;
+      }
+      fetched = !handler.batch.isEmpty();
+    }
+
+    @Override
+    public List<T> next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      fetched = false;
+      cursorIterator.iteratorIndex += handler.batch.size();
+      return handler.batch;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Cannot remove element from Cursor");
+    }
+  }
+
   /**
    * 游标迭代器
    */
@@ -0,0 +1,264 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.RowBounds;
+
+/**
+ * 预读的游标：在后台线程中逐行映射结果集，把映射得到的对象放入一个有界队列，调用者迭代时从队列中获取，
+ * 这样调用者处理结果对象与读取、映射数据库记录可以同时进行.
+ * <p>
+ * 后台线程在第一次调用 {@link #iterator()} 时启动，队列中最多保存 fetchAhead 个对象，队列满时后台线程等待。
+ * 后台线程抛出的异常会在调用者下一次调用 {@link Iterator#hasNext()} 或 {@link Iterator#next()} 时重新抛出，之后游标被关闭。
+ * {@link #close()} 会先停止后台线程并等待它结束，再关闭结果集，因此关闭 {@link org.apache.ibatis.session.SqlSession} 时可以安全地释放连接。
+ * <p>
+ * 后台线程与调用者共用同一个数据库连接，游标打开期间不能通过同一个 SqlSession 执行其他语句。
+ * 与 {@link DefaultCursor} 一样，该类不是线程安全的。
+ *
+ * @since 3.5.3
+ */
+public class PrefetchingCursor<T> implements Cursor<T> {
+
+  private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+  /**
+   * 表示结果集已经读取完毕的队列元素
+   */
+  private static final Object END = new Object();
+
+  /**
+   * 在后台线程中使用的游标，后台线程启动后只能由后台线程访问
+   */
+  private final DefaultCursor<T> delegate;
+  private final RowBounds rowBounds;
+  private final BlockingQueue<Object> queue;
+  private final CursorIterator cursorIterator = new CursorIterator();
+
+  private Thread prefetchThread;
+  /**
+   * 为true时后台线程停止读取
+   */
+  private volatile boolean closing;
+  private boolean iteratorRetrieved;
+  /**
+   * 调用者是否已经开始读取，与 {@link DefaultCursor} 一样，开始读取之后游标才是打开状态
+   */
+  private boolean fetchStarted;
+  private boolean closed;
+  private boolean consumed;
+
+  /**
+   * @param delegate   实际读取结果集的游标
+   * @param rowBounds  与 delegate 使用的 RowBounds 相同，用于计算 {@link #getCurrentIndex()}
+   * @param fetchAhead 最多预读的对象个数
+   */
+  public PrefetchingCursor(DefaultCursor<T> delegate, RowBounds rowBounds, int fetchAhead) {
+    if (fetchAhead < 1) {
+      throw new IllegalArgumentException("fetchAhead must be positive, but was " + fetchAhead);
+    }
+    this.delegate = delegate;
+    this.rowBounds = rowBounds;
+    // 额外的一个位置用于放入 END 或异常
+    this.queue = new ArrayBlockingQueue<>(fetchAhead + 1);
+  }
+
+  @Override
+  public boolean isOpen() {
+    return fetchStarted && !closed && !consumed;
+  }
+
+  @Override
+  public boolean isConsumed() {
+    return consumed;
+  }
+
+  @Override
+  public int getCurrentIndex() {
+    return rowBounds.getOffset() + cursorIterator.iteratorIndex;
+  }
+
+  @Override
+  public Iterator<T> iterator() {
+    if (iteratorRetrieved) {
+      throw new IllegalStateException("Cannot open more than one iterator on a Cursor");
+    }
+    if (closed || consumed) {
+      throw new IllegalStateException("A Cursor is already closed.");
+    }
+    iteratorRetrieved = true;
+    prefetchThread = new Thread(this::prefetch, "mybatis-cursor-prefetch-" + THREAD_NUMBER.incrementAndGet());
+    prefetchThread.setDaemon(true);
+    prefetchThread.start();
+    return cursorIterator;
+  }
+
+  /**
+   * 后台线程：逐个映射结果对象并放入队列，直到结果集读取完毕、出现异常或游标被关闭
+   */
+  private void prefetch() {
+    Object last = END;
+    try {
+      Iterator<T> iterator = delegate.iterator();
+      while (!closing && iterator.hasNext()) {
+        queue.put(new Prefetched(iterator.next()));
+      }
+    } catch (Throwable t) {
+      last = new Failure(t);
+    }
+    try {
+      if (!closing) {
+        queue.put(last);
+      }
+    } catch (InterruptedException e) {
+      // 不会中断后台线程，忽略
+    }
+  }
+
+  /**
+   * 停止后台线程并等待它结束，然后关闭结果集
+   */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    if (prefetchThread != null) {
+      closing = true;
+      // 清空队列，唤醒等待放入对象的后台线程，它放入一个对象后会检测到 closing 并退出
+      queue.clear();
+      joinUninterruptibly(prefetchThread);
+      queue.clear();
+    }
+    delegate.close();
+  }
+
+  private static void joinUninterruptibly(Thread thread) {
+    boolean interrupted = false;
+    while (thread.isAlive()) {
+      try {
+        thread.join();
+      } catch (InterruptedException e) {
+        interrupted = true;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * 队列中的一个结果对象，结果对象可能为null，因此需要包装
+   */
+  private static final class Prefetched {
+    final Object value;
+
+    Prefetched(Object value) {
+      this.value = value;
+    }
+  }
+
+  /**
+   * 后台线程抛出的异常
+   */
+  private static final class Failure {
+    final Throwable cause;
+
+    Failure(Throwable cause) {
+      this.cause = cause;
+    }
+  }
+
+  /**
+   * 游标迭代器，从队列中获取结果对象
+   */
+  protected class CursorIterator implements Iterator<T> {
+
+    /**
+     * 已经从队列中取出、还没有通过next()返回的元素
+     */
+    private Object next;
+
+    /**
+     * Index of objects returned using next(), and as such, visible to users.
+     */
+    int iteratorIndex = -1;
+
+    @Override
+    public boolean hasNext() {
+      if (next == null) {
+        if (closed || consumed) {
+          return false;
+        }
+        fetchStarted = true;
+        next = take();
+      }
+      if (next == END) {
+        next = null;
+        consumed = true;
+        close();
+        return false;
+      }
+      if (next instanceof Failure) {
+        Throwable cause = ((Failure) next).cause;
+        next = null;
+        close();
+        if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+          throw (Error) cause;
+        }
+        throw new RuntimeException(cause);
+      }
+      return true;
+    }
+
+    private Object take() {
+      try {
+        return queue.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        close();
+        throw new RuntimeException("Interrupted while waiting for the next object of the cursor", e);
+      }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Object value = ((Prefetched) next).value;
+      next = null;
+      iteratorIndex++;
+      return (T) value;
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException("Cannot remove element from Cursor");
+    }
+  }
+}
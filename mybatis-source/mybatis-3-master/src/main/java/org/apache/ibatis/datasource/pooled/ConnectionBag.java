@@ -0,0 +1,316 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * {@link PoolEngine#CONCURRENT_BAG} 引擎使用的无锁连接容器.
+ * <p>
+ * 所有真实连接都登记在一个 {@link CopyOnWriteArrayList} 中，每个条目通过 CAS 修改自身状态完成借出与归还；
+ * 每个线程优先复用自己最近归还的连接(线程亲和)，归还时如果有线程正在等待，则通过公平的 {@link SynchronousQueue} 直接移交给等待者。
+ * 整个过程不需要持有全局锁。
+ */
+class ConnectionBag {
+
+  /**
+   * 每个线程最多记住的最近归还连接个数
+   */
+  private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+  /**
+   * 归还连接时等待者尚未进入移交队列，先让出CPU的次数，超过后改为挂起
+   */
+  private static final int MAX_HANDOFF_SPINS = 16;
+  /**
+   * 每次挂起等待移交的时长(纳秒)
+   */
+  private static final long HANDOFF_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+  /**
+   * 连接池中登记的全部连接(包括空闲和活跃连接)
+   */
+  private final CopyOnWriteArrayList<Entry> sharedList = new CopyOnWriteArrayList<>();
+  /**
+   * 线程最近归还的连接，借出时优先从这里查找
+   */
+  private final ThreadLocal<List<Entry>> threadList = ThreadLocal.withInitial(() -> new ArrayList<>(MAX_THREAD_LOCAL_ENTRIES));
+  /**
+   * 公平的移交队列，按照等待的先后顺序把归还的连接交给等待线程
+   */
+  private final SynchronousQueue<Entry> handoffQueue = new SynchronousQueue<>(true);
+  /**
+   * 正在等待连接的线程个数
+   */
+  private final AtomicInteger waiters = new AtomicInteger();
+  /**
+   * 已登记以及正在创建中的连接个数，用于在不加锁的情况下限制最大活跃连接数
+   */
+  private final AtomicInteger reserved = new AtomicInteger();
+  /**
+   * 空闲条目的个数，随条目状态的变化增减，归还连接时不需要遍历 {@link #sharedList}
+   */
+  private final AtomicInteger idle = new AtomicInteger();
+
+  /**
+   * 尝试在不等待的情况下借出一个空闲连接
+   *
+   * @return 借到的条目，没有空闲连接时返回 null
+   */
+  Entry poll() {
+    List<Entry> list = threadList.get();
+    for (int i = list.size() - 1; i >= 0; i--) {
+      Entry entry = list.remove(i);
+      if (borrow(entry)) {
+        return entry;
+      }
+    }
+    for (Entry entry : sharedList) {
+      if (borrow(entry)) {
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * 借出指定的空闲条目
+   *
+   * @param entry 条目
+   * @return 条目不是空闲状态时返回 false
+   */
+  boolean borrow(Entry entry) {
+    if (entry.compareAndSet(Entry.STATE_IDLE, Entry.STATE_IN_USE)) {
+      idle.decrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * 等待其他线程归还连接，最多等待 timeout 毫秒
+   *
+   * @param timeout 等待时长(毫秒)
+   * @return 借到的条目，超时则返回 null
+   * @throws InterruptedException 等待过程中线程被中断
+   */
+  Entry await(long timeout) throws InterruptedException {
+    waiters.incrementAndGet();
+    try {
+      // 登记为等待者之后再扫描一次，避免错过在登记之前刚刚归还的连接
+      Entry entry = poll();
+      if (entry != null) {
+        return entry;
+      }
+      long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+      long remaining = deadline - System.nanoTime();
+      while (remaining > 0) {
+        entry = handoffQueue.poll(remaining, TimeUnit.NANOSECONDS);
+        if (entry == null || borrow(entry)) {
+          return entry;
+        }
+        remaining = deadline - System.nanoTime();
+      }
+      return null;
+    } finally {
+      waiters.decrementAndGet();
+    }
+  }
+
+  /**
+   * 为即将创建的连接预留一个名额
+   *
+   * @param maximum 最大连接数
+   * @return 是否预留成功
+   */
+  boolean reserve(int maximum) {
+    for (; ; ) {
+      int current = reserved.get();
+      if (current >= maximum) {
+        return false;
+      }
+      if (reserved.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * 释放 {@link #reserve(int)} 预留的名额(连接创建失败时调用)
+   */
+  void cancelReservation() {
+    reserved.decrementAndGet();
+  }
+
+  /**
+   * 登记一个新创建的真实连接，登记后的条目处于借出状态
+   *
+   * @param realConnection 真实连接
+   * @return 新条目
+   */
+  Entry add(Connection realConnection) {
+    Entry entry = new Entry(realConnection);
+    sharedList.add(entry);
+    return entry;
+  }
+
+  /**
+   * 归还连接：有线程等待时直接移交，否则放入当前线程的亲和列表。
+   * 等待者已经登记但还没有进入移交队列时，先短暂让出CPU，之后改为限时挂起，不会持续自旋
+   *
+   * @param entry 归还的条目
+   * @return 条目已经被移除(例如连接池被强制关闭)时返回 false
+   */
+  boolean requite(Entry entry) {
+    if (!entry.compareAndSet(Entry.STATE_IN_USE, Entry.STATE_IDLE)) {
+      return false;
+    }
+    idle.incrementAndGet();
+    for (int spins = 0; waiters.get() > 0; spins++) {
+      if (entry.get() != Entry.STATE_IDLE || handoffQueue.offer(entry)) {
+        return true;
+      }
+      if (spins < MAX_HANDOFF_SPINS) {
+        Thread.yield();
+        continue;
+      }
+      try {
+        if (handoffQueue.offer(entry, HANDOFF_PARK_NANOS, TimeUnit.NANOSECONDS)) {
+          return true;
+        }
+      } catch (InterruptedException e) {
+        // 连接已经处于空闲状态，等待者仍然可以通过扫描借到它
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+    List<Entry> list = threadList.get();
+    if (list.size() < MAX_THREAD_LOCAL_ENTRIES) {
+      list.add(entry);
+    }
+    return true;
+  }
+
+  /**
+   * 从容器中移除条目，移除后名额被释放
+   *
+   * @param entry 被移除的条目
+   * @return 条目是否由本次调用移除
+   */
+  boolean remove(Entry entry) {
+    int previous = entry.getAndSet(Entry.STATE_REMOVED);
+    if (previous == Entry.STATE_REMOVED) {
+      return false;
+    }
+    if (previous == Entry.STATE_IDLE) {
+      idle.decrementAndGet();
+    }
+    sharedList.remove(entry);
+    reserved.decrementAndGet();
+    return true;
+  }
+
+  /**
+   * 当前登记的全部条目，迭代时读取的是 {@link CopyOnWriteArrayList} 的快照，不需要复制
+   */
+  List<Entry> values() {
+    return Collections.unmodifiableList(sharedList);
+  }
+
+  int getWaitingThreadCount() {
+    return waiters.get();
+  }
+
+  /**
+   * 条目状态与计数器分两步修改，并发归还与借出时计数器可能短暂为负数
+   */
+  int getIdleCount() {
+    return Math.max(0, idle.get());
+  }
+
+  int getActiveCount() {
+    int count = 0;
+    for (Entry entry : sharedList) {
+      if (entry.get() == Entry.STATE_IN_USE) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * 容器中的一个真实连接.
+   * 状态本身通过 CAS 修改；{@link #owner} 记录当前持有该连接的 {@link PooledConnection}，
+   * 用于在归还与回收超时连接之间做仲裁，二者只有一方能够成功。
+   */
+  static final class Entry extends AtomicInteger {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int STATE_IDLE = 0;
+    static final int STATE_IN_USE = 1;
+    static final int STATE_REMOVED = -1;
+
+    private final Connection realConnection;
+    private final AtomicReference<PooledConnection> owner = new AtomicReference<>();
+    private final long createdTimestamp;
+    private volatile long lastUsedTimestamp;
+
+    Entry(Connection realConnection) {
+      super(STATE_IN_USE);
+      this.realConnection = realConnection;
+      this.createdTimestamp = System.currentTimeMillis();
+      this.lastUsedTimestamp = this.createdTimestamp;
+    }
+
+    Connection getRealConnection() {
+      return realConnection;
+    }
+
+    PooledConnection getOwner() {
+      return owner.get();
+    }
+
+    void setOwner(PooledConnection owner) {
+      this.owner.set(owner);
+    }
+
+    boolean changeOwner(PooledConnection expected, PooledConnection update) {
+      return owner.compareAndSet(expected, update);
+    }
+
+    long getCreatedTimestamp() {
+      return createdTimestamp;
+    }
+
+    long getLastUsedTimestamp() {
+      return lastUsedTimestamp;
+    }
+
+    void setLastUsedTimestamp(long lastUsedTimestamp) {
+      this.lastUsedTimestamp = lastUsedTimestamp;
+    }
+
+  }
+
+}
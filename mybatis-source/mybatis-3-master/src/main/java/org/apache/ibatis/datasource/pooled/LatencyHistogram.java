@@ -0,0 +1,153 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 不加锁的耗时直方图(单位:毫秒).
+ * <p>
+ * 第 0 个桶记录 0 毫秒，第 i 个桶记录 [2^(i-1), 2^i) 毫秒，每个桶都是一个 {@link LongAdder}，
+ * 多线程同时记录时不会互相竞争。
+ */
+public final class LatencyHistogram {
+
+  /**
+   * 桶的个数，最后一个桶记录所有大于等于 2^(BUCKET_COUNT-2) 毫秒的值
+   */
+  static final int BUCKET_COUNT = 32;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * 记录一次耗时
+   *
+   * @param millis 耗时(毫秒)，负数按 0 处理
+   */
+  public void record(long millis) {
+    long value = Math.max(0L, millis);
+    buckets[bucketIndex(value)].increment();
+    sum.add(value);
+    max.accumulate(value);
+  }
+
+  /**
+   * 读取当前的统计值，读取过程不加锁
+   *
+   * @return 统计快照
+   */
+  public Snapshot getSnapshot() {
+    long[] counts = new long[BUCKET_COUNT];
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = buckets[i].sum();
+    }
+    return new Snapshot(counts, sum.sum(), max.get());
+  }
+
+  static int bucketIndex(long millis) {
+    return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(millis));
+  }
+
+  /**
+   * 第 index 个桶的上界(不包含)
+   */
+  static long bucketUpperBound(int index) {
+    return index == BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << index;
+  }
+
+  /**
+   * {@link LatencyHistogram} 在某一时刻的不可变快照
+   */
+  public static final class Snapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    Snapshot(long[] counts, long sum, long max) {
+      this.counts = counts;
+      this.sum = sum;
+      this.max = max;
+      long total = 0;
+      for (long c : counts) {
+        total += c;
+      }
+      this.count = total;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    public long getSum() {
+      return sum;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    public long getMean() {
+      return count == 0 ? 0 : sum / count;
+    }
+
+    /**
+     * 估算百分位数，返回目标值所在桶的上界(不超过记录到的最大值)
+     *
+     * @param percentile 0 到 1 之间的百分位，例如 0.99
+     * @return 估算的耗时(毫秒)
+     */
+    public long getPercentile(double percentile) {
+      if (count == 0) {
+        return 0;
+      }
+      long rank = (long) Math.ceil(Math.min(1.0, Math.max(0.0, percentile)) * count);
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank && counts[i] > 0) {
+          return Math.min(max, bucketUpperBound(i) - 1);
+        }
+      }
+      return max;
+    }
+
+    /**
+     * @return 每个桶的计数，第 0 个桶记录 0 毫秒，第 i 个桶记录 [2^(i-1), 2^i) 毫秒
+     */
+    public long[] getBucketCounts() {
+      return Arrays.copyOf(counts, counts.length);
+    }
+
+    @Override
+    public String toString() {
+      return "count=" + count + ", mean=" + getMean() + ", p50=" + getPercentile(0.5)
+        + ", p99=" + getPercentile(0.99) + ", max=" + max;
+    }
+  }
+
+}
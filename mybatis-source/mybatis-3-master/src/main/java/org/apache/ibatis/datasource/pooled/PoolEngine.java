@@ -0,0 +1,35 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * {@link PooledDataSource} 借出与归还连接所使用的实现.
+ * <p>
+ * 可以通过 {@link PooledDataSourceFactory} 的 {@code poolEngine} 属性进行配置。
+ *
+ * @since 3.5.3
+ */
+public enum PoolEngine {
+  /**
+   * 默认实现：通过 {@link PoolState} 对象上的全局锁以及 wait/notifyAll 管理连接
+   */
+  SYNCHRONIZED,
+  /**
+   * 无锁实现：连接保存在 {@link ConnectionBag} 中，借出和归还都通过 CAS 完成，并且优先复用当前线程最近归还的连接，
+   * 等待线程按照先后顺序通过移交队列获取连接
+   */
+  CONCURRENT_BAG
+}
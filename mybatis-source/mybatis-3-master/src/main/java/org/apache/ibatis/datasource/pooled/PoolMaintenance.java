@@ -0,0 +1,70 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * {@link PooledDataSource} 的后台维护任务，按照固定的间隔调用 {@link PooledDataSource#runMaintenance()}.
+ * <p>
+ * 任务只持有连接池的弱引用，连接池不再被使用并被回收之后，后台线程会自动停止。
+ */
+final class PoolMaintenance implements Runnable {
+
+  private static final Log log = LogFactory.getLog(PoolMaintenance.class);
+
+  private static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+  private final WeakReference<PooledDataSource> dataSourceRef;
+  private final ScheduledExecutorService executor;
+
+  PoolMaintenance(PooledDataSource dataSource, long interval) {
+    this.dataSourceRef = new WeakReference<>(dataSource);
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "mybatis-pool-maintenance-" + THREAD_NUMBER.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.scheduleWithFixedDelay(this, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void run() {
+    PooledDataSource dataSource = dataSourceRef.get();
+    if (dataSource == null) {
+      shutdown();
+      return;
+    }
+    try {
+      dataSource.runMaintenance();
+    } catch (RuntimeException e) {
+      // 异常不能抛出,否则后续的维护任务不会再被调度
+      log.warn("PooledDataSource: Pool maintenance failed: " + e.getMessage());
+    }
+  }
+
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+}
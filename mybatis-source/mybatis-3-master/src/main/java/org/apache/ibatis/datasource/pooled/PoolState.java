@@ -17,6 +17,7 @@ package org.apache.ibatis.datasource.pooled;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * 用于管理 {@link PooledConnection} 对象状态的组件，
@@ -70,13 +71,38 @@ public class PoolState {
    * 无效连接数
    */
   protected long badConnectionCount = 0;
+  /*
+   * 与上面的统计值一一对应，分段累加，getter 读取时不需要获取连接池的锁，
+   * 因此监控系统频繁读取统计信息时不会阻塞 popConnection()/pushConnection()
+   */
+  final LongAdder requestCountAdder = new LongAdder();
+  final LongAdder accumulatedRequestTimeAdder = new LongAdder();
+  final LongAdder accumulatedCheckoutTimeAdder = new LongAdder();
+  final LongAdder claimedOverdueConnectionCountAdder = new LongAdder();
+  final LongAdder accumulatedCheckoutTimeOfOverdueConnectionsAdder = new LongAdder();
+  final LongAdder accumulatedWaitTimeAdder = new LongAdder();
+  final LongAdder hadToWaitCountAdder = new LongAdder();
+  final LongAdder badConnectionCountAdder = new LongAdder();
+
+  /**
+   * 每次等待连接的耗时分布
+   */
+  protected final LatencyHistogram waitTimeHistogram = new LatencyHistogram();
+  /**
+   * 每次请求(从调用 getConnection() 到拿到连接)的耗时分布
+   */
+  protected final LatencyHistogram requestTimeHistogram = new LatencyHistogram();
+  /**
+   * 连接被借出使用(从借出到归还或者被回收)的时长分布
+   */
+  protected final LatencyHistogram checkoutTimeHistogram = new LatencyHistogram();
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
   }
 
-  public synchronized long getRequestCount() {
-    return requestCount;
+  public long getRequestCount() {
+    return requestCountAdder.sum();
   }
 
   /**
@@ -84,8 +110,9 @@ public class PoolState {
    *
    * @return
    */
-  public synchronized long getAverageRequestTime() {
-    return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+  public long getAverageRequestTime() {
+    long count = requestCountAdder.sum();
+    return count == 0 ? 0 : accumulatedRequestTimeAdder.sum() / count;
   }
 
   /**
@@ -93,55 +120,164 @@ public class PoolState {
    *
    * @return
    */
-  public synchronized long getAverageWaitTime() {
-    return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+  public long getAverageWaitTime() {
+    long count = hadToWaitCountAdder.sum();
+    return count == 0 ? 0 : accumulatedWaitTimeAdder.sum() / count;
 
   }
 
-  public synchronized long getHadToWaitCount() {
-    return hadToWaitCount;
+  public long getHadToWaitCount() {
+    return hadToWaitCountAdder.sum();
   }
 
-  public synchronized long getBadConnectionCount() {
-    return badConnectionCount;
+  public long getBadConnectionCount() {
+    return badConnectionCountAdder.sum();
   }
 
-  public synchronized long getClaimedOverdueConnectionCount() {
-    return claimedOverdueConnectionCount;
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueConnectionCountAdder.sum();
   }
 
-  public synchronized long getAverageOverdueCheckoutTime() {
-    return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+  public long getAverageOverdueCheckoutTime() {
+    long count = claimedOverdueConnectionCountAdder.sum();
+    return count == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnectionsAdder.sum() / count;
   }
 
   /**
    *
    * @return
    */
-  public synchronized long getAverageCheckoutTime() {
-    return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+  public long getAverageCheckoutTime() {
+    long count = requestCountAdder.sum();
+    return count == 0 ? 0 : accumulatedCheckoutTimeAdder.sum() / count;
   }
 
   /**
    * 获取空闲连接的个数
+   * <p>
+   * SYNCHRONIZED 引擎下获取连接池的锁读取
    *
    * @return
    */
-  public synchronized int getIdleConnectionCount() {
-    return idleConnections.size();
+  public int getIdleConnectionCount() {
+    ConnectionBag bag = dataSource.connectionBag;
+    if (bag != null) {
+      return bag.getIdleCount();
+    }
+    synchronized (this) {
+      return idleConnections.size();
+    }
   }
 
   /**
    * 获取活跃连接的个数
+   * <p>
+   * SYNCHRONIZED 引擎下获取连接池的锁读取
    *
    * @return
    */
-  public synchronized int getActiveConnectionCount() {
-    return activeConnections.size();
+  public int getActiveConnectionCount() {
+    ConnectionBag bag = dataSource.connectionBag;
+    if (bag != null) {
+      return bag.getActiveCount();
+    }
+    synchronized (this) {
+      return activeConnections.size();
+    }
+  }
+
+  /**
+   * @return 每次等待连接的耗时分布(毫秒)
+   * @since 3.5.3
+   */
+  public LatencyHistogram.Snapshot getWaitTimeHistogram() {
+    return waitTimeHistogram.getSnapshot();
+  }
+
+  /**
+   * @return 每次获取连接的耗时分布(毫秒)
+   * @since 3.5.3
+   */
+  public LatencyHistogram.Snapshot getRequestTimeHistogram() {
+    return requestTimeHistogram.getSnapshot();
+  }
+
+  /**
+   * @return 连接被借出使用的时长分布(毫秒)
+   * @since 3.5.3
+   */
+  public LatencyHistogram.Snapshot getCheckoutTimeHistogram() {
+    return checkoutTimeHistogram.getSnapshot();
+  }
+
+  /**
+   * 读取全部统计信息的快照，读取统计值时不获取连接池的锁
+   *
+   * @return 统计快照
+   * @since 3.5.3
+   */
+  public PoolStateSnapshot snapshot() {
+    return new PoolStateSnapshot(this);
+  }
+
+  /*
+   * 以下方法供连接池引擎记录统计信息使用。protected 的 long 字段可能被子类直接读取，
+   * 只在调用方已经持有连接池的锁(SYNCHRONIZED 引擎)时才更新；CONCURRENT_BAG 引擎不获取该锁，
+   * 它的统计值只记录在 LongAdder 中，通过 getter 读取
+   */
+
+  void recordRequest(long requestTime) {
+    requestCountAdder.increment();
+    accumulatedRequestTimeAdder.add(requestTime);
+    requestTimeHistogram.record(requestTime);
+    if (Thread.holdsLock(this)) {
+      requestCount++;
+      accumulatedRequestTime += requestTime;
+    }
+  }
+
+  void recordCheckout(long checkoutTime) {
+    accumulatedCheckoutTimeAdder.add(checkoutTime);
+    checkoutTimeHistogram.record(checkoutTime);
+    if (Thread.holdsLock(this)) {
+      accumulatedCheckoutTime += checkoutTime;
+    }
+  }
+
+  void recordOverdueCheckout(long checkoutTime) {
+    claimedOverdueConnectionCountAdder.increment();
+    accumulatedCheckoutTimeOfOverdueConnectionsAdder.add(checkoutTime);
+    if (Thread.holdsLock(this)) {
+      claimedOverdueConnectionCount++;
+      accumulatedCheckoutTimeOfOverdueConnections += checkoutTime;
+    }
+    recordCheckout(checkoutTime);
+  }
+
+  void recordHadToWait() {
+    hadToWaitCountAdder.increment();
+    if (Thread.holdsLock(this)) {
+      hadToWaitCount++;
+    }
+  }
+
+  void recordWait(long waitTime) {
+    accumulatedWaitTimeAdder.add(waitTime);
+    waitTimeHistogram.record(waitTime);
+    if (Thread.holdsLock(this)) {
+      accumulatedWaitTime += waitTime;
+    }
+  }
+
+  void recordBadConnection() {
+    badConnectionCountAdder.increment();
+    if (Thread.holdsLock(this)) {
+      badConnectionCount++;
+    }
   }
 
   @Override
-  public synchronized String toString() {
+  public String toString() {
     StringBuilder builder = new StringBuilder();
     builder.append("\n===CONFINGURATION==============================================");
     builder.append("\n jdbcDriver                     ").append(dataSource.getDriver());
@@ -155,6 +291,11 @@ public class PoolState {
     builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    builder.append("\n poolEngine                     ").append(dataSource.poolEngine);
+    builder.append("\n poolMaintenanceInterval        ").append(dataSource.poolMaintenanceInterval);
+    builder.append("\n poolMaximumLifetime            ").append(dataSource.poolMaximumLifetime);
+    builder.append("\n poolMaximumIdleTime            ").append(dataSource.poolMaximumIdleTime);
+    builder.append("\n poolMinimumIdle                ").append(dataSource.poolMinimumIdle);
     builder.append("\n ---STATUS-----------------------------------------------------");
     builder.append("\n activeConnections              ").append(getActiveConnectionCount());
     builder.append("\n idleConnections                ").append(getIdleConnectionCount());
@@ -166,6 +307,9 @@ public class PoolState {
     builder.append("\n hadToWait                      ").append(getHadToWaitCount());
     builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
     builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
+    builder.append("\n requestTimeHistogram           ").append(getRequestTimeHistogram());
+    builder.append("\n checkoutTimeHistogram          ").append(getCheckoutTimeHistogram());
+    builder.append("\n waitTimeHistogram              ").append(getWaitTimeHistogram());
     builder.append("\n===============================================================");
     return builder.toString();
   }
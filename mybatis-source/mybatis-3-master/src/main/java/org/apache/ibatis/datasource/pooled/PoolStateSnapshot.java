@@ -0,0 +1,140 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * {@link PoolState} 统计信息的不可变快照.
+ * <p>
+ * 通过 {@link PoolState#snapshot()} 创建，读取统计值时不获取连接池的锁，适合监控系统定期采集。
+ * 各项统计值是分别读取的，读取过程中连接池仍在更新，同一个快照中的数值之间不保证一致。
+ *
+ * @since 3.5.3
+ */
+public final class PoolStateSnapshot {
+
+  private final long timestamp;
+  private final int activeConnectionCount;
+  private final int idleConnectionCount;
+  private final long requestCount;
+  private final long accumulatedRequestTime;
+  private final long accumulatedCheckoutTime;
+  private final long claimedOverdueConnectionCount;
+  private final long accumulatedCheckoutTimeOfOverdueConnections;
+  private final long hadToWaitCount;
+  private final long accumulatedWaitTime;
+  private final long badConnectionCount;
+  private final LatencyHistogram.Snapshot waitTimeHistogram;
+  private final LatencyHistogram.Snapshot requestTimeHistogram;
+  private final LatencyHistogram.Snapshot checkoutTimeHistogram;
+
+  PoolStateSnapshot(PoolState state) {
+    this.timestamp = System.currentTimeMillis();
+    this.activeConnectionCount = state.getActiveConnectionCount();
+    this.idleConnectionCount = state.getIdleConnectionCount();
+    this.requestCount = state.requestCountAdder.sum();
+    this.accumulatedRequestTime = state.accumulatedRequestTimeAdder.sum();
+    this.accumulatedCheckoutTime = state.accumulatedCheckoutTimeAdder.sum();
+    this.claimedOverdueConnectionCount = state.claimedOverdueConnectionCountAdder.sum();
+    this.accumulatedCheckoutTimeOfOverdueConnections = state.accumulatedCheckoutTimeOfOverdueConnectionsAdder.sum();
+    this.hadToWaitCount = state.hadToWaitCountAdder.sum();
+    this.accumulatedWaitTime = state.accumulatedWaitTimeAdder.sum();
+    this.badConnectionCount = state.badConnectionCountAdder.sum();
+    this.waitTimeHistogram = state.waitTimeHistogram.getSnapshot();
+    this.requestTimeHistogram = state.requestTimeHistogram.getSnapshot();
+    this.checkoutTimeHistogram = state.checkoutTimeHistogram.getSnapshot();
+  }
+
+  /**
+   * @return 创建快照的时间戳
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public int getActiveConnectionCount() {
+    return activeConnectionCount;
+  }
+
+  public int getIdleConnectionCount() {
+    return idleConnectionCount;
+  }
+
+  public long getRequestCount() {
+    return requestCount;
+  }
+
+  public long getAccumulatedRequestTime() {
+    return accumulatedRequestTime;
+  }
+
+  public long getAverageRequestTime() {
+    return requestCount == 0 ? 0 : accumulatedRequestTime / requestCount;
+  }
+
+  public long getAccumulatedCheckoutTime() {
+    return accumulatedCheckoutTime;
+  }
+
+  public long getAverageCheckoutTime() {
+    return requestCount == 0 ? 0 : accumulatedCheckoutTime / requestCount;
+  }
+
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueConnectionCount;
+  }
+
+  public long getAverageOverdueCheckoutTime() {
+    return claimedOverdueConnectionCount == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnections / claimedOverdueConnectionCount;
+  }
+
+  public long getHadToWaitCount() {
+    return hadToWaitCount;
+  }
+
+  public long getAccumulatedWaitTime() {
+    return accumulatedWaitTime;
+  }
+
+  public long getAverageWaitTime() {
+    return hadToWaitCount == 0 ? 0 : accumulatedWaitTime / hadToWaitCount;
+  }
+
+  public long getBadConnectionCount() {
+    return badConnectionCount;
+  }
+
+  /**
+   * @return 每次等待连接的耗时分布(毫秒)
+   */
+  public LatencyHistogram.Snapshot getWaitTimeHistogram() {
+    return waitTimeHistogram;
+  }
+
+  /**
+   * @return 每次获取连接的耗时分布(毫秒)
+   */
+  public LatencyHistogram.Snapshot getRequestTimeHistogram() {
+    return requestTimeHistogram;
+  }
+
+  /**
+   * @return 连接被借出使用的时长分布(毫秒)
+   */
+  public LatencyHistogram.Snapshot getCheckoutTimeHistogram() {
+    return checkoutTimeHistogram;
+  }
+
+}
@@ -71,6 +71,10 @@ class PooledConnection implements InvocationHandler {
    * 检测当前PooledConnection是否有效，主要是为了防止程序通过close() 方法将连接归还给连接池之后，依然通过该连接操作数据库
    */
   private boolean valid;
+  /**
+   * 使用 {@link PoolEngine#CONCURRENT_BAG} 引擎时，该连接在 {@link ConnectionBag} 中对应的条目
+   */
+  private ConnectionBag.Entry bagEntry;
 
   /**
    * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in.
@@ -232,6 +236,19 @@ class PooledConnection implements InvocationHandler {
     return System.currentTimeMillis() - checkoutTimestamp;
   }
 
+  /**
+   * Getter for the {@link ConnectionBag} entry this connection was checked out from.
+   *
+   * @return the entry, or null if the connection is managed by the synchronized engine
+   */
+  ConnectionBag.Entry getBagEntry() {
+    return bagEntry;
+  }
+
+  void setBagEntry(ConnectionBag.Entry bagEntry) {
+    this.bagEntry = bagEntry;
+  }
+
   @Override
   public int hashCode() {
     return hashCode;
@@ -27,6 +27,9 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Properties;
 import java.util.logging.Logger;
 
@@ -77,6 +80,42 @@ public class PooledDataSource implements DataSource {
    * 当连接超过 poolPingConnectionsNotUsedFor 毫秒未使用时，会发送一次测试SQL语句，检测连接是否正常
    */
   protected int poolPingConnectionsNotUsedFor;
+  /**
+   * 借出与归还连接所使用的实现
+   */
+  protected PoolEngine poolEngine = PoolEngine.SYNCHRONIZED;
+  /**
+   * 后台维护任务的执行间隔(毫秒),小于等于0表示不启用后台维护任务。
+   * 启用后由后台线程检测空闲连接,借出连接时不再同步发送测试SQL语句
+   */
+  protected int poolMaintenanceInterval;
+  /**
+   * 连接的最大生存时间(毫秒),超过该时间的连接会被关闭,小于等于0表示不限制
+   */
+  protected int poolMaximumLifetime;
+  /**
+   * 空闲连接的最长空闲时间(毫秒),超过该时间的空闲连接会被后台维护任务关闭(保留 poolMinimumIdle 个),小于等于0表示不限制
+   */
+  protected int poolMaximumIdleTime;
+  /**
+   * 后台维护任务需要保持的最少空闲连接数
+   */
+  protected int poolMinimumIdle;
+
+  /**
+   * 后台维护任务,未启用时为 null
+   */
+  private PoolMaintenance maintenance;
+
+  /**
+   * 使用 {@link PoolEngine#CONCURRENT_BAG} 引擎时保存连接的无锁容器，使用默认引擎时为 null
+   */
+  volatile ConnectionBag connectionBag;
+
+  /**
+   * 使用默认引擎时,后台维护任务移出空闲集合、正在锁外检测的连接个数,计入活跃连接数的上限。只在 state 的锁内访问
+   */
+  private int validatingConnectionCount;
 
   /**
    * 根据数据库的URL、用户名和密码生成的一个hash值，该哈希值用于标志着当前的连接池
@@ -271,6 +310,70 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /**
+   * The engine used to check out and return connections.
+   *
+   * @param poolEngine the pool engine, {@link PoolEngine#SYNCHRONIZED} by default
+   * @since 3.5.3
+   */
+  public void setPoolEngine(PoolEngine poolEngine) {
+    this.poolEngine = poolEngine == null ? PoolEngine.SYNCHRONIZED : poolEngine;
+    forceCloseAll();
+    this.connectionBag = this.poolEngine == PoolEngine.CONCURRENT_BAG ? new ConnectionBag() : null;
+  }
+
+  /**
+   * How often (in milliseconds) the background maintenance task validates idle connections, evicts
+   * stale or expired connections and creates idle connections up to {@link #setPoolMinimumIdle(int)}.
+   * When enabled, checkouts no longer run the ping query inline. Zero (default) disables the task.
+   *
+   * @param milliseconds the interval between two maintenance runs
+   * @since 3.5.3
+   */
+  public synchronized void setPoolMaintenanceInterval(int milliseconds) {
+    if (maintenance != null) {
+      maintenance.shutdown();
+      maintenance = null;
+    }
+    this.poolMaintenanceInterval = milliseconds;
+    if (milliseconds > 0) {
+      maintenance = new PoolMaintenance(this, milliseconds);
+    }
+  }
+
+  /**
+   * The maximum lifetime of a connection in milliseconds. Older connections are closed when
+   * they are returned or by the maintenance task. Zero (default) means no limit.
+   *
+   * @param milliseconds the maximum lifetime
+   * @since 3.5.3
+   */
+  public void setPoolMaximumLifetime(int milliseconds) {
+    this.poolMaximumLifetime = milliseconds;
+  }
+
+  /**
+   * The maximum time in milliseconds a connection may sit idle before the maintenance task
+   * closes it, as long as more than {@link #setPoolMinimumIdle(int)} connections are idle.
+   * Zero (default) means no limit.
+   *
+   * @param milliseconds the maximum idle time
+   * @since 3.5.3
+   */
+  public void setPoolMaximumIdleTime(int milliseconds) {
+    this.poolMaximumIdleTime = milliseconds;
+  }
+
+  /**
+   * The minimum number of idle connections the maintenance task keeps ready.
+   *
+   * @param poolMinimumIdle the minimum number of idle connections
+   * @since 3.5.3
+   */
+  public void setPoolMinimumIdle(int poolMinimumIdle) {
+    this.poolMinimumIdle = poolMinimumIdle;
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -338,6 +441,41 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  /**
+   * @since 3.5.3
+   */
+  public PoolEngine getPoolEngine() {
+    return poolEngine;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public int getPoolMaintenanceInterval() {
+    return poolMaintenanceInterval;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public int getPoolMaximumLifetime() {
+    return poolMaximumLifetime;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public int getPoolMaximumIdleTime() {
+    return poolMaximumIdleTime;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public int getPoolMinimumIdle() {
+    return poolMinimumIdle;
+  }
+
   /**
    * 当修改PooledDataSource的字段时，例如数据库URL、username、password、autoCommit配置等，都会调用forceCloseAll() 方法将
    * 所有数据库连接关闭，同时也会将所有相应的 PooledConnection 对象都设置为无效，清空activeConnections集合和idleConnections 集合。
@@ -384,6 +522,19 @@ public class PooledDataSource implements DataSource {
         }
       }
     }
+    // 关闭无锁容器中的全部连接,正在使用中的连接被置为无效,归还时会被当作无效连接丢弃
+    ConnectionBag bag = connectionBag;
+    if (bag != null) {
+      for (ConnectionBag.Entry entry : bag.values()) {
+        if (bag.remove(entry)) {
+          PooledConnection owner = entry.getOwner();
+          if (owner != null) {
+            owner.invalidate();
+          }
+          closeRealConnection(entry.getRealConnection());
+        }
+      }
+    }
     if (log.isDebugEnabled()) {
       log.debug("PooledDataSource forcefully closed/removed all connections.");
     }
@@ -412,6 +563,11 @@ public class PooledDataSource implements DataSource {
    * @throws SQLException
    */
   protected void pushConnection(PooledConnection conn) throws SQLException {
+    // 由无锁引擎借出的连接,归还到 ConnectionBag 中
+    if (conn.getBagEntry() != null) {
+      pushConnectionToBag(conn);
+      return;
+    }
 
     synchronized (state) {
       // 从活跃连接集合中移除该连接
@@ -419,9 +575,10 @@ public class PooledDataSource implements DataSource {
       // 检查连接是否有效:是
       if (conn.isValid()) {
         // 检查空闲连接数是否已经达到上限,以及 conn 是否为该连接池的连接
-        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
+        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode
+            && !isExpired(conn.getCreatedTimestamp(), System.currentTimeMillis())) {
           // 累计 checkout 时长
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
+          state.recordCheckout(conn.getCheckoutTime());
           // 回滚非自动提交事务的连接
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
@@ -439,8 +596,8 @@ public class PooledDataSource implements DataSource {
             log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
           }
           state.notifyAll();
-        } else {  // 空闲连接集合已经达到上限或者 conn 不是该连接池的连接
-          state.accumulatedCheckoutTime += conn.getCheckoutTime();
+        } else {  // 空闲连接集合已经达到上限、conn 不是该连接池的连接或者 conn 超过了最大生存时间
+          state.recordCheckout(conn.getCheckoutTime());
           // 非自动提交事务连接回滚事务
           if (!conn.getRealConnection().getAutoCommit()) {
             conn.getRealConnection().rollback();
@@ -458,7 +615,7 @@ public class PooledDataSource implements DataSource {
           log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
         }
         // 无效连接个数累加
-        state.badConnectionCount++;
+        state.recordBadConnection();
       }
     }
   }
@@ -472,6 +629,10 @@ public class PooledDataSource implements DataSource {
    * @throws SQLException
    */
   private PooledConnection popConnection(String username, String password) throws SQLException {
+    ConnectionBag bag = connectionBag;
+    if (bag != null) {
+      return popConnectionFromBag(bag, username, password);
+    }
     // 连接是否等待
     boolean countedWait = false;
     PooledConnection conn = null;
@@ -489,7 +650,7 @@ public class PooledDataSource implements DataSource {
           }
         } else {  // 是否有空闲连接:否
           // Pool does not have available connection
-          if (state.activeConnections.size() < poolMaximumActiveConnections) {            // 活跃连接是否达到最大值:否
+          if (state.activeConnections.size() + validatingConnectionCount < poolMaximumActiveConnections) {  // 活跃连接是否达到最大值:否
             // Can create new connection
             // 使用真实连接创建新的连接
             conn = new PooledConnection(dataSource.getConnection(), this);
@@ -499,16 +660,13 @@ public class PooledDataSource implements DataSource {
           } else {  // 活跃连接是否达到最大值:是
             // Cannot create new connection
             // 获取第一个活跃连接,也就是最先创建了解时长最久的那个连接(就远原则)
-            PooledConnection oldestActiveConnection = state.activeConnections.get(0);
-            long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
-            if (longestCheckoutTime > poolMaximumCheckoutTime) {  // 连接是否超时:是
+            // 达到上限的连接都在被后台维护任务检测时,没有可以回收的活跃连接,只能等待
+            PooledConnection oldestActiveConnection = state.activeConnections.isEmpty() ? null : state.activeConnections.get(0);
+            long longestCheckoutTime = oldestActiveConnection == null ? 0 : oldestActiveConnection.getCheckoutTime();
+            if (oldestActiveConnection != null && longestCheckoutTime > poolMaximumCheckoutTime) {  // 连接是否超时:是
               // Can claim overdue connection
-              // 累计连接超时次数
-              state.claimedOverdueConnectionCount++;
-              // 累计连接超时时间
-              state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
-              // 累计连接时间
-              state.accumulatedCheckoutTime += longestCheckoutTime;
+              // 累计连接超时次数、连接超时时间以及连接时间
+              state.recordOverdueCheckout(longestCheckoutTime);
               // 异常超时连接
               state.activeConnections.remove(oldestActiveConnection);
               if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {  // 是否自动提交事务:否
@@ -545,7 +703,7 @@ public class PooledDataSource implements DataSource {
                 // 循环等待连接
                 if (!countedWait) {
                   // 记录等待连接次数
-                  state.hadToWaitCount++;
+                  state.recordHadToWait();
                   countedWait = true;
                 }
                 if (log.isDebugEnabled()) {
@@ -555,7 +713,7 @@ public class PooledDataSource implements DataSource {
                 // 无法获取连接时,线程等待 poolTimeToWait 时长
                 state.wait(poolTimeToWait);
                 // 累计等待时长
-                state.accumulatedWaitTime += System.currentTimeMillis() - wt;
+                state.recordWait(System.currentTimeMillis() - wt);
               } catch (InterruptedException e) {
                 // 抛出异常,结束循环
                 break;
@@ -576,16 +734,14 @@ public class PooledDataSource implements DataSource {
             conn.setLastUsedTimestamp(System.currentTimeMillis());
             // 把连接加入活跃连接集合中
             state.activeConnections.add(conn);
-            // 累计请求数据连接次数
-            state.requestCount++;
-            // 累计请求连接时长
-            state.accumulatedRequestTime += System.currentTimeMillis() - t;
+            // 累计请求数据连接次数以及请求连接时长
+            state.recordRequest(System.currentTimeMillis() - t);
           } else {
             if (log.isDebugEnabled()) {
               log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
             }
             // 连接无效,则累计无效连接时间
-            state.badConnectionCount++;
+            state.recordBadConnection();
             localBadConnectionCount++;
             conn = null;
             if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
@@ -611,6 +767,235 @@ public class PooledDataSource implements DataSource {
     return conn;
   }
 
+  /**
+   * {@link PoolEngine#CONCURRENT_BAG} 引擎获取连接的实现,逻辑与 {@link #popConnection(String, String)} 相同,
+   * 但是不持有全局锁:优先复用空闲连接,其次创建新连接,再次回收超时连接,最后排队等待其他线程归还连接
+   *
+   * @param bag
+   * @param username
+   * @param password
+   * @return
+   * @throws SQLException
+   */
+  private PooledConnection popConnectionFromBag(ConnectionBag bag, String username, String password) throws SQLException {
+    boolean countedWait = false;
+    long t = System.currentTimeMillis();
+    int localBadConnectionCount = 0;
+
+    while (true) {
+      PooledConnection conn = null;
+      ConnectionBag.Entry entry = bag.poll();
+      if (entry != null) {
+        // 获取空闲连接
+        conn = checkoutFromBag(entry);
+        if (log.isDebugEnabled()) {
+          log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+        }
+      } else if (bag.reserve(poolMaximumActiveConnections)) {
+        // 连接数未达到上限,在锁外创建新的连接
+        Connection realConnection;
+        try {
+          realConnection = dataSource.getConnection();
+        } catch (SQLException e) {
+          bag.cancelReservation();
+          throw e;
+        }
+        conn = checkoutFromBag(bag.add(realConnection));
+        if (log.isDebugEnabled()) {
+          log.debug("Created connection " + conn.getRealHashCode() + ".");
+        }
+      } else {
+        // 连接数已达上限,尝试回收超时连接,否则排队等待
+        conn = claimOverdueConnection(bag);
+        if (conn == null) {
+          if (!countedWait) {
+            state.recordHadToWait();
+            countedWait = true;
+          }
+          if (log.isDebugEnabled()) {
+            log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+          }
+          long wt = System.currentTimeMillis();
+          try {
+            entry = bag.await(poolTimeToWait);
+          } catch (InterruptedException e) {
+            break;
+          }
+          state.recordWait(System.currentTimeMillis() - wt);
+          if (entry != null) {
+            conn = checkoutFromBag(entry);
+            if (log.isDebugEnabled()) {
+              log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+            }
+          }
+        }
+      }
+
+      if (conn != null) {
+        if (conn.isValid()) {
+          try {
+            if (!conn.getRealConnection().getAutoCommit()) {
+              conn.getRealConnection().rollback();
+            }
+          } catch (SQLException e) {
+            discardFromBag(bag, conn);
+            throw e;
+          }
+          conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+          conn.setCheckoutTimestamp(System.currentTimeMillis());
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          state.recordRequest(System.currentTimeMillis() - t);
+          return conn;
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+        }
+        state.recordBadConnection();
+        discardFromBag(bag, conn);
+        localBadConnectionCount++;
+        if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+          if (log.isDebugEnabled()) {
+            log.debug("PooledDataSource: Could not get a good connection to the database.");
+          }
+          throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+        }
+      }
+    }
+
+    if (log.isDebugEnabled()) {
+      log.debug("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+    }
+    throw new SQLException("PooledDataSource: Unknown severe error condition.  The connection pool returned a null connection.");
+  }
+
+  /**
+   * 为借出的条目创建新的 PooledConnection 对象,并将其登记为条目的持有者
+   */
+  private PooledConnection checkoutFromBag(ConnectionBag.Entry entry) {
+    PooledConnection conn = new PooledConnection(entry.getRealConnection(), this);
+    conn.setBagEntry(entry);
+    conn.setCreatedTimestamp(entry.getCreatedTimestamp());
+    conn.setLastUsedTimestamp(entry.getLastUsedTimestamp());
+    // 先设置 checkout 时间戳再登记持有者,避免刚借出的连接被其他线程当作超时连接回收
+    conn.setCheckoutTimestamp(System.currentTimeMillis());
+    entry.setOwner(conn);
+    return conn;
+  }
+
+  /**
+   * 回收一个超过 poolMaximumCheckoutTime 仍未归还的连接.
+   * 与归还操作通过 CAS 竞争条目的持有者,因此同一个连接不会既被归还又被回收
+   *
+   * @param bag
+   * @return 回收的连接,没有超时连接时返回 null
+   */
+  private PooledConnection claimOverdueConnection(ConnectionBag bag) {
+    for (ConnectionBag.Entry entry : bag.values()) {
+      PooledConnection overdue = entry.getOwner();
+      if (overdue == null) {
+        continue;
+      }
+      long checkoutTime = overdue.getCheckoutTime();
+      if (checkoutTime <= poolMaximumCheckoutTime) {
+        continue;
+      }
+      PooledConnection conn = new PooledConnection(entry.getRealConnection(), this);
+      conn.setBagEntry(entry);
+      conn.setCreatedTimestamp(overdue.getCreatedTimestamp());
+      conn.setLastUsedTimestamp(overdue.getLastUsedTimestamp());
+      conn.setCheckoutTimestamp(System.currentTimeMillis());
+      if (entry.changeOwner(overdue, conn)) {
+        overdue.invalidate();
+        state.recordOverdueCheckout(checkoutTime);
+        try {
+          if (!entry.getRealConnection().getAutoCommit()) {
+            entry.getRealConnection().rollback();
+          }
+        } catch (SQLException e) {
+          // 与 popConnection 一样,交由后面的 isValid() 检测决定是否丢弃该连接
+          log.debug("Bad connection. Could not roll back");
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+        }
+        return conn;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * {@link PoolEngine#CONCURRENT_BAG} 引擎归还连接的实现
+   *
+   * @param conn
+   * @throws SQLException
+   */
+  private void pushConnectionToBag(PooledConnection conn) throws SQLException {
+    ConnectionBag.Entry entry = conn.getBagEntry();
+    ConnectionBag bag = connectionBag;
+    // 连接已经被当作超时连接回收,真实连接已经属于其他 PooledConnection 对象
+    if (!entry.changeOwner(conn, null)) {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.recordBadConnection();
+      return;
+    }
+    if (bag == null || !conn.isValid()) {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      state.recordBadConnection();
+      discardFromBag(bag, conn);
+      return;
+    }
+    state.recordCheckout(conn.getCheckoutTime());
+    try {
+      if (!conn.getRealConnection().getAutoCommit()) {
+        conn.getRealConnection().rollback();
+      }
+    } catch (SQLException e) {
+      discardFromBag(bag, conn);
+      throw e;
+    }
+    conn.invalidate();
+    entry.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+    if (conn.getConnectionTypeCode() == expectedConnectionTypeCode
+        && !isExpired(conn.getCreatedTimestamp(), System.currentTimeMillis())
+        && (bag.getWaitingThreadCount() > 0 || bag.getIdleCount() < poolMaximumIdleConnections)
+        && bag.requite(entry)) {
+      if (log.isDebugEnabled()) {
+        log.debug("Returned connection " + conn.getRealHashCode() + " to pool.");
+      }
+    } else {
+      discardFromBag(bag, conn);
+      if (log.isDebugEnabled()) {
+        log.debug("Closed connection " + conn.getRealHashCode() + ".");
+      }
+    }
+  }
+
+  /**
+   * 从容器中移除连接并关闭真实连接
+   */
+  private void discardFromBag(ConnectionBag bag, PooledConnection conn) {
+    conn.invalidate();
+    if (bag != null && bag.remove(conn.getBagEntry())) {
+      closeRealConnection(conn.getRealConnection());
+    }
+  }
+
+  private void closeRealConnection(Connection realConn) {
+    try {
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      realConn.close();
+    } catch (Exception e) {
+      // ignore
+    }
+  }
+
   /**
    * 执行 poolPingQuery 字段中记录的SQL语句,检测真正数据连接是否可以有用
    * <p>
@@ -636,42 +1021,230 @@ public class PooledDataSource implements DataSource {
       // 是否开启了测试数据库连接配置:是
       if (poolPingEnabled) {
         // 长时间(超过 poolPingConnectionsNotUsedFor 指定的时长)未使用的连接,才需要ping操作来检测数据库连接是否正常
-        if (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
-          try {
-            if (log.isDebugEnabled()) {
-              log.debug("Testing connection " + conn.getRealHashCode() + " ...");
-            }
-            // 获取真实数据库连接,向数据库发送测试连接SQL语句
-            Connection realConn = conn.getRealConnection();
-            try (Statement statement = realConn.createStatement()) {
-              statement.executeQuery(poolPingQuery).close();
-            }
-            if (!realConn.getAutoCommit()) {
-              realConn.rollback();
-            }
-            // 测试连接成功
-            result = true;
-            if (log.isDebugEnabled()) {
-              log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
-            }
-          } catch (Exception e) {
-            log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
-            try {
-              conn.getRealConnection().close();
-            } catch (Exception e2) {
-              //ignore
-            }
-            result = false;
-            if (log.isDebugEnabled()) {
-              log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
-            }
-          }
+        // 开启后台维护任务时,空闲连接已经由后台线程检测过,借出和归还连接时不再发送测试SQL语句
+        if (poolMaintenanceInterval <= 0 && needsPing(conn.getLastUsedTimestamp())) {
+          result = executePingQuery(conn.getRealConnection());
         }
       }
     }
     return result;
   }
 
+  /**
+   * 长时间(超过 poolPingConnectionsNotUsedFor 指定的时长)未使用的连接,才需要ping操作来检测数据库连接是否正常
+   */
+  private boolean needsPing(long lastUsedTimestamp) {
+    return poolPingEnabled && poolPingConnectionsNotUsedFor >= 0
+      && System.currentTimeMillis() - lastUsedTimestamp > poolPingConnectionsNotUsedFor;
+  }
+
+  /**
+   * 向数据库发送测试连接SQL语句,失败时关闭真实连接
+   *
+   * @param realConn
+   * @return 连接是否可用
+   */
+  private boolean executePingQuery(Connection realConn) {
+    try {
+      if (log.isDebugEnabled()) {
+        log.debug("Testing connection " + realConn.hashCode() + " ...");
+      }
+      try (Statement statement = realConn.createStatement()) {
+        statement.executeQuery(poolPingQuery).close();
+      }
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      // 测试连接成功
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + realConn.hashCode() + " is GOOD!");
+      }
+      return true;
+    } catch (Exception e) {
+      log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
+      try {
+        realConn.close();
+      } catch (Exception e2) {
+        //ignore
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + realConn.hashCode() + " is BAD: " + e.getMessage());
+      }
+      return false;
+    }
+  }
+
+  /**
+   * 由后台维护任务周期性调用:
+   * 1. 检测长时间未使用的空闲连接,丢弃无效连接;
+   * 2. 关闭超过 poolMaximumLifetime 的连接以及空闲超过 poolMaximumIdleTime 的多余空闲连接;
+   * 3. 预先创建连接,使空闲连接数达到 poolMinimumIdle
+   */
+  void runMaintenance() {
+    ConnectionBag bag = connectionBag;
+    if (bag != null) {
+      maintainBag(bag);
+    } else {
+      maintainIdleConnections();
+    }
+    fillToMinimumIdle(bag);
+  }
+
+  private void maintainIdleConnections() {
+    long now = System.currentTimeMillis();
+    int typeCode;
+    List<PooledConnection> evicted = new ArrayList<>();
+    List<PooledConnection> toValidate = new ArrayList<>();
+    // 在锁内只把需要处理的空闲连接移出空闲集合,检测和关闭连接都在锁外进行
+    synchronized (state) {
+      typeCode = expectedConnectionTypeCode;
+      int idle = state.idleConnections.size();
+      for (Iterator<PooledConnection> it = state.idleConnections.iterator(); it.hasNext(); ) {
+        PooledConnection conn = it.next();
+        if (isExpired(conn.getCreatedTimestamp(), now)
+            || (isIdleTooLong(conn.getLastUsedTimestamp(), now) && idle > poolMinimumIdle)) {
+          it.remove();
+          evicted.add(conn);
+          idle--;
+        } else if (needsPing(conn.getLastUsedTimestamp())) {
+          it.remove();
+          toValidate.add(conn);
+        }
+      }
+      validatingConnectionCount += toValidate.size();
+    }
+    for (PooledConnection conn : evicted) {
+      conn.invalidate();
+      evict(conn.getRealConnection());
+    }
+    if (toValidate.isEmpty()) {
+      return;
+    }
+    List<PooledConnection> validated = new ArrayList<>();
+    try {
+      for (PooledConnection conn : toValidate) {
+        if (executePingQuery(conn.getRealConnection())) {
+          conn.setLastUsedTimestamp(System.currentTimeMillis());
+          validated.add(conn);
+        } else {
+          // protected 的统计字段只在连接池的锁内更新
+          synchronized (state) {
+            state.recordBadConnection();
+          }
+          conn.invalidate();
+        }
+      }
+    } finally {
+      synchronized (state) {
+        validatingConnectionCount -= toValidate.size();
+        for (PooledConnection conn : validated) {
+          // 检测期间连接池可能被 forceCloseAll() 重置,此时不能再放回空闲集合
+          if (typeCode == expectedConnectionTypeCode && state.idleConnections.size() < poolMaximumIdleConnections) {
+            state.idleConnections.add(conn);
+          } else {
+            conn.invalidate();
+            closeRealConnection(conn.getRealConnection());
+          }
+        }
+        state.notifyAll();
+      }
+    }
+  }
+
+  private void maintainBag(ConnectionBag bag) {
+    long now = System.currentTimeMillis();
+    int idle = bag.getIdleCount();
+    for (ConnectionBag.Entry entry : bag.values()) {
+      // 像借出连接一样独占该条目,检测期间不会被其他线程借出
+      if (!bag.borrow(entry)) {
+        continue;
+      }
+      if (isExpired(entry.getCreatedTimestamp(), now)
+          || (isIdleTooLong(entry.getLastUsedTimestamp(), now) && idle > poolMinimumIdle)) {
+        idle--;
+        if (bag.remove(entry)) {
+          evict(entry.getRealConnection());
+        }
+        continue;
+      }
+      if (needsPing(entry.getLastUsedTimestamp())) {
+        if (!executePingQuery(entry.getRealConnection())) {
+          idle--;
+          state.recordBadConnection();
+          bag.remove(entry);
+          continue;
+        }
+        entry.setLastUsedTimestamp(System.currentTimeMillis());
+      }
+      bag.requite(entry);
+    }
+  }
+
+  /**
+   * 预先创建连接,直到空闲连接数达到 poolMinimumIdle 或者连接数达到上限
+   */
+  private void fillToMinimumIdle(ConnectionBag bag) {
+    int minimumIdle = Math.min(poolMinimumIdle, poolMaximumIdleConnections);
+    while (state.getIdleConnectionCount() < minimumIdle) {
+      int typeCode;
+      if (bag != null) {
+        if (!bag.reserve(poolMaximumActiveConnections)) {
+          return;
+        }
+      } else {
+        synchronized (state) {
+          if (state.activeConnections.size() + state.idleConnections.size() + validatingConnectionCount
+              >= poolMaximumActiveConnections) {
+            return;
+          }
+        }
+      }
+      typeCode = expectedConnectionTypeCode;
+      Connection realConnection;
+      try {
+        realConnection = dataSource.getConnection();
+      } catch (SQLException e) {
+        if (bag != null) {
+          bag.cancelReservation();
+        }
+        log.warn("PooledDataSource: Could not create an idle connection in background: " + e.getMessage());
+        return;
+      }
+      if (bag != null) {
+        bag.requite(bag.add(realConnection));
+      } else {
+        synchronized (state) {
+          if (typeCode != expectedConnectionTypeCode
+              || state.activeConnections.size() + state.idleConnections.size() + validatingConnectionCount
+              >= poolMaximumActiveConnections) {
+            closeRealConnection(realConnection);
+            return;
+          }
+          state.idleConnections.add(new PooledConnection(realConnection, this));
+          state.notifyAll();
+        }
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Created idle connection " + realConnection.hashCode() + " in background.");
+      }
+    }
+  }
+
+  private boolean isExpired(long createdTimestamp, long now) {
+    return poolMaximumLifetime > 0 && now - createdTimestamp > poolMaximumLifetime;
+  }
+
+  private boolean isIdleTooLong(long lastUsedTimestamp, long now) {
+    return poolMaximumIdleTime > 0 && now - lastUsedTimestamp > poolMaximumIdleTime;
+  }
+
+  private void evict(Connection realConnection) {
+    if (log.isDebugEnabled()) {
+      log.debug("Evicted connection " + realConnection.hashCode() + ".");
+    }
+    closeRealConnection(realConnection);
+  }
+
   /**
    * 获取真实连接(未包装的连接)
    * Unwraps a pooled connection to get to the 'real' connection
@@ -694,6 +1267,7 @@ public class PooledDataSource implements DataSource {
 
   @Override
   protected void finalize() throws Throwable {
+    setPoolMaintenanceInterval(0);
     forceCloseAll();
     super.finalize();
   }
@@ -21,6 +21,7 @@ import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
 
 import javax.sql.DataSource;
+import java.util.Locale;
 import java.util.Properties;
 
 /**
@@ -78,7 +79,7 @@ public class UnpooledDataSourceFactory implements DataSourceFactory {
   }
 
   /**
-   * 根据属性类型进行类型转换，主要是Integer、Long、Boolean三种类型的转换
+   * 根据属性类型进行类型转换，主要是Integer、Long、Boolean三种类型以及枚举类型的转换
    *
    * @param metaDataSource
    * @param propertyName
@@ -94,8 +95,19 @@ public class UnpooledDataSourceFactory implements DataSourceFactory {
       convertedValue = Long.valueOf(value);
     } else if (targetType == Boolean.class || targetType == boolean.class) {
       convertedValue = Boolean.valueOf(value);
+    } else if (targetType.isEnum()) {
+      convertedValue = toEnum(targetType, value);
     }
     return convertedValue;
   }
 
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  private Object toEnum(Class<?> enumType, String value) {
+    try {
+      return Enum.valueOf((Class<? extends Enum>) enumType, value.trim().toUpperCase(Locale.ENGLISH));
+    } catch (IllegalArgumentException e) {
+      throw new DataSourceException("Invalid value '" + value + "' for DataSource property of type " + enumType.getSimpleName(), e);
+    }
+  }
+
 }
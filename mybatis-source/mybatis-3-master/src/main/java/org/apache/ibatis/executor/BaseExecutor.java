@@ -210,8 +210,8 @@ public abstract class BaseExecutor implements Executor {
   public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
     // 获取BoundSql对象
     BoundSql boundSql = ms.getBoundSql(parameter);
-    // 创建CacheKey对象
-    CacheKey key = createCacheKey(ms, parameter, rowBounds, boundSql);
+    // 创建CacheKey对象，不会用到CacheKey时跳过创建过程
+    CacheKey key = isCacheKeyRequired(ms) ? createCacheKey(ms, parameter, rowBounds, boundSql) : null;
     // 调用另外一个重载方法查询数据
     return query(ms, parameter, rowBounds, resultHandler, key, boundSql);
   }
@@ -251,8 +251,8 @@ public abstract class BaseExecutor implements Executor {
     try {
       // 增加查询层数
       queryStack++;
-      // 查询一级缓存
-      list = resultHandler == null ? (List<E>) localCache.getObject(key) : null;
+      // 查询一级缓存，key为null表示本次查询不使用一级缓存
+      list = resultHandler == null && key != null ? (List<E>) localCache.getObject(key) : null;
       if (list != null) { // 缓存命中，则处理输出参数
         handleLocallyCachedOutputParameters(ms, key, parameter, boundSql);
       } else {  // 缓存未命中，则从数据库中查询数据
@@ -352,11 +352,14 @@ public abstract class BaseExecutor implements Executor {
     TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
     // mimic DefaultParameterHandler logic
     // 获取用户传入的实参，并添加到CacheKey对象中
-    for (ParameterMapping parameterMapping : parameterMappings) {
+    for (int i = 0; i < parameterMappings.size(); i++) {
+      ParameterMapping parameterMapping = parameterMappings.get(i);
       if (parameterMapping.getMode() != ParameterMode.OUT) {  // 过滤掉输出类型的参数
         Object value;
         String propertyName = parameterMapping.getProperty();
-        if (boundSql.hasAdditionalParameter(propertyName)) {
+        if (boundSql.hasElementParameter(i)) {
+          value = boundSql.getElementParameter(i);
+        } else if (boundSql.hasAdditionalParameter(propertyName)) {
           value = boundSql.getAdditionalParameter(propertyName);
         } else if (parameterObject == null) {
           value = null;
@@ -378,6 +381,43 @@ public abstract class BaseExecutor implements Executor {
     return cacheKey;
   }
 
+  /**
+   * 判断本次查询是否需要创建 {@link CacheKey}。
+   * <p>
+   * 开启了skipUnusedCacheKey并且localCacheScope为STATEMENT时，一级缓存在最外层查询结束后就会被清空，
+   * 如果语句没有使用二级缓存，结果映射中也没有嵌套查询(不会通过一级缓存处理循环引用和延迟加载)，
+   * 那么CacheKey不会被用到，可以直接跳过创建。存储过程的输出参数以CacheKey为key保存在 localOutputParameterCache 中，总是需要创建
+   *
+   * @param ms
+   * @return
+   */
+  protected boolean isCacheKeyRequired(MappedStatement ms) {
+    if (!configuration.isSkipUnusedCacheKey()
+      || configuration.getLocalCacheScope() != LocalCacheScope.STATEMENT
+      || queryStack > 0) {
+      return true;
+    }
+    // 插件可能拦截query方法并读取CacheKey，注册了插件时始终创建CacheKey
+    if (!configuration.getInterceptors().isEmpty()) {
+      return true;
+    }
+    if (ms.getStatementType() == StatementType.CALLABLE) {
+      return true;
+    }
+    if (ms.getCache() != null && ms.isUseCache()) {
+      return true;
+    }
+    if (ms.hasNestedResultMaps()) {
+      return true;
+    }
+    for (ResultMap resultMap : ms.getResultMaps()) {
+      if (resultMap.hasNestedQueries() || resultMap.getDiscriminator() != null) {
+        return true;
+      }
+    }
+    return false;
+  }
+
   /**
    * 检测本地缓存中是否缓存了指定的 {@link CacheKey}指定的缓存对象
    *
@@ -523,6 +563,9 @@ public abstract class BaseExecutor implements Executor {
    * @throws SQLException
    */
   private <E> List<E> queryFromDatabase(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
+    if (key == null) {
+      return doQuery(ms, parameter, rowBounds, resultHandler, boundSql);
+    }
     List<E> list;
     // 在缓存中添加占位符
     localCache.putObject(key, EXECUTION_PLACEHOLDER);
@@ -0,0 +1,419 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.result;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * 按列保存的查询结果，用于返回大量数值行的统计类查询.
+ * <p>
+ * 语句配置 {@code resultType="columnar"} 时，整个结果集映射为一个 {@link ColumnarResult} 对象，每一列的值保存在一个数组中：
+ * 整数列保存在 {@code long[]} 中，浮点列保存在 {@code double[]} 中，字符串列按字典编码保存(每行一个 {@code int} 编号 + 不重复的字符串数组)，
+ * 只有其他类型的列才通过 {@link TypeHandler} 读取为对象。与 {@code List<Map<String, Object>>} 相比，不需要为每一行创建 Map 和包装类型对象。
+ * <p>
+ * 列值为 SQL NULL 时，{@link Column#isNull(int)} 返回 true，数值数组中对应位置的值为 0。
+ *
+ * @since 3.5.3
+ */
+public final class ColumnarResult {
+
+  /**
+   * 每一列数组的初始长度，行数超过数组长度时按2倍扩容
+   */
+  private static final int INITIAL_CAPACITY = 16;
+
+  private final int rowCount;
+  private final List<Column> columns;
+  /**
+   * 大写列名 -> 列，列名相同时保留第一列
+   */
+  private final Map<String, Column> columnsByName;
+
+  private ColumnarResult(int rowCount, List<Column> columns) {
+    this.rowCount = rowCount;
+    this.columns = Collections.unmodifiableList(columns);
+    this.columnsByName = new HashMap<>();
+    for (Column column : columns) {
+      columnsByName.putIfAbsent(column.getName().toUpperCase(Locale.ENGLISH), column);
+    }
+  }
+
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  public int getColumnCount() {
+    return columns.size();
+  }
+
+  public List<Column> getColumns() {
+    return columns;
+  }
+
+  public List<String> getColumnNames() {
+    List<String> names = new ArrayList<>(columns.size());
+    for (Column column : columns) {
+      names.add(column.getName());
+    }
+    return names;
+  }
+
+  /**
+   * @param index 从 0 开始的列下标
+   * @return 对应的列
+   */
+  public Column getColumn(int index) {
+    return columns.get(index);
+  }
+
+  /**
+   * @param name 列名，不区分大小写
+   * @return 对应的列，不存在时返回 null
+   */
+  public Column getColumn(String name) {
+    return columnsByName.get(name.toUpperCase(Locale.ENGLISH));
+  }
+
+  @Override
+  public String toString() {
+    return "ColumnarResult{rowCount=" + rowCount + ", columns=" + getColumnNames() + "}";
+  }
+
+  /**
+   * 一列的值
+   */
+  public abstract static class Column {
+
+    private final String name;
+    /**
+     * 每行一位，为1表示该行的值为 SQL NULL，没有 NULL 值时为 null
+     */
+    long[] nulls;
+
+    Column(String name) {
+      this.name = name;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public boolean isNull(int row) {
+      return nulls != null && (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * @param row 从 0 开始的行下标
+     * @return 该行的值，数值列会被装箱，值为 SQL NULL 时返回 null
+     */
+    public abstract Object getValue(int row);
+
+    void setNull(int row) {
+      int word = row >>> 6;
+      if (nulls == null) {
+        nulls = new long[Math.max(word + 1, 4)];
+      } else if (word >= nulls.length) {
+        nulls = Arrays.copyOf(nulls, Math.max(word + 1, nulls.length << 1));
+      }
+      nulls[word] |= 1L << row;
+    }
+
+    abstract void read(ResultSet rs, int row) throws SQLException;
+
+    abstract void trim(int rowCount);
+  }
+
+  /**
+   * 整数列
+   */
+  public static final class LongColumn extends Column {
+
+    private final int columnIndex;
+    private long[] values = new long[INITIAL_CAPACITY];
+
+    LongColumn(String name, int columnIndex) {
+      super(name);
+      this.columnIndex = columnIndex;
+    }
+
+    public long getLong(int row) {
+      return values[row];
+    }
+
+    /**
+     * @return 保存所有行的数组(不是副本)，长度等于行数
+     */
+    public long[] getValues() {
+      return values;
+    }
+
+    @Override
+    public Object getValue(int row) {
+      return isNull(row) ? null : values[row];
+    }
+
+    @Override
+    void read(ResultSet rs, int row) throws SQLException {
+      if (row == values.length) {
+        values = Arrays.copyOf(values, row << 1);
+      }
+      long value = rs.getLong(columnIndex);
+      if (value == 0 && rs.wasNull()) {
+        setNull(row);
+      }
+      values[row] = value;
+    }
+
+    @Override
+    void trim(int rowCount) {
+      values = Arrays.copyOf(values, rowCount);
+    }
+  }
+
+  /**
+   * 浮点数列
+   */
+  public static final class DoubleColumn extends Column {
+
+    private final int columnIndex;
+    private double[] values = new double[INITIAL_CAPACITY];
+
+    DoubleColumn(String name, int columnIndex) {
+      super(name);
+      this.columnIndex = columnIndex;
+    }
+
+    public double getDouble(int row) {
+      return values[row];
+    }
+
+    /**
+     * @return 保存所有行的数组(不是副本)，长度等于行数
+     */
+    public double[] getValues() {
+      return values;
+    }
+
+    @Override
+    public Object getValue(int row) {
+      return isNull(row) ? null : values[row];
+    }
+
+    @Override
+    void read(ResultSet rs, int row) throws SQLException {
+      if (row == values.length) {
+        values = Arrays.copyOf(values, row << 1);
+      }
+      double value = rs.getDouble(columnIndex);
+      if (value == 0 && rs.wasNull()) {
+        setNull(row);
+      }
+      values[row] = value;
+    }
+
+    @Override
+    void trim(int rowCount) {
+      values = Arrays.copyOf(values, rowCount);
+    }
+  }
+
+  /**
+   * 字典编码的字符串列，相同的字符串只保存一份
+   */
+  public static final class StringColumn extends Column {
+
+    private final int columnIndex;
+    private int[] codes = new int[INITIAL_CAPACITY];
+    private String[] dictionary = new String[INITIAL_CAPACITY];
+    private int dictionarySize;
+    /**
+     * 字符串 -> 编号，只在读取结果集时使用
+     */
+    private Map<String, Integer> codesByValue = new HashMap<>();
+
+    StringColumn(String name, int columnIndex) {
+      super(name);
+      this.columnIndex = columnIndex;
+    }
+
+    public String getString(int row) {
+      int code = codes[row];
+      return code < 0 ? null : dictionary[code];
+    }
+
+    /**
+     * @return 每行字符串在 {@link #getDictionary()} 中的下标(不是副本)，值为 SQL NULL 时为 -1
+     */
+    public int[] getCodes() {
+      return codes;
+    }
+
+    /**
+     * @return 不重复的字符串(不是副本)，按第一次出现的顺序排列
+     */
+    public String[] getDictionary() {
+      return dictionary;
+    }
+
+    @Override
+    public Object getValue(int row) {
+      return getString(row);
+    }
+
+    @Override
+    void read(ResultSet rs, int row) throws SQLException {
+      if (row == codes.length) {
+        codes = Arrays.copyOf(codes, row << 1);
+      }
+      String value = rs.getString(columnIndex);
+      if (value == null) {
+        setNull(row);
+        codes[row] = -1;
+        return;
+      }
+      Integer code = codesByValue.get(value);
+      if (code == null) {
+        code = dictionarySize;
+        if (dictionarySize == dictionary.length) {
+          dictionary = Arrays.copyOf(dictionary, dictionarySize << 1);
+        }
+        dictionary[dictionarySize++] = value;
+        codesByValue.put(value, code);
+      }
+      codes[row] = code;
+    }
+
+    @Override
+    void trim(int rowCount) {
+      codes = Arrays.copyOf(codes, rowCount);
+      dictionary = Arrays.copyOf(dictionary, dictionarySize);
+      codesByValue = null;
+    }
+  }
+
+  /**
+   * 其他类型的列，通过 {@link TypeHandler} 读取
+   */
+  public static final class ObjectColumn extends Column {
+
+    private final int columnIndex;
+    private final TypeHandler<?> typeHandler;
+    private Object[] values = new Object[INITIAL_CAPACITY];
+
+    ObjectColumn(String name, int columnIndex, TypeHandler<?> typeHandler) {
+      super(name);
+      this.columnIndex = columnIndex;
+      this.typeHandler = typeHandler;
+    }
+
+    /**
+     * @return 保存所有行的数组(不是副本)，长度等于行数
+     */
+    public Object[] getValues() {
+      return values;
+    }
+
+    @Override
+    public Object getValue(int row) {
+      return values[row];
+    }
+
+    @Override
+    void read(ResultSet rs, int row) throws SQLException {
+      if (row == values.length) {
+        values = Arrays.copyOf(values, row << 1);
+      }
+      Object value = typeHandler.getResult(rs, columnIndex);
+      if (value == null) {
+        setNull(row);
+      }
+      values[row] = value;
+    }
+
+    @Override
+    void trim(int rowCount) {
+      values = Arrays.copyOf(values, rowCount);
+    }
+  }
+
+  /**
+   * 逐行读取 {@link ResultSet}，创建 {@link ColumnarResult}
+   */
+  public static final class Builder {
+
+    private final List<Column> columns = new ArrayList<>();
+    private int rowCount;
+
+    /**
+     * @param name        列名
+     * @param columnIndex 从 1 开始的 JDBC 列下标
+     */
+    public Builder addLongColumn(String name, int columnIndex) {
+      columns.add(new LongColumn(name, columnIndex));
+      return this;
+    }
+
+    public Builder addDoubleColumn(String name, int columnIndex) {
+      columns.add(new DoubleColumn(name, columnIndex));
+      return this;
+    }
+
+    public Builder addStringColumn(String name, int columnIndex) {
+      columns.add(new StringColumn(name, columnIndex));
+      return this;
+    }
+
+    public Builder addObjectColumn(String name, int columnIndex, TypeHandler<?> typeHandler) {
+      columns.add(new ObjectColumn(name, columnIndex, typeHandler));
+      return this;
+    }
+
+    /**
+     * 读取 {@link ResultSet} 当前行所有列的值
+     */
+    public void addRow(ResultSet rs) throws SQLException {
+      for (Column column : columns) {
+        column.read(rs, rowCount);
+      }
+      rowCount++;
+    }
+
+    public int getRowCount() {
+      return rowCount;
+    }
+
+    /**
+     * 把每一列的数组裁剪到实际行数并创建结果，之后不能再调用 {@link #addRow(ResultSet)}
+     */
+    public ColumnarResult build() {
+      for (Column column : columns) {
+        column.trim(rowCount);
+      }
+      return new ColumnarResult(rowCount, columns);
+    }
+  }
+
+}
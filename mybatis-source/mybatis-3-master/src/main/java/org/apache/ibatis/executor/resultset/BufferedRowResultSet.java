@@ -0,0 +1,631 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
+
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.type.JdbcType;
+
+/**
+ * 基于已经读取到内存中的一行列值的只读 {@link ResultSet}，并行映射时在其他线程中执行 {@link org.apache.ibatis.type.TypeHandler} 和创建结果对象.
+ * <p>
+ * 读取线程先通过 {@link Recorder} 映射第一行记录，记录映射时调用了哪些读取方法(方法、列和目标类型)。之后的每一行由 {@link ColumnReads#readRow}
+ * 在真实的结果集上重放这些调用，保存驱动返回的值，因此 {@code getObject(int, OffsetDateTime.class)}、驱动特有的类型等都与逐行映射时的结果相同。
+ * 第一行映射时没有读取的列也通过 {@code getObject(int)} 保存下来，TypeHandler 在不同的行读取不同的列时仍然可以映射。
+ * 大对象读取成字符串或字节数组，移动游标后仍然可用。映射线程通过 {@link #setRow} 切换当前行，按照调用查找重放的结果；
+ * 没有记录过的调用从同一列已读取的值转换。
+ * 只支持映射时使用的读取方法，移动游标、更新等方法会抛出 {@link SQLFeatureNotSupportedException}。
+ * 每个映射线程使用自己的对象，不是线程安全的。
+ */
+final class BufferedRowResultSet implements InvocationHandler {
+
+  private final ColumnReads reads;
+  private final ResultSet proxy;
+  private Row row;
+  /**
+   * 下一次调用预期对应的读取，映射每一行时通常按照记录的顺序读取
+   */
+  private int nextRead;
+  private boolean wasNull;
+
+  BufferedRowResultSet(ColumnReads reads) {
+    this.reads = reads;
+    this.proxy = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class[]{ResultSet.class}, this);
+  }
+
+  ResultSet getResultSet() {
+    return proxy;
+  }
+
+  void setRow(Row row) {
+    this.row = row;
+    this.nextRead = 0;
+    this.wasNull = false;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] params) throws Throwable {
+    try {
+      if (Object.class.equals(method.getDeclaringClass())) {
+        return method.invoke(this, params);
+      }
+      final String name = method.getName();
+      switch (name) {
+        case "wasNull":
+          return wasNull;
+        case "isClosed":
+          return false;
+        case "getMetaData":
+          return reads.metaData;
+        case "findColumn":
+          return reads.findColumn((String) params[0]);
+        case "unwrap":
+          if (((Class<?>) params[0]).isInstance(proxy)) {
+            return proxy;
+          }
+          throw new SQLException("Cannot unwrap to " + params[0]);
+        case "isWrapperFor":
+          return ((Class<?>) params[0]).isInstance(proxy);
+        default:
+          break;
+      }
+      if (isColumnRead(method, params)) {
+        return read(method, params);
+      }
+      throw new SQLFeatureNotSupportedException("Method '" + name + "' is not supported when mapping rows in parallel.");
+    } catch (Throwable t) {
+      throw ExceptionUtil.unwrapThrowable(t);
+    }
+  }
+
+  private Object read(Method method, Object[] params) throws SQLException {
+    final String name = method.getName();
+    int slot = -1;
+    if (nextRead < reads.reads.length && reads.reads[nextRead].matches(method, params)) {
+      slot = nextRead;
+    } else {
+      final Integer recorded = reads.slots.get(new Read(method, params, 0, null));
+      if (recorded != null) {
+        slot = recorded;
+      }
+    }
+    if (slot >= 0) {
+      nextRead = slot + 1;
+      final Object value = row.values[slot];
+      wasNull = row.nulls[slot];
+      // 大对象按照读取方法的返回类型重新包装
+      return value == null || reads.reads[slot].bufferedAs == null ? value : convertNonNull(name, value);
+    }
+    // 第一行没有这样读取过，从同一列已读取的值转换
+    final int column = params[0] instanceof Integer ? (Integer) params[0] : reads.findColumn((String) params[0]);
+    final int columnSlot = column < 1 || column > reads.columnSlots.length ? -1 : reads.columnSlots[column - 1];
+    if (columnSlot < 0) {
+      throw new SQLException("Column index out of range: " + params[0]);
+    }
+    final Object value = row.nulls[columnSlot] ? null : row.values[columnSlot];
+    wasNull = value == null;
+    if (params.length == 1) {
+      return convert(name, value);
+    } else if (params.length == 2 && "getObject".equals(name) && params[1] instanceof Class) {
+      return convert(value, (Class<?>) params[1]);
+    }
+    throw new SQLFeatureNotSupportedException("Method '" + name + "' is not supported when mapping rows in parallel.");
+  }
+
+  /**
+   * @return 是否为读取某一列的方法，第一个参数是列的下标或者列名
+   */
+  private static boolean isColumnRead(Method method, Object[] params) {
+    return method.getName().startsWith("get") && params != null && params.length > 0
+      && (params[0] instanceof Integer || params[0] instanceof String);
+  }
+
+  /**
+   * 映射第一行记录时使用的 {@link ResultSet}，把调用转发给真实的结果集并记录读取了哪些列
+   */
+  static final class Recorder implements InvocationHandler {
+
+    private static final Method GET_OBJECT;
+
+    static {
+      try {
+        GET_OBJECT = ResultSet.class.getMethod("getObject", int.class);
+      } catch (NoSuchMethodException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    private final ResultSet resultSet;
+    private final List<String> columnNames;
+    private final List<JdbcType> jdbcTypes;
+    private final ResultSet proxy;
+    private final List<Read> reads = new ArrayList<>();
+    private final Map<Read, Integer> slots = new HashMap<>();
+
+    Recorder(ResultSet resultSet, List<String> columnNames, List<JdbcType> jdbcTypes) {
+      this.resultSet = resultSet;
+      this.columnNames = columnNames;
+      this.jdbcTypes = jdbcTypes;
+      this.proxy = (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class[]{ResultSet.class}, this);
+    }
+
+    ResultSet getResultSet() {
+      return proxy;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] params) throws Throwable {
+      try {
+        if (Object.class.equals(method.getDeclaringClass())) {
+          return method.invoke(this, params);
+        }
+        if (isColumnRead(method, params)) {
+          final Read read = new Read(method, params, 0, null);
+          if (!slots.containsKey(read)) {
+            final int column = params[0] instanceof Integer ? (Integer) params[0] : resultSet.findColumn((String) params[0]);
+            slots.put(read, reads.size());
+            reads.add(new Read(method, params.clone(), column, bufferedAs(method, params, column)));
+          }
+        }
+        return method.invoke(resultSet, params);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    }
+
+    /**
+     * 大对象和流在游标移动之后可能失效，改为读取成字符串或字节数组
+     */
+    private String bufferedAs(Method method, Object[] params, int column) {
+      switch (method.getName()) {
+        case "getBlob":
+        case "getBinaryStream":
+          return "getBytes";
+        case "getClob":
+        case "getNClob":
+        case "getCharacterStream":
+        case "getNCharacterStream":
+        case "getAsciiStream":
+          return "getString";
+        case "getObject":
+          return params.length == 1 ? bufferedAs(column) : null;
+        default:
+          return null;
+      }
+    }
+
+    /**
+     * @return 按照列的 {@link JdbcType} 读取 {@code getObject(int)} 时实际使用的读取方法
+     */
+    private String bufferedAs(int column) {
+      if (column >= 1 && column <= jdbcTypes.size()) {
+        final JdbcType jdbcType = jdbcTypes.get(column - 1);
+        if (jdbcType == JdbcType.CLOB || jdbcType == JdbcType.NCLOB || jdbcType == JdbcType.LONGVARCHAR || jdbcType == JdbcType.LONGNVARCHAR) {
+          return "getString";
+        } else if (jdbcType == JdbcType.BLOB || jdbcType == JdbcType.LONGVARBINARY) {
+          return "getBytes";
+        }
+      }
+      return null;
+    }
+
+    /**
+     * 第一行没有读取的列追加一次 {@code getObject(int)} 读取，这些读取只用于转换，不参与按调用查找
+     */
+    ColumnReads getReads() throws SQLException {
+      final List<Read> allReads = new ArrayList<>(reads);
+      final boolean[] read = new boolean[columnNames.size()];
+      for (Read r : reads) {
+        if (r.column >= 1 && r.column <= read.length) {
+          read[r.column - 1] = true;
+        }
+      }
+      for (int column = 1; column <= read.length; column++) {
+        if (!read[column - 1]) {
+          allReads.add(new Read(GET_OBJECT, new Object[]{column}, column, bufferedAs(column)));
+        }
+      }
+      return new ColumnReads(resultSet.getMetaData(), columnNames, allReads.toArray(new Read[0]), slots);
+    }
+  }
+
+  /**
+   * 映射第一行记录时的所有读取，创建之后不再修改，所有映射线程共享
+   */
+  static final class ColumnReads {
+
+    private final ResultSetMetaData metaData;
+    /**
+     * 大写的列名与其第一次出现的下标(从1开始)
+     */
+    private final Map<String, Integer> columnIndexes = new HashMap<>();
+    private final Read[] reads;
+    private final Map<Read, Integer> slots;
+    /**
+     * 每一列第一次读取在 reads 中的下标，没有读取过的列为-1
+     */
+    private final int[] columnSlots;
+
+    ColumnReads(ResultSetMetaData metaData, List<String> columnNames, Read[] reads, Map<Read, Integer> slots) {
+      this.metaData = metaData;
+      for (int i = 0; i < columnNames.size(); i++) {
+        columnIndexes.putIfAbsent(columnNames.get(i).toUpperCase(Locale.ENGLISH), i + 1);
+      }
+      this.reads = reads;
+      this.slots = slots;
+      this.columnSlots = new int[columnNames.size()];
+      Arrays.fill(columnSlots, -1);
+      for (int i = reads.length - 1; i >= 0; i--) {
+        if (reads[i].column >= 1 && reads[i].column <= columnSlots.length) {
+          columnSlots[reads[i].column - 1] = i;
+        }
+      }
+    }
+
+    /**
+     * 在真实的结果集上重放第一行的所有读取，得到当前行的值
+     *
+     * @param rs 结果集
+     * @return 当前行的值
+     * @throws SQLException
+     */
+    Row readRow(ResultSet rs) throws SQLException {
+      final Row row = new Row(reads.length);
+      for (int i = 0; i < reads.length; i++) {
+        row.values[i] = reads[i].replay(rs);
+        row.nulls[i] = rs.wasNull();
+      }
+      return row;
+    }
+
+    private int findColumn(String columnLabel) throws SQLException {
+      final Integer index = columnIndexes.get(columnLabel.toUpperCase(Locale.ENGLISH));
+      if (index == null) {
+        throw new SQLException("Column '" + columnLabel + "' not found.");
+      }
+      return index;
+    }
+  }
+
+  /**
+   * 一次读取：读取方法、列以及 {@code getObject(column, type)} 的目标类型
+   */
+  private static final class Read {
+
+    private final Method method;
+    private final Object[] params;
+    private final Object columnParam;
+    private final Class<?> type;
+    /**
+     * 列的下标(从1开始)，只用于记录的读取
+     */
+    private final int column;
+    /**
+     * 大对象实际使用的读取方法，为null时使用 method
+     */
+    private final String bufferedAs;
+
+    Read(Method method, Object[] params, int column, String bufferedAs) {
+      this.method = method;
+      this.params = params;
+      this.columnParam = params[0];
+      this.type = params.length > 1 && params[1] instanceof Class ? (Class<?>) params[1] : null;
+      this.column = column;
+      this.bufferedAs = bufferedAs;
+    }
+
+    boolean matches(Method method, Object[] params) {
+      return this.method.equals(method) && columnParam.equals(params[0])
+        && type == (params.length > 1 && params[1] instanceof Class ? params[1] : null);
+    }
+
+    Object replay(ResultSet rs) throws SQLException {
+      if ("getBytes".equals(bufferedAs)) {
+        return columnParam instanceof Integer ? rs.getBytes((Integer) columnParam) : rs.getBytes((String) columnParam);
+      } else if ("getString".equals(bufferedAs)) {
+        return columnParam instanceof Integer ? rs.getString((Integer) columnParam) : rs.getString((String) columnParam);
+      }
+      try {
+        return method.invoke(rs, params);
+      } catch (InvocationTargetException e) {
+        final Throwable cause = e.getTargetException();
+        if (cause instanceof SQLException) {
+          throw (SQLException) cause;
+        } else if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        }
+        throw new SQLException(cause);
+      } catch (IllegalAccessException e) {
+        throw new SQLException(e);
+      }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Read)) {
+        return false;
+      }
+      final Read other = (Read) o;
+      return method.equals(other.method) && columnParam.equals(other.columnParam) && type == other.type;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(method, columnParam, type);
+    }
+  }
+
+  /**
+   * 一行记录重放读取得到的值以及每次读取之后 {@link ResultSet#wasNull()} 的结果
+   */
+  static final class Row {
+    private final Object[] values;
+    private final boolean[] nulls;
+
+    Row(int size) {
+      this.values = new Object[size];
+      this.nulls = new boolean[size];
+    }
+  }
+
+  private Object convert(String name, Object value) throws SQLException {
+    switch (name) {
+      case "getObject":
+        return value;
+      case "getString":
+      case "getNString":
+        return value == null ? null : toString(value);
+      case "getBoolean":
+        return value != null && toBoolean(value);
+      case "getByte":
+        return value == null ? (byte) 0 : toNumber(value).byteValue();
+      case "getShort":
+        return value == null ? (short) 0 : toNumber(value).shortValue();
+      case "getInt":
+        return value == null ? 0 : toNumber(value).intValue();
+      case "getLong":
+        return value == null ? 0L : toNumber(value).longValue();
+      case "getFloat":
+        return value == null ? 0F : toNumber(value).floatValue();
+      case "getDouble":
+        return value == null ? 0D : toNumber(value).doubleValue();
+      default:
+        return value == null ? null : convertNonNull(name, value);
+    }
+  }
+
+  private Object convertNonNull(String name, Object value) throws SQLException {
+    switch (name) {
+      case "getBigDecimal":
+        return toBigDecimal(value);
+      case "getDate":
+        return toDate(value);
+      case "getTime":
+        return toTime(value);
+      case "getTimestamp":
+        return toTimestamp(value);
+      case "getBytes":
+        return toBytes(value);
+      case "getBinaryStream":
+        return new ByteArrayInputStream(toBytes(value));
+      case "getAsciiStream":
+        return new ByteArrayInputStream(toString(value).getBytes(StandardCharsets.US_ASCII));
+      case "getCharacterStream":
+      case "getNCharacterStream":
+        return new StringReader(toString(value));
+      case "getClob":
+      case "getNClob":
+        return new SerialClob(toString(value).toCharArray());
+      case "getBlob":
+        return new SerialBlob(toBytes(value));
+      default:
+        // getArray、getRef、getURL 等方法直接返回驱动创建的对象
+        final Class<?> returnType = returnTypeOf(name);
+        if (returnType != null && returnType.isInstance(value)) {
+          return value;
+        }
+        throw cannotConvert(value, name);
+    }
+  }
+
+  private static Class<?> returnTypeOf(String name) {
+    try {
+      return ResultSet.class.getMethod(name, int.class).getReturnType();
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  private Object convert(Object value, Class<?> type) throws SQLException {
+    if (value == null || type.isInstance(value)) {
+      return value;
+    }
+    if (type == String.class) {
+      return toString(value);
+    } else if (type == Integer.class) {
+      return toNumber(value).intValue();
+    } else if (type == Long.class) {
+      return toNumber(value).longValue();
+    } else if (type == Short.class) {
+      return toNumber(value).shortValue();
+    } else if (type == Byte.class) {
+      return toNumber(value).byteValue();
+    } else if (type == Double.class) {
+      return toNumber(value).doubleValue();
+    } else if (type == Float.class) {
+      return toNumber(value).floatValue();
+    } else if (type == Boolean.class) {
+      return toBoolean(value);
+    } else if (type == BigDecimal.class) {
+      return toBigDecimal(value);
+    } else if (type == LocalDate.class) {
+      return toDate(value).toLocalDate();
+    } else if (type == LocalDateTime.class) {
+      return toTimestamp(value).toLocalDateTime();
+    } else if (type == LocalTime.class) {
+      return toTime(value).toLocalTime();
+    } else if (type == Instant.class) {
+      return toTimestamp(value).toInstant();
+    } else if (type == Date.class) {
+      return toDate(value);
+    } else if (type == Time.class) {
+      return toTime(value);
+    } else if (type == Timestamp.class) {
+      return toTimestamp(value);
+    } else if (type == byte[].class) {
+      return toBytes(value);
+    }
+    throw cannotConvert(value, type.getName());
+  }
+
+  private static String toString(Object value) {
+    return value instanceof String ? (String) value : value.toString();
+  }
+
+  private static boolean toBoolean(Object value) throws SQLException {
+    if (value instanceof Boolean) {
+      return (Boolean) value;
+    } else if (value instanceof Number) {
+      return ((Number) value).doubleValue() != 0;
+    } else if (value instanceof String) {
+      final String s = ((String) value).trim();
+      return "1".equals(s) || Boolean.parseBoolean(s);
+    }
+    throw cannotConvert(value, "boolean");
+  }
+
+  private static Number toNumber(Object value) throws SQLException {
+    if (value instanceof Number) {
+      return (Number) value;
+    } else if (value instanceof Boolean) {
+      return (Boolean) value ? 1 : 0;
+    } else if (value instanceof String) {
+      try {
+        return new BigDecimal(((String) value).trim());
+      } catch (NumberFormatException e) {
+        throw new SQLException("Cannot convert '" + value + "' to a number.", e);
+      }
+    }
+    throw cannotConvert(value, "number");
+  }
+
+  private static BigDecimal toBigDecimal(Object value) throws SQLException {
+    if (value instanceof BigDecimal) {
+      return (BigDecimal) value;
+    } else if (value instanceof BigInteger) {
+      return new BigDecimal((BigInteger) value);
+    } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      return BigDecimal.valueOf(((Number) value).longValue());
+    } else if (value instanceof Number) {
+      return new BigDecimal(value.toString());
+    }
+    final Number number = toNumber(value);
+    return number instanceof BigDecimal ? (BigDecimal) number : BigDecimal.valueOf(number.longValue());
+  }
+
+  private static Date toDate(Object value) throws SQLException {
+    if (value instanceof Date) {
+      return (Date) value;
+    } else if (value instanceof Timestamp) {
+      return Date.valueOf(((Timestamp) value).toLocalDateTime().toLocalDate());
+    } else if (value instanceof java.util.Date) {
+      return new Date(((java.util.Date) value).getTime());
+    } else if (value instanceof LocalDate) {
+      return Date.valueOf((LocalDate) value);
+    } else if (value instanceof LocalDateTime) {
+      return Date.valueOf(((LocalDateTime) value).toLocalDate());
+    } else if (value instanceof String) {
+      return Date.valueOf(((String) value).trim());
+    }
+    throw cannotConvert(value, "java.sql.Date");
+  }
+
+  private static Time toTime(Object value) throws SQLException {
+    if (value instanceof Time) {
+      return (Time) value;
+    } else if (value instanceof Timestamp) {
+      return Time.valueOf(((Timestamp) value).toLocalDateTime().toLocalTime());
+    } else if (value instanceof java.util.Date) {
+      return new Time(((java.util.Date) value).getTime());
+    } else if (value instanceof LocalTime) {
+      return Time.valueOf((LocalTime) value);
+    } else if (value instanceof String) {
+      return Time.valueOf(((String) value).trim());
+    }
+    throw cannotConvert(value, "java.sql.Time");
+  }
+
+  private static Timestamp toTimestamp(Object value) throws SQLException {
+    if (value instanceof Timestamp) {
+      return (Timestamp) value;
+    } else if (value instanceof java.util.Date) {
+      return new Timestamp(((java.util.Date) value).getTime());
+    } else if (value instanceof LocalDateTime) {
+      return Timestamp.valueOf((LocalDateTime) value);
+    } else if (value instanceof LocalDate) {
+      return Timestamp.valueOf(((LocalDate) value).atStartOfDay());
+    } else if (value instanceof String) {
+      return Timestamp.valueOf(((String) value).trim());
+    }
+    throw cannotConvert(value, "java.sql.Timestamp");
+  }
+
+  private static byte[] toBytes(Object value) throws SQLException {
+    if (value instanceof byte[]) {
+      return (byte[]) value;
+    }
+    throw cannotConvert(value, "byte[]");
+  }
+
+  private static SQLException cannotConvert(Object value, String target) {
+    return new SQLException("Cannot convert value of type " + value.getClass().getName() + " to " + target
+      + " when mapping rows in parallel.");
+  }
+
+}
@@ -0,0 +1,72 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * 结果集中的一列到结果对象一个属性的赋值，是 {@link RowMapperFactory} 生成映射器的输入.
+ *
+ * @since 3.5.3
+ */
+public final class ColumnAssignment {
+
+  /**
+   * 列在结果集中的下标，从1开始
+   */
+  private final int columnIndex;
+  /**
+   * 属性名称，不包含"."
+   */
+  private final String property;
+  /**
+   * setter方法的形参类型
+   */
+  private final Class<?> propertyType;
+  /**
+   * 读取该列使用的类型处理器
+   */
+  private final TypeHandler<?> typeHandler;
+
+  public ColumnAssignment(int columnIndex, String property, Class<?> propertyType, TypeHandler<?> typeHandler) {
+    this.columnIndex = columnIndex;
+    this.property = property;
+    this.propertyType = propertyType;
+    this.typeHandler = typeHandler;
+  }
+
+  public int getColumnIndex() {
+    return columnIndex;
+  }
+
+  public String getProperty() {
+    return property;
+  }
+
+  public Class<?> getPropertyType() {
+    return propertyType;
+  }
+
+  public TypeHandler<?> getTypeHandler() {
+    return typeHandler;
+  }
+
+  @Override
+  public String toString() {
+    return "ColumnAssignment{columnIndex=" + columnIndex + ", property='" + property + "', propertyType=" + propertyType.getName() + '}';
+  }
+
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.Arrays;
+
+/**
+ * 结果集的列布局：每一列的名称(或别名)、JDBC类型和Java类名，由 {@link ResultSetWrapper} 根据 {@link java.sql.ResultSetMetaData} 创建.
+ * <p>
+ * 列布局相同的结果集可以共用同一个 {@link RowMappingPlan}。哈希值在创建时计算，比较时逐列比较，不会因为哈希冲突用错映射计划。
+ */
+final class ColumnLayout {
+
+  private final String[] columnNames;
+  private final int[] columnTypes;
+  private final String[] classNames;
+  private final int hashCode;
+
+  ColumnLayout(String[] columnNames, int[] columnTypes, String[] classNames) {
+    this.columnNames = columnNames;
+    this.columnTypes = columnTypes;
+    this.classNames = classNames;
+    int hash = Arrays.hashCode(columnNames);
+    hash = 31 * hash + Arrays.hashCode(columnTypes);
+    hash = 31 * hash + Arrays.hashCode(classNames);
+    this.hashCode = hash;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof ColumnLayout)) {
+      return false;
+    }
+    ColumnLayout other = (ColumnLayout) o;
+    return hashCode == other.hashCode
+      && Arrays.equals(columnTypes, other.columnTypes)
+      && Arrays.equals(columnNames, other.columnNames)
+      && Arrays.equals(classNames, other.classNames);
+  }
+
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+
+}
@@ -20,12 +20,14 @@ import org.apache.ibatis.binding.MapperMethod.ParamMap;
 import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.cursor.defaults.DefaultCursor;
+import org.apache.ibatis.cursor.defaults.PrefetchingCursor;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.loader.ResultLoader;
 import org.apache.ibatis.executor.loader.ResultLoaderMap;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.result.ColumnarResult;
 import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.executor.result.DefaultResultHandler;
 import org.apache.ibatis.executor.result.ResultMapException;
@@ -33,7 +35,9 @@ import org.apache.ibatis.mapping.*;
 import org.apache.ibatis.reflection.MetaClass;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
 import org.apache.ibatis.session.*;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
@@ -42,6 +46,9 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
 import java.lang.reflect.Constructor;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * @author Clinton Begin
@@ -52,6 +59,14 @@ import java.util.*;
 public class DefaultResultSetHandler implements ResultSetHandler {
 
   private static final Object DEFERRED = new Object();
+  /**
+   * 清空时 {@link #nestedResultObjects} 中的元素个数超过该值则重新创建集合，避免一直占用很大的哈希表
+   */
+  private static final int NESTED_RESULT_OBJECTS_RETAINED_SIZE = 1024;
+  /**
+   * 并行映射时每个任务映射的行数
+   */
+  private static final int PARALLEL_MAPPING_BATCH_SIZE = 256;
 
   private final Executor executor;
   private final Configuration configuration;
@@ -71,11 +86,20 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // nested resultmaps
   /**
    * 嵌套结果对象 <br>
-   * 在处理嵌套映射过程中生成的所有结果对象(包括嵌套映射生成的对象)，都会生成相应的 {@link CacheKey}并保存到该集合中。<br>
+   * 在处理嵌套映射过程中生成的所有结果对象(包括嵌套映射生成的对象)，都会生成相应的 {@link RowKey}并保存到该集合中，
+   * 结果对象保存在 {@link RowKey} 中，通过查找得到的 {@link RowKey} 同时用作嵌套对象的外层行标识。<br>
+   */
+  private Map<RowKey, RowKey> nestedResultObjects = new HashMap<>();
+  /**
+   * 用来读取每一行的行标识并在 {@link #nestedResultObjects} 中查找，遇到新的结果对象时才复制
    */
-  private final Map<CacheKey, Object> nestedResultObjects = new HashMap<>();
+  private final RowKey rowKeyProbe = new RowKey();
   private final Map<String, Object> ancestorObjects = new HashMap<>();
   private Object previousRowValue;
+  /**
+   * {@link #previousRowValue} 对应的 {@link RowKey}，resultOrdered 为 true 时用于判断主结果对象是否发生变化
+   */
+  private RowKey previousRowKey;
 
   // multiple resultsets
   /**
@@ -84,14 +108,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   private final Map<String, ResultMapping> nextResultMaps = new HashMap<>();
   private final Map<CacheKey, List<PendingRelation>> pendingRelations = new HashMap<>();
 
-  // Cached Automappings
-  private final Map<String, List<UnMappedColumnAutoMapping>> autoMappingsCache = new HashMap<>();
-
   // temporary marking flag that indicate using constructor mapping (use field to reduce memory usage)
   /**
    * 标志是否使用了构造器映射
    */
   private boolean useConstructorMappings;
+  /**
+   * 语句配置了parallelMapping时为true，只对 {@link #handleResultSets}有效，{@link Cursor}逐行映射
+   */
+  private boolean parallelMapping;
 
   /**
    *
@@ -101,11 +126,18 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     public ResultMapping propertyMapping;
   }
 
-  private static class UnMappedColumnAutoMapping {
+  /**
+   * 自动映射的一列，保存在 {@link RowMappingPlan}中，在多次执行之间共享
+   */
+  static final class UnMappedColumnAutoMapping {
     /**
      * 未映射的列名
      */
     private final String column;
+    /**
+     * 未映射的列在结果集中的下标，从1开始
+     */
+    private final int columnIndex;
     /**
      * 未映射列名对应的java属性
      */
@@ -116,8 +148,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
      */
     private final boolean primitive;
 
-    public UnMappedColumnAutoMapping(String column, String property, TypeHandler<?> typeHandler, boolean primitive) {
+    public UnMappedColumnAutoMapping(String column, int columnIndex, String property, TypeHandler<?> typeHandler, boolean primitive) {
       this.column = column;
+      this.columnIndex = columnIndex;
       this.property = property;
       this.typeHandler = typeHandler;
       this.primitive = primitive;
@@ -191,7 +224,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       final String resultMapId = parameterMapping.getResultMapId();
       final ResultMap resultMap = configuration.getResultMap(resultMapId);
       // 获取封装ResultSet的包装类
-      final ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration);
+      final ResultSetWrapper rsw = new ResultSetWrapper(rs, configuration, mappedStatement);
       if (this.resultHandler == null) {
         final DefaultResultHandler resultHandler = new DefaultResultHandler(objectFactory);
         // 映射并将结果保存到resultHandler 的list集合中
@@ -229,6 +262,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   @Override
   public List<Object> handleResultSets(Statement stmt) throws SQLException {
     ErrorContext.instance().activity("handling results").object(mappedStatement.getId());
+    parallelMapping = mappedStatement.isParallelMapping();
 
     // 保存映射结果集得到的多个结果对象
     final List<Object> multipleResults = new ArrayList<>();
@@ -308,7 +342,48 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     // 使用第一个结果集
     ResultMap resultMap = resultMaps.get(0);
     // 将ResultSetWrapper对象、映射使用的ResultMap对象以及控制映射的起止位置的RowBounds对象封装成DefaultCursor对象
-    return new DefaultCursor<>(this, resultMap, rsw, rowBounds);
+    DefaultCursor<E> cursor = new DefaultCursor<>(this, resultMap, rsw, rowBounds);
+    int fetchAhead = getFetchAhead();
+    if (fetchAhead > 0 && !hasNestedQueries(resultMap, new HashSet<>())) {
+      // 在后台线程中预读
+      return new PrefetchingCursor<>(cursor, rowBounds, fetchAhead);
+    }
+    return cursor;
+  }
+
+  /**
+   * 后台线程与调用者共用同一个连接，只有语句自己指定了 fetchAhead 时才预读
+   */
+  private int getFetchAhead() {
+    Integer fetchAhead = mappedStatement.getFetchAhead();
+    return fetchAhead == null ? 0 : fetchAhead;
+  }
+
+  /**
+   * 检测ResultMap及其嵌套、鉴别的ResultMap中是否含有嵌套查询，嵌套查询需要在调用者的线程中使用 {@link Executor}，不能预读
+   */
+  private boolean hasNestedQueries(ResultMap resultMap, Set<String> visited) {
+    if (!visited.add(resultMap.getId())) {
+      return false;
+    }
+    if (resultMap.hasNestedQueries()) {
+      return true;
+    }
+    List<String> resultMapIds = new ArrayList<>();
+    for (ResultMapping resultMapping : resultMap.getResultMappings()) {
+      if (resultMapping.getNestedResultMapId() != null) {
+        resultMapIds.add(resultMapping.getNestedResultMapId());
+      }
+    }
+    if (resultMap.getDiscriminator() != null) {
+      resultMapIds.addAll(resultMap.getDiscriminator().getDiscriminatorMap().values());
+    }
+    for (String resultMapId : resultMapIds) {
+      if (configuration.hasResultMap(resultMapId) && hasNestedQueries(configuration.getResultMap(resultMapId), visited)) {
+        return true;
+      }
+    }
+    return false;
   }
 
   private ResultSetWrapper getFirstResultSet(Statement stmt) throws SQLException {
@@ -331,7 +406,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
     }
     // 将结果集封装成ResultSetWrapper对象
-    return rs != null ? new ResultSetWrapper(rs, configuration) : null;
+    return rs != null ? new ResultSetWrapper(rs, configuration, mappedStatement) : null;
   }
 
   /**
@@ -353,7 +428,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
             // 获取不到ResultSet则迭代获取，直至没有更多的结果集为止
             return getNextResultSet(stmt);
           } else {
-            return new ResultSetWrapper(rs, configuration);
+            return new ResultSetWrapper(rs, configuration, mappedStatement);
           }
         }
       }
@@ -382,7 +457,18 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * 清空 {@link DefaultResultSetHandler#nestedResultObjects}集合
    */
   private void cleanUpAfterHandlingResultSet() {
-    nestedResultObjects.clear();
+    clearNestedResultObjects();
+  }
+
+  /**
+   * 清空 {@link DefaultResultSetHandler#nestedResultObjects}集合，集合曾经很大时重新创建，释放其占用的内存
+   */
+  private void clearNestedResultObjects() {
+    if (nestedResultObjects.size() > NESTED_RESULT_OBJECTS_RETAINED_SIZE) {
+      nestedResultObjects = new HashMap<>();
+    } else {
+      nestedResultObjects.clear();
+    }
   }
 
   /**
@@ -454,8 +540,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * @throws SQLException
    */
   public void handleRowValues(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping) throws SQLException {
-    // 针对存在嵌套ResultMap的情况
-    if (resultMap.hasNestedResultMaps()) {
+    if (parentMapping == null && resultMap.getType() == ColumnarResult.class) {
+      // 按列映射整个结果集
+      handleColumnarRowValues(rsw, resultHandler, rowBounds);
+    } else if (resultMap.hasNestedResultMaps()) {
+      // 针对存在嵌套ResultMap的情况
       // 检测是否允许在嵌套中使用RowBounds
       ensureNoRowBounds();
       // 检测是否允许在嵌套映射中使用用户自定义的ResultHandler
@@ -468,6 +557,67 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
+  /**
+   * 把整个结果集映射为一个 {@link ColumnarResult}：整数列读取到 long[]，浮点列读取到 double[]，字符串列按字典编码保存，
+   * 只有其他类型的列才通过 {@link TypeHandler} 读取。不创建每行的结果对象，也不使用 {@link MetaObject}
+   *
+   * @param rsw
+   * @param resultHandler
+   * @param rowBounds
+   * @throws SQLException
+   */
+  private void handleColumnarRowValues(ResultSetWrapper rsw, ResultHandler<?> resultHandler, RowBounds rowBounds) throws SQLException {
+    ColumnarResult.Builder builder = createColumnarResultBuilder(rsw);
+    ResultSet resultSet = rsw.getResultSet();
+    skipRows(resultSet, rowBounds);
+    while (builder.getRowCount() < rowBounds.getLimit() && !resultSet.isClosed() && resultSet.next()) {
+      builder.addRow(resultSet);
+    }
+    callResultHandler(resultHandler, new DefaultResultContext<>(), builder.build());
+  }
+
+  private ColumnarResult.Builder createColumnarResultBuilder(ResultSetWrapper rsw) throws SQLException {
+    ColumnarResult.Builder builder = new ColumnarResult.Builder();
+    ResultSetMetaData metaData = rsw.getResultSet().getMetaData();
+    List<String> columnNames = rsw.getColumnNames();
+    for (int i = 0; i < columnNames.size(); i++) {
+      String columnName = columnNames.get(i);
+      int columnIndex = i + 1;
+      switch (metaData.getColumnType(columnIndex)) {
+        case Types.TINYINT:
+        case Types.SMALLINT:
+        case Types.INTEGER:
+        case Types.BIGINT:
+          builder.addLongColumn(columnName, columnIndex);
+          break;
+        case Types.DECIMAL:
+        case Types.NUMERIC:
+          // 没有小数位且不会超出long范围的定点数按整数保存，其他的保留BigDecimal
+          int precision = metaData.getPrecision(columnIndex);
+          if (metaData.getScale(columnIndex) == 0 && precision > 0 && precision <= 18) {
+            builder.addLongColumn(columnName, columnIndex);
+          } else {
+            builder.addObjectColumn(columnName, columnIndex, rsw.getTypeHandler(Object.class, columnName));
+          }
+          break;
+        case Types.REAL:
+        case Types.FLOAT:
+        case Types.DOUBLE:
+          builder.addDoubleColumn(columnName, columnIndex);
+          break;
+        case Types.CHAR:
+        case Types.VARCHAR:
+        case Types.NCHAR:
+        case Types.NVARCHAR:
+          builder.addStringColumn(columnName, columnIndex);
+          break;
+        default:
+          builder.addObjectColumn(columnName, columnIndex, rsw.getTypeHandler(Object.class, columnName));
+      }
+    }
+    return builder;
+  }
+
   /**
    * 检测是否允许在嵌套中使用 {@link RowBounds}
    */
@@ -511,6 +661,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    */
   private void handleRowValuesForSimpleResultMap(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds, ResultMapping parentMapping)
     throws SQLException {
+    if (shouldMapInParallel(resultMap, parentMapping)) {
+      handleRowValuesInParallel(rsw, resultMap, resultHandler, rowBounds);
+      return;
+    }
     // 默认结果上下文对象
     DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
     ResultSet resultSet = rsw.getResultSet();
@@ -528,6 +682,139 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     }
   }
 
+  /**
+   * 检测是否可以并行映射：语句配置了parallelMapping，且ResultMap不含鉴别器、嵌套查询和多结果集映射，
+   * 这些情况下映射一行记录时需要访问 {@link Executor} 或修改当前对象的状态，只能在读取结果集的线程中逐行映射
+   *
+   * @param resultMap
+   * @param parentMapping
+   * @return
+   */
+  private boolean shouldMapInParallel(ResultMap resultMap, ResultMapping parentMapping) {
+    if (!parallelMapping || parentMapping != null || resultMap.getDiscriminator() != null || resultMap.hasNestedQueries()) {
+      return false;
+    }
+    for (ResultMapping resultMapping : resultMap.getPropertyResultMappings()) {
+      if (resultMapping.getResultSet() != null) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * 并行映射不含嵌套映射的结果集 <br>
+   * 当前线程先逐行映射第一行记录，同时记录 {@link TypeHandler} 读取了哪些列以及使用的读取方法。之后当前线程只负责按照记录重放读取，
+   * 每 {@link #PARALLEL_MAPPING_BATCH_SIZE} 行记录的值作为一个任务交给 {@link Configuration#getParallelMappingExecutor()}，
+   * 由其他线程执行 {@link TypeHandler} 并创建结果对象。当前线程按照提交的顺序等待任务完成，再把结果对象依次交给 {@link ResultHandler}，
+   * 因此结果的顺序与逐行映射相同。同时进行中的任务数不超过 {@link Configuration#getParallelMappingThreads()} 的两倍，
+   * 读取的速度不会远远超过映射的速度。
+   *
+   * @param rsw
+   * @param resultMap
+   * @param resultHandler
+   * @param rowBounds
+   * @throws SQLException
+   */
+  private void handleRowValuesInParallel(ResultSetWrapper rsw, ResultMap resultMap, ResultHandler<?> resultHandler, RowBounds rowBounds)
+    throws SQLException {
+    final DefaultResultContext<Object> resultContext = new DefaultResultContext<>();
+    final ResultSet resultSet = rsw.getResultSet();
+    skipRows(resultSet, rowBounds);
+    if (rowBounds.getLimit() <= 0 || resultSet.isClosed() || !resultSet.next()) {
+      return;
+    }
+    // 在当前线程中映射第一行，记录映射时的读取
+    final BufferedRowResultSet.Recorder recorder = new BufferedRowResultSet.Recorder(resultSet, rsw.getColumnNames(), rsw.getJdbcTypes());
+    final Object firstRowValue = getRowValue(new ResultSetWrapper(rsw, recorder.getResultSet()), resultMap, null);
+    storeObject(resultHandler, resultContext, firstRowValue, null, resultSet);
+    final BufferedRowResultSet.ColumnReads reads = recorder.getReads();
+    final ExecutorService pool = configuration.getParallelMappingExecutor();
+    final int maxPendingBatches = Math.max(2, configuration.getParallelMappingThreads() * 2);
+    final Deque<Future<Object[]>> pendingBatches = new ArrayDeque<>();
+    int remaining = rowBounds.getLimit() - 1;
+    try {
+      boolean hasMoreRows = true;
+      while (hasMoreRows && remaining > 0 && !resultContext.isStopped() && !resultSet.isClosed()) {
+        // 重放读取，得到一批记录的值
+        final BufferedRowResultSet.Row[] rows = new BufferedRowResultSet.Row[Math.min(PARALLEL_MAPPING_BATCH_SIZE, remaining)];
+        int count = 0;
+        while (count < rows.length && (hasMoreRows = resultSet.next())) {
+          rows[count++] = reads.readRow(resultSet);
+        }
+        if (count > 0) {
+          remaining -= count;
+          final int rowCount = count;
+          pendingBatches.add(pool.submit(() -> mapRows(rsw, reads, resultMap, rows, rowCount)));
+        }
+        if (pendingBatches.size() >= maxPendingBatches) {
+          storeMappedRows(pendingBatches.poll(), resultHandler, resultContext, resultSet);
+        }
+      }
+      while (!pendingBatches.isEmpty() && !resultContext.isStopped()) {
+        storeMappedRows(pendingBatches.poll(), resultHandler, resultContext, resultSet);
+      }
+    } finally {
+      for (Future<Object[]> batch : pendingBatches) {
+        batch.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * 在映射线程中映射一批记录，每个任务使用自己的 {@link DefaultResultSetHandler}和 {@link ResultSetWrapper}，不共享映射过程中的状态
+   */
+  private Object[] mapRows(ResultSetWrapper rsw, BufferedRowResultSet.ColumnReads reads, ResultMap resultMap,
+                           BufferedRowResultSet.Row[] rows, int count) throws SQLException {
+    // 映射线程中的异常同样带有语句的信息
+    ErrorContext.instance().store().activity("mapping rows in parallel").object(mappedStatement.getId());
+    try {
+      final DefaultResultSetHandler handler = new DefaultResultSetHandler(executor, mappedStatement, parameterHandler, null, boundSql, rowBounds);
+      final BufferedRowResultSet bufferedRow = new BufferedRowResultSet(reads);
+      final ResultSetWrapper rowWrapper = new ResultSetWrapper(rsw, bufferedRow.getResultSet());
+      final Object[] rowValues = new Object[count];
+      for (int i = 0; i < count; i++) {
+        bufferedRow.setRow(rows[i]);
+        // 映射之后释放列值
+        rows[i] = null;
+        rowValues[i] = handler.getRowValue(rowWrapper, resultMap, null);
+      }
+      return rowValues;
+    } finally {
+      ErrorContext.instance().recall();
+    }
+  }
+
+  /**
+   * 等待一批记录映射完成，按顺序保存结果对象
+   */
+  private void storeMappedRows(Future<Object[]> batch, ResultHandler<?> resultHandler, DefaultResultContext<Object> resultContext, ResultSet rs)
+    throws SQLException {
+    final Object[] rowValues;
+    try {
+      rowValues = batch.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExecutorException("Interrupted while mapping rows in parallel.", e);
+    } catch (ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new ExecutorException("Error mapping rows in parallel.  Cause: " + cause, cause);
+    }
+    for (Object rowValue : rowValues) {
+      if (resultContext.isStopped()) {
+        break;
+      }
+      storeObject(resultHandler, resultContext, rowValue, null, rs);
+    }
+  }
+
   /**
    * 保存映射得到的结果对象 <br>
    * <p>
@@ -615,6 +902,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * @throws SQLException
    */
   private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
+    // 配置了rowMapperFactory时，优先使用为该ResultMap和列布局生成的行映射器
+    final RowMapper rowMapper = getRowMapper(rsw, resultMap, columnPrefix);
+    if (rowMapper != null) {
+      return rowMapper.mapRow(rsw.getResultSet());
+    }
     final ResultLoaderMap lazyLoader = new ResultLoaderMap();
     // 步骤1:创建该行记录映射之后得到的结果对象，该结果对象的类型由<resultMap>节点的type属性指定
     Object rowValue = createResultObject(rsw, resultMap, lazyLoader, columnPrefix);
@@ -638,6 +930,72 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     return rowValue;
   }
 
+  /**
+   * 获取 {@link RowMapperFactory} 为该ResultMap和列布局生成的行映射器，生成结果保存在映射计划中
+   *
+   * @return 没有配置rowMapperFactory或者不支持生成时返回null
+   */
+  private RowMapper getRowMapper(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix) throws SQLException {
+    final RowMapperFactory rowMapperFactory = configuration.getRowMapperFactory();
+    // 生成的行映射器按下标读取列
+    if (rowMapperFactory == null || !configuration.isUseColumnIndexForResults()) {
+      return null;
+    }
+    final RowMappingPlan plan = rsw.getRowMappingPlan(resultMap, columnPrefix);
+    final boolean mapUnderscoreToCamelCase = configuration.isMapUnderscoreToCamelCase();
+    RowMapper rowMapper = plan.getRowMapper(rowMapperFactory, mapUnderscoreToCamelCase);
+    if (rowMapper == null) {
+      rowMapper = createRowMapper(rsw, resultMap, columnPrefix, rowMapperFactory);
+      if (rowMapper == null) {
+        rowMapper = RowMappingPlan.UNSUPPORTED_ROW_MAPPER;
+      }
+      plan.setRowMapper(rowMapperFactory, mapUnderscoreToCamelCase, rowMapper);
+    }
+    return rowMapper == RowMappingPlan.UNSUPPORTED_ROW_MAPPER ? null : rowMapper;
+  }
+
+  /**
+   * 收集自动映射和明确映射的列，交给 {@link RowMapperFactory} 生成行映射器。
+   * 鉴别器、嵌套映射、嵌套查询(延迟加载)、构造器映射、多结果集、嵌套属性以及自定义的ObjectFactory等情况不生成，使用原有的映射流程。
+   */
+  private RowMapper createRowMapper(ResultSetWrapper rsw, ResultMap resultMap, String columnPrefix, RowMapperFactory rowMapperFactory) throws SQLException {
+    final Class<?> resultType = resultMap.getType();
+    if (resultMap.getDiscriminator() != null || resultMap.hasNestedResultMaps() || resultMap.hasNestedQueries()
+      || !resultMap.getConstructorResultMappings().isEmpty()
+      || Map.class.isAssignableFrom(resultType) || typeHandlerRegistry.hasTypeHandler(resultType)
+      || objectFactory.getClass() != DefaultObjectFactory.class
+      || configuration.getObjectWrapperFactory().getClass() != DefaultObjectWrapperFactory.class) {
+      return null;
+    }
+    final MetaObject metaObject = configuration.newMetaObject(objectFactory.create(resultType));
+    final List<ColumnAssignment> assignments = new ArrayList<>();
+    if (shouldApplyAutomaticMappings(resultMap, false)) {
+      for (UnMappedColumnAutoMapping mapping : createAutomaticMappings(rsw, resultMap, metaObject, columnPrefix)) {
+        if (mapping.property.indexOf('.') >= 0) {
+          return null;
+        }
+        assignments.add(new ColumnAssignment(mapping.columnIndex, mapping.property, metaObject.getSetterType(mapping.property), mapping.typeHandler));
+      }
+    }
+    final RowMappingPlan plan = rsw.getRowMappingPlan(resultMap, columnPrefix);
+    final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
+    for (int i = 0; i < propertyMappings.size(); i++) {
+      final ResultMapping propertyMapping = propertyMappings.get(i);
+      final String property = propertyMapping.getProperty();
+      if (propertyMapping.getResultSet() != null) {
+        return null;
+      }
+      if (plan.getPropertyColumnIndex(i) == 0 || property == null) {
+        continue;
+      }
+      if (property.indexOf('.') >= 0 || !metaObject.hasSetter(property)) {
+        return null;
+      }
+      assignments.add(new ColumnAssignment(plan.getPropertyColumnIndex(i), property, metaObject.getSetterType(property), propertyMapping.getTypeHandler()));
+    }
+    return rowMapperFactory.newRowMapper(configuration, resultType, assignments);
+  }
+
   /**
    * 检测是否开启了自动映射功能，该功能会自动映射结果集中存在的，但未在 {@link ResultMap}中明确的列 <br>
    * <p>
@@ -679,19 +1037,15 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    */
   private boolean applyPropertyMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, ResultLoaderMap lazyLoader, String columnPrefix)
     throws SQLException {
-    // 获取该ResultMap中明确需要进行映射的列名集合
-    final List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
+    // 获取该ResultMap的映射计划，其中记录了明确需要进行映射的列名集合
+    final RowMappingPlan plan = rsw.getRowMappingPlan(resultMap, columnPrefix);
     // 标志是否映射成功，只要有一项成功映射，则为true
     boolean foundValues = false;
     final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
-    for (ResultMapping propertyMapping : propertyMappings) {
-      // 处理列前缀
-      String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
-      // 如果用户配置了嵌套映射，则忽略配置的column属性值
-      if (propertyMapping.getNestedResultMapId() != null) {
-        // the user added a column attribute to a nested result map, ignore it
-        column = null;
-      }
+    for (int i = 0; i < propertyMappings.size(); i++) {
+      final ResultMapping propertyMapping = propertyMappings.get(i);
+      // 加上列前缀之后的列在结果集中的下标，没有该列或者配置了嵌套映射(忽略配置的column属性值)时为0
+      final int columnIndex = plan.getPropertyColumnIndex(i);
       /*
           下面的逻辑主要处理三种场景
           场景1: column 是"{prop1=col1, prop2=co12}"这种形式的，一般与嵌套查询配合使用, 表示将coll和co12的列值传递给内层嵌套查询作为参数
@@ -699,10 +1053,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           场景3:多结果集的场景处理，该属性来自另一个结果集
        */
       if (propertyMapping.isCompositeResult() // 场景1
-        || (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) // 场景2
+        || columnIndex > 0 // 场景2
         || propertyMapping.getResultSet() != null) {  // 场景3
         // 获取映射到该属性的结果集
-        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix);
+        Object value = getPropertyMappingValue(rsw.getResultSet(), metaObject, propertyMapping, lazyLoader, columnPrefix, columnIndex);
         // issue #541 make property optional
         // 获取映射的属性名
         final String property = propertyMapping.getProperty();
@@ -733,11 +1087,12 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * @param propertyMapping
    * @param lazyLoader
    * @param columnPrefix
+   * @param columnIndex     列在结果集中的下标(从1开始)，为0时按列名读取
    * @return
    * @throws SQLException
    */
-  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix)
-    throws SQLException {
+  private Object getPropertyMappingValue(ResultSet rs, MetaObject metaResultObject, ResultMapping propertyMapping, ResultLoaderMap lazyLoader, String columnPrefix,
+                                         int columnIndex) throws SQLException {
     if (propertyMapping.getNestedQueryId() != null) { // 嵌套查询
       return getNestedQueryMappingValue(rs, metaResultObject, propertyMapping, lazyLoader, columnPrefix);
     } else if (propertyMapping.getResultSet() != null) {  // 多结果处理
@@ -746,6 +1101,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     } else {  // 普通列值的映射
       // 获取响应的类型处理器
       final TypeHandler<?> typeHandler = propertyMapping.getTypeHandler();
+      if (columnIndex > 0 && configuration.isUseColumnIndexForResults()) {
+        // 按下标读取，避免JDBC驱动每次根据列名查找列
+        return typeHandler.getResult(rs, columnIndex);
+      }
       // 拼接完整的列名
       final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix);
       // 从结果集映射该列的值并返回
@@ -755,8 +1114,8 @@ public class DefaultResultSetHandler implements ResultSetHandler {
 
   /**
    * 负责为未明确映射的列查找对应的属性，并将两者（列和属性）关联起来封装成 {@link UnMappedColumnAutoMapping}对象。<br>
-   * 该方法产生的 {@link UnMappedColumnAutoMapping} 对象集合会缓存在 {@link DefaultResultSetHandler#autoMappingsCache}字段中，
-   * 其中的key由 {@link ResultMap}的id与列前缀构成。<br>
+   * 该方法产生的 {@link UnMappedColumnAutoMapping} 对象集合会保存在 {@link RowMappingPlan}中，
+   * 同一条语句再次执行并且结果集的列布局相同时直接使用，不再重新查找属性和 {@link TypeHandler}。<br>
    *
    * @param rsw
    * @param resultMap
@@ -766,14 +1125,16 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * @throws SQLException
    */
   private List<UnMappedColumnAutoMapping> createAutomaticMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String columnPrefix) throws SQLException {
-    // 拼接自动映射缓存key
-    final String mapKey = resultMap.getId() + ":" + columnPrefix;
-    List<UnMappedColumnAutoMapping> autoMapping = autoMappingsCache.get(mapKey);
+    final RowMappingPlan plan = rsw.getRowMappingPlan(resultMap, columnPrefix);
+    final Class<?> resultType = metaObject.getOriginalObject().getClass();
+    final boolean mapUnderscoreToCamelCase = configuration.isMapUnderscoreToCamelCase();
+    List<UnMappedColumnAutoMapping> autoMapping = plan.getAutoMappings(resultType, mapUnderscoreToCamelCase);
     if (autoMapping == null) {
       autoMapping = new ArrayList<>();
       // 获取未映射列名集合
-      final List<String> unmappedColumnNames = rsw.getUnmappedColumnNames(resultMap, columnPrefix);
-      for (String columnName : unmappedColumnNames) {
+      final List<String> unmappedColumnNames = plan.getUnmappedColumnNames();
+      for (int i = 0; i < unmappedColumnNames.size(); i++) {
+        final String columnName = unmappedColumnNames.get(i);
         String propertyName = columnName;
         // 如果配置了列前缀，则去掉列前缀的部分作为属性名称
         if (columnPrefix != null && !columnPrefix.isEmpty()) {
@@ -786,7 +1147,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
             continue;
           }
         }
-        final String property = metaObject.findProperty(propertyName, configuration.isMapUnderscoreToCamelCase());
+        final String property = metaObject.findProperty(propertyName, mapUnderscoreToCamelCase);
         // 判断MetaObject封装的元对象中是否有该属性名称并且提供了setter方法
         if (property != null && metaObject.hasSetter(property)) {
           // 校验，在明确映射的列中如果有该属性，则忽略以下步骤
@@ -798,7 +1159,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
           if (typeHandlerRegistry.hasTypeHandler(propertyType, rsw.getJdbcType(columnName))) {
             // 获取对应的TypeHandler 对象
             final TypeHandler<?> typeHandler = rsw.getTypeHandler(propertyType, columnName);
-            autoMapping.add(new UnMappedColumnAutoMapping(columnName, property, typeHandler, propertyType.isPrimitive()));
+            autoMapping.add(new UnMappedColumnAutoMapping(columnName, plan.getUnmappedColumnIndex(i), property, typeHandler, propertyType.isPrimitive()));
           } else {
             configuration.getAutoMappingUnknownColumnBehavior()
               .doAction(mappedStatement, columnName, property, propertyType);
@@ -808,7 +1169,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
             .doAction(mappedStatement, columnName, (property != null) ? property : propertyName, null);
         }
       }
-      autoMappingsCache.put(mapKey, autoMapping);
+      plan.setAutoMappings(resultType, mapUnderscoreToCamelCase, autoMapping);
     }
     return autoMapping;
   }
@@ -833,10 +1194,13 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     // 标志是否映射成功，只要有一项成功映射，则为true
     boolean foundValues = false;
     if (!autoMapping.isEmpty()) {
+      final boolean useColumnIndex = configuration.isUseColumnIndexForResults();
       // 遍历集合
       for (UnMappedColumnAutoMapping mapping : autoMapping) {
         // 映射相应的值
-        final Object value = mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
+        final Object value = useColumnIndex
+          ? mapping.typeHandler.getResult(rsw.getResultSet(), mapping.columnIndex)
+          : mapping.typeHandler.getResult(rsw.getResultSet(), mapping.column);
         if (value != null) {
           foundValues = true;
         }
@@ -1434,10 +1798,9 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * (2)通过{@link DefaultResultSetHandler#shouldProcessMoreRows}方法检测是否能继续映射结果集中剩余的记录行。<br>
    * (3)调用{@link DefaultResultSetHandler#resolveDiscriminatedResultMap}方法，它根据 {@link ResultMap}中记录的 {@link Discriminator}
    * 对象以及参与映射的记录行中相应的列值，决定映射使用的 {@link ResultMap}对象。<br>
-   * (4)通过{@link DefaultResultSetHandler#createRowKey}方法为该行记录生成 {@link CacheKey}, {@link CacheKey}除了作为缓存中的key
-   * 值,在嵌套映射中也作为key唯一标识一个结果对象。<br>
-   * (5)根据步骤(4)生成的 {@link CacheKey}查询{@link DefaultResultSetHandler#nestedResultObjects}集合。在处理嵌套映射过程
-   * 中生成的所有结果对象(包括嵌套映射生成的对象)，都会生成相应的 {@link CacheKey}并保存到该集合中。
+   * (4)通过{@link DefaultResultSetHandler#createRowKey}方法为该行记录生成 {@link RowKey}，在嵌套映射中唯一标识一个结果对象。<br>
+   * (5)根据步骤(4)生成的 {@link RowKey}查询{@link DefaultResultSetHandler#nestedResultObjects}集合。在处理嵌套映射过程
+   * 中生成的所有结果对象(包括嵌套映射生成的对象)，都会生成相应的 {@link RowKey}并保存到该集合中。
    * (6)检测 &lt;select> 节点中 resultOrdered 属性的配置，该设置仅针对嵌套映射有效。当resultOrdered属性为true 时，
    * 则认为返回一个主结果行时，不会发生引用{@link DefaultResultSetHandler#nestedResultObjects}集合中对象的情况。这样就提前释
    * 放了{@link DefaultResultSetHandler#nestedResultObjects}集合中的数据，避免在进行嵌套映射出现内存不足的情况。<br>
@@ -1460,25 +1823,33 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     skipRows(resultSet, rowBounds);
     // 记录上一条记录映射的主结果对象
     Object rowValue = previousRowValue;
+    RowKey rowValueKey = previousRowKey;
     // (2)：检测是否能继续映射结果集中剩余的记录行
     while (shouldProcessMoreRows(resultContext, rowBounds) && !resultSet.isClosed() && resultSet.next()) {
       // (3)：通过鉴别器决定使用哪个ResultMap对象
       final ResultMap discriminatedResultMap = resolveDiscriminatedResultMap(resultSet, resultMap, null);
-      // (4)：为该行记录生成CacheKey对象
-      final CacheKey rowKey = createRowKey(discriminatedResultMap, rsw, null);
-      // (5)：根据步骤4中生成的CacheKey查找nestedResultObjects集合
-      Object partialObject = nestedResultObjects.get(rowKey);
+      // (4)：为该行记录生成行标识，已经存在的行标识直接返回集合中的对象
+      final RowKey rowKey = createRowKey(discriminatedResultMap, rsw, null, null);
       // issue #577 && #542
       // 当resultOrdered属性为true且主结果发生变化时，则清空nestedResultObjects集合
       if (mappedStatement.isResultOrdered()) {  // (6)：检测resultOrdered属性，该属性只对嵌套映射有效，resultOrdered的作用参考书籍275页的说明
-        if (partialObject == null && rowValue != null) {  // 主结果发生变化
-          nestedResultObjects.clear();  // 清空nestedResultObjects集合
-          // 保存主结果对象，即嵌套映射的外层循环
-          storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
+        // (5)：记录行按主结果排序，只需要和上一个主结果对象的key比较，不需要查找nestedResultObjects集合
+        Object partialObject = null;
+        if (rowValue != null) {
+          if (rowKey != RowKey.NULL_ROW_KEY && rowKey.equals(rowValueKey)) {
+            partialObject = rowValue;
+          } else {  // 主结果发生变化，上一个主结果对象已经映射完成
+            // 先释放其嵌套对象的key(容量过大时会重新分配)，再交给ResultHandler或Cursor，内存占用不超过单个主结果对象
+            clearNestedResultObjects();
+            storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
+          }
         }
         // (7)：完成该行记录的映射返回结果对象
         rowValue = getRowValue(rsw, discriminatedResultMap, rowKey, null, partialObject);
+        rowValueKey = rowKey;
       } else {
+        // (5)：步骤4中已经查找了nestedResultObjects集合，行标识中保存了已存在的主结果对象
+        Object partialObject = rowKey.getResultObject();
         // (7)
         rowValue = getRowValue(rsw, discriminatedResultMap, rowKey, null, partialObject);
         if (partialObject == null) {
@@ -1491,9 +1862,11 @@ public class DefaultResultSetHandler implements ResultSetHandler {
     if (rowValue != null && mappedStatement.isResultOrdered() && shouldProcessMoreRows(resultContext, rowBounds)) {
       storeObject(resultHandler, resultContext, rowValue, parentMapping, resultSet);
       previousRowValue = null;
+      previousRowKey = null;
     } else if (rowValue != null) {
       // 记录本次映射的外层对象，用于下一次判断查询外层对象是否发生改变，然后根据resultOrdered的值决定是否清空nestedResultObjects集合
       previousRowValue = rowValue;
+      previousRowKey = rowValueKey;
     }
   }
 
@@ -1514,7 +1887,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * @return
    * @throws SQLException
    */
-  private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, CacheKey combinedKey, String columnPrefix, Object partialObject) throws SQLException {
+  private Object getRowValue(ResultSetWrapper rsw, ResultMap resultMap, RowKey combinedKey, String columnPrefix, Object partialObject) throws SQLException {
     final String resultMapId = resultMap.getId();
     Object rowValue = partialObject;
     if (rowValue != null) { // 如果外层对象（已映射部分属性）存在，则直接嵌套映射
@@ -1549,9 +1922,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
         foundValues = lazyLoader.size() > 0 || foundValues;
         rowValue = foundValues || configuration.isReturnInstanceForEmptyRow() ? rowValue : null;
       }
-      if (combinedKey != CacheKey.NULL_CACHE_KEY) {
+      if (combinedKey != RowKey.NULL_ROW_KEY) {
         // 将外层对象保存到 nestedResultObjects集合中，到后续同一外层对应的相应记录使用
-        nestedResultObjects.put(combinedKey, rowValue);
+        combinedKey.setResultObject(rowValue);
+        nestedResultObjects.put(combinedKey, combinedKey);
       }
     }
     return rowValue;
@@ -1565,7 +1939,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   // NESTED RESULT MAP (JOIN MAPPING)
   //
 
-  private boolean applyNestedResultMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String parentPrefix, CacheKey parentRowKey, boolean newObject) {
+  private boolean applyNestedResultMappings(ResultSetWrapper rsw, ResultMap resultMap, MetaObject metaObject, String parentPrefix, RowKey parentRowKey, boolean newObject) {
     boolean foundValues = false;
     // 遍历ResultMap的getPropertyResultMappings集合处理其中的嵌套映射的项
     for (ResultMapping resultMapping : resultMap.getPropertyResultMappings()) {
@@ -1593,12 +1967,10 @@ public class DefaultResultSetHandler implements ResultSetHandler {
               continue;
             }
           }
-          // 步骤4：为嵌套对象创建使用的CacheKey
-          final CacheKey rowKey = createRowKey(nestedResultMap, rsw, columnPrefix);
-          // 步骤4.1：与外层对象的CacheKey合并，得到全局唯一的CacheKey对象
-          final CacheKey combinedKey = combineKeys(rowKey, parentRowKey);
-          // 查找 nestedResultObjects 集合中是否拥有相同的key（相同的嵌套对象）
-          Object rowValue = nestedResultObjects.get(combinedKey);
+          // 步骤4：为嵌套对象创建行标识，行标识包含外层对象的行标识，因此是全局唯一的
+          final RowKey combinedKey = createRowKey(nestedResultMap, rsw, columnPrefix, parentRowKey);
+          // nestedResultObjects 集合中已经拥有相同的key（相同的嵌套对象）时，行标识中保存了该嵌套对象
+          Object rowValue = combinedKey.getResultObject();
           boolean knownValue = rowValue != null;
           // 步骤5：如果外层对象的嵌套对象属性为 Collection类型，且未初始化化，则初始化空集合，以便在调用linkObjects方法时候直接把结果加入集合
           instantiateCollectionPropertyIfAppropriate(resultMapping, metaObject); // mandatory
@@ -1684,12 +2056,46 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   //
 
   /**
-   * (1)尝试使用<idArg>节点或<id>节点中定义的列名以及对应结果集中的列值组成 {@link CacheKey}对象。<br>
-   * (2)如果 {@link ResultMap}中没有定义<idArg>节点或<id>节点，则由 {@link ResultMap} 中明确要映射的列名以及
-   * 对应结果集中列值一起构成 {@link CacheKey}对象。<br>
-   * (3)(1)和(2)，依然查找不到相关的列名和列值，且 {@link ResultMap#type} 属性明确指明了结果对象为 {@link Map}类型，
-   * 则由结果集中所有列名以及该行记录行的所有列值一起构成 {@link CacheKey}对象。<br>
-   * (4)如果映射的结果对象不是 {@link Map}类型，则由结果集中未明确映射的列名以及它们在当前记录行中的对应列值-起构成 {@link CacheKey}对象。<br>
+   * 为嵌套映射的一行记录生成行标识，参与行标识的列由 {@link #createRowKeyColumns}确定，每个映射计划只确定一次。<br>
+   * 先用 {@link #rowKeyProbe} 读取列值，{@link #nestedResultObjects}集合中已经存在相同的行标识时直接返回集合中的对象，否则复制一份。
+   *
+   * @param resultMap
+   * @param rsw
+   * @param columnPrefix
+   * @param parentRowKey 外层对象的行标识，主结果对象为null
+   * @return 没有读取到任何列值或者外层对象的行标识为 {@link RowKey#NULL_ROW_KEY}时返回 {@link RowKey#NULL_ROW_KEY}
+   * @throws SQLException
+   */
+  private RowKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix, RowKey parentRowKey) throws SQLException {
+    if (parentRowKey == RowKey.NULL_ROW_KEY) {
+      return RowKey.NULL_ROW_KEY;
+    }
+    final RowKeyColumns columns = getRowKeyColumns(resultMap, rsw, columnPrefix);
+    if (!rowKeyProbe.read(columns, rsw.getResultSet(), parentRowKey, configuration.isUseColumnIndexForResults(),
+      configuration.isReturnInstanceForEmptyRow())) {
+      return RowKey.NULL_ROW_KEY;
+    }
+    final RowKey rowKey = nestedResultObjects.get(rowKeyProbe);
+    return rowKey != null ? rowKey : rowKeyProbe.copy();
+  }
+
+  private RowKeyColumns getRowKeyColumns(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
+    final RowMappingPlan plan = rsw.getRowMappingPlan(resultMap, columnPrefix);
+    final boolean mapUnderscoreToCamelCase = configuration.isMapUnderscoreToCamelCase();
+    RowKeyColumns columns = plan.getRowKeyColumns(mapUnderscoreToCamelCase);
+    if (columns == null) {
+      columns = createRowKeyColumns(resultMap, rsw, columnPrefix);
+      plan.setRowKeyColumns(mapUnderscoreToCamelCase, columns);
+    }
+    return columns;
+  }
+
+  /**
+   * (1)尝试使用<idArg>节点或<id>节点中定义的列组成行标识。<br>
+   * (2)如果 {@link ResultMap}中没有定义<idArg>节点或<id>节点，则由 {@link ResultMap} 中明确要映射的列组成行标识。<br>
+   * (3)(1)和(2)，依然查找不到相关的列，且 {@link ResultMap#type} 属性明确指明了结果对象为 {@link Map}类型，
+   * 则由结果集中所有列组成行标识。<br>
+   * (4)如果映射的结果对象不是 {@link Map}类型，则由结果集中未明确映射的列组成行标识。<br>
    *
    * @param resultMap
    * @param rsw
@@ -1697,51 +2103,30 @@ public class DefaultResultSetHandler implements ResultSetHandler {
    * @return
    * @throws SQLException
    */
-  private CacheKey createRowKey(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
-    final CacheKey cacheKey = new CacheKey();
-    // 更新CacheKey的updateList集合
-    cacheKey.update(resultMap.getId());
+  private RowKeyColumns createRowKeyColumns(ResultMap resultMap, ResultSetWrapper rsw, String columnPrefix) throws SQLException {
+    final List<String> columns = new ArrayList<>();
+    final List<TypeHandler<?>> typeHandlers = new ArrayList<>();
     List<ResultMapping> resultMappings = getResultMappingsForRowKey(resultMap);
+    boolean mapped = false;
     if (resultMappings.isEmpty()) {
       if (Map.class.isAssignableFrom(resultMap.getType())) {
         // 处理返回结果是Map的情况
-        createRowKeyForMap(rsw, cacheKey);
+        columns.addAll(rsw.getColumnNames());
       } else {
         // 处理未明确列名的情况
-        createRowKeyForUnmappedProperties(resultMap, rsw, cacheKey, columnPrefix);
+        collectRowKeyColumnsForUnmappedProperties(resultMap, rsw, columns, columnPrefix);
       }
     } else {
       // 处理列名明确的情况
-      createRowKeyForMappedProperties(resultMap, rsw, cacheKey, resultMappings, columnPrefix);
+      collectRowKeyColumnsForMappedProperties(resultMap, rsw, columns, typeHandlers, resultMappings, columnPrefix);
+      mapped = true;
     }
-    if (cacheKey.getUpdateCount() < 2) {
-      return CacheKey.NULL_CACHE_KEY;
+    final int[] columnIndexes = new int[columns.size()];
+    for (int i = 0; i < columnIndexes.length; i++) {
+      columnIndexes[i] = rsw.getColumnIndex(columns.get(i));
     }
-    return cacheKey;
-  }
-
-  /**
-   * 合并 {@link CacheKey}
-   *
-   * @param rowKey
-   * @param parentRowKey
-   * @return
-   */
-  private CacheKey combineKeys(CacheKey rowKey, CacheKey parentRowKey) {
-    // 边界检查
-    if (rowKey.getUpdateCount() > 1 && parentRowKey.getUpdateCount() > 1) {
-      CacheKey combinedKey;
-      try {
-        // 获取 rowKey 的克隆对象
-        combinedKey = rowKey.clone();
-      } catch (CloneNotSupportedException e) {
-        throw new ExecutorException("Error cloning cache key.  Cause: " + e, e);
-      }
-      // 添加外层映射相关的CacheKey对象
-      combinedKey.update(parentRowKey);
-      return combinedKey;
-    }
-    return CacheKey.NULL_CACHE_KEY;
+    return new RowKeyColumns(resultMap.getId(), columnPrefix, columns.toArray(new String[0]), columnIndexes,
+      mapped ? typeHandlers.toArray(new TypeHandler<?>[0]) : null);
   }
 
   /**
@@ -1760,51 +2145,48 @@ public class DefaultResultSetHandler implements ResultSetHandler {
   }
 
   /**
-   * 将明确映射的列名和列值加入到 {@link CacheKey.update}集合中保存，其中可能存在嵌套处理
+   * 收集结果集中存在的明确映射的列及其 {@link TypeHandler}，其中可能存在嵌套处理
    *
    * @param resultMap
    * @param rsw
-   * @param cacheKey
+   * @param columns
+   * @param typeHandlers
    * @param resultMappings
    * @param columnPrefix
    * @throws SQLException
    */
-  private void createRowKeyForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
+  private void collectRowKeyColumnsForMappedProperties(ResultMap resultMap, ResultSetWrapper rsw, List<String> columns, List<TypeHandler<?>> typeHandlers,
+                                                       List<ResultMapping> resultMappings, String columnPrefix) throws SQLException {
     for (ResultMapping resultMapping : resultMappings) {
       if (resultMapping.getNestedResultMapId() != null && resultMapping.getResultSet() == null) { // 嵌套映射
         // Issue #392
         final ResultMap nestedResultMap = configuration.getResultMap(resultMapping.getNestedResultMapId());
         // 嵌套处理
-        createRowKeyForMappedProperties(nestedResultMap, rsw, cacheKey, nestedResultMap.getConstructorResultMappings(),
+        collectRowKeyColumnsForMappedProperties(nestedResultMap, rsw, columns, typeHandlers, nestedResultMap.getConstructorResultMappings(),
           prependPrefix(resultMapping.getColumnPrefix(), columnPrefix));
       } else if (resultMapping.getNestedQueryId() == null) {  // 忽略嵌套查询的情况
         final String column = prependPrefix(resultMapping.getColumn(), columnPrefix);
-        final TypeHandler<?> th = resultMapping.getTypeHandler();
         // 获取已经映射的列名
         List<String> mappedColumnNames = rsw.getMappedColumnNames(resultMap, columnPrefix);
         // Issue #114
         if (column != null && mappedColumnNames.contains(column.toUpperCase(Locale.ENGLISH))) {
-          final Object value = th.getResult(rsw.getResultSet(), column);
-          if (value != null || configuration.isReturnInstanceForEmptyRow()) {
-            // 将映射后的列名和列值更新到updateList集合
-            cacheKey.update(column);
-            cacheKey.update(value);
-          }
+          columns.add(column);
+          typeHandlers.add(resultMapping.getTypeHandler());
         }
       }
     }
   }
 
   /**
-   * 将未明确映射的列名和列值加入到 {@link CacheKey.update}集合中保存
+   * 收集能找到对应属性的未明确映射的列
    *
    * @param resultMap
    * @param rsw
-   * @param cacheKey
+   * @param columns
    * @param columnPrefix
    * @throws SQLException
    */
-  private void createRowKeyForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, CacheKey cacheKey, String columnPrefix) throws SQLException {
+  private void collectRowKeyColumnsForUnmappedProperties(ResultMap resultMap, ResultSetWrapper rsw, List<String> columns, String columnPrefix) throws SQLException {
     // 获取返回结果类型的元信息
     final MetaClass metaType = MetaClass.forClass(resultMap.getType(), reflectorFactory);
     // 获取未映射的列名
@@ -1822,29 +2204,7 @@ public class DefaultResultSetHandler implements ResultSetHandler {
       }
       // 判断去掉前缀的部分是否就是java属性的名称，即去掉前缀的列名是否与java属性是否一一映射
       if (metaType.findProperty(property, configuration.isMapUnderscoreToCamelCase()) != null) {
-        String value = rsw.getResultSet().getString(column);
-        if (value != null) {  // 将映射后的列名和列值更新到updateList集合
-          cacheKey.update(column);
-          cacheKey.update(value);
-        }
-      }
-    }
-  }
-
-  /**
-   * 把结果集的所有列名和列值加入到 {@link CacheKey.update}集合中保存
-   *
-   * @param rsw
-   * @param cacheKey
-   * @throws SQLException
-   */
-  private void createRowKeyForMap(ResultSetWrapper rsw, CacheKey cacheKey) throws SQLException {
-    List<String> columnNames = rsw.getColumnNames();
-    for (String columnName : columnNames) {
-      final String value = rsw.getResultSet().getString(columnName);
-      if (value != null) {
-        cacheKey.update(columnName);
-        cacheKey.update(value);
+        columns.add(column);
       }
     }
   }
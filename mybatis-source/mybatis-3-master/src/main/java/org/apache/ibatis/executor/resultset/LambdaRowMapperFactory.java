@@ -0,0 +1,200 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.property.PropertyNamer;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * 使用 {@link LambdaMetafactory} 生成行映射器的工厂，别名为 LAMBDA.
+ * <p>
+ * 为结果对象的无参构造方法生成 {@link Supplier}，为每个属性的setter方法生成 {@link BiConsumer}，
+ * 映射时按列的下标读取值并直接调用生成的类，不再经过 {@link org.apache.ibatis.reflection.MetaObject} 和反射。
+ * 结果对象必须是public的类并提供public的无参构造方法，属性必须有public的setter方法并且属性类型也是public的，
+ * 而且这些类型对MyBatis的类加载器可见，否则返回null，继续使用原有的映射流程。
+ *
+ * @since 3.5.3
+ */
+public class LambdaRowMapperFactory implements RowMapperFactory {
+
+  private static final Log log = LogFactory.getLog(LambdaRowMapperFactory.class);
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  @Override
+  public RowMapper newRowMapper(Configuration configuration, Class<?> type, List<ColumnAssignment> assignments) {
+    if (!Modifier.isPublic(type.getModifiers()) || Modifier.isAbstract(type.getModifiers()) || !isVisible(type)) {
+      return null;
+    }
+    try {
+      final Supplier<Object> constructor = createConstructor(type);
+      final int size = assignments.size();
+      final int[] columnIndexes = new int[size];
+      final TypeHandler<?>[] typeHandlers = new TypeHandler<?>[size];
+      @SuppressWarnings("unchecked") final BiConsumer<Object, Object>[] setters = new BiConsumer[size];
+      final String[] properties = new String[size];
+      final boolean[] setNulls = new boolean[size];
+      for (int i = 0; i < size; i++) {
+        final ColumnAssignment assignment = assignments.get(i);
+        final Method setter = findSetter(type, assignment.getProperty(), assignment.getPropertyType());
+        if (setter == null || !isVisible(setter.getDeclaringClass()) || !isVisible(assignment.getPropertyType())) {
+          return null;
+        }
+        columnIndexes[i] = assignment.getColumnIndex();
+        typeHandlers[i] = assignment.getTypeHandler();
+        setters[i] = createSetter(type, setter);
+        properties[i] = assignment.getProperty();
+        // 与 DefaultResultSetHandler 一致，值为null时只有开启了callSettersOnNulls并且不是基本类型才调用setter
+        setNulls[i] = configuration.isCallSettersOnNulls() && !assignment.getPropertyType().isPrimitive();
+      }
+      return new LambdaRowMapper(type, constructor, columnIndexes, typeHandlers, setters, properties, setNulls,
+        configuration.isReturnInstanceForEmptyRow());
+    } catch (Throwable t) {
+      if (log.isDebugEnabled()) {
+        log.debug("Could not generate a row mapper for " + type + ", falling back to reflection. Cause: " + t);
+      }
+      return null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Supplier<Object> createConstructor(Class<?> type) throws Throwable {
+    final MethodHandle constructor = LOOKUP.findConstructor(type, MethodType.methodType(void.class));
+    final CallSite site = LambdaMetafactory.metafactory(LOOKUP, "get", MethodType.methodType(Supplier.class),
+      MethodType.methodType(Object.class), constructor, MethodType.methodType(type));
+    return (Supplier<Object>) site.getTarget().invokeWithArguments();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static BiConsumer<Object, Object> createSetter(Class<?> type, Method setter) throws Throwable {
+    final MethodHandle handle = LOOKUP.unreflect(setter);
+    // 基本类型的参数在生成的类中自动拆箱
+    final Class<?> parameterType = MethodType.methodType(setter.getParameterTypes()[0]).wrap().returnType();
+    final CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept", MethodType.methodType(BiConsumer.class),
+      MethodType.methodType(void.class, Object.class, Object.class), handle,
+      MethodType.methodType(void.class, type, parameterType));
+    return (BiConsumer<Object, Object>) site.getTarget().invokeWithArguments();
+  }
+
+  /**
+   * 查找属性对应的public setter方法，找不到或者有多个时返回null
+   */
+  private static Method findSetter(Class<?> type, String property, Class<?> propertyType) {
+    Method found = null;
+    for (Method method : type.getMethods()) {
+      if (method.getParameterCount() == 1 && method.getName().startsWith("set") && method.getName().length() > 3
+        && !method.isBridge() && !Modifier.isStatic(method.getModifiers())
+        && method.getParameterTypes()[0] == propertyType
+        && Modifier.isPublic(method.getDeclaringClass().getModifiers())
+        && property.equals(PropertyNamer.methodToProperty(method.getName()))) {
+        if (found != null) {
+          return null;
+        }
+        found = method;
+      }
+    }
+    return found;
+  }
+
+  /**
+   * 生成的类由MyBatis的类加载器解析，并且只能访问public的类型，结果对象和属性的类型必须满足这两个条件
+   */
+  private static boolean isVisible(Class<?> type) {
+    while (type.isArray()) {
+      type = type.getComponentType();
+    }
+    if (type.isPrimitive()) {
+      return true;
+    }
+    if (!Modifier.isPublic(type.getModifiers())) {
+      return false;
+    }
+    try {
+      return Class.forName(type.getName(), false, LambdaRowMapperFactory.class.getClassLoader()) == type;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  private static final class LambdaRowMapper implements RowMapper {
+
+    private final Class<?> type;
+    private final Supplier<Object> constructor;
+    private final int[] columnIndexes;
+    private final TypeHandler<?>[] typeHandlers;
+    private final BiConsumer<Object, Object>[] setters;
+    private final String[] properties;
+    private final boolean[] setNulls;
+    private final boolean returnInstanceForEmptyRow;
+
+    LambdaRowMapper(Class<?> type, Supplier<Object> constructor, int[] columnIndexes, TypeHandler<?>[] typeHandlers,
+                    BiConsumer<Object, Object>[] setters, String[] properties, boolean[] setNulls,
+                    boolean returnInstanceForEmptyRow) {
+      this.type = type;
+      this.constructor = constructor;
+      this.columnIndexes = columnIndexes;
+      this.typeHandlers = typeHandlers;
+      this.setters = setters;
+      this.properties = properties;
+      this.setNulls = setNulls;
+      this.returnInstanceForEmptyRow = returnInstanceForEmptyRow;
+    }
+
+    @Override
+    public Object mapRow(ResultSet rs) throws SQLException {
+      final Object rowValue;
+      try {
+        rowValue = constructor.get();
+      } catch (RuntimeException e) {
+        throw new ReflectionException("Error instantiating " + type + ". Cause: " + e, e);
+      }
+      boolean foundValues = false;
+      for (int i = 0; i < setters.length; i++) {
+        final Object value = typeHandlers[i].getResult(rs, columnIndexes[i]);
+        if (value != null) {
+          foundValues = true;
+        }
+        if (value != null || setNulls[i]) {
+          try {
+            setters[i].accept(rowValue, value);
+          } catch (RuntimeException e) {
+            throw new ReflectionException("Could not set property '" + properties[i] + "' of '" + type
+              + "' with value '" + value + "' Cause: " + e.toString(), e);
+          }
+        }
+      }
+      return foundValues || returnInstanceForEmptyRow ? rowValue : null;
+    }
+  }
+
+}
@@ -16,7 +16,9 @@
 package org.apache.ibatis.executor.resultset;
 
 import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.*;
 
@@ -56,30 +58,74 @@ public class ResultSetWrapper {
    */
   private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<>();
   /**
-   * 已经映射的列名，key是 {@link ResultMap}对象的id+列名前缀，value是该 {@link ResultMap}对象映射的列名集合
+   * 结果集所属的语句，为null时映射计划只在当前结果集内复用
    */
-  private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<>();
+  private final MappedStatement mappedStatement;
+  private final RowMappingPlanCache rowMappingPlanCache;
   /**
-   * 未映射的列名，key是 {@link ResultMap}对象的id+列名前缀，value是该 {@link ResultMap}对象映射的列名集合
+   * 结果集的列布局，用于在多次执行之间查找 {@link RowMappingPlan}
    */
-  private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<>();
+  private final ColumnLayout columnLayout;
+  /**
+   * 当前结果集使用过的映射计划，key是 {@link ResultMap}对象的id+列名前缀
+   */
+  private final Map<String, RowMappingPlan> rowMappingPlans = new HashMap<>();
+  /**
+   * 最近一次使用的映射计划，同一个ResultMap逐行映射时不需要再拼接key
+   */
+  private ResultMap lastResultMap;
+  private String lastColumnPrefix;
+  private RowMappingPlan lastRowMappingPlan;
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
+    this(rs, configuration, null);
+  }
+
+  /**
+   * @param rs
+   * @param configuration
+   * @param mappedStatement 结果集所属的语句，映射计划会在该语句的多次执行之间共享
+   * @throws SQLException
+   * @since 3.5.3
+   */
+  public ResultSetWrapper(ResultSet rs, Configuration configuration, MappedStatement mappedStatement) throws SQLException {
     super();
     this.typeHandlerRegistry = configuration.getTypeHandlerRegistry();
     this.resultSet = rs;
+    this.mappedStatement = mappedStatement;
+    this.rowMappingPlanCache = configuration.getRowMappingPlanCache();
     // 获取ResultSet的元信息
     final ResultSetMetaData metaData = rs.getMetaData();
     // ResultSet的列数
     final int columnCount = metaData.getColumnCount();
+    final int[] columnTypes = new int[columnCount];
     for (int i = 1; i <= columnCount; i++) {
       // 获取列名或通过“AS”指定的别名
       columnNames.add(configuration.isUseColumnLabel() ? metaData.getColumnLabel(i) : metaData.getColumnName(i));
       // 该列的jdbcType类型
-      jdbcTypes.add(JdbcType.forCode(metaData.getColumnType(i)));
+      columnTypes[i - 1] = metaData.getColumnType(i);
+      jdbcTypes.add(JdbcType.forCode(columnTypes[i - 1]));
       // 该列对应的Java类型
       classNames.add(metaData.getColumnClassName(i));
     }
+    this.columnLayout = new ColumnLayout(columnNames.toArray(new String[0]), columnTypes, classNames.toArray(new String[0]));
+  }
+
+  /**
+   * 使用列布局相同的另一个结果集创建，共享列信息和 {@link RowMappingPlanCache}，并行映射时每个映射线程使用自己的对象
+   *
+   * @param source 原结果集对应的对象
+   * @param rs     列布局相同的结果集
+   */
+  ResultSetWrapper(ResultSetWrapper source, ResultSet rs) {
+    this.typeHandlerRegistry = source.typeHandlerRegistry;
+    this.resultSet = rs;
+    this.mappedStatement = source.mappedStatement;
+    this.rowMappingPlanCache = source.rowMappingPlanCache;
+    this.columnLayout = source.columnLayout;
+    this.columnNames.addAll(source.columnNames);
+    this.classNames.addAll(source.classNames);
+    this.jdbcTypes.addAll(source.jdbcTypes);
   }
 
   public ResultSet getResultSet() {
@@ -189,38 +235,109 @@ public class ResultSetWrapper {
   }
 
   /**
-   * 把结果集中已在<resultMap>配置映射的列名加入 {@link ResultSetWrapper#mappedColumnNamesMap}集合
-   * 把结果集中未在<resultMap>配置映射的列名加入 {@link ResultSetWrapper#unMappedColumnNamesMap}集合
+   * 获取指定 {@link ResultMap}对象(及列前缀)在当前结果集上的映射计划，依次从最近一次使用的映射计划、当前结果集使用过的映射计划
+   * 和 {@link RowMappingPlanCache}中查找，都找不到时再区分已映射和未映射的列名并创建
    *
    * @param resultMap
    * @param columnPrefix
-   * @throws SQLException
+   * @return
+   */
+  RowMappingPlan getRowMappingPlan(ResultMap resultMap, String columnPrefix) {
+    if (resultMap == lastResultMap && Objects.equals(columnPrefix, lastColumnPrefix)) {
+      return lastRowMappingPlan;
+    }
+    final String mapKey = getMapKey(resultMap, columnPrefix);
+    RowMappingPlan plan = rowMappingPlans.get(mapKey);
+    if (plan == null) {
+      if (mappedStatement != null) {
+        plan = rowMappingPlanCache.getPlan(mappedStatement, resultMap.getId(), columnPrefix, columnLayout);
+      }
+      if (plan == null) {
+        plan = createRowMappingPlan(resultMap, columnPrefix);
+        if (mappedStatement != null) {
+          rowMappingPlanCache.putPlan(mappedStatement, resultMap.getId(), columnPrefix, columnLayout, plan);
+        }
+      }
+      rowMappingPlans.put(mapKey, plan);
+    }
+    lastResultMap = resultMap;
+    lastColumnPrefix = columnPrefix;
+    lastRowMappingPlan = plan;
+    return plan;
+  }
+
+  /**
+   * 区分结果集中已在<resultMap>配置映射的列名和未在<resultMap>配置映射的列名，创建映射计划
+   *
+   * @param resultMap
+   * @param columnPrefix
+   * @return
    */
-  private void loadMappedAndUnmappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
+  private RowMappingPlan createRowMappingPlan(ResultMap resultMap, String columnPrefix) {
     // 保存成功映射的列名
     List<String> mappedColumnNames = new ArrayList<>();
     // 保存未成功映射的列名
     List<String> unmappedColumnNames = new ArrayList<>();
+    int[] unmappedColumnIndexes = new int[columnNames.size()];
     // 大写的列名前缀
     final String upperColumnPrefix = columnPrefix == null ? null : columnPrefix.toUpperCase(Locale.ENGLISH);
     // 加前缀的列名
     final Set<String> mappedColumns = prependPrefixes(resultMap.getMappedColumns(), upperColumnPrefix);
-    for (String columnName : columnNames) {
+    // 大写的列名与其第一次出现的下标(与JDBC驱动按列名查找时的结果一致)
+    final Map<String, Integer> upperColumnIndexes = new HashMap<>();
+    for (int i = 0; i < columnNames.size(); i++) {
+      final String columnName = columnNames.get(i);
       final String upperColumnName = columnName.toUpperCase(Locale.ENGLISH);
+      upperColumnIndexes.putIfAbsent(upperColumnName, i + 1);
       if (mappedColumns.contains(upperColumnName)) {
         mappedColumnNames.add(upperColumnName);
       } else {
+        unmappedColumnIndexes[unmappedColumnNames.size()] = i + 1;
         unmappedColumnNames.add(columnName);
       }
     }
-    // 更新覆盖
-    mappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), mappedColumnNames);
-    unMappedColumnNamesMap.put(getMapKey(resultMap, columnPrefix), unmappedColumnNames);
+    // 预先确定每个属性映射读取的列
+    final List<ResultMapping> propertyMappings = resultMap.getPropertyResultMappings();
+    final int[] propertyColumnIndexes = new int[propertyMappings.size()];
+    for (int i = 0; i < propertyMappings.size(); i++) {
+      final ResultMapping propertyMapping = propertyMappings.get(i);
+      // 配置了嵌套映射时忽略column属性
+      if (propertyMapping.getNestedResultMapId() == null && propertyMapping.getColumn() != null) {
+        final String column = prependPrefix(propertyMapping.getColumn(), columnPrefix).toUpperCase(Locale.ENGLISH);
+        if (mappedColumns.contains(column)) {
+          propertyColumnIndexes[i] = upperColumnIndexes.getOrDefault(column, 0);
+        }
+      }
+    }
+    return new RowMappingPlan(mappedColumnNames, unmappedColumnNames,
+      Arrays.copyOf(unmappedColumnIndexes, unmappedColumnNames.size()), propertyColumnIndexes);
+  }
+
+  /**
+   * 查找列在结果集中的下标，与JDBC驱动按列名查找时一样，忽略大小写并且返回第一次出现的位置
+   *
+   * @param columnName 列名
+   * @return 下标(从1开始)，结果集中没有该列时返回0
+   */
+  int getColumnIndex(String columnName) {
+    final String upperColumnName = columnName.toUpperCase(Locale.ENGLISH);
+    for (int i = 0; i < columnNames.size(); i++) {
+      if (columnNames.get(i).toUpperCase(Locale.ENGLISH).equals(upperColumnName)) {
+        return i + 1;
+      }
+    }
+    return 0;
+  }
+
+  private static String prependPrefix(String columnName, String prefix) {
+    if (columnName == null || columnName.length() == 0 || prefix == null || prefix.length() == 0) {
+      return columnName;
+    }
+    return prefix + columnName;
   }
 
   /**
-   * 返回指定 {@link ResultMap}对象中成功映射的列名集合，同时会将该列名集合以及未映射的列名集合记录到 {@link ResultSetWrapper#mappedColumnNamesMap}
-   * 和 {@link ResultSetWrapper#unMappedColumnNamesMap}中缓存。
+   * 返回指定 {@link ResultMap}对象中成功映射的列名集合
    *
    * @param resultMap
    * @param columnPrefix
@@ -228,17 +345,11 @@ public class ResultSetWrapper {
    * @throws SQLException
    */
   public List<String> getMappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    List<String> mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    if (mappedColumnNames == null) {
-      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
-      mappedColumnNames = mappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    }
-    return mappedColumnNames;
+    return getRowMappingPlan(resultMap, columnPrefix).getMappedColumnNames();
   }
 
   /**
-   * 返回指定 {@link ResultMap}对象中未成功映射的列名集合，同时会将该列名集合以及未映射的列名集合记录到 {@link ResultSetWrapper#mappedColumnNamesMap}
-   * 和 {@link ResultSetWrapper#unMappedColumnNamesMap}中缓存。
+   * 返回指定 {@link ResultMap}对象中未成功映射的列名集合
    *
    * @param resultMap
    * @param columnPrefix
@@ -246,12 +357,7 @@ public class ResultSetWrapper {
    * @throws SQLException
    */
   public List<String> getUnmappedColumnNames(ResultMap resultMap, String columnPrefix) throws SQLException {
-    List<String> unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    if (unMappedColumnNames == null) {
-      loadMappedAndUnmappedColumnNames(resultMap, columnPrefix);
-      unMappedColumnNames = unMappedColumnNamesMap.get(getMapKey(resultMap, columnPrefix));
-    }
-    return unMappedColumnNames;
+    return getRowMappingPlan(resultMap, columnPrefix).getUnmappedColumnNames();
   }
 
   /**
@@ -0,0 +1,162 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+import org.apache.ibatis.reflection.ArrayUtil;
+
+/**
+ * 嵌套映射中唯一标识一个结果对象的行标识，代替原来的 {@link org.apache.ibatis.cache.CacheKey}.
+ * <p>
+ * 只保存参与行标识的列值({@link RowKeyColumns} 中的列)和外层对象的行标识，不保存ResultMap的id和列名；
+ * 创建时计算64位哈希值，比较时先比较哈希值，相同时再逐项比较列值。外层对象的行标识直接引用，不需要像CacheKey一样克隆后合并。
+ * <p>
+ * {@link DefaultResultSetHandler} 使用同一个可复用的对象读取每一行的列值并查找已经存在的行标识，只有遇到新的结果对象时才复制一份。
+ * 保存到 nestedResultObjects 集合中的行标识同时记录对应的结果对象。
+ */
+final class RowKey {
+
+  /**
+   * 没有任何列值的行标识，不会保存到 nestedResultObjects 集合中，以它为外层对象的嵌套对象的行标识也是它
+   */
+  static final RowKey NULL_ROW_KEY = new RowKey();
+
+  private static final Object[] EMPTY_VALUES = {};
+
+  private RowKeyColumns columns;
+  private Object[] values = EMPTY_VALUES;
+  private RowKey parent;
+  private long hash;
+  /**
+   * 该行标识对应的结果对象
+   */
+  private Object resultObject;
+
+  RowKey() {
+  }
+
+  private RowKey(RowKeyColumns columns, Object[] values, RowKey parent, long hash) {
+    this.columns = columns;
+    this.values = values;
+    this.parent = parent;
+    this.hash = hash;
+  }
+
+  /**
+   * 读取当前行的列值，覆盖该对象原有的内容
+   *
+   * @param columns                   参与行标识的列
+   * @param rs                        结果集
+   * @param parent                    外层对象的行标识，主结果对象为null
+   * @param useColumnIndex            是否按下标读取
+   * @param returnInstanceForEmptyRow 是否开启了returnInstanceForEmptyRow
+   * @return 没有读取到任何参与行标识的值时返回false，此时应该使用 {@link #NULL_ROW_KEY}
+   * @throws SQLException
+   */
+  boolean read(RowKeyColumns columns, ResultSet rs, RowKey parent, boolean useColumnIndex, boolean returnInstanceForEmptyRow) throws SQLException {
+    final int size = columns.size();
+    if (values.length < size) {
+      values = new Object[Math.max(size, values.length << 1)];
+    }
+    boolean found = size > 0 && returnInstanceForEmptyRow && columns.isMapped();
+    long h = columns.getSeed();
+    for (int i = 0; i < size; i++) {
+      Object value = columns.getValue(rs, i, useColumnIndex);
+      values[i] = value;
+      if (value != null) {
+        found = true;
+        h = mix(h, ArrayUtil.hashCode(value));
+      } else {
+        h = mix(h, 1);
+      }
+    }
+    if (parent != null) {
+      h = mix(h, parent.hash);
+    }
+    this.columns = columns;
+    this.parent = parent;
+    this.hash = h;
+    return found;
+  }
+
+  private static long mix(long h, long value) {
+    long x = (Long.rotateLeft(h, 31) ^ value) * 0x9E3779B97F4A7C15L;
+    return x ^ (x >>> 29);
+  }
+
+  /**
+   * @return 保存当前内容的新对象，不包含结果对象
+   */
+  RowKey copy() {
+    return new RowKey(columns, Arrays.copyOf(values, columns.size()), parent, hash);
+  }
+
+  Object getResultObject() {
+    return resultObject;
+  }
+
+  void setResultObject(Object resultObject) {
+    this.resultObject = resultObject;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof RowKey)) {
+      return false;
+    }
+    RowKey that = (RowKey) o;
+    if (hash != that.hash || columns == null || that.columns == null) {
+      return false;
+    }
+    if (columns != that.columns && !columns.equals(that.columns)) {
+      return false;
+    }
+    if (parent != that.parent && (parent == null || !parent.equals(that.parent))) {
+      return false;
+    }
+    for (int i = 0, size = columns.size(); i < size; i++) {
+      if (!ArrayUtil.equals(values[i], that.values[i])) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(hash);
+  }
+
+  @Override
+  public String toString() {
+    if (columns == null) {
+      return "NULL";
+    }
+    StringJoiner joiner = new StringJoiner(", ", columns + "{", "}");
+    for (int i = 0, size = columns.size(); i < size; i++) {
+      joiner.add(columns.getColumn(i) + "=" + ArrayUtil.toString(values[i]));
+    }
+    return parent == null ? joiner.toString() : joiner + " <- " + parent;
+  }
+
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Objects;
+
+import org.apache.ibatis.type.TypeHandler;
+
+/**
+ * 嵌套映射时用来生成行标识({@link RowKey})的列，由 {@link DefaultResultSetHandler} 按照原有的规则预先确定.
+ * <p>
+ * 优先使用ResultMap中的id列，没有id列时使用明确映射的列，都没有时使用能找到对应属性的未映射列(结果类型为Map时使用所有列)。
+ * 每一行只需要按下标读取这些列的值，不需要再拼接列名或者比较列名。创建后不再修改，和 {@link RowMappingPlan} 一起在多次执行之间共享。
+ */
+final class RowKeyColumns {
+
+  private final String resultMapId;
+  private final String columnPrefix;
+  /**
+   * 列名，按列名读取时使用
+   */
+  private final String[] columns;
+  /**
+   * 列在结果集中的下标(从1开始)
+   */
+  private final int[] columnIndexes;
+  /**
+   * 明确映射的列使用的 {@link TypeHandler}，为null时按字符串读取所有列
+   */
+  private final TypeHandler<?>[] typeHandlers;
+  /**
+   * 计算行标识哈希值的初始值
+   */
+  private final long seed;
+
+  RowKeyColumns(String resultMapId, String columnPrefix, String[] columns, int[] columnIndexes, TypeHandler<?>[] typeHandlers) {
+    this.resultMapId = resultMapId;
+    this.columnPrefix = columnPrefix;
+    this.columns = columns;
+    this.columnIndexes = columnIndexes;
+    this.typeHandlers = typeHandlers;
+    this.seed = ((long) resultMapId.hashCode() << 32) ^ Objects.hashCode(columnPrefix);
+  }
+
+  int size() {
+    return columns.length;
+  }
+
+  long getSeed() {
+    return seed;
+  }
+
+  /**
+   * @return 是否是明确映射的列，明确映射的列在开启returnInstanceForEmptyRow时值为null也参与行标识
+   */
+  boolean isMapped() {
+    return typeHandlers != null;
+  }
+
+  /**
+   * 读取当前行第i列的值
+   *
+   * @param rs             结果集
+   * @param i              列的序号
+   * @param useColumnIndex 是否按下标读取
+   * @return 列值
+   * @throws SQLException
+   */
+  Object getValue(ResultSet rs, int i, boolean useColumnIndex) throws SQLException {
+    if (typeHandlers == null) {
+      return useColumnIndex ? rs.getString(columnIndexes[i]) : rs.getString(columns[i]);
+    }
+    return useColumnIndex ? typeHandlers[i].getResult(rs, columnIndexes[i]) : typeHandlers[i].getResult(rs, columns[i]);
+  }
+
+  String getColumn(int i) {
+    return columns[i];
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof RowKeyColumns)) {
+      return false;
+    }
+    RowKeyColumns that = (RowKeyColumns) o;
+    return resultMapId.equals(that.resultMapId) && Objects.equals(columnPrefix, that.columnPrefix)
+      && Arrays.equals(columns, that.columns);
+  }
+
+  @Override
+  public int hashCode() {
+    return Long.hashCode(seed);
+  }
+
+  @Override
+  public String toString() {
+    return resultMapId + (columnPrefix == null ? "" : ":" + columnPrefix) + Arrays.toString(columns);
+  }
+
+}
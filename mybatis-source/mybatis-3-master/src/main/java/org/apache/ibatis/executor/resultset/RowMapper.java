@@ -0,0 +1,39 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 把结果集的当前行映射成结果对象的映射器，由 {@link RowMapperFactory} 针对某个ResultMap和列布局生成.
+ * <p>
+ * 实现必须是线程安全的，同一个映射器会被多次执行共享。
+ *
+ * @since 3.5.3
+ */
+public interface RowMapper {
+
+  /**
+   * 映射结果集的当前行
+   *
+   * @param rs 结果集，已经定位到需要映射的行
+   * @return 结果对象，所有列都是null时按照 returnInstanceForEmptyRow 的配置返回空对象或者null
+   * @throws SQLException 读取列失败时抛出
+   */
+  Object mapRow(ResultSet rs) throws SQLException;
+
+}
@@ -0,0 +1,42 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.List;
+
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * 为简单的ResultMap生成专用的 {@link RowMapper}，通过 settings 中的 rowMapperFactory 配置开启.
+ * <p>
+ * 只有没有鉴别器、嵌套映射、嵌套查询(延迟加载)和构造器映射的ResultMap才会调用工厂，
+ * 其他情况以及工厂返回null时仍使用 {@link DefaultResultSetHandler} 原有的映射流程。
+ *
+ * @since 3.5.3
+ */
+public interface RowMapperFactory {
+
+  /**
+   * 生成行映射器
+   *
+   * @param configuration 全局配置，用于读取 callSettersOnNulls 等配置
+   * @param type          结果对象的类型
+   * @param assignments   需要赋值的列，包括明确映射的列和自动映射的列
+   * @return 行映射器，不支持该类型时返回null
+   */
+  RowMapper newRowMapper(Configuration configuration, Class<?> type, List<ColumnAssignment> assignments);
+
+}
@@ -0,0 +1,186 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 一个 {@link org.apache.ibatis.mapping.ResultMap}(加上列前缀)在某种列布局的结果集上的映射计划.
+ * <p>
+ * 记录已经在ResultMap中明确映射的列、未映射的列，以及自动映射时每个未映射列对应的属性和 {@link org.apache.ibatis.type.TypeHandler}。
+ * 映射计划由 {@link RowMappingPlanCache} 在多次执行之间共享，创建后不再修改(自动映射和生成的行映射器在第一次使用时设置)，可以被多个线程同时使用。
+ */
+final class RowMappingPlan {
+
+  /**
+   * 表示 {@link RowMapperFactory} 不支持该映射计划，使用原有的映射流程
+   */
+  static final RowMapper UNSUPPORTED_ROW_MAPPER = rs -> null;
+
+  /**
+   * 已经映射的列名(大写)
+   */
+  private final List<String> mappedColumnNames;
+  /**
+   * 未映射的列名
+   */
+  private final List<String> unmappedColumnNames;
+  /**
+   * 未映射的列在结果集中的下标(从1开始)
+   */
+  private final int[] unmappedColumnIndexes;
+  /**
+   * 与 {@link org.apache.ibatis.mapping.ResultMap#getPropertyResultMappings()} 一一对应，
+   * 记录加上列前缀之后的列在结果集中的下标(从1开始)，结果集中没有该列或者配置了嵌套映射时为0
+   */
+  private final int[] propertyColumnIndexes;
+  /**
+   * 自动映射，第一次使用时创建
+   */
+  private volatile AutoMappings autoMappings;
+  /**
+   * 生成的行映射器，第一次使用时创建
+   */
+  private volatile RowMappers rowMappers;
+  /**
+   * 嵌套映射时生成行标识的列，第一次使用时创建
+   */
+  private volatile RowKeyColumnsHolder rowKeyColumns;
+
+  RowMappingPlan(List<String> mappedColumnNames, List<String> unmappedColumnNames, int[] unmappedColumnIndexes,
+                 int[] propertyColumnIndexes) {
+    this.mappedColumnNames = Collections.unmodifiableList(mappedColumnNames);
+    this.unmappedColumnNames = Collections.unmodifiableList(unmappedColumnNames);
+    this.unmappedColumnIndexes = unmappedColumnIndexes;
+    this.propertyColumnIndexes = propertyColumnIndexes;
+  }
+
+  List<String> getMappedColumnNames() {
+    return mappedColumnNames;
+  }
+
+  List<String> getUnmappedColumnNames() {
+    return unmappedColumnNames;
+  }
+
+  /**
+   * @param i 在 {@link #getUnmappedColumnNames()} 中的下标
+   * @return 该列在结果集中的下标，从1开始
+   */
+  int getUnmappedColumnIndex(int i) {
+    return unmappedColumnIndexes[i];
+  }
+
+  /**
+   * @param i 在 {@link org.apache.ibatis.mapping.ResultMap#getPropertyResultMappings()} 中的下标
+   * @return 该属性映射的列在结果集中的下标(从1开始)，为0时表示不需要从该列读取
+   */
+  int getPropertyColumnIndex(int i) {
+    return propertyColumnIndexes[i];
+  }
+
+  /**
+   * 获取结果对象类型对应的自动映射
+   *
+   * @param resultType               结果对象的类型
+   * @param mapUnderscoreToCamelCase 是否开启了下划线转驼峰
+   * @return 没有创建过或者创建时的条件不同时返回null
+   */
+  List<DefaultResultSetHandler.UnMappedColumnAutoMapping> getAutoMappings(Class<?> resultType, boolean mapUnderscoreToCamelCase) {
+    AutoMappings current = autoMappings;
+    if (current != null && current.resultType == resultType && current.mapUnderscoreToCamelCase == mapUnderscoreToCamelCase) {
+      return current.mappings;
+    }
+    return null;
+  }
+
+  void setAutoMappings(Class<?> resultType, boolean mapUnderscoreToCamelCase, List<DefaultResultSetHandler.UnMappedColumnAutoMapping> mappings) {
+    autoMappings = new AutoMappings(resultType, mapUnderscoreToCamelCase, Collections.unmodifiableList(mappings));
+  }
+
+  /**
+   * 获取指定工厂生成的行映射器
+   *
+   * @param factory                  行映射器工厂
+   * @param mapUnderscoreToCamelCase 是否开启了下划线转驼峰
+   * @return 没有生成过或者生成时的条件不同时返回null，工厂不支持时返回 {@link #UNSUPPORTED_ROW_MAPPER}
+   */
+  RowMapper getRowMapper(RowMapperFactory factory, boolean mapUnderscoreToCamelCase) {
+    RowMappers current = rowMappers;
+    if (current != null && current.factory == factory && current.mapUnderscoreToCamelCase == mapUnderscoreToCamelCase) {
+      return current.rowMapper;
+    }
+    return null;
+  }
+
+  void setRowMapper(RowMapperFactory factory, boolean mapUnderscoreToCamelCase, RowMapper rowMapper) {
+    rowMappers = new RowMappers(factory, mapUnderscoreToCamelCase, rowMapper);
+  }
+
+  /**
+   * 获取嵌套映射时生成行标识的列
+   *
+   * @param mapUnderscoreToCamelCase 是否开启了下划线转驼峰
+   * @return 没有创建过或者创建时的条件不同时返回null
+   */
+  RowKeyColumns getRowKeyColumns(boolean mapUnderscoreToCamelCase) {
+    RowKeyColumnsHolder current = rowKeyColumns;
+    if (current != null && current.mapUnderscoreToCamelCase == mapUnderscoreToCamelCase) {
+      return current.columns;
+    }
+    return null;
+  }
+
+  void setRowKeyColumns(boolean mapUnderscoreToCamelCase, RowKeyColumns columns) {
+    rowKeyColumns = new RowKeyColumnsHolder(mapUnderscoreToCamelCase, columns);
+  }
+
+  private static final class RowKeyColumnsHolder {
+    private final boolean mapUnderscoreToCamelCase;
+    private final RowKeyColumns columns;
+
+    RowKeyColumnsHolder(boolean mapUnderscoreToCamelCase, RowKeyColumns columns) {
+      this.mapUnderscoreToCamelCase = mapUnderscoreToCamelCase;
+      this.columns = columns;
+    }
+  }
+
+  private static final class RowMappers {
+    private final RowMapperFactory factory;
+    private final boolean mapUnderscoreToCamelCase;
+    private final RowMapper rowMapper;
+
+    RowMappers(RowMapperFactory factory, boolean mapUnderscoreToCamelCase, RowMapper rowMapper) {
+      this.factory = factory;
+      this.mapUnderscoreToCamelCase = mapUnderscoreToCamelCase;
+      this.rowMapper = rowMapper;
+    }
+  }
+
+  private static final class AutoMappings {
+    private final Class<?> resultType;
+    private final boolean mapUnderscoreToCamelCase;
+    private final List<DefaultResultSetHandler.UnMappedColumnAutoMapping> mappings;
+
+    AutoMappings(Class<?> resultType, boolean mapUnderscoreToCamelCase, List<DefaultResultSetHandler.UnMappedColumnAutoMapping> mappings) {
+      this.resultType = resultType;
+      this.mapUnderscoreToCamelCase = mapUnderscoreToCamelCase;
+      this.mappings = mappings;
+    }
+  }
+
+}
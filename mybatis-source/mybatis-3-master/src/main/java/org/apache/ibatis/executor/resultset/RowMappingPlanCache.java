@@ -0,0 +1,135 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.ibatis.mapping.MappedStatement;
+
+/**
+ * 在多次执行之间共享的 {@link RowMappingPlan} 缓存，由 {@link org.apache.ibatis.session.Configuration} 持有.
+ * <p>
+ * key 由 {@link MappedStatement}、ResultMap 的id、列前缀和结果集的列布局(列名、JDBC类型、Java类名)构成。
+ * 同一条语句再次执行时直接使用已有的映射计划，不再重新区分已映射和未映射的列、查找属性以及 TypeHandler。
+ * 映射计划的个数超过上限后淘汰最近最少使用的映射计划，避免SQL的列不断变化时占用过多内存。
+ *
+ * @since 3.5.3
+ */
+public class RowMappingPlanCache {
+
+  private static final int DEFAULT_MAXIMUM_SIZE = 4096;
+
+  /**
+   * 按访问顺序排列，超过 maximumSize 时淘汰最近最少使用的映射计划
+   */
+  private final Map<Key, RowMappingPlan> plans = Collections.synchronizedMap(
+    new LinkedHashMap<Key, RowMappingPlan>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key, RowMappingPlan> eldest) {
+        return size() > maximumSize;
+      }
+    });
+  private final LongAdder hitCount = new LongAdder();
+  private final LongAdder missCount = new LongAdder();
+  private volatile int maximumSize = DEFAULT_MAXIMUM_SIZE;
+
+  RowMappingPlan getPlan(MappedStatement mappedStatement, String resultMapId, String columnPrefix, ColumnLayout layout) {
+    RowMappingPlan plan = plans.get(new Key(mappedStatement, resultMapId, columnPrefix, layout));
+    if (plan != null) {
+      hitCount.increment();
+    } else {
+      missCount.increment();
+    }
+    return plan;
+  }
+
+  void putPlan(MappedStatement mappedStatement, String resultMapId, String columnPrefix, ColumnLayout layout, RowMappingPlan plan) {
+    plans.putIfAbsent(new Key(mappedStatement, resultMapId, columnPrefix, layout), plan);
+  }
+
+  /**
+   * @return 缓存的映射计划个数
+   */
+  public int size() {
+    return plans.size();
+  }
+
+  public void clear() {
+    plans.clear();
+  }
+
+  public long getHitCount() {
+    return hitCount.sum();
+  }
+
+  public long getMissCount() {
+    return missCount.sum();
+  }
+
+  public int getMaximumSize() {
+    return maximumSize;
+  }
+
+  public void setMaximumSize(int maximumSize) {
+    this.maximumSize = maximumSize;
+  }
+
+  private static final class Key {
+    private final MappedStatement mappedStatement;
+    private final String resultMapId;
+    private final String columnPrefix;
+    private final ColumnLayout layout;
+    private final int hashCode;
+
+    Key(MappedStatement mappedStatement, String resultMapId, String columnPrefix, ColumnLayout layout) {
+      this.mappedStatement = mappedStatement;
+      this.resultMapId = resultMapId;
+      this.columnPrefix = columnPrefix;
+      this.layout = layout;
+      int hash = System.identityHashCode(mappedStatement);
+      hash = 31 * hash + resultMapId.hashCode();
+      hash = 31 * hash + (columnPrefix == null ? 0 : columnPrefix.hashCode());
+      this.hashCode = 31 * hash + layout.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) o;
+      return hashCode == other.hashCode
+        && mappedStatement == other.mappedStatement
+        && resultMapId.equals(other.resultMapId)
+        && (columnPrefix == null ? other.columnPrefix == null : columnPrefix.equals(other.columnPrefix))
+        && layout.equals(other.layout);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+}
@@ -15,10 +15,14 @@
  */
 package org.apache.ibatis.mapping;
 
+import org.apache.ibatis.reflection.ExceptionUtil;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ReflectionException;
+import org.apache.ibatis.reflection.Reflector;
 import org.apache.ibatis.reflection.property.PropertyTokenizer;
 import org.apache.ibatis.session.Configuration;
 
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -35,6 +39,8 @@ import java.util.Map;
  */
 public class BoundSql {
 
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
   /**
    * 解析后的SQL语句，可能包含有占位符“?”
    */
@@ -55,8 +61,22 @@ public class BoundSql {
    * additionalParameters对应的 {@link MetaObject}对象
    */
   private final MetaObject metaParameters;
+  private final Configuration configuration;
+  /**
+   * 直接从&lt;foreach>集合元素中取值的参数，下标与 parameterMappings 相同，没有时为null
+   */
+  private Object[] elements;
+  /**
+   * 从元素中取值的属性，空字符串表示元素本身，不是从元素中取值的参数为null
+   */
+  private String[] elementProperties;
+  /**
+   * 分批执行时的总批数
+   */
+  private int chunkCount = 1;
 
   public BoundSql(Configuration configuration, String sql, List<ParameterMapping> parameterMappings, Object parameterObject) {
+    this.configuration = configuration;
     this.sql = sql;
     this.parameterMappings = parameterMappings;
     this.parameterObject = parameterObject;
@@ -88,4 +108,78 @@ public class BoundSql {
   public Object getAdditionalParameter(String name) {
     return metaParameters.getValue(name);
   }
+
+  /**
+   * @return 分批执行时的总批数，不分批时为1
+   * @since 3.5.3
+   */
+  public int getChunkCount() {
+    return chunkCount;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public void setChunkCount(int chunkCount) {
+    this.chunkCount = chunkCount;
+  }
+
+  /**
+   * 指定第 index 个参数直接从&lt;foreach>的集合元素中取值，不再通过附加参数查找
+   *
+   * @param index    参数在 parameterMappings 中的下标
+   * @param element  集合元素或者索引
+   * @param property 从元素中取值的属性，为null时参数值就是元素本身
+   * @since 3.5.3
+   */
+  public void setElementParameter(int index, Object element, String property) {
+    if (elements == null) {
+      elements = new Object[parameterMappings.size()];
+      elementProperties = new String[parameterMappings.size()];
+    }
+    elements[index] = element;
+    elementProperties[index] = property == null ? "" : property;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public boolean hasElementParameter(int index) {
+    return elementProperties != null && elementProperties[index] != null;
+  }
+
+  /**
+   * 获取直接从&lt;foreach>集合元素中取值的参数，与通过附加参数查找得到的值相同
+   *
+   * @since 3.5.3
+   */
+  public Object getElementParameter(int index) {
+    Object element = elements[index];
+    String property = elementProperties[index];
+    if (property.isEmpty() || element == null) {
+      return element;
+    }
+    if (isSimpleBean(element, property)) {
+      // 简单属性直接调用getter方法，不为每个参数创建MetaObject
+      Reflector reflector = configuration.getReflectorFactory().findForClass(element.getClass());
+      try {
+        try {
+          return reflector.getGetInvoker(property).invoke(element, NO_ARGUMENTS);
+        } catch (Throwable t) {
+          throw ExceptionUtil.unwrapThrowable(t);
+        }
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Throwable t) {
+        throw new ReflectionException("Could not get property '" + property + "' from " + element.getClass() + ".  Cause: " + t.toString(), t);
+      }
+    }
+    return configuration.newMetaObject(element).getValue(property);
+  }
+
+  private boolean isSimpleBean(Object element, String property) {
+    return property.indexOf('.') < 0 && property.indexOf('[') < 0
+      && !(element instanceof Map) && !(element instanceof Collection) && !element.getClass().isArray()
+      && !configuration.getObjectWrapperFactory().hasWrapperFor(element);
+  }
 }
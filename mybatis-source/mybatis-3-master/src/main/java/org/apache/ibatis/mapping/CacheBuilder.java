@@ -19,7 +19,9 @@ import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
 import org.apache.ibatis.cache.decorators.*;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.SystemMetaObject;
 
@@ -59,6 +61,10 @@ public class CacheBuilder {
    * 是否可读写
    */
   private boolean readWrite;
+  /**
+   * 可读写缓存使用的序列化器，为null时使用Java原生序列化
+   */
+  private Class<? extends CacheSerializer> serializer;
   /**
    * 其他配置信息，可以用作自定义 {@link Cache}或 {@link Cache}装饰器对象时一些属性初始化
    */
@@ -100,6 +106,14 @@ public class CacheBuilder {
     return this;
   }
 
+  /**
+   * @since 3.5.3
+   */
+  public CacheBuilder serializer(Class<? extends CacheSerializer> serializer) {
+    this.serializer = serializer;
+    return this;
+  }
+
   public CacheBuilder blocking(boolean blocking) {
     this.blocking = blocking;
     return this;
@@ -120,7 +134,7 @@ public class CacheBuilder {
     // issue #352, do not apply decorators to custom caches
     // 检测cache对象的类型，如果是PerpetualCache类型，则为其添加decorators集合中的装饰器;
     // 如果是自定义类型的Cache接口实现，则不添加decorators集合中的装饰器
-    if (PerpetualCache.class.equals(cache.getClass())) {  // 无论是if分支还是else分支，都会为其添加 LoggingCache
+    if (PerpetualCache.class.equals(cache.getClass()) || ConcurrentPerpetualCache.class.equals(cache.getClass())) {  // 无论是if分支还是else分支，都会为其添加 LoggingCache
       for (Class<? extends Cache> decorator : decorators) {
         // 通过反射获取参数为Cache类型的构造方法，并通过该构造方法创建装饰器（cache为底层被装饰的缓存对象）
         cache = newCacheDecoratorInstance(decorator, cache);
@@ -131,7 +145,7 @@ public class CacheBuilder {
       cache = setStandardDecorators(cache);
     } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
       // 如果不是LoggingCache的子类，则添加LoggingCache装饰器
-      cache = new LoggingCache(cache);
+      cache = newLoggingCache(cache);
     }
     return cache;
   }
@@ -169,11 +183,14 @@ public class CacheBuilder {
       }
       // 如果可以读写，在添加缓存序列化装饰器
       if (readWrite) {
-        cache = new SerializedCache(cache);
+        cache = serializer == null ? new SerializedCache(cache) : new SerializedCache(cache, newSerializerInstance(serializer));
+      }
+      // 默认添加 LoggingCache（提供日志功能的缓存装饰器） 和 SynchronizedCache（实现同步的缓存装饰器） 装饰器，
+      // 如果装饰后的缓存对象本身就可以被并发访问，则不需要再添加 SynchronizedCache
+      cache = newLoggingCache(cache);
+      if (!cache.isConcurrentSafe()) {
+        cache = new SynchronizedCache(cache);
       }
-      // 默认添加 LoggingCache（提供日志功能的缓存装饰器） 和 SynchronizedCache（实现同步的缓存装饰器） 装饰器
-      cache = new LoggingCache(cache);
-      cache = new SynchronizedCache(cache);
       // 如果能阻塞，则添加阻塞缓存装饰器
       if (blocking) {
         cache = new BlockingCache(cache);
@@ -184,6 +201,30 @@ public class CacheBuilder {
     }
   }
 
+  /**
+   * 可以被并发访问的缓存对象使用 {@link ConcurrentLoggingCache}，其他使用 {@link LoggingCache}
+   *
+   * @param cache
+   * @return
+   */
+  private Cache newLoggingCache(Cache cache) {
+    return cache.isConcurrentSafe() ? new ConcurrentLoggingCache(cache) : new LoggingCache(cache);
+  }
+
+  /**
+   * 通过无参构造方法创建序列化器
+   *
+   * @param serializerClass
+   * @return
+   */
+  private CacheSerializer newSerializerInstance(Class<? extends CacheSerializer> serializerClass) {
+    try {
+      return serializerClass.getConstructor().newInstance();
+    } catch (Exception e) {
+      throw new CacheException("Could not instantiate cache serializer (" + serializerClass + "). Cause: " + e, e);
+    }
+  }
+
   /**
    * 根据<cache>节点下配置的<property>信息，初始化Cache对象
    *
@@ -82,6 +82,14 @@ public final class MappedStatement {
    * 仅对嵌套映射有效
    */
   private boolean resultOrdered;
+  /**
+   * 是否使用多个线程并行映射结果集，仅对不含嵌套映射和嵌套查询的结果集有效
+   */
+  private boolean parallelMapping;
+  /**
+   * 游标在后台线程中预读的结果对象个数，为null或0时不预读
+   */
+  private Integer fetchAhead;
   /**
    * SQL命令类型，insert、 update、delete、select或flush
    */
@@ -183,6 +191,22 @@ public final class MappedStatement {
       return this;
     }
 
+    /**
+     * @since 3.5.3
+     */
+    public Builder parallelMapping(boolean parallelMapping) {
+      mappedStatement.parallelMapping = parallelMapping;
+      return this;
+    }
+
+    /**
+     * @since 3.5.3
+     */
+    public Builder fetchAhead(Integer fetchAhead) {
+      mappedStatement.fetchAhead = fetchAhead;
+      return this;
+    }
+
     public Builder keyGenerator(KeyGenerator keyGenerator) {
       mappedStatement.keyGenerator = keyGenerator;
       return this;
@@ -300,6 +324,22 @@ public final class MappedStatement {
     return resultOrdered;
   }
 
+  /**
+   * @return 是否使用多个线程并行映射结果集
+   * @since 3.5.3
+   */
+  public boolean isParallelMapping() {
+    return parallelMapping;
+  }
+
+  /**
+   * @return 游标在后台线程中预读的结果对象个数，为null时使用全局配置
+   * @since 3.5.3
+   */
+  public Integer getFetchAhead() {
+    return fetchAhead;
+  }
+
   public String getDatabaseId() {
     return databaseId;
   }
@@ -335,7 +375,28 @@ public final class MappedStatement {
   }
 
   public BoundSql getBoundSql(Object parameterObject) {
-    BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
+    return checkBoundSql(sqlSource.getBoundSql(parameterObject), parameterObject);
+  }
+
+  /**
+   * 获取分批执行时第 chunk 批的SQL语句
+   *
+   * @see SqlSource#getBoundSql(Object, int)
+   * @since 3.5.3
+   */
+  public BoundSql getBoundSql(Object parameterObject, int chunk) {
+    return checkBoundSql(sqlSource.getBoundSql(parameterObject, chunk), parameterObject);
+  }
+
+  /**
+   * @return 是否需要分批执行
+   * @since 3.5.3
+   */
+  public boolean isChunked() {
+    return sqlSource.isChunked();
+  }
+
+  private BoundSql checkBoundSql(BoundSql boundSql, Object parameterObject) {
     List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     if (parameterMappings == null || parameterMappings.isEmpty()) {
       boundSql = new BoundSql(configuration, boundSql.getSql(), parameterMap.getParameterMappings(), parameterObject);
@@ -47,4 +47,32 @@ public interface SqlSource {
    */
   BoundSql getBoundSql(Object parameterObject);
 
+  /**
+   * 返回分批执行时第 chunk 批的SQL语句，只有 {@link #isChunked()} 返回true时才需要分批
+   *
+   * @param parameterObject 实参
+   * @param chunk           从0开始的批次，为-1时返回包含全部元素的SQL语句
+   * @return 总批数记录在 {@link BoundSql#getChunkCount()} 中
+   * @since 3.5.3
+   */
+  default BoundSql getBoundSql(Object parameterObject, int chunk) {
+    return getBoundSql(parameterObject);
+  }
+
+  /**
+   * @return SQL语句中是否有指定了 chunkSize 的&lt;foreach>节点
+   * @since 3.5.3
+   */
+  default boolean isChunked() {
+    return false;
+  }
+
+  /**
+   * @return SQL语句中是否有指定了 bucketed="true" 的&lt;foreach>节点
+   * @since 3.5.3
+   */
+  default boolean isBucketed() {
+    return false;
+  }
+
 }
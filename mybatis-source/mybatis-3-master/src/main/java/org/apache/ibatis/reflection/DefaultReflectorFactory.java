@@ -26,6 +26,10 @@ public class DefaultReflectorFactory implements ReflectorFactory {
    * 是否缓存Reflector对象
    */
   private boolean classCacheEnabled = true;
+  /**
+   * 创建的Reflector对象是否使用基于 LambdaMetafactory/MethodHandle 的Invoker，默认关闭
+   */
+  private volatile boolean useMethodHandleInvokers;
   /**
    * 缓存Reflector对象的集合
    */
@@ -44,15 +48,39 @@ public class DefaultReflectorFactory implements ReflectorFactory {
     this.classCacheEnabled = classCacheEnabled;
   }
 
+  /**
+   * @since 3.5.3
+   */
+  public boolean isUseMethodHandleInvokers() {
+    return useMethodHandleInvokers;
+  }
+
+  /**
+   * 设置是否使用基于 LambdaMetafactory/MethodHandle 的Invoker，修改后清空已缓存的Reflector对象
+   *
+   * @param useMethodHandleInvokers 为false时与之前的版本一样使用反射
+   * @since 3.5.3
+   */
+  public void setUseMethodHandleInvokers(boolean useMethodHandleInvokers) {
+    if (this.useMethodHandleInvokers != useMethodHandleInvokers) {
+      this.useMethodHandleInvokers = useMethodHandleInvokers;
+      reflectorMap.clear();
+    }
+  }
+
   @Override
   public Reflector findForClass(Class<?> type) {
     // 如果开启了缓存则先从缓存里获取对象，否则新创建
     if (classCacheEnabled) {
       // synchronized (type) removed see issue #461
-      return reflectorMap.computeIfAbsent(type, Reflector::new);
+      return reflectorMap.computeIfAbsent(type, this::newReflector);
     } else {
-      return new Reflector(type);
+      return newReflector(type);
     }
   }
 
+  private Reflector newReflector(Class<?> type) {
+    return new Reflector(type, useMethodHandleInvokers);
+  }
+
 }
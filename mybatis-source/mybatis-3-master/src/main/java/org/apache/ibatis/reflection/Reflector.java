@@ -52,9 +52,22 @@ public class Reflector {
   private Constructor<?> defaultConstructor;
   // 保存所有属性名称的集合，不区分大小写
   private Map<String, String> caseInsensitivePropertyMap = new HashMap<>();
+  // 是否使用基于 LambdaMetafactory/MethodHandle 的Invoker，为false时使用反射
+  private final boolean useMethodHandleInvokers;
 
   public Reflector(Class<?> clazz) {
+    this(clazz, false);
+  }
+
+  /**
+   * @param clazz                   需要反射的Class对象
+   * @param useMethodHandleInvokers 是否使用 {@link LambdaMethodInvoker}、{@link MethodHandleGetFieldInvoker}
+   *                                和 {@link MethodHandleSetFieldInvoker} 访问属性，不支持时仍然使用反射
+   * @since 3.5.3
+   */
+  public Reflector(Class<?> clazz, boolean useMethodHandleInvokers) {
     type = clazz;
+    this.useMethodHandleInvokers = useMethodHandleInvokers;
     // 查找 clazz 的默认构造方法（无参构造方法）
     addDefaultConstructor(clazz);
     // 处理 clazz 中的 getter 方法，初始化 getMethods 集合和 getTypes 集合
@@ -169,7 +182,7 @@ public class Reflector {
       ? new AmbiguousMethodInvoker(method, MessageFormat.format(
       "Illegal overloaded getter method with ambiguous type for property ''{0}'' in class ''{1}''. This breaks the JavaBeans specification and can cause unpredictable results.",
       name, method.getDeclaringClass().getName()))
-      : new MethodInvoker(method);
+      : newMethodInvoker(method);
     getMethods.put(name, invoker);
     // 获取方法返回值Type
     Type returnType = TypeParameterResolver.resolveReturnType(method, type);
@@ -254,13 +267,28 @@ public class Reflector {
   }
 
   private void addSetMethod(String name, Method method) {
-    MethodInvoker invoker = new MethodInvoker(method);
+    MethodInvoker invoker = newMethodInvoker(method);
     setMethods.put(name, invoker);
     // 解析setter方法的形参，setTypes 保存第一个形参类型
     Type[] paramTypes = TypeParameterResolver.resolveParamTypes(method, type);
     setTypes.put(name, typeToClass(paramTypes[0]));
   }
 
+  private MethodInvoker newMethodInvoker(Method method) {
+    MethodInvoker invoker = useMethodHandleInvokers ? LambdaMethodInvoker.create(method) : null;
+    return invoker != null ? invoker : new MethodInvoker(method);
+  }
+
+  private Invoker newGetFieldInvoker(Field field) {
+    Invoker invoker = useMethodHandleInvokers ? MethodHandleGetFieldInvoker.create(field) : null;
+    return invoker != null ? invoker : new GetFieldInvoker(field);
+  }
+
+  private Invoker newSetFieldInvoker(Field field) {
+    Invoker invoker = useMethodHandleInvokers ? MethodHandleSetFieldInvoker.create(field) : null;
+    return invoker != null ? invoker : new SetFieldInvoker(field);
+  }
+
   /**
    * 判断 src 是否为普通类、泛型、数组，并返回相应的类型的 Class ，找不到则返回Object.class
    *
@@ -324,7 +352,7 @@ public class Reflector {
   private void addSetField(Field field) {
     // 获取有效属性的方法名称
     if (isValidPropertyName(field.getName())) {
-      setMethods.put(field.getName(), new SetFieldInvoker(field));
+      setMethods.put(field.getName(), newSetFieldInvoker(field));
       Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
       setTypes.put(field.getName(), typeToClass(fieldType));
     }
@@ -333,7 +361,7 @@ public class Reflector {
   private void addGetField(Field field) {
     // 获取有效属性的方法名称
     if (isValidPropertyName(field.getName())) {
-      getMethods.put(field.getName(), new GetFieldInvoker(field));
+      getMethods.put(field.getName(), newGetFieldInvoker(field));
       Type fieldType = TypeParameterResolver.resolveFieldType(field, type);
       getTypes.put(field.getName(), typeToClass(fieldType));
     }
@@ -428,6 +456,16 @@ public class Reflector {
     return sb.toString();
   }
 
+  /**
+   * @param field 字段
+   * @return 字段已经设置为可访问，或者字段和声明它的类都是public时返回true
+   * @since 3.5.3
+   */
+  public static boolean isAccessibleWithoutOverride(Field field) {
+    return field.isAccessible()
+      || (Modifier.isPublic(field.getModifiers()) && Modifier.isPublic(field.getDeclaringClass().getModifiers()));
+  }
+
   /**
    * 检查成员变量是否可以被访问
    * Checks whether can control member accessible.
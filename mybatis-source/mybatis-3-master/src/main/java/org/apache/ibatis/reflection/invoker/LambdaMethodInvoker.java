@@ -0,0 +1,174 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 通过 {@link LambdaMetafactory} 为getter或setter方法生成 {@link Function}/{@link BiConsumer}，调用时不再经过 {@link Method#invoke}.
+ * <p>
+ * 只支持public类中的public方法，并且方法的声明类、参数和返回值类型都是public的，对MyBatis的类加载器可见，其他情况由 {@link #create(Method)} 返回null。
+ * 目标对象或者参数的类型不能直接传给生成的函数时(例如需要基本类型的拓宽转换)，交给 {@link MethodInvoker} 通过反射调用，
+ * 因此抛出的异常与 {@link MethodInvoker} 一致，方法本身抛出的异常同样包装成 {@link InvocationTargetException}。
+ *
+ * @since 3.5.3
+ */
+public class LambdaMethodInvoker extends MethodInvoker {
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+  /**
+   * 方法的声明类
+   */
+  private final Class<?> declaringClass;
+  /**
+   * getter方法生成的函数，setter方法时为null
+   */
+  private final Function<Object, Object> getter;
+  /**
+   * setter方法生成的函数，getter方法时为null
+   */
+  private final BiConsumer<Object, Object> setter;
+  /**
+   * setter方法形参的包装类型
+   */
+  private final Class<?> parameterType;
+  /**
+   * setter方法的形参是否是基本类型
+   */
+  private final boolean primitiveParameter;
+
+  private LambdaMethodInvoker(Method method, Function<Object, Object> getter, BiConsumer<Object, Object> setter) {
+    super(method);
+    this.declaringClass = method.getDeclaringClass();
+    this.getter = getter;
+    this.setter = setter;
+    if (setter != null) {
+      Class<?> type = method.getParameterTypes()[0];
+      this.parameterType = wrap(type);
+      this.primitiveParameter = type.isPrimitive();
+    } else {
+      this.parameterType = null;
+      this.primitiveParameter = false;
+    }
+  }
+
+  /**
+   * 为getter(无参，有返回值)或setter(一个参数)方法创建Invoker
+   *
+   * @param method getter或setter方法
+   * @return 不支持该方法时返回null
+   */
+  public static LambdaMethodInvoker create(Method method) {
+    Class<?> declaringClass = method.getDeclaringClass();
+    if (!Modifier.isPublic(method.getModifiers()) || Modifier.isStatic(method.getModifiers()) || !isVisible(declaringClass)) {
+      return null;
+    }
+    Class<?>[] parameterTypes = method.getParameterTypes();
+    try {
+      if (parameterTypes.length == 0 && method.getReturnType() != void.class && isVisible(method.getReturnType())) {
+        return new LambdaMethodInvoker(method, createGetter(method), null);
+      } else if (parameterTypes.length == 1 && isVisible(parameterTypes[0])) {
+        return new LambdaMethodInvoker(method, null, createSetter(method));
+      }
+    } catch (Throwable t) {
+      // 生成失败时使用反射
+    }
+    return null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Function<Object, Object> createGetter(Method method) throws Throwable {
+    MethodHandle handle = LOOKUP.unreflect(method);
+    CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply", MethodType.methodType(Function.class),
+      MethodType.methodType(Object.class, Object.class), handle,
+      MethodType.methodType(wrap(method.getReturnType()), method.getDeclaringClass()));
+    return (Function<Object, Object>) site.getTarget().invokeWithArguments();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static BiConsumer<Object, Object> createSetter(Method method) throws Throwable {
+    MethodHandle handle = LOOKUP.unreflect(method);
+    CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept", MethodType.methodType(BiConsumer.class),
+      MethodType.methodType(void.class, Object.class, Object.class), handle,
+      MethodType.methodType(void.class, method.getDeclaringClass(), wrap(method.getParameterTypes()[0])));
+    return (BiConsumer<Object, Object>) site.getTarget().invokeWithArguments();
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+    if (!declaringClass.isInstance(target)) {
+      return super.invoke(target, args);
+    }
+    if (getter != null) {
+      if (args != null && args.length != 0) {
+        return super.invoke(target, args);
+      }
+      try {
+        return getter.apply(target);
+      } catch (Throwable t) {
+        throw new InvocationTargetException(t);
+      }
+    }
+    if (args == null || args.length != 1) {
+      return super.invoke(target, args);
+    }
+    Object value = args[0];
+    if (value == null ? primitiveParameter : !parameterType.isInstance(value)) {
+      return super.invoke(target, args);
+    }
+    try {
+      setter.accept(target, value);
+    } catch (Throwable t) {
+      throw new InvocationTargetException(t);
+    }
+    return null;
+  }
+
+  private static Class<?> wrap(Class<?> type) {
+    return MethodType.methodType(type).wrap().returnType();
+  }
+
+  /**
+   * 生成的类由MyBatis的类加载器解析，并且只能访问public的类型，方法涉及的类型必须满足这两个条件
+   */
+  private static boolean isVisible(Class<?> type) {
+    while (type.isArray()) {
+      type = type.getComponentType();
+    }
+    if (type.isPrimitive()) {
+      return true;
+    }
+    if (!Modifier.isPublic(type.getModifiers())) {
+      return false;
+    }
+    try {
+      return Class.forName(type.getName(), false, LambdaMethodInvoker.class.getClassLoader()) == type;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+}
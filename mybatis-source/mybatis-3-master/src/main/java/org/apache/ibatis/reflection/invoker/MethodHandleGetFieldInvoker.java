@@ -0,0 +1,80 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+
+import org.apache.ibatis.lang.UsesJava7;
+import org.apache.ibatis.reflection.Reflector;
+
+/**
+ * 通过 {@link MethodHandle} 读取字段的值，替代 {@link Field#get(Object)}. 目标对象的类型不匹配时交给反射处理.
+ *
+ * @since 3.5.3
+ */
+public class MethodHandleGetFieldInvoker extends GetFieldInvoker {
+
+  private final Class<?> declaringClass;
+  /**
+   * 类型为 (Object)Object 的字段读取方法
+   */
+  private final MethodHandle getter;
+
+  private MethodHandleGetFieldInvoker(Field field, MethodHandle getter) {
+    super(field);
+    this.declaringClass = field.getDeclaringClass();
+    this.getter = getter;
+  }
+
+  /**
+   * 不会调用 {@link Field#setAccessible(boolean)}，不能直接访问的字段仍然由 {@link GetFieldInvoker} 在首次读取时处理
+   *
+   * @param field 非static的字段
+   * @return 无法直接访问该字段时返回null
+   */
+  public static MethodHandleGetFieldInvoker create(Field field) {
+    try {
+      if (!Reflector.isAccessibleWithoutOverride(field)) {
+        return null;
+      }
+      MethodHandle getter = MethodHandles.lookup().unreflectGetter(field)
+        .asType(MethodType.methodType(Object.class, Object.class));
+      return new MethodHandleGetFieldInvoker(field, getter);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  @UsesJava7
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException {
+    if (!declaringClass.isInstance(target)) {
+      return super.invoke(target, args);
+    }
+    try {
+      return (Object) getter.invokeExact(target);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      // 读取字段不会抛出受检异常
+      throw new IllegalStateException(t);
+    }
+  }
+
+}
@@ -0,0 +1,93 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import org.apache.ibatis.lang.UsesJava7;
+import org.apache.ibatis.reflection.Reflector;
+
+/**
+ * 通过 {@link MethodHandle} 设置字段的值，替代 {@link Field#set(Object, Object)}.
+ * <p>
+ * final字段不能通过 {@link MethodHandle} 写入，仍然使用 {@link SetFieldInvoker}。
+ *
+ * @since 3.5.3
+ */
+public class MethodHandleSetFieldInvoker extends SetFieldInvoker {
+
+  private final Class<?> declaringClass;
+  /**
+   * 字段类型的包装类型
+   */
+  private final Class<?> fieldType;
+  private final boolean primitive;
+  /**
+   * 类型为 (Object,Object)void 的字段写入方法
+   */
+  private final MethodHandle setter;
+
+  private MethodHandleSetFieldInvoker(Field field, MethodHandle setter) {
+    super(field);
+    this.declaringClass = field.getDeclaringClass();
+    this.fieldType = MethodType.methodType(field.getType()).wrap().returnType();
+    this.primitive = field.getType().isPrimitive();
+    this.setter = setter;
+  }
+
+  /**
+   * 不会调用 {@link Field#setAccessible(boolean)}，不能直接访问的字段仍然由 {@link SetFieldInvoker} 在首次写入时处理
+   *
+   * @param field 非static的字段
+   * @return 无法直接写入该字段时返回null
+   */
+  public static MethodHandleSetFieldInvoker create(Field field) {
+    try {
+      if (Modifier.isFinal(field.getModifiers()) || !Reflector.isAccessibleWithoutOverride(field)) {
+        return null;
+      }
+      MethodHandle setter = MethodHandles.lookup().unreflectSetter(field)
+        .asType(MethodType.methodType(void.class, Object.class, Object.class));
+      return new MethodHandleSetFieldInvoker(field, setter);
+    } catch (Exception e) {
+      return null;
+    }
+  }
+
+  @UsesJava7
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException {
+    Object value = args[0];
+    // 类型不匹配或者需要基本类型的拓宽转换时交给反射处理，抛出的异常与原来一致
+    if (!declaringClass.isInstance(target) || (value == null ? primitive : !fieldType.isInstance(value))) {
+      return super.invoke(target, args);
+    }
+    try {
+      setter.invokeExact(target, value);
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable t) {
+      // 写入字段不会抛出受检异常
+      throw new IllegalStateException(t);
+    }
+    return null;
+  }
+
+}
@@ -81,7 +81,9 @@ public class DefaultParameterHandler implements ParameterHandler {
           Object value;
           // Mapper配置文件中占位符“#{}”中的名称，参数名称
           String propertyName = parameterMapping.getProperty();
-          if (boundSql.hasAdditionalParameter(propertyName)) { // issue #448 ask first for additional params
+          if (boundSql.hasElementParameter(i)) { // 直接从<foreach>的集合元素中取值
+            value = boundSql.getElementParameter(i);
+          } else if (boundSql.hasAdditionalParameter(propertyName)) { // issue #448 ask first for additional params
             // 获取对应的实参值
             value = boundSql.getAdditionalParameter(propertyName);
           } else if (parameterObject == null) { // 实参null
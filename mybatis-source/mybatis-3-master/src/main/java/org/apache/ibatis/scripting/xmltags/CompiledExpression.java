@@ -0,0 +1,644 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * 编译后的OGNL表达式.
+ * <p>
+ * 只编译动态SQL中常见的简单表达式：属性路径(如 user.name)、null、true、false、整数和字符串常量、
+ * 比较运算(==、!=、&lt;、&lt;=、&gt;、&gt;= 以及 eq、neq、lt、lte、gt、gte)、逻辑运算(and、or、not、&amp;&amp;、||、!)和括号，
+ * 以及集合、Map、数组和字符串的 size、isEmpty、length(如 list.size &gt; 0、list.isEmpty()、name.length())。
+ * 属性路径直接调用getter方法，不创建 OgnlContext，也不经过OGNL的属性访问器。
+ * <p>
+ * 其他表达式(如方法调用、算术运算)不编译，直接交给 {@link OgnlCache} 计算。
+ * 运行时如果值的类型无法保证与OGNL的结果一致(例如字符串与数字比较、访问集合的属性)，也会交给OGNL重新计算整个表达式。
+ */
+final class CompiledExpression {
+
+  /**
+   * 表示编译后的表达式无法计算，需要交给OGNL
+   */
+  private static final Object UNSUPPORTED = new Object();
+
+  private static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+    "and", "or", "not", "eq", "neq", "lt", "lte", "gt", "gte", "null", "true", "false",
+    "in", "instanceof", "shl", "shr", "ushr", "band", "bor", "xor", "new"));
+
+  /**
+   * OGNL对Map、集合和数组的这些属性有特殊处理，其中 size、isEmpty、length 由 {@link Property#specialValue(Object)} 计算，其他的交给OGNL
+   */
+  private static final Set<String> SPECIAL_PROPERTIES = new HashSet<>(Arrays.asList(
+    "size", "isEmpty", "keys", "keySet", "values", "length", "iterator", "class"));
+
+  private static final Set<String> SIZE_PROPERTIES = new HashSet<>(Arrays.asList("size", "isEmpty", "length"));
+
+  private final String expression;
+  /**
+   * 编译之后的语法树，表达式不能编译时为null
+   */
+  private final Node root;
+
+  private CompiledExpression(String expression, Node root) {
+    this.expression = expression;
+    this.root = root;
+  }
+
+  /**
+   * 编译表达式，不能编译的表达式返回的对象会直接使用OGNL计算
+   *
+   * @param expression OGNL表达式
+   * @return
+   */
+  static CompiledExpression compile(String expression) {
+    Node root;
+    try {
+      root = new Parser(expression).parse();
+    } catch (UnsupportedExpressionException e) {
+      root = null;
+    }
+    return new CompiledExpression(expression, root);
+  }
+
+  String getExpression() {
+    return expression;
+  }
+
+  boolean isCompiled() {
+    return root != null;
+  }
+
+  /**
+   * 计算表达式的值，结果与 {@link OgnlCache#getValue(String, Object)} 相同。
+   * JavaBean的属性通过 {@link DynamicContext#getBindings()} 所属配置的 {@link ReflectorFactory} 读取，
+   * root对象不是 {@link DynamicContext#getBindings()} 时JavaBean的属性交给OGNL
+   *
+   * @param parameterObject 表达式的root对象，通常是 {@link DynamicContext#getBindings()}
+   * @return
+   */
+  Object getValue(Object parameterObject) {
+    if (root != null) {
+      ReflectorFactory reflectorFactory = parameterObject instanceof DynamicContext.ContextMap
+        ? ((DynamicContext.ContextMap) parameterObject).getReflectorFactory() : null;
+      Object value;
+      try {
+        value = root.evaluate(parameterObject, reflectorFactory);
+      } catch (RuntimeException e) {
+        // 由OGNL重新计算，抛出与之前相同的异常
+        value = UNSUPPORTED;
+      }
+      if (value != UNSUPPORTED) {
+        return value;
+      }
+    }
+    return OgnlCache.getValue(expression, parameterObject);
+  }
+
+  /**
+   * 与 OgnlOps.booleanValue() 相同，and、or、not 使用该规则判断真假
+   */
+  private static boolean booleanValue(Object value) {
+    if (value == null) {
+      return false;
+    }
+    Class<?> type = value.getClass();
+    if (type == Boolean.class) {
+      return (Boolean) value;
+    }
+    if (type == String.class) {
+      return Boolean.parseBoolean((String) value);
+    }
+    if (type == Character.class) {
+      return (Character) value != 0;
+    }
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue() != 0;
+    }
+    return true;
+  }
+
+  private static boolean isIntegral(Object value) {
+    return value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte;
+  }
+
+  private abstract static class Node {
+    abstract Object evaluate(Object root, ReflectorFactory reflectorFactory);
+  }
+
+  private static final class Literal extends Node {
+    private final Object value;
+
+    Literal(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    Object evaluate(Object root, ReflectorFactory reflectorFactory) {
+      return value;
+    }
+  }
+
+  private static final class Path extends Node {
+    private final Property[] properties;
+
+    Path(List<Property> properties) {
+      this.properties = properties.toArray(new Property[0]);
+    }
+
+    @Override
+    Object evaluate(Object root, ReflectorFactory reflectorFactory) {
+      Object value = root;
+      for (int i = 0; i < properties.length; i++) {
+        if (value == null) {
+          // OGNL会抛出 source is null 的异常
+          return UNSUPPORTED;
+        }
+        value = i == 0 && value instanceof DynamicContext.ContextMap
+          ? contextValue((DynamicContext.ContextMap) value, properties[0].name)
+          : properties[i].getValue(value, reflectorFactory);
+        if (value == UNSUPPORTED) {
+          return UNSUPPORTED;
+        }
+      }
+      return value;
+    }
+
+    /**
+     * 与 {@link DynamicContext.ContextAccessor#getProperty(Map, Object, Object)} 相同
+     */
+    private static Object contextValue(DynamicContext.ContextMap bindings, String name) {
+      Object result = bindings.get(name);
+      if (result != null || bindings.containsKey(name)) {
+        return result;
+      }
+      Object parameterObject = bindings.get(DynamicContext.PARAMETER_OBJECT_KEY);
+      if (parameterObject instanceof Map) {
+        return ((Map<?, ?>) parameterObject).get(name);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * 属性路径中的一个属性，缓存最近一次访问的类型对应的 {@link Invoker}
+   */
+  private static final class Property {
+    private final String name;
+    /**
+     * 是否是无参的方法调用，如 size()
+     */
+    private final boolean call;
+    private final boolean special;
+    private volatile Accessor accessor;
+
+    Property(String name, boolean call) {
+      this.name = name;
+      this.call = call;
+      this.special = call || SIZE_PROPERTIES.contains(name);
+    }
+
+    Object getValue(Object target, ReflectorFactory reflectorFactory) {
+      if (special) {
+        return specialValue(target);
+      }
+      if (target instanceof Map) {
+        return ((Map<?, ?>) target).get(name);
+      }
+      Class<?> type = target.getClass();
+      if (target instanceof Collection || type.isArray() || reflectorFactory == null) {
+        return UNSUPPORTED;
+      }
+      Accessor current = accessor;
+      // 编译后的表达式被多个配置共享，Invoker 需要来自当前配置的 ReflectorFactory
+      if (current == null || current.type != type || current.reflectorFactory != reflectorFactory) {
+        Reflector reflector = reflectorFactory.findForClass(type);
+        if (!reflector.hasGetter(name)) {
+          return UNSUPPORTED;
+        }
+        current = new Accessor(type, reflectorFactory, reflector.getGetInvoker(name));
+        accessor = current;
+      }
+      try {
+        return current.invoker.invoke(target, null);
+      } catch (Exception e) {
+        return UNSUPPORTED;
+      }
+    }
+
+    /**
+     * 与OGNL相同：集合和Map的 size、isEmpty 优先于Map中的同名key，数组和字符串的 length 返回长度。
+     * 其他类型(例如自定义了 size() 方法的JavaBean)交给OGNL
+     */
+    private Object specialValue(Object target) {
+      switch (name) {
+        case "size":
+          if (target instanceof Collection) {
+            return ((Collection<?>) target).size();
+          }
+          if (target instanceof Map) {
+            return ((Map<?, ?>) target).size();
+          }
+          break;
+        case "isEmpty":
+          if (target instanceof Collection) {
+            return ((Collection<?>) target).isEmpty();
+          }
+          if (target instanceof Map) {
+            return ((Map<?, ?>) target).isEmpty();
+          }
+          if (call && target instanceof String) {
+            return ((String) target).isEmpty();
+          }
+          break;
+        case "length":
+          if (target instanceof String) {
+            return ((String) target).length();
+          }
+          if (!call && target.getClass().isArray()) {
+            return Array.getLength(target);
+          }
+          break;
+        default:
+          break;
+      }
+      return UNSUPPORTED;
+    }
+  }
+
+  private static final class Accessor {
+    private final Class<?> type;
+    private final ReflectorFactory reflectorFactory;
+    private final Invoker invoker;
+
+    Accessor(Class<?> type, ReflectorFactory reflectorFactory, Invoker invoker) {
+      this.type = type;
+      this.reflectorFactory = reflectorFactory;
+      this.invoker = invoker;
+    }
+  }
+
+  private static final class Not extends Node {
+    private final Node operand;
+
+    Not(Node operand) {
+      this.operand = operand;
+    }
+
+    @Override
+    Object evaluate(Object root, ReflectorFactory reflectorFactory) {
+      Object value = operand.evaluate(root, reflectorFactory);
+      return value == UNSUPPORTED ? UNSUPPORTED : !booleanValue(value);
+    }
+  }
+
+  /**
+   * 与OGNL一样，and 和 or 返回最后一个计算的操作数，而不是Boolean
+   */
+  private static final class Logical extends Node {
+    private final boolean and;
+    private final Node[] operands;
+
+    Logical(boolean and, List<Node> operands) {
+      this.and = and;
+      this.operands = operands.toArray(new Node[0]);
+    }
+
+    @Override
+    Object evaluate(Object root, ReflectorFactory reflectorFactory) {
+      Object result = null;
+      for (int i = 0; i < operands.length; i++) {
+        result = operands[i].evaluate(root, reflectorFactory);
+        if (result == UNSUPPORTED) {
+          return UNSUPPORTED;
+        }
+        if (i != operands.length - 1 && booleanValue(result) != and) {
+          break;
+        }
+      }
+      return result;
+    }
+  }
+
+  private static final class Comparison extends Node {
+    private final String operator;
+    private final Node left;
+    private final Node right;
+
+    Comparison(String operator, Node left, Node right) {
+      this.operator = operator;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    Object evaluate(Object root, ReflectorFactory reflectorFactory) {
+      Object l = left.evaluate(root, reflectorFactory);
+      if (l == UNSUPPORTED) {
+        return UNSUPPORTED;
+      }
+      Object r = right.evaluate(root, reflectorFactory);
+      if (r == UNSUPPORTED) {
+        return UNSUPPORTED;
+      }
+      switch (operator) {
+        case "==":
+          return equal(l, r);
+        case "!=":
+          Object equal = equal(l, r);
+          return equal == UNSUPPORTED ? UNSUPPORTED : !(Boolean) equal;
+        default:
+          return compare(l, r);
+      }
+    }
+
+    private static Object equal(Object l, Object r) {
+      if (l == null || r == null) {
+        return l == r;
+      }
+      if (isIntegral(l) && isIntegral(r)) {
+        return ((Number) l).longValue() == ((Number) r).longValue();
+      }
+      if ((l instanceof String && r instanceof String) || (l instanceof Boolean && r instanceof Boolean)) {
+        return l.equals(r);
+      }
+      // 其他类型OGNL会做类型转换
+      return UNSUPPORTED;
+    }
+
+    private Object compare(Object l, Object r) {
+      if (!isIntegral(l) || !isIntegral(r)) {
+        return UNSUPPORTED;
+      }
+      long a = ((Number) l).longValue();
+      long b = ((Number) r).longValue();
+      switch (operator) {
+        case "<":
+          return a < b;
+        case "<=":
+          return a <= b;
+        case ">":
+          return a > b;
+        default:
+          return a >= b;
+      }
+    }
+  }
+
+  private static final class UnsupportedExpressionException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    UnsupportedExpressionException() {
+      super(null, null, false, false);
+    }
+  }
+
+  /**
+   * 递归下降解析器，运算符优先级与OGNL相同：or &lt; and &lt; ==、!= &lt; &lt;、&gt; &lt; not
+   */
+  private static final class Parser {
+    private final String expression;
+    private final List<String> tokens = new ArrayList<>();
+    private int position;
+
+    Parser(String expression) {
+      this.expression = expression;
+    }
+
+    Node parse() {
+      tokenize();
+      Node node = parseOr();
+      if (position != tokens.size()) {
+        throw new UnsupportedExpressionException();
+      }
+      return node;
+    }
+
+    private void tokenize() {
+      int i = 0;
+      int length = expression.length();
+      while (i < length) {
+        char c = expression.charAt(i);
+        if (Character.isWhitespace(c)) {
+          i++;
+        } else if (Character.isJavaIdentifierStart(c)) {
+          int start = i;
+          while (i < length && Character.isJavaIdentifierPart(expression.charAt(i))) {
+            i++;
+          }
+          tokens.add(expression.substring(start, i));
+        } else if (c >= '0' && c <= '9') {
+          int start = i;
+          while (i < length && expression.charAt(i) >= '0' && expression.charAt(i) <= '9') {
+            i++;
+          }
+          // 1.5、1L、0x1F 等由OGNL处理
+          if (i < length && (expression.charAt(i) == '.' || Character.isJavaIdentifierPart(expression.charAt(i)))) {
+            throw new UnsupportedExpressionException();
+          }
+          tokens.add(expression.substring(start, i));
+        } else if (c == '\'' || c == '"') {
+          int end = expression.indexOf(c, i + 1);
+          if (end < 0) {
+            throw new UnsupportedExpressionException();
+          }
+          String value = expression.substring(i + 1, end);
+          // 'a' 在OGNL中是Character；含转义字符的字符串由OGNL处理
+          if ((c == '\'' && value.length() == 1) || value.indexOf('\\') >= 0) {
+            throw new UnsupportedExpressionException();
+          }
+          tokens.add(expression.substring(i, end + 1));
+          i = end + 1;
+        } else {
+          String operator = operatorAt(i);
+          tokens.add(operator);
+          i += operator.length();
+        }
+      }
+    }
+
+    private String operatorAt(int i) {
+      for (String operator : new String[] {"==", "!=", "<=", ">=", "&&", "||", "<", ">", "!", "(", ")", ".", "-"}) {
+        if (expression.startsWith(operator, i)) {
+          return operator;
+        }
+      }
+      throw new UnsupportedExpressionException();
+    }
+
+    private String peek() {
+      return position < tokens.size() ? tokens.get(position) : null;
+    }
+
+    private boolean accept(String... candidates) {
+      String token = peek();
+      for (String candidate : candidates) {
+        if (candidate.equals(token)) {
+          position++;
+          return true;
+        }
+      }
+      return false;
+    }
+
+    private Node parseOr() {
+      List<Node> operands = new ArrayList<>();
+      operands.add(parseAnd());
+      while (accept("or", "||")) {
+        operands.add(parseAnd());
+      }
+      return operands.size() == 1 ? operands.get(0) : new Logical(false, operands);
+    }
+
+    private Node parseAnd() {
+      List<Node> operands = new ArrayList<>();
+      operands.add(parseEquality());
+      while (accept("and", "&&")) {
+        operands.add(parseEquality());
+      }
+      return operands.size() == 1 ? operands.get(0) : new Logical(true, operands);
+    }
+
+    private Node parseEquality() {
+      Node node = parseRelational();
+      while (true) {
+        if (accept("==", "eq")) {
+          node = new Comparison("==", node, parseRelational());
+        } else if (accept("!=", "neq")) {
+          node = new Comparison("!=", node, parseRelational());
+        } else {
+          return node;
+        }
+      }
+    }
+
+    private Node parseRelational() {
+      Node node = parseUnary();
+      while (true) {
+        if (accept("<", "lt")) {
+          node = new Comparison("<", node, parseUnary());
+        } else if (accept("<=", "lte")) {
+          node = new Comparison("<=", node, parseUnary());
+        } else if (accept(">", "gt")) {
+          node = new Comparison(">", node, parseUnary());
+        } else if (accept(">=", "gte")) {
+          node = new Comparison(">=", node, parseUnary());
+        } else {
+          return node;
+        }
+      }
+    }
+
+    private Node parseUnary() {
+      if (accept("!", "not")) {
+        return new Not(parseUnary());
+      }
+      return parsePrimary();
+    }
+
+    private Node parsePrimary() {
+      String token = peek();
+      if (token == null) {
+        throw new UnsupportedExpressionException();
+      }
+      position++;
+      if (token.equals("(")) {
+        Node node = parseOr();
+        if (!accept(")")) {
+          throw new UnsupportedExpressionException();
+        }
+        return node;
+      }
+      if (token.equals("null")) {
+        return new Literal(null);
+      }
+      if (token.equals("true") || token.equals("false")) {
+        return new Literal(Boolean.valueOf(token));
+      }
+      if (token.charAt(0) == '\'' || token.charAt(0) == '"') {
+        return new Literal(token.substring(1, token.length() - 1));
+      }
+      if (token.equals("-") && peek() != null && Character.isDigit(peek().charAt(0))) {
+        return new Literal(parseNumber(tokens.get(position++), true));
+      }
+      if (Character.isDigit(token.charAt(0))) {
+        return new Literal(parseNumber(token, false));
+      }
+      if (Character.isJavaIdentifierStart(token.charAt(0))) {
+        return parsePath(token);
+      }
+      throw new UnsupportedExpressionException();
+    }
+
+    /**
+     * OGNL中没有后缀的整数常量是int，超出范围时解析失败
+     */
+    private Object parseNumber(String digits, boolean negative) {
+      try {
+        int value = Integer.parseInt(digits);
+        return negative ? -value : value;
+      } catch (NumberFormatException e) {
+        throw new UnsupportedExpressionException();
+      }
+    }
+
+    private Node parsePath(String first) {
+      List<Property> properties = new ArrayList<>();
+      // 第一个属性从root对象中取值，size、isEmpty 等特殊属性只用于路径中间
+      if (SPECIAL_PROPERTIES.contains(first) || "(".equals(peek())) {
+        throw new UnsupportedExpressionException();
+      }
+      properties.add(parseProperty(first));
+      while (accept(".")) {
+        String name = peek();
+        if (name == null || !Character.isJavaIdentifierStart(name.charAt(0))) {
+          throw new UnsupportedExpressionException();
+        }
+        position++;
+        properties.add(parseProperty(name));
+      }
+      return new Path(properties);
+    }
+
+    private Property parseProperty(String name) {
+      if (KEYWORDS.contains(name) || name.indexOf('$') >= 0) {
+        throw new UnsupportedExpressionException();
+      }
+      boolean call = accept("(");
+      if (call && !accept(")")) {
+        // 带参数的方法调用由OGNL处理
+        throw new UnsupportedExpressionException();
+      }
+      // 除了 size()、isEmpty()、length() 之外的方法调用和特殊属性由OGNL处理
+      if ((call || SPECIAL_PROPERTIES.contains(name)) && !SIZE_PROPERTIES.contains(name)) {
+        throw new UnsupportedExpressionException();
+      }
+      return new Property(name, call);
+    }
+  }
+
+}
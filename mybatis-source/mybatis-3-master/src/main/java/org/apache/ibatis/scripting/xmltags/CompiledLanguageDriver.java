@@ -0,0 +1,39 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.parsing.XNode;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Same as {@link XMLLanguageDriver}, except that dynamic statements are compiled at startup into a
+ * {@link CompiledSqlSource}. Test expressions are evaluated without OGNL when possible and
+ * the SQL and parameter mappings are produced in a single pass.
+ * <p>
+ * Enable it with the {@code defaultScriptingLanguage} setting or the {@code lang} attribute, using the alias {@code COMPILED}.
+ *
+ * @since 3.5.3
+ */
+public class CompiledLanguageDriver extends XMLLanguageDriver {
+
+  @Override
+  public SqlSource createSqlSource(Configuration configuration, XNode script, Class<?> parameterType) {
+    CompiledScriptBuilder builder = new CompiledScriptBuilder(configuration, script, parameterType);
+    return builder.parseScriptNode();
+  }
+
+}
@@ -0,0 +1,273 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.ibatis.builder.BaseBuilder;
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.builder.ParameterExpression;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.parsing.GenericTokenParser;
+import org.apache.ibatis.parsing.XNode;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.scripting.xmltags.CompiledSqlSource.Node;
+import org.apache.ibatis.scripting.xmltags.CompiledSqlSource.ParameterToken;
+import org.apache.ibatis.session.Configuration;
+import org.w3c.dom.NodeList;
+
+/**
+ * 把动态SQL节点编译成 {@link CompiledSqlSource}，节点的处理方式与 {@link XMLScriptBuilder} 相同.
+ * <p>
+ * 静态SQL语句仍然创建 {@link RawSqlSource}。&lt;trim>、&lt;foreach>等节点的属性中含有“#{}”占位符时，
+ * 占位符只能在拼接好的SQL语句中解析，这样的语句使用 {@link DynamicSqlSource}。
+ */
+public class CompiledScriptBuilder extends BaseBuilder {
+
+  private final XNode context;
+  private final Class<?> parameterType;
+  private int foreachDepth;
+
+  public CompiledScriptBuilder(Configuration configuration, XNode context, Class<?> parameterType) {
+    super(configuration);
+    this.context = context;
+    this.parameterType = parameterType;
+  }
+
+  public SqlSource parseScriptNode() {
+    // 由XMLScriptBuilder检查节点并判断是否为动态SQL
+    SqlSource sqlSource = new XMLScriptBuilder(configuration, context, parameterType).parseScriptNode();
+    if (sqlSource instanceof RawSqlSource) {
+      return sqlSource;
+    }
+    try {
+      Node rootNode = compileChildren(context, null);
+      return new CompiledSqlSource(configuration, rootNode, foreachDepth, sqlSource.isChunked(), sqlSource.isBucketed());
+    } catch (UnsupportedScriptException e) {
+      return sqlSource;
+    }
+  }
+
+  private Node compileChildren(XNode node, ForEachScope scope) {
+    List<Node> contents = new ArrayList<>();
+    NodeList children = node.getNode().getChildNodes();
+    for (int i = 0; i < children.getLength(); i++) {
+      XNode child = node.newXNode(children.item(i));
+      short nodeType = child.getNode().getNodeType();
+      if (nodeType == org.w3c.dom.Node.CDATA_SECTION_NODE || nodeType == org.w3c.dom.Node.TEXT_NODE) {
+        contents.add(compileText(child.getStringBody(""), scope));
+      } else if (nodeType == org.w3c.dom.Node.ELEMENT_NODE) {
+        contents.add(compileElement(child, scope));
+      }
+    }
+    return new CompiledSqlSource.MixedNode(contents);
+  }
+
+  private Node compileText(String text, ForEachScope scope) {
+    TextSqlNode textSqlNode = new TextSqlNode(text);
+    if (textSqlNode.isDynamic()) {
+      // 运行时才能确定其中的占位符，外层的<foreach>都需要绑定改名后的变量
+      for (ForEachScope current = scope; current != null; current = current.parent) {
+        current.bindVariables = true;
+      }
+      return new CompiledSqlSource.DynamicTextNode(textSqlNode, scope);
+    }
+    List<ParameterToken> tokens = new ArrayList<>();
+    GenericTokenParser parser = new GenericTokenParser("#{", "}", content -> {
+      ParameterToken token = createToken(content, scope);
+      if (token.getScope() != null && !token.canReadElement()) {
+        token.getScope().bindVariables = true;
+      }
+      tokens.add(token);
+      return "?";
+    });
+    return new CompiledSqlSource.TextNode(parser.parse(text), tokens);
+  }
+
+  private Node compileElement(XNode node, ForEachScope scope) {
+    String name = node.getNode().getNodeName();
+    switch (name) {
+      case "bind":
+        return new CompiledSqlSource.BindNode(node.getStringAttribute("name"),
+          CompiledExpression.compile(node.getStringAttribute("value")));
+      case "trim":
+        return new CompiledSqlSource.TrimNode(compileChildren(node, scope),
+          checkAttribute(node.getStringAttribute("prefix")),
+          TrimSqlNode.parseOverrides(node.getStringAttribute("prefixOverrides")),
+          checkAttribute(node.getStringAttribute("suffix")),
+          TrimSqlNode.parseOverrides(node.getStringAttribute("suffixOverrides")));
+      case "where":
+        return new CompiledSqlSource.TrimNode(compileChildren(node, scope), "WHERE", WhereSqlNode.prefixList, null,
+          TrimSqlNode.parseOverrides(null));
+      case "set":
+        return new CompiledSqlSource.TrimNode(compileChildren(node, scope), "SET", SetSqlNode.COMMA, null, SetSqlNode.COMMA);
+      case "foreach":
+        return compileForEach(node, scope);
+      case "if":
+      case "when":
+        return new CompiledSqlSource.IfNode(CompiledExpression.compile(node.getStringAttribute("test")),
+          compileChildren(node, scope));
+      case "choose":
+        return compileChoose(node, scope);
+      case "otherwise":
+        return compileChildren(node, scope);
+      default:
+        throw new BuilderException("Unknown element <" + name + "> in SQL statement.");
+    }
+  }
+
+  private Node compileForEach(XNode node, ForEachScope scope) {
+    String item = node.getStringAttribute("item");
+    String index = node.getStringAttribute("index");
+    int level = scope == null ? 0 : scope.level + 1;
+    foreachDepth = Math.max(foreachDepth, level + 1);
+    ForEachScope childScope = new ForEachScope(scope, level, item, index, configuration.isDirectForEachParameters());
+    Node contents = compileChildren(node, childScope);
+    return new CompiledSqlSource.ForEachNode(CompiledExpression.compile(node.getStringAttribute("collection")),
+      contents, level,
+      checkAttribute(node.getStringAttribute("open")),
+      checkAttribute(node.getStringAttribute("close")),
+      checkAttribute(node.getStringAttribute("separator")),
+      item, index, childScope.isDirect(),
+      node.getBooleanAttribute("bucketed", false),
+      node.getIntAttribute("chunkSize", 0));
+  }
+
+  private Node compileChoose(XNode node, ForEachScope scope) {
+    List<Node> whenNodes = new ArrayList<>();
+    List<Node> otherwiseNodes = new ArrayList<>();
+    for (XNode child : node.getChildren()) {
+      String name = child.getNode().getNodeName();
+      if ("when".equals(name) || "if".equals(name)) {
+        whenNodes.add(compileElement(child, scope));
+      } else if ("otherwise".equals(name)) {
+        otherwiseNodes.add(compileElement(child, scope));
+      }
+    }
+    if (otherwiseNodes.size() > 1) {
+      throw new BuilderException("Too many default (otherwise) elements in choose statement.");
+    }
+    return new CompiledSqlSource.ChooseNode(whenNodes, otherwiseNodes.isEmpty() ? null : otherwiseNodes.get(0));
+  }
+
+  /**
+   * 这些属性直接拼接到SQL语句中，含有“#{}”占位符时不能预先解析
+   */
+  private static String checkAttribute(String value) {
+    if (value != null && value.contains("#{")) {
+      throw new UnsupportedScriptException();
+    }
+    return value;
+  }
+
+  /**
+   * 创建占位符对应的 {@link ParameterToken}，并按照 {@link ForEachSqlNode} 的规则确定是否需要改名
+   *
+   * @param content “#{}”占位符中的内容
+   * @param scope   占位符所在的&lt;foreach>节点，由内向外
+   * @return
+   */
+  static ParameterToken createToken(String content, ForEachScope scope) {
+    for (ForEachScope current = scope; current != null; current = current.parent) {
+      String variable = null;
+      boolean indexVariable = false;
+      Matcher matcher = current.itemPattern.matcher(content);
+      if (matcher.find()) {
+        variable = String.valueOf(current.item);
+      } else if (current.index != null) {
+        matcher = current.indexPattern.matcher(content);
+        if (matcher.find()) {
+          variable = current.index;
+          indexVariable = true;
+        }
+      }
+      if (variable != null) {
+        String property = parseProperty(content);
+        boolean renameable = property != null && property.startsWith(variable);
+        return new ParameterToken(content, renameable ? property : null, hasJavaType(content), current, variable,
+          indexVariable, content.substring(matcher.end()));
+      }
+    }
+    return new ParameterToken(content, parseProperty(content), hasJavaType(content), null, null, false, null);
+  }
+
+  private static String parseProperty(String content) {
+    try {
+      return new ParameterExpression(content).get("property");
+    } catch (RuntimeException e) {
+      // 执行时由SqlSourceBuilder抛出异常
+      return null;
+    }
+  }
+
+  private static boolean hasJavaType(String content) {
+    try {
+      return new ParameterExpression(content).containsKey("javaType");
+    } catch (RuntimeException e) {
+      return false;
+    }
+  }
+
+  /**
+   * 占位符所在的&lt;foreach>节点
+   */
+  static final class ForEachScope {
+    private final ForEachScope parent;
+    private final int level;
+    private final String item;
+    private final String index;
+    private final Pattern itemPattern;
+    private final Pattern indexPattern;
+    /**
+     * 是否开启了 {@link Configuration#isDirectForEachParameters()}
+     */
+    private final boolean directParameters;
+    /**
+     * 是否有占位符只能通过改名后的变量取值，编译完&lt;foreach>的子节点之后不再改变
+     */
+    private boolean bindVariables;
+
+    ForEachScope(ForEachScope parent, int level, String item, String index, boolean directParameters) {
+      this.parent = parent;
+      this.level = level;
+      this.item = item;
+      this.index = index;
+      this.directParameters = directParameters;
+      // 与 ForEachSqlNode.FilteredDynamicContext 使用的正则表达式相同
+      this.itemPattern = Pattern.compile("^\\s*" + item + "(?![^.,:\\s])");
+      this.indexPattern = index == null ? null : Pattern.compile("^\\s*" + index + "(?![^.,:\\s])");
+    }
+
+    int getLevel() {
+      return level;
+    }
+
+    /**
+     * @return 占位符是否直接从集合元素中取值，不绑定改名后的变量
+     */
+    boolean isDirect() {
+      return directParameters && !bindVariables;
+    }
+  }
+
+  private static final class UnsupportedScriptException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+  }
+
+}
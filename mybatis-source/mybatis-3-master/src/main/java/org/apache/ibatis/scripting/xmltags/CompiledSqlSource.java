@@ -0,0 +1,751 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.parsing.GenericTokenParser;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * {@link CompiledLanguageDriver} 创建的动态SQL语句.
+ * <p>
+ * 与 {@link DynamicSqlSource} 解释执行 {@link SqlNode} 树不同，SQL节点在启动时由 {@link CompiledScriptBuilder} 编译成 {@link Node} 树：
+ * 文本中的“#{}”占位符预先替换成“?”，每个占位符对应一个 {@link ParameterToken}；test、collection 等表达式编译成 {@link CompiledExpression}。
+ * 执行时一次遍历即可同时得到SQL语句和 {@link ParameterMapping} 集合，不需要再由 {@link SqlSourceBuilder} 解析拼接好的SQL语句。
+ * <p>
+ * 生成的SQL语句、{@link ParameterMapping} 和附加参数与 {@link DynamicSqlSource} 完全相同。
+ * 开启 {@link Configuration#isDirectForEachParameters()} 之后，&lt;foreach>中的占位符不再改名，
+ * 对应的参数通过 {@link BoundSql#setElementParameter(int, Object, String)} 直接指向集合元素，
+ * 同一个占位符在每次迭代中共用一个 {@link ParameterMapping}。
+ *
+ * @since 3.5.3
+ */
+public class CompiledSqlSource implements SqlSource {
+
+  private final Configuration configuration;
+  private final Node rootNode;
+  /**
+   * &lt;foreach>节点嵌套的最大层数
+   */
+  private final int foreachDepth;
+  /**
+   * 是否含有指定了 chunkSize 的&lt;foreach>节点
+   */
+  private final boolean chunked;
+  /**
+   * 是否含有指定了 bucketed="true" 的&lt;foreach>节点
+   */
+  private final boolean bucketed;
+
+  CompiledSqlSource(Configuration configuration, Node rootNode, int foreachDepth, boolean chunked, boolean bucketed) {
+    this.configuration = configuration;
+    this.rootNode = rootNode;
+    this.foreachDepth = foreachDepth;
+    this.chunked = chunked;
+    this.bucketed = bucketed;
+  }
+
+  @Override
+  public BoundSql getBoundSql(Object parameterObject) {
+    return getBoundSql(parameterObject, -1);
+  }
+
+  @Override
+  public BoundSql getBoundSql(Object parameterObject, int chunk) {
+    // bindings 与 DynamicSqlSource 相同，同时也是表达式的root对象
+    DynamicContext dynamicContext = new DynamicContext(configuration, parameterObject);
+    Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
+    Context context = new Context(configuration, dynamicContext.getBindings(), parameterType, foreachDepth);
+    context.chunk = chunk;
+    rootNode.apply(context);
+    BoundSql boundSql = new BoundSql(configuration, context.getSql(), context.parameterMappings, parameterObject);
+    dynamicContext.getBindings().forEach(boundSql::setAdditionalParameter);
+    if (context.elementProperties != null) {
+      for (int i = 0; i < context.parameterMappings.size(); i++) {
+        if (context.elementProperties[i] != null) {
+          boundSql.setElementParameter(i, context.elements[i], context.elementProperties[i]);
+        }
+      }
+    }
+    boundSql.setChunkCount(context.chunkCount);
+    return boundSql;
+  }
+
+  @Override
+  public boolean isChunked() {
+    return chunked;
+  }
+
+  @Override
+  public boolean isBucketed() {
+    return bucketed;
+  }
+
+  /**
+   * 一次执行的状态，作用与 {@link DynamicContext} 相同
+   */
+  static final class Context {
+    private final Configuration configuration;
+    private final Map<String, Object> bindings;
+    private final Class<?> parameterType;
+    private final List<ParameterMapping> parameterMappings = new ArrayList<>();
+    private final JoiningWriter root = new JoiningWriter();
+    /**
+     * 当前的输出位置，&lt;trim>和&lt;foreach>会临时替换
+     */
+    private SqlWriter writer = root;
+    private int uniqueNumber;
+    /**
+     * 每一层&lt;foreach>当前迭代使用的 uniqueNumber
+     */
+    private final int[] foreachNumbers;
+    /**
+     * 每一层&lt;foreach>当前迭代的元素和索引，只在直接从集合元素中取值时记录
+     */
+    private final Object[] foreachItems;
+    private final Object[] foreachIndexes;
+    /**
+     * 直接从集合元素中取值的参数，下标与 parameterMappings 相同，含义见 {@link BoundSql#setElementParameter(int, Object, String)}
+     */
+    private Object[] elements;
+    private String[] elementProperties;
+    private MetaObject metaBindings;
+    /**
+     * 含义与 {@link DynamicContext#getChunk()}、{@link DynamicContext#getChunkCount()} 相同
+     */
+    private int chunk = -1;
+    private int chunkCount = 1;
+
+    Context(Configuration configuration, Map<String, Object> bindings, Class<?> parameterType, int foreachDepth) {
+      this.configuration = configuration;
+      this.bindings = bindings;
+      this.parameterType = parameterType;
+      this.foreachNumbers = new int[foreachDepth];
+      this.foreachItems = new Object[foreachDepth];
+      this.foreachIndexes = new Object[foreachDepth];
+    }
+
+    void addElementParameter(ParameterMapping mapping, Object element, String property) {
+      int index = parameterMappings.size();
+      if (elements == null) {
+        elements = new Object[Math.max(16, index + 1)];
+        elementProperties = new String[elements.length];
+      } else if (index == elements.length) {
+        elements = Arrays.copyOf(elements, index << 1);
+        elementProperties = Arrays.copyOf(elementProperties, index << 1);
+      }
+      elements[index] = element;
+      // 空字符串表示参数值就是元素本身
+      elementProperties[index] = property == null ? "" : property;
+      parameterMappings.add(mapping);
+    }
+
+    void appendSql(String sql) {
+      writer.append(sql);
+    }
+
+    String getSql() {
+      return root.toString().trim();
+    }
+
+    /**
+     * 与 {@link SqlSourceBuilder} 一样，从 bindings 中获取参数的类型，参数不在 bindings 中时返回null
+     */
+    Class<?> resolveBindingType(String property, String rootName, String children) {
+      if (property.indexOf('[') >= 0) {
+        if (metaBindings == null) {
+          metaBindings = configuration.newMetaObject(bindings);
+        }
+        return metaBindings.hasGetter(property) ? metaBindings.getGetterType(property) : null;
+      }
+      if (!bindings.containsKey(rootName)) {
+        return null;
+      }
+      Object value = bindings.get(rootName);
+      if (children == null) {
+        return value == null ? Object.class : value.getClass();
+      }
+      if (value == null) {
+        return Object.class;
+      }
+      MetaObject metaValue = configuration.newMetaObject(value);
+      return metaValue.hasGetter(children) ? metaValue.getGetterType(children) : null;
+    }
+
+    ParameterMapping buildParameterMapping(String content) {
+      return new SqlSourceBuilder(configuration).buildParameterMapping(content, parameterType, bindings);
+    }
+  }
+
+  /**
+   * 编译后的 {@link SqlNode}
+   */
+  interface Node {
+    /**
+     * @return 与对应的 {@link SqlNode#apply(DynamicContext)} 返回值相同
+     */
+    boolean apply(Context context);
+  }
+
+  private abstract static class SqlWriter {
+    abstract void append(String sql);
+  }
+
+  /**
+   * 与 {@link DynamicContext} 一样，使用空格连接SQL片段
+   */
+  private static final class JoiningWriter extends SqlWriter {
+    private final StringBuilder sql = new StringBuilder();
+    private boolean empty = true;
+
+    @Override
+    void append(String fragment) {
+      if (!empty) {
+        sql.append(' ');
+      }
+      sql.append(fragment);
+      empty = false;
+    }
+
+    @Override
+    public String toString() {
+      return sql.toString();
+    }
+  }
+
+  private static final class BufferWriter extends SqlWriter {
+    private final StringBuilder sql = new StringBuilder();
+
+    @Override
+    void append(String fragment) {
+      sql.append(fragment);
+    }
+  }
+
+  /**
+   * 与 ForEachSqlNode.PrefixedContext 相同，在第一个非空的SQL片段之前添加分隔符
+   */
+  private static final class PrefixedWriter extends SqlWriter {
+    private final SqlWriter delegate;
+    private String prefix;
+    private boolean prefixApplied;
+
+    PrefixedWriter(SqlWriter delegate) {
+      this.delegate = delegate;
+    }
+
+    void reset(String prefix) {
+      this.prefix = prefix;
+      this.prefixApplied = false;
+    }
+
+    @Override
+    void append(String sql) {
+      if (!prefixApplied && sql != null && sql.trim().length() > 0) {
+        delegate.append(prefix);
+        prefixApplied = true;
+      }
+      delegate.append(sql);
+    }
+  }
+
+  /**
+   * 文本中的一个“#{}”占位符，缓存最近一次创建的 {@link ParameterMapping}
+   */
+  static final class ParameterToken {
+    private final String content;
+    /**
+     * 占位符中的属性名，内容不能解析时为null，此时每次执行都重新解析(并抛出与 {@link SqlSourceBuilder} 相同的异常)
+     */
+    private final String property;
+    private final boolean explicitJavaType;
+    /**
+     * 被&lt;foreach>改名的占位符所在的层数，没有改名时为-1
+     */
+    private final int foreachLevel;
+    /**
+     * 被改名的 item 或 index 变量名
+     */
+    private final String foreachVariable;
+    /**
+     * 改名之后保持不变的部分
+     */
+    private final String contentSuffix;
+    private final String propertySuffix;
+    private final String rootName;
+    private final String children;
+    /**
+     * 占位符所在的&lt;foreach>节点，没有改名时为null
+     */
+    private final CompiledScriptBuilder.ForEachScope scope;
+    /**
+     * 被改名的是否是 index 变量
+     */
+    private final boolean indexVariable;
+    private volatile CachedMapping cached;
+
+    ParameterToken(String content, String property, boolean explicitJavaType, CompiledScriptBuilder.ForEachScope scope,
+        String foreachVariable, boolean indexVariable, String contentSuffix) {
+      this.content = content;
+      this.property = property;
+      this.explicitJavaType = explicitJavaType;
+      this.scope = scope;
+      this.foreachLevel = scope == null ? -1 : scope.getLevel();
+      this.foreachVariable = foreachVariable;
+      this.indexVariable = indexVariable;
+      this.contentSuffix = contentSuffix;
+      if (property == null) {
+        this.propertySuffix = null;
+        this.rootName = null;
+        this.children = null;
+      } else {
+        String path = foreachLevel < 0 ? property : property.substring(foreachVariable.length());
+        int dot = path.indexOf('.');
+        this.propertySuffix = foreachLevel < 0 ? null : path;
+        this.rootName = foreachLevel < 0 ? (dot < 0 ? path : path.substring(0, dot)) : null;
+        this.children = dot < 0 ? null : path.substring(dot + 1);
+      }
+    }
+
+    CompiledScriptBuilder.ForEachScope getScope() {
+      return scope;
+    }
+
+    /**
+     * @return 是否能直接从集合元素中取值，带索引的属性(如 item.list[0])仍然通过改名后的变量取值
+     */
+    boolean canReadElement() {
+      return property != null && propertySuffix.indexOf('[') < 0;
+    }
+
+    /**
+     * 把占位符对应的 {@link ParameterMapping} 添加到 context 中
+     */
+    void apply(Context context) {
+      if (scope != null && scope.isDirect()) {
+        Object element = indexVariable ? context.foreachIndexes[foreachLevel] : context.foreachItems[foreachLevel];
+        context.addElementParameter(resolveElement(context, element), element, children);
+      } else {
+        context.parameterMappings.add(resolve(context));
+      }
+    }
+
+    /**
+     * 不改名的占位符，每次迭代共用同一个 {@link ParameterMapping}。
+     * 与 {@link Context#resolveBindingType(String, String, String)} 一样根据元素确定参数的类型，
+     * 元素是JavaBean时按元素的类型缓存
+     */
+    private ParameterMapping resolveElement(Context context, Object element) {
+      CachedMapping current = cached;
+      Class<?> bindingType;
+      Class<?> elementType = null;
+      if (explicitJavaType) {
+        bindingType = null;
+      } else if (children == null || element == null) {
+        bindingType = element == null ? Object.class : element.getClass();
+      } else if (current != null && current.elementType == element.getClass()) {
+        bindingType = current.bindingType;
+        elementType = current.elementType;
+      } else {
+        MetaObject metaElement = context.configuration.newMetaObject(element);
+        bindingType = metaElement.hasGetter(children) ? metaElement.getGetterType(children) : null;
+        if (children.indexOf('.') < 0 && !(element instanceof Map)) {
+          elementType = element.getClass();
+        }
+      }
+      if (current == null || current.parameterType != context.parameterType || current.bindingType != bindingType) {
+        ParameterMapping mapping = context.buildParameterMapping(content);
+        cached = new CachedMapping(context.parameterType, bindingType, elementType, mapping);
+        return mapping;
+      }
+      if (current.elementType != elementType) {
+        cached = new CachedMapping(context.parameterType, bindingType, elementType, current.mapping);
+      }
+      return current.mapping;
+    }
+
+    ParameterMapping resolve(Context context) {
+      String actualProperty = property;
+      String actualRootName = rootName;
+      String actualContent = content;
+      if (foreachLevel >= 0) {
+        actualRootName = ForEachSqlNode.ITEM_PREFIX + foreachVariable + "_" + context.foreachNumbers[foreachLevel];
+        actualProperty = property == null ? null : actualRootName + propertySuffix;
+        actualContent = actualRootName + contentSuffix;
+      }
+      if (actualProperty == null) {
+        return context.buildParameterMapping(actualContent);
+      }
+      Class<?> bindingType = explicitJavaType ? null : context.resolveBindingType(actualProperty, actualRootName, children);
+      CachedMapping current = cached;
+      if (current == null || current.parameterType != context.parameterType || current.bindingType != bindingType) {
+        ParameterMapping mapping = context.buildParameterMapping(actualContent);
+        cached = new CachedMapping(context.parameterType, bindingType, null, mapping);
+        return mapping;
+      }
+      if (foreachLevel < 0) {
+        return current.mapping;
+      }
+      ParameterMapping mapping = current.mapping;
+      return new ParameterMapping.Builder(context.configuration, actualProperty, mapping.getTypeHandler())
+        .mode(mapping.getMode())
+        .javaType(mapping.getJavaType())
+        .jdbcType(mapping.getJdbcType())
+        .numericScale(mapping.getNumericScale())
+        .resultMapId(mapping.getResultMapId())
+        .jdbcTypeName(mapping.getJdbcTypeName())
+        .expression(mapping.getExpression())
+        .build();
+    }
+  }
+
+  private static final class CachedMapping {
+    private final Class<?> parameterType;
+    private final Class<?> bindingType;
+    /**
+     * 得到 bindingType 的集合元素的类型，元素的类型相同时参数的类型也相同，不能按元素类型缓存时为null
+     */
+    private final Class<?> elementType;
+    private final ParameterMapping mapping;
+
+    CachedMapping(Class<?> parameterType, Class<?> bindingType, Class<?> elementType, ParameterMapping mapping) {
+      this.parameterType = parameterType;
+      this.bindingType = bindingType;
+      this.elementType = elementType;
+      this.mapping = mapping;
+    }
+  }
+
+  static final class MixedNode implements Node {
+    private final Node[] contents;
+
+    MixedNode(List<Node> contents) {
+      this.contents = contents.toArray(new Node[0]);
+    }
+
+    @Override
+    public boolean apply(Context context) {
+      for (Node node : contents) {
+        node.apply(context);
+      }
+      return true;
+    }
+  }
+
+  /**
+   * 文本节点，“#{}”占位符已经替换为“?”
+   */
+  static final class TextNode implements Node {
+    private final String sql;
+    private final ParameterToken[] tokens;
+
+    TextNode(String sql, List<ParameterToken> tokens) {
+      this.sql = sql;
+      this.tokens = tokens.toArray(new ParameterToken[0]);
+    }
+
+    @Override
+    public boolean apply(Context context) {
+      for (ParameterToken token : tokens) {
+        token.apply(context);
+      }
+      context.appendSql(sql);
+      return true;
+    }
+  }
+
+  /**
+   * 含有“${}”的文本，由 {@link TextSqlNode} 替换之后再在运行时解析“#{}”占位符
+   */
+  static final class DynamicTextNode implements Node {
+    private final TextSqlNode textSqlNode;
+    private final CompiledScriptBuilder.ForEachScope scope;
+
+    DynamicTextNode(TextSqlNode textSqlNode, CompiledScriptBuilder.ForEachScope scope) {
+      this.textSqlNode = textSqlNode;
+      this.scope = scope;
+    }
+
+    @Override
+    public boolean apply(Context context) {
+      StringBuilder text = new StringBuilder();
+      textSqlNode.apply(new DynamicContext(context.configuration, null) {
+        @Override
+        public Map<String, Object> getBindings() {
+          return context.bindings;
+        }
+
+        @Override
+        public void appendSql(String sql) {
+          text.append(sql);
+        }
+      });
+      GenericTokenParser parser = new GenericTokenParser("#{", "}", content -> {
+        CompiledScriptBuilder.createToken(content, scope).apply(context);
+        return "?";
+      });
+      context.appendSql(parser.parse(text.toString()));
+      return true;
+    }
+  }
+
+  static final class IfNode implements Node {
+    private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+    private final CompiledExpression test;
+    private final Node contents;
+
+    IfNode(CompiledExpression test, Node contents) {
+      this.test = test;
+      this.contents = contents;
+    }
+
+    @Override
+    public boolean apply(Context context) {
+      if (evaluator.evaluateBoolean(test, context.bindings)) {
+        contents.apply(context);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  static final class ChooseNode implements Node {
+    private final Node[] whenNodes;
+    private final Node otherwiseNode;
+
+    ChooseNode(List<Node> whenNodes, Node otherwiseNode) {
+      this.whenNodes = whenNodes.toArray(new Node[0]);
+      this.otherwiseNode = otherwiseNode;
+    }
+
+    @Override
+    public boolean apply(Context context) {
+      for (Node node : whenNodes) {
+        if (node.apply(context)) {
+          return true;
+        }
+      }
+      if (otherwiseNode != null) {
+        otherwiseNode.apply(context);
+        return true;
+      }
+      return false;
+    }
+  }
+
+  static final class BindNode implements Node {
+    private final String name;
+    private final CompiledExpression value;
+
+    BindNode(String name, CompiledExpression value) {
+      this.name = name;
+      this.value = value;
+    }
+
+    @Override
+    public boolean apply(Context context) {
+      context.bindings.put(name, value.getValue(context.bindings));
+      return true;
+    }
+  }
+
+  /**
+   * 与 {@link TrimSqlNode} 相同，prefixesToOverride 和 suffixesToOverride 已经转为大写
+   */
+  static final class TrimNode implements Node {
+    private final Node contents;
+    private final String prefix;
+    private final String suffix;
+    private final List<String> prefixesToOverride;
+    private final List<String> suffixesToOverride;
+
+    TrimNode(Node contents, String prefix, List<String> prefixesToOverride, String suffix, List<String> suffixesToOverride) {
+      this.contents = contents;
+      this.prefix = prefix;
+      this.suffix = suffix;
+      this.prefixesToOverride = prefixesToOverride;
+      this.suffixesToOverride = suffixesToOverride;
+    }
+
+    @Override
+    public boolean apply(Context context) {
+      SqlWriter parent = context.writer;
+      BufferWriter buffer = new BufferWriter();
+      context.writer = buffer;
+      boolean result;
+      try {
+        result = contents.apply(context);
+      } finally {
+        context.writer = parent;
+      }
+      StringBuilder sql = new StringBuilder(buffer.sql.toString().trim());
+      String trimmedUppercaseSql = sql.toString().toUpperCase(Locale.ENGLISH);
+      if (trimmedUppercaseSql.length() > 0) {
+        applyPrefix(sql, trimmedUppercaseSql);
+        applySuffix(sql, trimmedUppercaseSql);
+      }
+      parent.append(sql.toString());
+      return result;
+    }
+
+    private void applyPrefix(StringBuilder sql, String trimmedUppercaseSql) {
+      for (String toRemove : prefixesToOverride) {
+        if (trimmedUppercaseSql.startsWith(toRemove)) {
+          sql.delete(0, toRemove.trim().length());
+          break;
+        }
+      }
+      if (prefix != null) {
+        sql.insert(0, " ");
+        sql.insert(0, prefix);
+      }
+    }
+
+    private void applySuffix(StringBuilder sql, String trimmedUppercaseSql) {
+      for (String toRemove : suffixesToOverride) {
+        if (trimmedUppercaseSql.endsWith(toRemove) || trimmedUppercaseSql.endsWith(toRemove.trim())) {
+          int start = sql.length() - toRemove.trim().length();
+          int end = sql.length();
+          sql.delete(start, end);
+          break;
+        }
+      }
+      if (suffix != null) {
+        sql.append(" ");
+        sql.append(suffix);
+      }
+    }
+  }
+
+  /**
+   * 与 {@link ForEachSqlNode} 相同，子节点中“#{}”占位符的改名在编译时已经确定，运行时只需要记录每次迭代的 uniqueNumber。
+   * 占位符直接从集合元素中取值时，只记录当前的元素和索引，不再为每个元素绑定改名后的变量
+   */
+  static final class ForEachNode implements Node {
+    private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+    private final CompiledExpression collection;
+    private final Node contents;
+    private final int level;
+    private final String open;
+    private final String close;
+    private final String separator;
+    private final String item;
+    private final String index;
+    private final boolean direct;
+    private final boolean bucketed;
+    private final int chunkSize;
+
+    ForEachNode(CompiledExpression collection, Node contents, int level, String open, String close, String separator,
+        String item, String index, boolean direct, boolean bucketed, int chunkSize) {
+      this.collection = collection;
+      this.contents = contents;
+      this.level = level;
+      this.open = open;
+      this.close = close;
+      this.separator = separator;
+      this.item = item;
+      this.index = index;
+      this.direct = direct;
+      this.bucketed = bucketed;
+      this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public boolean apply(Context context) {
+      Map<String, Object> bindings = context.bindings;
+      Iterable<?> iterable = evaluator.evaluateIterable(collection, bindings);
+      if (!iterable.iterator().hasNext()) {
+        return true;
+      }
+      int i = 0;
+      if (bucketed || chunkSize > 0) {
+        ForEachChunk chunk = ForEachChunk.select(iterable, bucketed, chunkSize, context.chunk);
+        if (chunkSize > 0) {
+          context.chunkCount = chunk.getChunkCount();
+        }
+        iterable = chunk.getElements();
+        i = chunk.getOffset();
+      }
+      boolean first = true;
+      if (open != null) {
+        context.appendSql(open);
+      }
+      SqlWriter parent = context.writer;
+      PrefixedWriter prefixed = new PrefixedWriter(parent);
+      try {
+        for (Object o : iterable) {
+          prefixed.reset(first || separator == null ? "" : separator);
+          context.writer = prefixed;
+          int uniqueNumber = context.uniqueNumber++;
+          context.foreachNumbers[level] = uniqueNumber;
+          Object key = i;
+          Object value = o;
+          if (o instanceof Map.Entry) {
+            Map.Entry<?, ?> mapEntry = (Map.Entry<?, ?>) o;
+            key = mapEntry.getKey();
+            value = mapEntry.getValue();
+          }
+          if (direct) {
+            context.foreachIndexes[level] = key;
+            context.foreachItems[level] = value;
+            bind(bindings, index, key);
+            bind(bindings, item, value);
+          } else {
+            bind(bindings, index, key, uniqueNumber);
+            bind(bindings, item, value, uniqueNumber);
+          }
+          contents.apply(context);
+          if (first) {
+            first = !prefixed.prefixApplied;
+          }
+          i++;
+        }
+      } finally {
+        context.writer = parent;
+      }
+      if (close != null) {
+        context.appendSql(close);
+      }
+      bindings.remove(item);
+      bindings.remove(index);
+      return true;
+    }
+
+    private static void bind(Map<String, Object> bindings, String name, Object value, int uniqueNumber) {
+      if (name != null) {
+        bindings.put(name, value);
+        bindings.put(ForEachSqlNode.ITEM_PREFIX + name + "_" + uniqueNumber, value);
+      }
+    }
+
+    private static void bind(Map<String, Object> bindings, String name, Object value) {
+      if (name != null) {
+        bindings.put(name, value);
+      }
+    }
+  }
+
+}
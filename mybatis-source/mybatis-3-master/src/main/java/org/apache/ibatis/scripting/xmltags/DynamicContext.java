@@ -19,6 +19,7 @@ import ognl.OgnlContext;
 import ognl.OgnlRuntime;
 import ognl.PropertyAccessor;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.session.Configuration;
 
 import java.util.HashMap;
@@ -58,6 +59,14 @@ public class DynamicContext {
    * 用于拼接生成新的“#{}”占位符名称，以防和被解析节点外的占位符里的字符串重名
    */
   private int uniqueNumber = 0;
+  /**
+   * 指定了 chunkSize 的&lt;foreach>只生成第几批元素(从0开始)，为-1时生成全部元素
+   */
+  private int chunk = -1;
+  /**
+   * 指定了 chunkSize 的&lt;foreach>中的元素需要分成的批数
+   */
+  private int chunkCount = 1;
 
   /**
    * 实例化 {@link DynamicContext#bindings}集合
@@ -71,9 +80,9 @@ public class DynamicContext {
       MetaObject metaObject = configuration.newMetaObject(parameterObject);
       // 是否存在parameterObject的类型处理器
       boolean existsTypeHandler = configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass());
-      bindings = new ContextMap(metaObject, existsTypeHandler);
+      bindings = new ContextMap(metaObject, existsTypeHandler, configuration.getReflectorFactory());
     } else {
-      bindings = new ContextMap(null, false);
+      bindings = new ContextMap(null, false, configuration.getReflectorFactory());
     }
     bindings.put(PARAMETER_OBJECT_KEY, parameterObject);
     bindings.put(DATABASE_ID_KEY, configuration.getDatabaseId());
@@ -109,6 +118,34 @@ public class DynamicContext {
     return uniqueNumber++;
   }
 
+  /**
+   * @since 3.5.3
+   */
+  public int getChunk() {
+    return chunk;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public void setChunk(int chunk) {
+    this.chunk = chunk;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public int getChunkCount() {
+    return chunkCount;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public void setChunkCount(int chunkCount) {
+    this.chunkCount = chunkCount;
+  }
+
   static class ContextMap extends HashMap<String, Object> {
     private static final long serialVersionUID = 2977601501966151582L;
     /**
@@ -119,10 +156,23 @@ public class DynamicContext {
      * 标志 {@link ContextMap#parameterMetaObject}封装的原始类型是否存在相应的类型处理器
      */
     private final boolean fallbackParameterObject;
+    /**
+     * 所属配置的 {@link ReflectorFactory}，{@link CompiledExpression} 通过它读取JavaBean的属性
+     */
+    private final ReflectorFactory reflectorFactory;
 
     public ContextMap(MetaObject parameterMetaObject, boolean fallbackParameterObject) {
+      this(parameterMetaObject, fallbackParameterObject, null);
+    }
+
+    ContextMap(MetaObject parameterMetaObject, boolean fallbackParameterObject, ReflectorFactory reflectorFactory) {
       this.parameterMetaObject = parameterMetaObject;
       this.fallbackParameterObject = fallbackParameterObject;
+      this.reflectorFactory = reflectorFactory;
+    }
+
+    ReflectorFactory getReflectorFactory() {
+      return reflectorFactory;
     }
 
     @Override
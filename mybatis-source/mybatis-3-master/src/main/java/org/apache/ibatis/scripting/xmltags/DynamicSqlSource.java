@@ -15,15 +15,28 @@
  */
 package org.apache.ibatis.scripting.xmltags;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
 import org.apache.ibatis.builder.SqlSourceBuilder;
+import org.apache.ibatis.builder.StaticSqlSource;
 import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.session.Configuration;
 
 /**
  * 执行时机：实际执行SQL语句，比如判断&lt;if>节点的test属性值，只有真正执行的时候根据实参来判断
  * <p>
  * 处理动态SQL语句，也是常用的 {@link SqlSource}之一
+ * <p>
+ * 大多数动态SQL语句只会生成少数几种不同的SQL语句，解析“#{}”占位符得到的 {@link StaticSqlSource} 按 {@link SqlNode} 处理之后的SQL语句和参数类型缓存，
+ * 相同的SQL语句不需要再次解析。缓存的大小由 {@link Configuration#getDynamicSqlCacheSize()} 限制，缓存满之后淘汰最近最少使用的SQL语句。
  *
  * @author Clinton Begin
  */
@@ -34,10 +47,38 @@ public class DynamicSqlSource implements SqlSource {
    * 待解析的 {@link SqlNode}树的根节点
    */
   private final SqlNode rootSqlNode;
+  /**
+   * 是否含有指定了 chunkSize 的&lt;foreach>节点
+   */
+  private final boolean chunked;
+  /**
+   * 是否含有指定了 bucketed="true" 的&lt;foreach>节点
+   */
+  private final boolean bucketed;
+  /**
+   * SQL语句和参数类型 -> 解析之后的SQL模板。命中时不加锁，超过缓存大小时淘汰最久没有被使用的模板(近似的LRU)
+   */
+  private final ConcurrentMap<TemplateKey, SqlTemplate> templates = new ConcurrentHashMap<>();
+  /**
+   * 逻辑时钟，只在解析新的SQL语句时前进，命中时记录到模板上。
+   * 同一次解析之后被使用过的模板记录相同的值，因此只是近似的LRU，但是热点语句命中时几乎不需要写入
+   */
+  private final AtomicLong clock = new AtomicLong();
+  private final LongAdder cacheHits = new LongAdder();
+  private final LongAdder cacheMisses = new LongAdder();
 
   public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode) {
+    this(configuration, rootSqlNode, false, false);
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public DynamicSqlSource(Configuration configuration, SqlNode rootSqlNode, boolean chunked, boolean bucketed) {
     this.configuration = configuration;
     this.rootSqlNode = rootSqlNode;
+    this.chunked = chunked;
+    this.bucketed = bucketed;
   }
 
   /**
@@ -46,22 +87,187 @@ public class DynamicSqlSource implements SqlSource {
    */
   @Override
   public BoundSql getBoundSql(Object parameterObject) {
+    return getBoundSql(parameterObject, -1);
+  }
+
+  @Override
+  public BoundSql getBoundSql(Object parameterObject, int chunk) {
     DynamicContext context = new DynamicContext(configuration, parameterObject);
+    context.setChunk(chunk);
     /*
       调用整个树形结构中全部SqlNode.apply()方法。每个SqlNode的apply()方法都将解析得到的SQL语句片段追加到context中，
       最终通过context.getSql()得到完整的SQL语句
      */
     rootSqlNode.apply(context);
-    // 创建SqlSourceBuilder,解析参数属性，并将SQL语句中的“#{}”占位符替换成“?”占位符
-    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
     // 如果没有指定parameterType属性值，则默认为Object类型
     Class<?> parameterType = parameterObject == null ? Object.class : parameterObject.getClass();
-    SqlSource sqlSource = sqlSourceParser.parse(context.getSql(), parameterType, context.getBindings());
+    // 解析参数属性，并将SQL语句中的“#{}”占位符替换成“?”占位符，相同的SQL语句使用缓存的解析结果
+    SqlSource sqlSource = getSqlSource(context.getSql(), parameterType, context.getBindings());
 
     BoundSql boundSql = sqlSource.getBoundSql(parameterObject);
     // 将DynamicContext.bindings 中的每一项参数信息复制到其metaParameters中保存
     context.getBindings().forEach(boundSql::setAdditionalParameter);
+    boundSql.setChunkCount(context.getChunkCount());
     return boundSql;
   }
 
+  @Override
+  public boolean isChunked() {
+    return chunked;
+  }
+
+  @Override
+  public boolean isBucketed() {
+    return bucketed;
+  }
+
+  private SqlSource getSqlSource(String sql, Class<?> parameterType, Map<String, Object> bindings) {
+    int cacheSize = configuration.getDynamicSqlCacheSize();
+    if (cacheSize <= 0) {
+      return parse(sql, parameterType, bindings);
+    }
+    TemplateKey key = new TemplateKey(sql, parameterType);
+    SqlTemplate template = templates.get(key);
+    // 参数的类型可能来自 bindings 中的值(例如 foreach 的元素)，类型相同时才能使用缓存的 ParameterMapping
+    if (template != null && template.matches(configuration, bindings)) {
+      cacheHits.increment();
+      long now = clock.get();
+      // 时钟没有前进时不再写入，热点语句命中时只有读操作
+      if (template.lastUsed != now) {
+        template.lastUsed = now;
+      }
+      return template.sqlSource;
+    }
+    cacheMisses.increment();
+    StaticSqlSource sqlSource = parse(sql, parameterType, bindings);
+    SqlTemplate parsed = new SqlTemplate(configuration, sqlSource, bindings);
+    parsed.lastUsed = clock.incrementAndGet();
+    templates.put(key, parsed);
+    while (templates.size() > cacheSize) {
+      evictLeastRecentlyUsed();
+    }
+    return sqlSource;
+  }
+
+  /**
+   * 淘汰最久没有被使用的模板，只在解析新的SQL语句时遍历缓存，多个线程同时淘汰时可能多淘汰几个
+   */
+  private void evictLeastRecentlyUsed() {
+    Map.Entry<TemplateKey, SqlTemplate> eldest = null;
+    for (Map.Entry<TemplateKey, SqlTemplate> entry : templates.entrySet()) {
+      if (eldest == null || entry.getValue().lastUsed < eldest.getValue().lastUsed) {
+        eldest = entry;
+      }
+    }
+    if (eldest != null) {
+      templates.remove(eldest.getKey(), eldest.getValue());
+    }
+  }
+
+  private StaticSqlSource parse(String sql, Class<?> parameterType, Map<String, Object> bindings) {
+    // 创建SqlSourceBuilder,解析参数属性，并将SQL语句中的“#{}”占位符替换成“?”占位符
+    SqlSourceBuilder sqlSourceParser = new SqlSourceBuilder(configuration);
+    return (StaticSqlSource) sqlSourceParser.parse(sql, parameterType, bindings);
+  }
+
+  /**
+   * @return 使用缓存的解析结果的次数
+   * @since 3.5.3
+   */
+  public long getCacheHitCount() {
+    return cacheHits.sum();
+  }
+
+  /**
+   * @return 解析SQL语句的次数
+   * @since 3.5.3
+   */
+  public long getCacheMissCount() {
+    return cacheMisses.sum();
+  }
+
+  /**
+   * @return 缓存的SQL语句个数
+   * @since 3.5.3
+   */
+  public int getCacheSize() {
+    return templates.size();
+  }
+
+  private static final class TemplateKey {
+
+    private final String sql;
+    private final Class<?> parameterType;
+    private final int hashCode;
+
+    TemplateKey(String sql, Class<?> parameterType) {
+      this.sql = sql;
+      this.parameterType = parameterType;
+      this.hashCode = 31 * sql.hashCode() + parameterType.hashCode();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof TemplateKey)) {
+        return false;
+      }
+      TemplateKey other = (TemplateKey) o;
+      return hashCode == other.hashCode && parameterType == other.parameterType && sql.equals(other.sql);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  private static final class SqlTemplate {
+
+    private final StaticSqlSource sqlSource;
+    private final String[] properties;
+    /**
+     * 最近一次被使用时 {@link #clock} 的值
+     */
+    private volatile long lastUsed;
+    /**
+     * 解析时每个参数从 bindings 中得到的类型，参数不在 bindings 中时为null
+     */
+    private final Class<?>[] bindingTypes;
+
+    SqlTemplate(Configuration configuration, StaticSqlSource sqlSource, Map<String, Object> bindings) {
+      this.sqlSource = sqlSource;
+      List<ParameterMapping> parameterMappings = sqlSource.getParameterMappings();
+      this.properties = new String[parameterMappings.size()];
+      this.bindingTypes = new Class<?>[properties.length];
+      MetaObject metaBindings = properties.length == 0 ? null : configuration.newMetaObject(bindings);
+      for (int i = 0; i < properties.length; i++) {
+        properties[i] = parameterMappings.get(i).getProperty();
+        bindingTypes[i] = resolveBindingType(metaBindings, properties[i]);
+      }
+    }
+
+    /**
+     * 与 {@link SqlSourceBuilder} 一样，从 bindings 中获取参数的类型
+     */
+    private static Class<?> resolveBindingType(MetaObject metaBindings, String property) {
+      return metaBindings.hasGetter(property) ? metaBindings.getGetterType(property) : null;
+    }
+
+    boolean matches(Configuration configuration, Map<String, Object> bindings) {
+      if (properties.length == 0) {
+        return true;
+      }
+      MetaObject metaBindings = configuration.newMetaObject(bindings);
+      for (int i = 0; i < properties.length; i++) {
+        if (resolveBindingType(metaBindings, properties[i]) != bindingTypes[i]) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
 }
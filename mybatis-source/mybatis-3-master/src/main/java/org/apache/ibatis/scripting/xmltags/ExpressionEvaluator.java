@@ -22,17 +22,36 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 表达式解析器，如 &lt;if>或&lt;when的test属性值指定的表达式解析，封装了 OGNL解析功能
+ * <p>
+ * 表达式先由 {@link CompiledExpression} 编译，常见的简单表达式(如 x != null and x != ''、list.size &gt; 0)
+ * 直接从参数中取值计算，不经过OGNL；其他表达式仍然使用 {@link OgnlCache} 计算
  *
  * @author Clinton Begin
  */
 public class ExpressionEvaluator {
 
+  /**
+   * 缓存编译后的表达式，与 {@link OgnlCache} 一样以表达式字符串为key
+   */
+  private static final Map<String, CompiledExpression> expressionCache = new ConcurrentHashMap<>();
+
   public boolean evaluateBoolean(String expression, Object parameterObject) {
-    // 通过ognl解析expression表达式
-    Object value = OgnlCache.getValue(expression, parameterObject);
+    // 计算编译后的表达式，不能编译的表达式通过ognl解析
+    return evaluateBoolean(compile(expression), parameterObject);
+  }
+
+  /**
+   * 计算编译后的表达式，结果的处理方式与 {@link #evaluateBoolean(String, Object)} 相同
+   */
+  boolean evaluateBoolean(CompiledExpression expression, Object parameterObject) {
+    return toBoolean(expression.getValue(parameterObject));
+  }
+
+  private boolean toBoolean(Object value) {
     if (value instanceof Boolean) { // 解析结果是Boolean类型，直接返回
       return (Boolean) value;
     }
@@ -50,8 +69,27 @@ public class ExpressionEvaluator {
    * @return
    */
   public Iterable<?> evaluateIterable(String expression, Object parameterObject) {
-    // 通过ognl解析expression表达式
-    Object value = OgnlCache.getValue(expression, parameterObject);
+    // 计算编译后的表达式，不能编译的表达式通过ognl解析
+    return evaluateIterable(compile(expression), parameterObject);
+  }
+
+  /**
+   * 计算编译后的表达式，结果的处理方式与 {@link #evaluateIterable(String, Object)} 相同
+   */
+  Iterable<?> evaluateIterable(CompiledExpression expression, Object parameterObject) {
+    return toIterable(expression.getExpression(), expression.getValue(parameterObject));
+  }
+
+  private static CompiledExpression compile(String expression) {
+    CompiledExpression compiled = expressionCache.get(expression);
+    if (compiled == null) {
+      compiled = CompiledExpression.compile(expression);
+      expressionCache.put(expression, compiled);
+    }
+    return compiled;
+  }
+
+  private Iterable<?> toIterable(String expression, Object value) {
     if (value == null) {
       throw new BuilderException("The expression '" + expression + "' evaluated to a null value.");
     }
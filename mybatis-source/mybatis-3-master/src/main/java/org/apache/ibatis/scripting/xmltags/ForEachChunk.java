@@ -0,0 +1,125 @@
+/**
+ * Copyright 2009-2019 the original author or authors.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.apache.ibatis.session.defaults.DefaultSqlSession;
+
+/**
+ * &lt;foreach>节点的 bucketed 和 chunkSize 属性选出的一批元素.
+ * <p>
+ * chunkSize 大于0时，元素个数超过 chunkSize 的集合分成多批，每批生成一条SQL语句分别执行，由 {@link DefaultSqlSession} 合并查询结果。
+ * bucketed 为true时，用最后一个元素把每批元素补齐到 8、16、32……个(不超过 chunkSize)，不同长度的集合只会生成少数几种SQL语句，
+ * 可以复用 PreparedStatement 和数据库的执行计划。重复的元素不影响 IN 条件的结果。
+ */
+final class ForEachChunk {
+
+  /**
+   * 补齐之后最少的元素个数
+   */
+  static final int MIN_BUCKET_SIZE = 8;
+
+  /**
+   * 本批的元素，已经补齐
+   */
+  private final List<?> elements;
+  /**
+   * 本批第一个元素在集合中的下标
+   */
+  private final int offset;
+  /**
+   * 集合需要分成的批数
+   */
+  private final int chunkCount;
+
+  private ForEachChunk(List<?> elements, int offset, int chunkCount) {
+    this.elements = elements;
+    this.offset = offset;
+    this.chunkCount = chunkCount;
+  }
+
+  /**
+   * 选出第 chunk 批元素
+   *
+   * @param iterable  collection 属性对应的集合
+   * @param bucketed  是否补齐元素个数
+   * @param chunkSize 每批最多的元素个数，0表示不分批
+   * @param chunk     第几批，-1表示选出全部元素
+   * @return
+   */
+  static ForEachChunk select(Iterable<?> iterable, boolean bucketed, int chunkSize, int chunk) {
+    List<?> all = toList(iterable);
+    int size = all.size();
+    int chunkCount = chunkSize > 0 && size > chunkSize ? (size - 1) / chunkSize + 1 : 1;
+    int from = 0;
+    List<?> elements = all;
+    if (chunk >= 0 && chunkCount > 1) {
+      from = Math.min(chunk, chunkCount - 1) * chunkSize;
+      elements = all.subList(from, Math.min(size, from + chunkSize));
+    }
+    if (bucketed && !elements.isEmpty()) {
+      int bucketSize = bucketSize(elements.size(), chunkSize);
+      if (bucketSize > elements.size()) {
+        List<Object> padded = new ArrayList<>(bucketSize);
+        padded.addAll(elements);
+        Object last = elements.get(elements.size() - 1);
+        while (padded.size() < bucketSize) {
+          padded.add(last);
+        }
+        elements = padded;
+      }
+    }
+    return new ForEachChunk(elements, from, chunkCount);
+  }
+
+  /**
+   * 大于等于 size 的最小的2的幂，最少为 {@link #MIN_BUCKET_SIZE}，size 不超过 chunkSize 时结果也不超过 chunkSize
+   */
+  static int bucketSize(int size, int chunkSize) {
+    int bucketSize = Math.max(MIN_BUCKET_SIZE, size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1);
+    if (chunkSize > 0 && size <= chunkSize) {
+      bucketSize = Math.min(bucketSize, chunkSize);
+    }
+    return bucketSize;
+  }
+
+  private static List<?> toList(Iterable<?> iterable) {
+    if (iterable instanceof List) {
+      return (List<?>) iterable;
+    }
+    List<Object> list = iterable instanceof Collection ? new ArrayList<>(((Collection<?>) iterable).size()) : new ArrayList<>();
+    for (Object o : iterable) {
+      list.add(o);
+    }
+    return list;
+  }
+
+  List<?> getElements() {
+    return elements;
+  }
+
+  int getOffset() {
+    return offset;
+  }
+
+  int getChunkCount() {
+    return chunkCount;
+  }
+
+}
@@ -65,9 +65,25 @@ public class ForEachSqlNode implements SqlNode {
    * 当前迭代的索引值，如果迭代 {@link Map}，则index是key值——item 指定的属性值
    */
   private final String index;
+  /**
+   * 是否用最后一个元素把元素个数补齐到 8、16、32……个，见 {@link ForEachChunk}
+   */
+  private final boolean bucketed;
+  /**
+   * 每次执行最多使用的元素个数，超过时分成多次执行，0表示不分批
+   */
+  private final int chunkSize;
   private final Configuration configuration;
 
   public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator) {
+    this(configuration, contents, collectionExpression, index, item, open, close, separator, false, 0);
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public ForEachSqlNode(Configuration configuration, SqlNode contents, String collectionExpression, String index, String item, String open, String close, String separator,
+                        boolean bucketed, int chunkSize) {
     this.evaluator = new ExpressionEvaluator();
     this.collectionExpression = collectionExpression;
     this.contents = contents;
@@ -76,6 +92,8 @@ public class ForEachSqlNode implements SqlNode {
     this.separator = separator;
     this.index = index;
     this.item = item;
+    this.bucketed = bucketed;
+    this.chunkSize = chunkSize;
     this.configuration = configuration;
   }
 
@@ -84,14 +102,23 @@ public class ForEachSqlNode implements SqlNode {
     // 保存解析之后的参数
     Map<String, Object> bindings = context.getBindings();
     // 解析集合表达式对应的实数
-    final Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings);
+    Iterable<?> iterable = evaluator.evaluateIterable(collectionExpression, bindings);
+    int i = 0;
+    if (bucketed || chunkSize > 0) {
+      // 只迭代本批的元素，并补齐元素个数
+      ForEachChunk chunk = ForEachChunk.select(iterable, bucketed, chunkSize, context.getChunk());
+      if (chunkSize > 0) {
+        context.setChunkCount(chunk.getChunkCount());
+      }
+      iterable = chunk.getElements();
+      i = chunk.getOffset();
+    }
     if (!iterable.iterator().hasNext()) {
       return true;
     }
     boolean first = true;
     // 循环开始前，追加open属性指定的表达式
     applyOpen(context);
-    int i = 0;
     // 迭代实参
     for (Object o : iterable) {
       // 记录当前 DynamicContext 对象
@@ -29,7 +29,7 @@ import java.util.List;
  */
 public class SetSqlNode extends TrimSqlNode {
 
-  private static final List<String> COMMA = Collections.singletonList(",");
+  static final List<String> COMMA = Collections.singletonList(",");
 
   public SetSqlNode(Configuration configuration, SqlNode contents) {
     // <set>节点默认前缀是 SET
@@ -74,7 +74,7 @@ public class TrimSqlNode implements SqlNode {
     return result;
   }
 
-  private static List<String> parseOverrides(String overrides) {
+  static List<String> parseOverrides(String overrides) {
     if (overrides != null) {
       // 多个使用“|”分隔
       final StringTokenizer parser = new StringTokenizer(overrides, "|", false);
@@ -142,6 +142,16 @@ public class TrimSqlNode implements SqlNode {
       return delegate.getUniqueNumber();
     }
 
+    @Override
+    public int getChunk() {
+      return delegate.getChunk();
+    }
+
+    @Override
+    public void setChunkCount(int chunkCount) {
+      delegate.setChunkCount(chunkCount);
+    }
+
     /**
      * 注意此处调用的不是代理对象的append()方法，解析&lt;trim>子节点生成的sql语句暂存在sqlBuffer，待处理后再追加到
      * 代理对象delegate的sqlBuilder中去
@@ -30,7 +30,7 @@ import java.util.List;
  */
 public class WhereSqlNode extends TrimSqlNode {
 
-  private static List<String> prefixList = Arrays.asList("AND ", "OR ", "AND\n", "OR\n", "AND\r", "OR\r", "AND\t", "OR\t");
+  static List<String> prefixList = Arrays.asList("AND ", "OR ", "AND\n", "OR\n", "AND\r", "OR\r", "AND\t", "OR\t");
 
   public WhereSqlNode(Configuration configuration, SqlNode contents) {
     // <where>节点默认前缀是 WHERE
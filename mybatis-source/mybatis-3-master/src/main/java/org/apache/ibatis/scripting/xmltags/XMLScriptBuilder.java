@@ -42,6 +42,18 @@ public class XMLScriptBuilder extends BaseBuilder {
    * 是否为动态SQL
    */
   private boolean isDynamic;
+  /**
+   * 是否含有指定了 chunkSize 的&lt;foreach>节点
+   */
+  private boolean isChunked;
+  /**
+   * 是否含有指定了 bucketed="true" 的&lt;foreach>节点
+   */
+  private boolean isBucketed;
+  /**
+   * 当前解析的节点外层的&lt;foreach>节点个数
+   */
+  private int foreachDepth;
   /**
    *
    */
@@ -86,7 +98,7 @@ public class XMLScriptBuilder extends BaseBuilder {
     MixedSqlNode rootSqlNode = parseDynamicTags(context);
     SqlSource sqlSource;
     if (isDynamic) {  // 根据是否是动态SQL,创建相应的SqlSource对象
-      sqlSource = new DynamicSqlSource(configuration, rootSqlNode);
+      sqlSource = new DynamicSqlSource(configuration, rootSqlNode, isChunked, isBucketed);
     } else {
       sqlSource = new RawSqlSource(configuration, rootSqlNode, parameterType);
     }
@@ -215,7 +227,13 @@ public class XMLScriptBuilder extends BaseBuilder {
     @Override
     public void handleNode(XNode nodeToHandle, List<SqlNode> targetContents) {
       // 递归解析<foreach>动态SQL节点生成相应的SqlNode对象
-      MixedSqlNode mixedSqlNode = parseDynamicTags(nodeToHandle);
+      foreachDepth++;
+      MixedSqlNode mixedSqlNode;
+      try {
+        mixedSqlNode = parseDynamicTags(nodeToHandle);
+      } finally {
+        foreachDepth--;
+      }
       // 获取<foreach>相应的属性值
       String collection = nodeToHandle.getStringAttribute("collection");
       String item = nodeToHandle.getStringAttribute("item");
@@ -223,7 +241,22 @@ public class XMLScriptBuilder extends BaseBuilder {
       String open = nodeToHandle.getStringAttribute("open");
       String close = nodeToHandle.getStringAttribute("close");
       String separator = nodeToHandle.getStringAttribute("separator");
-      ForEachSqlNode forEachSqlNode = new ForEachSqlNode(configuration, mixedSqlNode, collection, index, item, open, close, separator);
+      boolean bucketed = nodeToHandle.getBooleanAttribute("bucketed", false);
+      int chunkSize = nodeToHandle.getIntAttribute("chunkSize", 0);
+      if (chunkSize < 0) {
+        throw new BuilderException("The chunkSize of <foreach> must not be negative: " + chunkSize);
+      }
+      // 补齐和分批只能用于查询语句，由 MapperBuilderAssistant 根据语句类型检查
+      isBucketed |= bucketed;
+      if (chunkSize > 0) {
+        // 每批只能执行一个集合的一部分元素，嵌套的或者多个分批的集合无法合并结果
+        if (foreachDepth > 0 || isChunked) {
+          throw new BuilderException("Only one <foreach> that is not nested in another <foreach> can specify chunkSize in a statement.");
+        }
+        isChunked = true;
+      }
+      ForEachSqlNode forEachSqlNode = new ForEachSqlNode(configuration, mixedSqlNode, collection, index, item, open, close, separator,
+        bucketed, chunkSize);
       targetContents.add(forEachSqlNode);
     }
   }
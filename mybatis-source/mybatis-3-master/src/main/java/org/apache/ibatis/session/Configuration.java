@@ -25,8 +25,12 @@ import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CompactCacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
@@ -36,8 +40,13 @@ import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
 import org.apache.ibatis.executor.loader.javassist.JavassistProxyFactory;
 import org.apache.ibatis.executor.parameter.ParameterHandler;
+import org.apache.ibatis.executor.result.ColumnarResult;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
+import org.apache.ibatis.executor.resultset.LambdaRowMapperFactory;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
+import org.apache.ibatis.executor.resultset.RowMapper;
+import org.apache.ibatis.executor.resultset.RowMapperFactory;
+import org.apache.ibatis.executor.resultset.RowMappingPlanCache;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.io.VFS;
@@ -64,6 +73,7 @@ import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.scripting.LanguageDriverRegistry;
 import org.apache.ibatis.scripting.defaults.RawLanguageDriver;
+import org.apache.ibatis.scripting.xmltags.CompiledLanguageDriver;
 import org.apache.ibatis.scripting.xmltags.XMLLanguageDriver;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
@@ -74,6 +84,11 @@ import org.apache.ibatis.type.TypeHandler;
 import org.apache.ibatis.type.TypeHandlerRegistry;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.BiFunction;
 
 /**
@@ -104,6 +119,32 @@ public class Configuration {
    * 用于向数据库查询不到数据时，决定返回空的结果对象还是返回null
    */
   protected boolean returnInstanceForEmptyRow;
+  /**
+   * localCacheScope为STATEMENT时，跳过创建不会被任何缓存使用的CacheKey
+   */
+  protected boolean skipUnusedCacheKey;
+  /**
+   * 映射结果集时按列的下标而不是列名读取已映射的列
+   */
+  protected boolean useColumnIndexForResults;
+  /**
+   * 为简单的ResultMap生成行映射器的工厂，为null时不生成
+   */
+  protected RowMapperFactory rowMapperFactory;
+  /**
+   * 通过 LambdaMetafactory/MethodHandle 而不是反射访问属性，默认关闭
+   */
+  protected boolean useMethodHandleInvokers;
+  /**
+   * 并行映射结果集使用的线程池，为null时使用 parallelMappingThreads 个守护线程的默认线程池
+   */
+  protected ExecutorService parallelMappingExecutor;
+  /**
+   * 默认线程池的线程数，同时也限制并行映射时同时进行中的任务数
+   */
+  protected int parallelMappingThreads = Runtime.getRuntime().availableProcessors();
+  private ExecutorService defaultParallelMappingExecutor;
+  private static final AtomicInteger PARALLEL_MAPPING_THREAD_NUMBER = new AtomicInteger();
 
   protected String logPrefix;
   protected Class<? extends Log> logImpl;
@@ -114,6 +155,10 @@ public class Configuration {
   protected Set<String> lazyLoadTriggerMethods = new HashSet<>(Arrays.asList("equals", "clone", "hashCode", "toString"));
   protected Integer defaultStatementTimeout;
   protected Integer defaultFetchSize;
+  // 每个动态SQL语句最多缓存的解析结果个数，为0时不缓存
+  protected int dynamicSqlCacheSize = 64;
+  // compiled语言驱动的<foreach>中的参数是否直接从集合元素中取值，不再为每个元素绑定__frch_变量
+  protected boolean directForEachParameters;
   protected ResultSetType defaultResultSetType;
   // 默认简单执行器
   protected ExecutorType defaultExecutorType = ExecutorType.SIMPLE;
@@ -165,6 +210,10 @@ public class Configuration {
    */
   protected final TypeAliasRegistry typeAliasRegistry = new TypeAliasRegistry();
   protected final LanguageDriverRegistry languageRegistry = new LanguageDriverRegistry();
+  /**
+   * 结果集映射计划的缓存，在语句的多次执行之间共享
+   */
+  protected final RowMappingPlanCache rowMappingPlanCache = new RowMappingPlanCache();
 
   /**
    * 记录了每个Mapper方法对应的statementId与 {@link MappedStatement}之间的映射关系 <br>
@@ -240,16 +289,22 @@ public class Configuration {
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
 
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
+    typeAliasRegistry.registerAlias("OFFHEAP", OffHeapCache.class);
     typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
     typeAliasRegistry.registerAlias("LRU", LruCache.class);
     typeAliasRegistry.registerAlias("SOFT", SoftCache.class);
     typeAliasRegistry.registerAlias("WEAK", WeakCache.class);
+    typeAliasRegistry.registerAlias("TINYLFU", TinyLfuCache.class);
+
+    typeAliasRegistry.registerAlias("JAVA", JavaCacheSerializer.class);
+    typeAliasRegistry.registerAlias("COMPACT", CompactCacheSerializer.class);
 
     // ******
     typeAliasRegistry.registerAlias("DB_VENDOR", VendorDatabaseIdProvider.class);
 
     typeAliasRegistry.registerAlias("XML", XMLLanguageDriver.class);
     typeAliasRegistry.registerAlias("RAW", RawLanguageDriver.class);
+    typeAliasRegistry.registerAlias("COMPILED", CompiledLanguageDriver.class);
 
     typeAliasRegistry.registerAlias("SLF4J", Slf4jImpl.class);
     typeAliasRegistry.registerAlias("COMMONS_LOGGING", JakartaCommonsLoggingImpl.class);
@@ -263,6 +318,11 @@ public class Configuration {
     typeAliasRegistry.registerAlias("CGLIB", CglibProxyFactory.class);
     typeAliasRegistry.registerAlias("JAVASSIST", JavassistProxyFactory.class);
 
+    typeAliasRegistry.registerAlias("LAMBDA", LambdaRowMapperFactory.class);
+
+    // 按列保存的查询结果，见 ColumnarResult
+    typeAliasRegistry.registerAlias("columnar", ColumnarResult.class);
+
     languageRegistry.setDefaultDriverClass(XMLLanguageDriver.class);
     languageRegistry.register(RawLanguageDriver.class);
   }
@@ -321,6 +381,150 @@ public class Configuration {
     this.returnInstanceForEmptyRow = returnEmptyInstance;
   }
 
+  /**
+   * @since 3.5.3
+   */
+  public boolean isSkipUnusedCacheKey() {
+    return skipUnusedCacheKey;
+  }
+
+  /**
+   * Sets whether to skip building the {@link org.apache.ibatis.cache.CacheKey} of a query that neither the local cache
+   * nor the second level cache will use. It only takes effect when {@code localCacheScope} is {@code STATEMENT} and no
+   * interceptors are registered.
+   *
+   * @param skipUnusedCacheKey
+   * @since 3.5.3
+   */
+  public void setSkipUnusedCacheKey(boolean skipUnusedCacheKey) {
+    this.skipUnusedCacheKey = skipUnusedCacheKey;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public boolean isUseColumnIndexForResults() {
+    return useColumnIndexForResults;
+  }
+
+  /**
+   * Sets whether property mappings and auto-mappings read their column by index ({@code getXxx(int)}) instead of by
+   * label. The indexes are resolved once per result set layout, so drivers do not have to look up the label for every
+   * row. Disabled by default; only enable it when every {@link org.apache.ibatis.type.TypeHandler} used for results
+   * implements the index based method.
+   *
+   * @param useColumnIndexForResults
+   * @since 3.5.3
+   */
+  public void setUseColumnIndexForResults(boolean useColumnIndexForResults) {
+    this.useColumnIndexForResults = useColumnIndexForResults;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public RowMapperFactory getRowMapperFactory() {
+    return rowMapperFactory;
+  }
+
+  /**
+   * Sets the factory that generates a specialized {@link RowMapper} per result map and column layout. Result maps
+   * with discriminators, nested result maps, nested queries or constructor mappings keep using the reflective mapping.
+   * The generated mappers read columns by index, so they are only used when {@code useColumnIndexForResults} is enabled.
+   *
+   * @param rowMapperFactory the factory, or {@code null} to disable generated row mappers
+   * @since 3.5.3
+   */
+  public void setRowMapperFactory(RowMapperFactory rowMapperFactory) {
+    this.rowMapperFactory = rowMapperFactory;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public boolean isUseMethodHandleInvokers() {
+    return useMethodHandleInvokers;
+  }
+
+  /**
+   * Sets whether the {@link DefaultReflectorFactory} accesses properties through invokers generated with
+   * {@code LambdaMetafactory} and {@code MethodHandle} instead of core reflection. Members that cannot be reached that
+   * way (non-public methods, final fields) always use reflection. Disabled by default.
+   *
+   * @param useMethodHandleInvokers
+   * @since 3.5.3
+   */
+  public void setUseMethodHandleInvokers(boolean useMethodHandleInvokers) {
+    this.useMethodHandleInvokers = useMethodHandleInvokers;
+    applyUseMethodHandleInvokers();
+  }
+
+  /**
+   * Returns the executor that maps rows of statements with {@code parallelMapping} enabled. Unless one was set, a
+   * dedicated pool of {@link #getParallelMappingThreads()} daemon threads is created on first use; idle threads of that
+   * pool time out after a minute.
+   *
+   * @since 3.5.3
+   */
+  public ExecutorService getParallelMappingExecutor() {
+    if (parallelMappingExecutor != null) {
+      return parallelMappingExecutor;
+    }
+    synchronized (this) {
+      if (defaultParallelMappingExecutor == null) {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(parallelMappingThreads, parallelMappingThreads,
+          60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "mybatis-parallel-mapping-" + PARALLEL_MAPPING_THREAD_NUMBER.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+        executor.allowCoreThreadTimeOut(true);
+        defaultParallelMappingExecutor = executor;
+      }
+      return defaultParallelMappingExecutor;
+    }
+  }
+
+  /**
+   * Sets the executor that maps rows of statements with {@code parallelMapping} enabled. Mapping runs on the executor's
+   * threads, so thread-local state of the calling thread is not visible to type handlers and object factories unless
+   * the executor propagates it. The executor is not shut down by MyBatis.
+   *
+   * @param parallelMappingExecutor the executor, or {@code null} to use the dedicated default pool
+   * @since 3.5.3
+   */
+  public void setParallelMappingExecutor(ExecutorService parallelMappingExecutor) {
+    this.parallelMappingExecutor = parallelMappingExecutor;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public int getParallelMappingThreads() {
+    return parallelMappingThreads;
+  }
+
+  /**
+   * Sets the number of threads of the default parallel mapping pool. It also bounds the number of row batches that are
+   * read ahead and mapped concurrently (twice this value), including when a custom executor is set. Must be set before
+   * the first parallel mapping.
+   *
+   * @param parallelMappingThreads
+   * @since 3.5.3
+   */
+  public void setParallelMappingThreads(int parallelMappingThreads) {
+    if (parallelMappingThreads < 1) {
+      throw new IllegalArgumentException("parallelMappingThreads must be at least 1, but was " + parallelMappingThreads);
+    }
+    this.parallelMappingThreads = parallelMappingThreads;
+  }
+
+  private void applyUseMethodHandleInvokers() {
+    if (reflectorFactory instanceof DefaultReflectorFactory) {
+      ((DefaultReflectorFactory) reflectorFactory).setUseMethodHandleInvokers(useMethodHandleInvokers);
+    }
+  }
+
   public String getDatabaseId() {
     return databaseId;
   }
@@ -488,6 +692,34 @@ public class Configuration {
     this.defaultFetchSize = defaultFetchSize;
   }
 
+  /**
+   * @since 3.5.3
+   */
+  public int getDynamicSqlCacheSize() {
+    return dynamicSqlCacheSize;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public void setDynamicSqlCacheSize(int dynamicSqlCacheSize) {
+    this.dynamicSqlCacheSize = dynamicSqlCacheSize;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public boolean isDirectForEachParameters() {
+    return directForEachParameters;
+  }
+
+  /**
+   * @since 3.5.3
+   */
+  public void setDirectForEachParameters(boolean directForEachParameters) {
+    this.directForEachParameters = directForEachParameters;
+  }
+
   /**
    * @since 3.5.2
    */
@@ -538,6 +770,13 @@ public class Configuration {
     return typeHandlerRegistry;
   }
 
+  /**
+   * @since 3.5.3
+   */
+  public RowMappingPlanCache getRowMappingPlanCache() {
+    return rowMappingPlanCache;
+  }
+
   /**
    * Set a default {@link TypeHandler} class for {@link Enum}.
    * A default {@link TypeHandler} is {@link org.apache.ibatis.type.EnumTypeHandler}.
@@ -568,6 +807,9 @@ public class Configuration {
 
   public void setReflectorFactory(ReflectorFactory reflectorFactory) {
     this.reflectorFactory = reflectorFactory;
+    if (useMethodHandleInvokers) {
+      applyUseMethodHandleInvokers();
+    }
   }
 
   public ObjectFactory getObjectFactory() {
@@ -16,15 +16,21 @@
 package org.apache.ibatis.session.defaults;
 
 import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.cache.CacheKey;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.exceptions.TooManyResultsException;
 import org.apache.ibatis.executor.BatchResult;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorException;
 import org.apache.ibatis.executor.result.DefaultMapResultHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Signature;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -162,6 +168,9 @@ public class DefaultSqlSession implements SqlSession {
   public <E> List<E> selectList(String statement, Object parameter, RowBounds rowBounds) {
     try {
       MappedStatement ms = configuration.getMappedStatement(statement);
+      if (ms.isChunked()) {
+        return selectChunks(ms, wrapCollection(parameter), rowBounds, Executor.NO_RESULT_HANDLER);
+      }
       return executor.query(ms, wrapCollection(parameter), rowBounds, Executor.NO_RESULT_HANDLER);
     } catch (Exception e) {
       throw ExceptionFactory.wrapException("Error querying database.  Cause: " + e, e);
@@ -184,6 +193,10 @@ public class DefaultSqlSession implements SqlSession {
   public void select(String statement, Object parameter, RowBounds rowBounds, ResultHandler handler) {
     try {
       MappedStatement ms = configuration.getMappedStatement(statement);
+      if (ms.isChunked()) {
+        selectChunks(ms, wrapCollection(parameter), rowBounds, handler);
+        return;
+      }
       executor.query(ms, wrapCollection(parameter), rowBounds, handler);
     } catch (Exception e) {
       throw ExceptionFactory.wrapException("Error querying database.  Cause: " + e, e);
@@ -192,6 +205,73 @@ public class DefaultSqlSession implements SqlSession {
     }
   }
 
+  /**
+   * 语句中的&lt;foreach>指定了 chunkSize 时，集合元素超过 chunkSize 个则分成多批执行，合并各批的结果。
+   * 分成多批时 rowBounds 在合并之后的结果上生效。
+   * 每批都通过被插件代理的 {@link Executor#query(MappedStatement, Object, RowBounds, ResultHandler, CacheKey, BoundSql)} 执行，
+   * 拦截该方法以及 StatementHandler 等对象的插件能看到每一批SQL语句；
+   * 只拦截 {@link Executor#query(MappedStatement, Object, RowBounds, ResultHandler)} 的插件看不到分批后的语句，
+   * 需要分成多批时直接抛出异常，而不是把超过 chunkSize 的集合一次性交给数据库
+   */
+  private <E> List<E> selectChunks(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler handler) throws SQLException {
+    BoundSql boundSql = ms.getBoundSql(parameter, 0);
+    int chunkCount = boundSql.getChunkCount();
+    boolean queryIntercepted = isQueryIntercepted();
+    if (chunkCount == 1) {
+      if (queryIntercepted) {
+        // 让插件拦截到这次查询，SQL语句会在 Executor 中重新生成
+        return executor.query(ms, parameter, rowBounds, handler);
+      }
+      return executor.query(ms, parameter, rowBounds, handler, executor.createCacheKey(ms, parameter, rowBounds, boundSql), boundSql);
+    }
+    if (queryIntercepted) {
+      throw new ExecutorException("The statement '" + ms.getId() + "' has to be executed in " + chunkCount
+        + " chunks, but a registered plugin intercepts Executor.query(MappedStatement, Object, RowBounds, ResultHandler),"
+        + " which cannot see the chunks. Intercept the query method that also takes a CacheKey and a BoundSql instead.");
+    }
+    if (handler != Executor.NO_RESULT_HANDLER && rowBounds != RowBounds.DEFAULT) {
+      throw new ExecutorException("RowBounds cannot be used with a ResultHandler when the statement '" + ms.getId()
+        + "' is executed in " + chunkCount + " chunks.");
+    }
+    List<E> results = new ArrayList<>();
+    for (int chunk = 0; chunk < chunkCount; chunk++) {
+      if (chunk > 0) {
+        boundSql = ms.getBoundSql(parameter, chunk);
+      }
+      List<E> list = executor.query(ms, parameter, RowBounds.DEFAULT, handler,
+        executor.createCacheKey(ms, parameter, RowBounds.DEFAULT, boundSql), boundSql);
+      if (list != null) {
+        results.addAll(list);
+      }
+    }
+    if (rowBounds == RowBounds.DEFAULT) {
+      return results;
+    }
+    int from = Math.min(rowBounds.getOffset(), results.size());
+    int to = (int) Math.min((long) from + rowBounds.getLimit(), results.size());
+    return new ArrayList<>(results.subList(from, to));
+  }
+
+  /**
+   * @return 是否有插件拦截 {@link Executor#query(MappedStatement, Object, RowBounds, ResultHandler)}，
+   * 没有 {@link Intercepts} 注解的插件无法得知拦截的方法，也当作拦截了该方法
+   */
+  private boolean isQueryIntercepted() {
+    for (Interceptor interceptor : configuration.getInterceptors()) {
+      Intercepts intercepts = interceptor.getClass().getAnnotation(Intercepts.class);
+      if (intercepts == null) {
+        return true;
+      }
+      for (Signature signature : intercepts.value()) {
+        if (Executor.class.isAssignableFrom(signature.type()) && "query".equals(signature.method())
+          && signature.args().length == 4) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   /**
    * 本质调用 {@link DefaultSqlSession#update(String, Object)}方法
    *
@@ -376,6 +376,155 @@ class DynamicSqlSourceTest extends BaseDataTest {
     assertEquals("__frch_u_0", boundSql.getParameterMappings().get(3).getProperty());
   }
 
+  @Test
+  void shouldReuseParsedSqlForSameShape() {
+    Configuration configuration = new Configuration();
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG"),
+        new WhereSqlNode(configuration, mixedContents(
+            new IfSqlNode(mixedContents(new TextSqlNode("AND ID = #{id}")), "id != null"),
+            new IfSqlNode(mixedContents(new TextSqlNode(" AND NAME = #{name}")), "name != null")))));
+    Map<String, Object> param = new HashMap<>();
+    param.put("id", 1);
+    param.put("name", null);
+    BoundSql first = source.getBoundSql(param);
+    param.put("id", 2);
+    BoundSql second = source.getBoundSql(param);
+    assertEquals("SELECT * FROM BLOG WHERE  ID = ?", second.getSql());
+    Assertions.assertSame(first.getParameterMappings(), second.getParameterMappings());
+    assertEquals(1, source.getCacheHitCount());
+    assertEquals(1, source.getCacheMissCount());
+
+    param.put("name", "Jim");
+    BoundSql third = source.getBoundSql(param);
+    assertEquals("SELECT * FROM BLOG WHERE  ID = ? AND NAME = ?", third.getSql());
+    assertEquals(2, third.getParameterMappings().size());
+    assertEquals(2, source.getCacheMissCount());
+    assertEquals(2, source.getCacheSize());
+  }
+
+  @Test
+  void shouldNotReuseParsedSqlWhenBindingTypeChanges() {
+    Configuration configuration = new Configuration();
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID IN"),
+        new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{item}")), "list", "index", "item", "(", ")", ",")));
+    Map<String, Object> param = new HashMap<>();
+    param.put("list", Arrays.asList(1, 2));
+    BoundSql integers = source.getBoundSql(param);
+    param.put("list", Arrays.asList("1", "2"));
+    BoundSql strings = source.getBoundSql(param);
+    assertEquals(integers.getSql(), strings.getSql());
+    assertEquals(Integer.class, integers.getParameterMappings().get(0).getJavaType());
+    assertEquals(String.class, strings.getParameterMappings().get(0).getJavaType());
+    assertEquals(0, source.getCacheHitCount());
+    assertEquals(2, source.getCacheMissCount());
+
+    BoundSql stringsAgain = source.getBoundSql(param);
+    Assertions.assertSame(strings.getParameterMappings(), stringsAgain.getParameterMappings());
+    assertEquals("1", stringsAgain.getAdditionalParameter("__frch_item_0"));
+    assertEquals(1, source.getCacheHitCount());
+  }
+
+  @Test
+  void shouldLimitParsedSqlCache() {
+    Configuration configuration = new Configuration();
+    configuration.setDynamicSqlCacheSize(2);
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(new TextSqlNode("SELECT * FROM BLOG WHERE ID = ${id} AND NAME = #{name}")));
+    for (int id = 0; id < 5; id++) {
+      Map<String, Object> param = new HashMap<>();
+      param.put("id", id);
+      param.put("name", "Jim");
+      assertEquals("SELECT * FROM BLOG WHERE ID = " + id + " AND NAME = ?", source.getBoundSql(param).getSql());
+    }
+    assertEquals(2, source.getCacheSize());
+    assertEquals(5, source.getCacheMissCount());
+    assertEquals(0, source.getCacheHitCount());
+
+    // 淘汰最久没有被使用的SQL语句，一直被使用的SQL语句不会被淘汰
+    configuration.setDynamicSqlCacheSize(3);
+    Map<String, Object> param = new HashMap<>();
+    param.put("name", "Jim");
+    for (int id = 5; id < 10; id++) {
+      param.put("id", 4);
+      source.getBoundSql(param);
+      param.put("id", id);
+      source.getBoundSql(param);
+    }
+    assertEquals(5, source.getCacheHitCount());
+    assertEquals(10, source.getCacheMissCount());
+    assertEquals(3, source.getCacheSize());
+    param.put("id", 4);
+    source.getBoundSql(param);
+    assertEquals(6, source.getCacheHitCount());
+    param.put("id", 5);
+    source.getBoundSql(param);
+    assertEquals(11, source.getCacheMissCount());
+
+    configuration.setDynamicSqlCacheSize(0);
+    param.put("id", 4);
+    source.getBoundSql(param);
+    assertEquals(6, source.getCacheHitCount());
+  }
+
+  @Test
+  void shouldPadForEachToBucketSize() {
+    Configuration configuration = new Configuration();
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID IN"),
+        new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{item}")), "list", "index", "item", "(", ")", ",",
+            true, 0)));
+    Map<String, Object> param = new HashMap<>();
+    param.put("list", Arrays.asList(1, 2, 3));
+    BoundSql three = source.getBoundSql(param);
+    assertEquals(8, three.getParameterMappings().size());
+    assertEquals(3, three.getAdditionalParameter("__frch_item_7"));
+    assertEquals(7, three.getAdditionalParameter("__frch_index_7"));
+    param.put("list", Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9));
+    assertEquals(16, source.getBoundSql(param).getParameterMappings().size());
+    param.put("list", Arrays.asList(5, 6));
+    assertEquals(three.getSql(), source.getBoundSql(param).getSql());
+    assertEquals(2, source.getCacheSize());
+    assertEquals(1, three.getChunkCount());
+  }
+
+  @Test
+  void shouldSplitForEachIntoChunks() {
+    Configuration configuration = new Configuration();
+    DynamicSqlSource source = new DynamicSqlSource(configuration, mixedContents(
+        new TextSqlNode("SELECT * FROM BLOG WHERE ID IN"),
+        new ForEachSqlNode(configuration, mixedContents(new TextSqlNode("#{item}")), "list", "index", "item", "(", ")", ",",
+            true, 10)), true, true);
+    List<Integer> ids = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      ids.add(i);
+    }
+    Map<String, Object> param = new HashMap<>();
+    param.put("list", ids);
+    Assertions.assertTrue(source.isChunked());
+
+    BoundSql first = source.getBoundSql(param, 0);
+    assertEquals(3, first.getChunkCount());
+    assertEquals(10, first.getParameterMappings().size());
+    assertEquals(9, first.getAdditionalParameter("__frch_item_9"));
+
+    BoundSql last = source.getBoundSql(param, 2);
+    assertEquals(3, last.getChunkCount());
+    assertEquals(8, last.getParameterMappings().size());
+    assertEquals(20, last.getAdditionalParameter("__frch_item_0"));
+    assertEquals(20, last.getAdditionalParameter("__frch_index_0"));
+    assertEquals(24, last.getAdditionalParameter("__frch_item_7"));
+
+    BoundSql all = source.getBoundSql(param);
+    assertEquals(32, all.getParameterMappings().size());
+    assertEquals(3, all.getChunkCount());
+
+    param.put("list", ids.subList(0, 10));
+    BoundSql single = source.getBoundSql(param, 0);
+    assertEquals(1, single.getChunkCount());
+    assertEquals(10, single.getParameterMappings().size());
+  }
+
   private DynamicSqlSource createDynamicSqlSource(SqlNode... contents) throws IOException, SQLException {
     createBlogDataSource();
     final String resource = "org/apache/ibatis/builder/MapperConfig.xml";
@@ -0,0 +1,132 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class BlockingCacheTest {
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  @AfterEach
+  void shutdown() {
+    executor.shutdownNow();
+  }
+
+  @Test
+  void shouldShareInFlightLoadBetweenConcurrentMisses() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+    List<Future<Object>> waiters = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      waiters.add(executor.submit(() -> cache.getObject("key")));
+    }
+    awaitWaitCount(cache, 3);
+    assertEquals(1, cache.getInFlightCount());
+
+    cache.putObject("key", "value");
+    for (Future<Object> waiter : waiters) {
+      assertEquals("value", waiter.get(5, TimeUnit.SECONDS));
+    }
+    assertEquals(3, cache.getCoalescedCount());
+    assertEquals(0, cache.getInFlightCount());
+  }
+
+  @Test
+  void shouldHandOverLoadWhenLoaderRollsBack() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+    Future<Object> waiter = executor.submit(() -> {
+      Object value = cache.getObject("key");
+      // 接手加载之后放入结果
+      cache.putObject("key", "loaded by waiter");
+      return value;
+    });
+    awaitWaitCount(cache, 1);
+
+    cache.removeObject("key");
+    assertNull(waiter.get(5, TimeUnit.SECONDS));
+    assertEquals("loaded by waiter", cache.getObject("key"));
+    assertEquals(0, cache.getCoalescedCount());
+    assertEquals(0, cache.getInFlightCount());
+  }
+
+  @Test
+  void shouldOnlyReleaseLoadOwnedByCurrentThread() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    assertNull(cache.getObject("key"));
+    executor.submit(() -> cache.removeObject("key")).get(5, TimeUnit.SECONDS);
+    assertEquals(1, cache.getInFlightCount());
+    // 同一个线程再次查询不会阻塞
+    assertNull(cache.getObject("key"));
+    cache.removeObject("key");
+    assertEquals(0, cache.getInFlightCount());
+  }
+
+  @Test
+  void shouldCountTimeouts() throws Exception {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    cache.setTimeout(50);
+    assertNull(cache.getObject("key"));
+    Future<Object> waiter = executor.submit(() -> cache.getObject("key"));
+    try {
+      waiter.get(5, TimeUnit.SECONDS);
+      fail("Should have timed out");
+    } catch (java.util.concurrent.ExecutionException e) {
+      assertTrue(e.getCause() instanceof CacheException);
+    }
+    assertEquals(1, cache.getTimeoutCount());
+    assertEquals(1, cache.getWaitCount());
+    assertTrue(cache.getAccumulatedWaitTime() >= 50);
+    cache.removeObject("key");
+  }
+
+  @Test
+  void shouldReclaimReleasedEntries() {
+    BlockingCache cache = new BlockingCache(new PerpetualCache("default"));
+    for (int i = 0; i < 1000; i++) {
+      assertNull(cache.getObject(i));
+      if (i % 2 == 0) {
+        cache.putObject(i, i);
+      } else {
+        cache.removeObject(i);
+      }
+    }
+    assertEquals(0, cache.getInFlightCount());
+    assertEquals(500, cache.getSize());
+  }
+
+  private static void awaitWaitCount(BlockingCache cache, int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (cache.getWaitCount() < count && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(count, cache.getWaitCount());
+  }
+
+}
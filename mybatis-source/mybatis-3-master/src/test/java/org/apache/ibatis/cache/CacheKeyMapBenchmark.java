@@ -0,0 +1,122 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.impl.CacheKeyMap;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares lookups of query-shaped {@link CacheKey}s (statement id, row bounds, sql and a long IN-list of
+ * parameters) in the {@link HashMap} that used to back {@link org.apache.ibatis.cache.impl.PerpetualCache}
+ * and in {@link CacheKeyMap}.
+ * <p>
+ * Run with {@code main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CacheKeyMapBenchmark {
+
+  @Param({"HashMap", "CacheKeyMap"})
+  private String map;
+
+  @Param({"1000"})
+  private int entries;
+
+  @Param({"1", "500"})
+  private int inListSize;
+
+  private Map<Object, Object> cache;
+  private List<CacheKey> hits;
+  private List<CacheKey> misses;
+
+  @Setup
+  public void setup() {
+    cache = "HashMap".equals(map) ? new HashMap<>() : new CacheKeyMap();
+    hits = new ArrayList<>();
+    misses = new ArrayList<>();
+    for (int i = 0; i < entries; i++) {
+      cache.put(createKey(i), i);
+      // lookups always use a freshly built key, as BaseExecutor does
+      hits.add(createKey(i));
+      misses.add(createKey(entries + i));
+    }
+  }
+
+  private CacheKey createKey(int id) {
+    CacheKey key = new CacheKey();
+    key.update("org.apache.ibatis.domain.blog.mappers.BlogMapper.selectBlogsByIds");
+    key.update(0);
+    key.update(Integer.MAX_VALUE);
+    key.update("select * from blog where author_id = ? and id in (...)");
+    key.update(id);
+    for (int i = 0; i < inListSize; i++) {
+      key.update(i);
+    }
+    key.update("development");
+    return key;
+  }
+
+  @Benchmark
+  public void hit(Blackhole blackhole) {
+    for (CacheKey key : hits) {
+      blackhole.consume(cache.get(key));
+    }
+  }
+
+  @Benchmark
+  public void miss(Blackhole blackhole) {
+    for (CacheKey key : misses) {
+      blackhole.consume(cache.get(key));
+    }
+  }
+
+  @Benchmark
+  public void putAndClear() {
+    for (CacheKey key : hits) {
+      cache.put(key, key);
+    }
+    cache.clear();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(CacheKeyMapBenchmark.class.getSimpleName()).build()).run();
+  }
+
+}
@@ -0,0 +1,108 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.ibatis.cache.impl.CacheKeyMap;
+import org.junit.jupiter.api.Test;
+
+class CacheKeyMapTest {
+
+  @Test
+  void shouldFindEqualCacheKeys() {
+    CacheKeyMap map = new CacheKeyMap();
+    for (int i = 0; i < 1000; i++) {
+      map.put(new CacheKey(new Object[]{"select", i, "in-list", new int[]{i, i + 1}}), i);
+    }
+    assertEquals(1000, map.size());
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i, map.get(new CacheKey(new Object[]{"select", i, "in-list", new int[]{i, i + 1}})));
+    }
+    assertNull(map.get(new CacheKey(new Object[]{"select", 1000, "in-list", new int[]{1000, 1001}})));
+  }
+
+  @Test
+  void shouldSeparateKeysWithSameFingerprint() {
+    CacheKeyMap map = new CacheKeyMap();
+    CacheKey key1 = new CacheKey(new Object[]{new ConstantHash("a")});
+    CacheKey key2 = new CacheKey(new Object[]{new ConstantHash("b")});
+    assertEquals(key1.getFingerprint(), key2.getFingerprint());
+    map.put(key1, "a");
+    map.put(key2, "b");
+    assertEquals("a", map.get(new CacheKey(new Object[]{new ConstantHash("a")})));
+    assertEquals("b", map.get(new CacheKey(new Object[]{new ConstantHash("b")})));
+    assertEquals("a", map.remove(key1));
+    assertNull(map.get(key1));
+    assertEquals("b", map.get(key2));
+  }
+
+  @Test
+  void shouldBehaveLikeHashMapUnderRandomOperations() {
+    Random random = new Random(42);
+    CacheKeyMap map = new CacheKeyMap();
+    Map<Object, Object> expected = new HashMap<>();
+    for (int i = 0; i < 100000; i++) {
+      int id = random.nextInt(500);
+      Object key = id % 10 == 0 ? "key" + id : new CacheKey(new Object[]{id});
+      int op = random.nextInt(10);
+      if (op < 5) {
+        assertEquals(expected.put(key, i), map.put(key, i));
+      } else if (op < 8) {
+        assertEquals(expected.remove(key), map.remove(key));
+      } else if (op < 9) {
+        assertEquals(expected.get(key), map.get(key));
+      } else if (random.nextInt(100) == 0) {
+        expected.clear();
+        map.clear();
+      }
+      assertEquals(expected.size(), map.size());
+    }
+    assertEquals(expected, new HashMap<>(map));
+  }
+
+  @Test
+  void shouldKeepNullValues() {
+    CacheKeyMap map = new CacheKeyMap();
+    CacheKey key = new CacheKey(new Object[]{1});
+    map.put(key, null);
+    assertTrue(map.containsKey(key));
+    assertNull(map.get(key));
+  }
+
+  private static class ConstantHash {
+    private final String value;
+
+    ConstantHash(String value) {
+      this.value = value;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      return obj instanceof ConstantHash && ((ConstantHash) obj).value.equals(value);
+    }
+
+    @Override
+    public int hashCode() {
+      return 1;
+    }
+  }
+
+}
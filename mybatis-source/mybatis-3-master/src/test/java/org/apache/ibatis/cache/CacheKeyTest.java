@@ -103,6 +103,45 @@ class CacheKeyTest {
     Assertions.assertEquals(cacheKey, serialize(cacheKey));
   }
 
+  @Test
+  void shouldKeepFingerprintAcrossSerialization() throws Exception {
+    CacheKey cacheKey = new CacheKey(new Object[]{1, "hello", null});
+    CacheKey copy = serialize(cacheKey);
+    assertEquals(cacheKey.getFingerprint(), copy.getFingerprint());
+    assertNotEquals(new CacheKey(new Object[]{"hello", 1, null}).getFingerprint(), cacheKey.getFingerprint());
+  }
+
+  @Test
+  void shouldCopyComponentsOnlyWhenClonedKeyIsUpdated() throws Exception {
+    CacheKey key = new CacheKey(new Object[]{1, "hello"});
+    CacheKey clone = key.clone();
+    assertEquals(key, clone);
+    clone.update("world");
+    key.update("there");
+    assertEquals(new CacheKey(new Object[]{1, "hello", "world"}), clone);
+    assertEquals(new CacheKey(new Object[]{1, "hello", "there"}), key);
+    assertEquals("there", key.toString().substring(key.toString().lastIndexOf(':') + 1));
+  }
+
+  @Test
+  void shouldGrowBeyondInitialCapacity() throws Exception {
+    CacheKey key1 = new CacheKey();
+    CacheKey key2 = new CacheKey();
+    for (int i = 0; i < 100; i++) {
+      key1.update(i);
+      key2.update(i);
+    }
+    assertEquals(100, key1.getUpdateCount());
+    assertEquals(key1, key2);
+    key2.update(100);
+    assertNotEquals(key1, key2);
+    CacheKey copy = serialize(key2);
+    assertEquals(key2, copy);
+    assertEquals(101, copy.getUpdateCount());
+    copy.update(101);
+    assertNotEquals(key2, copy);
+  }
+
   private static <T> T serialize(T object) throws Exception {
     ByteArrayOutputStream baos = new ByteArrayOutputStream();
     new ObjectOutputStream(baos).writeObject(object);
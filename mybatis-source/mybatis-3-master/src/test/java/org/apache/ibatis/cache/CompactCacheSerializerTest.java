@@ -0,0 +1,181 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CompactCacheSerializer;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.junit.jupiter.api.Test;
+
+class CompactCacheSerializerTest {
+
+  private final CompactCacheSerializer serializer = new CompactCacheSerializer();
+
+  @Test
+  void shouldCopyListOfBeans() {
+    List<Author> authors = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      authors.add(new Author(i, "user" + i, "******", "user" + i + "@mybatis.org", "Bio é中 " + i, Section.values()[i % Section.values().length]));
+    }
+    Object copy = copy(authors);
+    assertEquals(authors, copy);
+    assertNotSame(authors.get(0), ((List<?>) copy).get(0));
+  }
+
+  @Test
+  void shouldCopyValueTypes() {
+    Timestamp timestamp = new Timestamp(1234567890123L);
+    timestamp.setNanos(123456789);
+    List<Object> values = Arrays.asList(null, true, false, (byte) -1, (short) -300, Integer.MIN_VALUE, Long.MAX_VALUE,
+      -1.5f, Math.PI, 'x', "", "text", new BigDecimal("-12345678901234567890.123"), BigInteger.TEN.pow(30),
+      new Date(42L), new java.sql.Date(43L), new java.sql.Time(44L), timestamp, Section.NEWS, LocalDate.of(2019, 9, 1));
+    for (Object value : values) {
+      assertEquals(value, copy(value));
+    }
+    assertArrayEquals(new byte[]{1, 2, 3}, (byte[]) copy(new byte[]{1, 2, 3}));
+    Map<String, Object> map = new HashMap<>();
+    map.put("ids", new LinkedHashSet<>(Arrays.asList(3, 1, 2)));
+    map.put("empty", Collections.emptyList());
+    assertEquals(map, copy(map));
+  }
+
+  @Test
+  void shouldCopyBeansThatAreNotSerializable() {
+    Node node = new Node();
+    node.name = "root";
+    node.weight = 7L;
+    node.ratio = 0.5;
+    Node copy = (Node) copy(node);
+    assertEquals("root", copy.name);
+    assertEquals(7L, copy.weight);
+    assertEquals(0.5, copy.ratio);
+  }
+
+  @Test
+  void shouldPreserveSharedAndCyclicReferences() {
+    Node parent = new Node();
+    parent.name = "parent";
+    Node child = new Node();
+    child.name = "child";
+    child.parent = parent;
+    parent.children = new ArrayList<>(Arrays.asList(child, child));
+    parent.parent = parent;
+
+    Node copy = (Node) copy(parent);
+    assertSame(copy, copy.parent);
+    assertSame(copy.children.get(0), copy.children.get(1));
+    assertSame(copy, copy.children.get(0).parent);
+    assertEquals("child", copy.children.get(0).name);
+  }
+
+  @Test
+  void shouldRejectNonSerializableObjectsThatAreNotBeans() {
+    assertThrows(CacheException.class, () -> serializer.serialize(new Object()));
+  }
+
+  @Test
+  void shouldFallBackToJavaSerializationForReadOnlyProperties() {
+    Tally tally = new Tally();
+    tally.increment();
+    tally.increment();
+    Tally copy = (Tally) copy(tally);
+    assertEquals(2, copy.getCount());
+    assertEquals("tally-2", copy.getLabel());
+    assertThrows(CacheException.class, () -> serializer.serialize(new Label()));
+  }
+
+  @Test
+  void shouldBeUsedBySerializedCache() {
+    SerializedCache cache = new SerializedCache(new PerpetualCache("default"), serializer);
+    Node node = new Node();
+    node.name = "cached";
+    cache.putObject("key", node);
+    Node copy = (Node) cache.getObject("key");
+    assertNotSame(node, copy);
+    assertEquals("cached", copy.name);
+    assertSame(serializer, cache.getSerializer());
+  }
+
+  private Object copy(Object value) {
+    return serializer.deserialize(serializer.serialize(value));
+  }
+
+  public static class Node {
+    private String name;
+    private long weight;
+    private double ratio;
+    private Node parent;
+    private List<Node> children;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public long getWeight() {
+      return weight;
+    }
+
+    public void setWeight(long weight) {
+      this.weight = weight;
+    }
+  }
+
+  public static class Tally implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private int count;
+
+    public int getCount() {
+      return count;
+    }
+
+    public void increment() {
+      count++;
+    }
+
+    public String getLabel() {
+      return "tally-" + count;
+    }
+  }
+
+  public static class Label {
+    public String getText() {
+      return "label";
+    }
+  }
+
+}
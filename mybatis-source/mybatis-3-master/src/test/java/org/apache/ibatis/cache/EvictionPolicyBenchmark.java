@@ -0,0 +1,138 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares the eviction policies of the second level cache on a skewed (Zipfian) key distribution,
+ * using caches built by {@link CacheBuilder} the same way {@code <cache eviction="..."/>} builds them.
+ * The {@code hits} and {@code misses} secondary results give the hit ratio of each policy,
+ * the primary result gives the throughput of a get followed by a put on a miss, optionally paying a simulated
+ * load cost on every miss.
+ * <p>
+ * Run with {@code main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvictionPolicyBenchmark {
+
+  private static final int TRACE_LENGTH = 1 << 20;
+
+  @Param({"LRU", "FIFO", "SOFT", "TINYLFU"})
+  private String eviction;
+
+  @Param({"1000"})
+  private int size;
+
+  @Param({"100000"})
+  private int keySpace;
+
+  /**
+   * Simulated cost (in JMH cpu tokens) of loading a missed value from the database.
+   */
+  @Param({"0", "5000"})
+  private long missPenalty;
+
+  private Cache cache;
+  private Integer[] trace;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    Class<? extends Cache> evictionClass = new Configuration().getTypeAliasRegistry().resolveAlias(eviction);
+    cache = new CacheBuilder(EvictionPolicyBenchmark.class.getName())
+      .addDecorator(evictionClass)
+      .size(size)
+      .readWrite(false)
+      .build();
+    trace = zipf(keySpace, 0.99d, new Random(42));
+  }
+
+  /**
+   * Generates a trace of keys where the key of rank k is requested with a probability proportional to 1/k^s.
+   */
+  private static Integer[] zipf(int keySpace, double s, Random random) {
+    double[] cumulative = new double[keySpace];
+    double sum = 0;
+    for (int k = 0; k < keySpace; k++) {
+      sum += 1 / Math.pow(k + 1, s);
+      cumulative[k] = sum;
+    }
+    Integer[] keys = new Integer[TRACE_LENGTH];
+    for (int i = 0; i < TRACE_LENGTH; i++) {
+      int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+      keys[i] = rank < 0 ? -rank - 1 : rank;
+    }
+    return keys;
+  }
+
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Counters {
+    public long hits;
+    public long misses;
+    int index = ThreadLocalRandom.current().nextInt(TRACE_LENGTH);
+  }
+
+  @Benchmark
+  @Threads(4)
+  public Object getOrLoad(Counters counters) {
+    Integer key = trace[counters.index++ & (TRACE_LENGTH - 1)];
+    Object value = cache.getObject(key);
+    if (value == null) {
+      counters.misses++;
+      Blackhole.consumeCPU(missPenalty);
+      value = key;
+      cache.putObject(key, value);
+    } else {
+      counters.hits++;
+    }
+    return value;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(EvictionPolicyBenchmark.class.getSimpleName()).build()).run();
+  }
+
+}
@@ -0,0 +1,169 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.ibatis.cache.decorators.ConcurrentLoggingCache;
+import org.apache.ibatis.cache.impl.OffHeapCache;
+import org.apache.ibatis.cache.serializer.CompactCacheSerializer;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.jupiter.api.Test;
+
+class OffHeapCacheTest {
+
+  @Test
+  void shouldReturnCopiesOfCachedObjects() {
+    OffHeapCache cache = new OffHeapCache("default");
+    Author author = new Author(1, "user", "******", "user@mybatis.org", "bio", Section.NEWS);
+    cache.putObject(1, author);
+    Object copy = cache.getObject(1);
+    assertEquals(author, copy);
+    assertNotSame(author, copy);
+    assertNotSame(copy, cache.getObject(1));
+    assertEquals(1, cache.getSize());
+    assertTrue(cache.getUsedBytes() > 0);
+    assertEquals(cache.getSlabSize(), cache.getAllocatedBytes());
+  }
+
+  @Test
+  void shouldEvictOldestSlabWhenCapacityIsReached() {
+    OffHeapCache cache = newCache(4096, 1024);
+    for (int i = 0; i < 1000; i++) {
+      cache.putObject(i, "value " + i);
+      assertEquals("value " + i, cache.getObject(i));
+    }
+    assertTrue(cache.getSize() < 1000);
+    assertTrue(cache.getEvictionCount() > 0);
+    assertEquals(1000, cache.getSize() + cache.getEvictionCount());
+    assertTrue(cache.getUsedBytes() <= cache.getCapacity());
+    assertEquals(4096, cache.getAllocatedBytes());
+    assertNull(cache.getObject(0));
+    assertEquals("value 999", cache.getObject(999));
+  }
+
+  @Test
+  void shouldNotEvictEntriesThatWereRewrittenToAnotherSlab() {
+    OffHeapCache cache = newCache(2048, 1024);
+    cache.putObject("hot", "first");
+    for (int i = 0; i < 200; i++) {
+      cache.putObject(i, "value " + i);
+      if (i % 10 == 0) {
+        cache.putObject("hot", "value " + i);
+      }
+    }
+    assertEquals("value 190", cache.getObject("hot"));
+  }
+
+  @Test
+  void shouldRejectEntriesLargerThanSlab() {
+    OffHeapCache cache = newCache(2048, 1024);
+    cache.putObject("key", "small");
+    cache.putObject("key", new String(new char[2000]));
+    assertNull(cache.getObject("key"));
+    assertEquals(1, cache.getRejectedCount());
+    assertEquals(0, cache.getUsedBytes());
+  }
+
+  @Test
+  void shouldRemoveAndClear() {
+    OffHeapCache cache = new OffHeapCache("default");
+    for (int i = 0; i < 10; i++) {
+      cache.putObject(i, i);
+    }
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+    assertEquals(9, cache.getSize());
+    cache.clear();
+    assertEquals(0, cache.getSize());
+    assertEquals(0, cache.getUsedBytes());
+    cache.putObject(1, 1);
+    assertEquals(1, cache.getObject(1));
+  }
+
+  @Test
+  void shouldBeAccessedConcurrently() throws Exception {
+    OffHeapCache cache = newCache(1024 * 1024, 64 * 1024);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int t = 0; t < 4; t++) {
+        int offset = t * 10000;
+        futures.add(executor.submit(() -> {
+          for (int i = offset; i < offset + 10000; i++) {
+            cache.putObject(i, i);
+            Object value = cache.getObject(i);
+            // 其他线程的写入可能已经淘汰了该缓存项
+            assertTrue(value == null || value.equals(i));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    assertEquals(40000, cache.getSize() + cache.getEvictionCount());
+  }
+
+  @Test
+  void shouldBeConfiguredByCacheBuilder() {
+    Properties properties = new Properties();
+    properties.setProperty("capacity", "2097152");
+    properties.setProperty("slabSize", "65536");
+    properties.setProperty("serializer", "compact");
+    Cache cache = new CacheBuilder("test").implementation(OffHeapCache.class).properties(properties).build();
+    assertTrue(cache instanceof ConcurrentLoggingCache);
+    cache.putObject("key", "value");
+    assertEquals("value", cache.getObject("key"));
+  }
+
+  @Test
+  void shouldUseCompactSerializer() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setSerializer("COMPACT");
+    assertTrue(cache.getSerializer() instanceof CompactCacheSerializer);
+    cache.setSerializer(CompactCacheSerializer.class.getName());
+    assertTrue(cache.getSerializer() instanceof CompactCacheSerializer);
+    assertThrows(CacheException.class, () -> cache.setSerializer("no.such.Serializer"));
+  }
+
+  @Test
+  void shouldRejectCapacitySmallerThanSlab() {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setCapacity(1000);
+    assertThrows(CacheException.class, cache::initialize);
+  }
+
+  private static OffHeapCache newCache(long capacity, int slabSize) {
+    OffHeapCache cache = new OffHeapCache("default");
+    cache.setCapacity(capacity);
+    cache.setSlabSize(slabSize);
+    cache.initialize();
+    return cache;
+  }
+
+}
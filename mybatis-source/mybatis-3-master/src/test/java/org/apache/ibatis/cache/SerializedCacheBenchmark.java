@@ -0,0 +1,99 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CacheSerializer;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures the copy cost of a read/write second level cache ({@code <cache readOnly="false" serializer="..."/>})
+ * for a typical {@code List<POJO>} query result: {@code hit} deserializes a fresh copy as every cache hit does,
+ * {@code put} serializes the list as every cache miss does. The size of one serialized entry is printed at setup.
+ * <p>
+ * Run with {@code main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializedCacheBenchmark {
+
+  private static final String KEY = "key";
+
+  @Param({"JAVA", "COMPACT"})
+  private String serializer;
+
+  @Param({"10", "100", "1000"})
+  private int rows;
+
+  private SerializedCache cache;
+  private List<Author> result;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    Class<? extends CacheSerializer> serializerClass = new Configuration().getTypeAliasRegistry().resolveAlias(serializer);
+    CacheSerializer instance = serializerClass.getConstructor().newInstance();
+    cache = new SerializedCache(new PerpetualCache("benchmark"), instance);
+    Section[] sections = Section.values();
+    result = new ArrayList<>(rows);
+    for (int i = 0; i < rows; i++) {
+      result.add(new Author(i, "author" + i, "******", "author" + i + "@mybatis.org",
+        "Biography of author number " + i, sections[i % sections.length]));
+    }
+    cache.putObject(KEY, result);
+    System.out.println(serializer + " entry size: " + instance.serialize(result).length + " bytes");
+  }
+
+  @Benchmark
+  public Object hit() {
+    return cache.getObject(KEY);
+  }
+
+  @Benchmark
+  public void put() {
+    cache.putObject(KEY, result);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(SerializedCacheBenchmark.class.getSimpleName()).build()).run();
+  }
+
+}
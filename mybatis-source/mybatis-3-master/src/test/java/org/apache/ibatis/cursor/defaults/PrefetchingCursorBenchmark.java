@@ -0,0 +1,169 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cursor.defaults;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Simulates an export that streams a table through a {@link Cursor} and writes every row to a slow sink, with and
+ * without prefetching. The sink is modelled as a blocking wait of {@code sinkNanos} per row (for example a socket
+ * write). The in-memory HSQLDB has no network latency, so a round trip of {@code roundTripNanos} is simulated every
+ * {@link #FETCH_SIZE} rows while mapping, as a remote database would need to fetch the next block of rows.
+ * With prefetching the round trips overlap with the sink. The score is the time to export all rows.
+ * <p>
+ * Run with {@code main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrefetchingCursorBenchmark {
+
+  private static final int FETCH_SIZE = 100;
+
+  @Param({"0", "64"})
+  private int fetchAhead;
+
+  @Param({"20000"})
+  private long sinkNanos;
+
+  @Param({"2000000"})
+  private long roundTripNanos;
+
+  @Param({"5000"})
+  private int rows;
+
+  private SqlSession sqlSession;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    UnpooledDataSource dataSource = new UnpooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:prefetching_cursor", "sa", "");
+    try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+      statement.execute("drop table export if exists");
+      statement.execute("create table export (id integer, name varchar(40), amount decimal(10, 2), created timestamp)");
+      try (PreparedStatement ps = connection.prepareStatement("insert into export values (?, ?, ?, current_timestamp)")) {
+        for (int row = 0; row < rows; row++) {
+          ps.setInt(1, row);
+          ps.setString(2, "name of row " + row);
+          ps.setDouble(3, row * 0.25);
+          ps.addBatch();
+        }
+        ps.executeBatch();
+      }
+    }
+
+    Configuration configuration = new Configuration(new Environment("bench", new JdbcTransactionFactory(), dataSource));
+    List<ResultMapping> resultMappings = new ArrayList<>();
+    resultMappings.add(new ResultMapping.Builder(configuration, "id", "id", new RoundTripTypeHandler(roundTripNanos)).build());
+    List<ResultMap> resultMaps = new ArrayList<>();
+    resultMaps.add(new ResultMap.Builder(configuration, "exportMap", HashMap.class, resultMappings).build());
+    configuration.addMappedStatement(new MappedStatement.Builder(configuration, "selectExport",
+      new StaticSqlSource(configuration, "select id, name, amount, created from export"), SqlCommandType.SELECT)
+      .resultMaps(resultMaps).fetchAhead(fetchAhead).build());
+    sqlSession = new SqlSessionFactoryBuilder().build(configuration).openSession();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    sqlSession.close();
+  }
+
+  @Benchmark
+  public void export(Blackhole blackhole) throws Exception {
+    try (Cursor<Map<String, Object>> cursor = sqlSession.selectCursor("selectExport")) {
+      for (Map<String, Object> row : cursor) {
+        blackhole.consume(row);
+        LockSupport.parkNanos(sinkNanos);
+      }
+    }
+  }
+
+  /**
+   * Reads the id column and waits for a simulated round trip every {@link #FETCH_SIZE} rows.
+   */
+  public static class RoundTripTypeHandler extends IntegerTypeHandler {
+
+    private final long roundTripNanos;
+
+    RoundTripTypeHandler(long roundTripNanos) {
+      this.roundTripNanos = roundTripNanos;
+    }
+
+    @Override
+    public Integer getNullableResult(ResultSet rs, String columnName) throws SQLException {
+      if (rs.getRow() % FETCH_SIZE == 1) {
+        LockSupport.parkNanos(roundTripNanos);
+      }
+      return super.getNullableResult(rs, columnName);
+    }
+
+    @Override
+    public Integer getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+      if (rs.getRow() % FETCH_SIZE == 1) {
+        LockSupport.parkNanos(roundTripNanos);
+      }
+      return super.getNullableResult(rs, columnIndex);
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(PrefetchingCursorBenchmark.class.getSimpleName()).build()).run();
+  }
+
+}
@@ -0,0 +1,49 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void shouldBucketByPowerOfTwo() {
+    assertEquals(0, LatencyHistogram.bucketIndex(0));
+    assertEquals(1, LatencyHistogram.bucketIndex(1));
+    assertEquals(2, LatencyHistogram.bucketIndex(3));
+    assertEquals(3, LatencyHistogram.bucketIndex(4));
+    assertEquals(LatencyHistogram.BUCKET_COUNT - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+  }
+
+  @Test
+  void shouldEstimatePercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 0; i < 99; i++) {
+      histogram.record(1);
+    }
+    histogram.record(1000);
+    LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+    assertEquals(100, snapshot.getCount());
+    assertEquals(1099, snapshot.getSum());
+    assertEquals(1000, snapshot.getMax());
+    assertEquals(1, snapshot.getPercentile(0.5));
+    assertEquals(1, snapshot.getPercentile(0.99));
+    assertEquals(1000, snapshot.getPercentile(1.0));
+  }
+
+}
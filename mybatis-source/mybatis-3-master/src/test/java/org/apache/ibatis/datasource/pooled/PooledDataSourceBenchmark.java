@@ -0,0 +1,106 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares checkout/return throughput and latency distribution of the pool engines under heavy
+ * contention (many more threads than pooled connections) on an in-memory HSQLDB.
+ * The sample mode percentiles show the effect of the fair handoff on the waiting threads.
+ * <p>
+ * Run with {@code main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PooledDataSourceBenchmark {
+
+  @Param({"SYNCHRONIZED", "CONCURRENT_BAG"})
+  private PoolEngine engine;
+
+  @Param({"10"})
+  private int maximumActiveConnections;
+
+  /**
+   * Simulated work (in JMH cpu tokens) performed while a connection is held.
+   */
+  @Param({"0", "2000"})
+  private long work;
+
+  private PooledDataSource dataSource;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    dataSource = BaseDataTest.createPooledDataSource(BaseDataTest.JPETSTORE_PROPERTIES);
+    dataSource.setPoolEngine(engine);
+    dataSource.setPoolMaximumActiveConnections(maximumActiveConnections);
+    dataSource.setPoolMaximumIdleConnections(maximumActiveConnections);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    dataSource.forceCloseAll();
+  }
+
+  @Benchmark
+  @Threads(64)
+  public boolean checkoutAndReturn() throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      Blackhole.consumeCPU(work);
+      return connection.getAutoCommit();
+    }
+  }
+
+  @Benchmark
+  @Threads(400)
+  public boolean checkoutAndReturnWith400Threads() throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      Blackhole.consumeCPU(work);
+      return connection.getAutoCommit();
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(PooledDataSourceBenchmark.class.getSimpleName()).build()).run();
+  }
+
+}
@@ -16,6 +16,7 @@
 package org.apache.ibatis.executor;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -34,7 +35,10 @@ import org.apache.ibatis.domain.blog.Blog;
 import org.apache.ibatis.domain.blog.Post;
 import org.apache.ibatis.domain.blog.Section;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Invocation;
 import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.LocalCacheScope;
 import org.apache.ibatis.session.RowBounds;
 import org.apache.ibatis.transaction.Transaction;
 import org.apache.ibatis.transaction.jdbc.JdbcTransaction;
@@ -461,6 +465,60 @@ class BaseExecutorTest extends BaseDataTest {
     }
   }
 
+  @Test
+  void shouldQueryWithoutCacheKeyWhenLocalCacheScopeIsStatement() throws Exception {
+    config.setLocalCacheScope(LocalCacheScope.STATEMENT);
+    config.setSkipUnusedCacheKey(true);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement selectAuthor = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      MappedStatement selectBlog = ExecutorTestHelper.prepareComplexSelectBlogMappedStatement(config);
+      MappedStatement selectPosts = ExecutorTestHelper.prepareSelectPostsForBlogMappedStatement(config);
+      config.addMappedStatement(selectBlog);
+      config.addMappedStatement(selectPosts);
+      List<Author> authors = executor.query(selectAuthor, 101, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertEquals(1, authors.size());
+      assertEquals(101, authors.get(0).getId());
+      List<Blog> blogs = executor.query(selectBlog, 1, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertEquals(2, blogs.get(0).getPosts().size());
+      assertEquals(1, blogs.get(0).getPosts().get(1).getBlog().getPosts().get(1).getBlog().getId());
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  void shouldRequireCacheKeyOnlyWhenSomeCacheUsesIt() throws Exception {
+    BaseExecutor executor = new SimpleExecutor(config, new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement selectAuthor = ExecutorTestHelper.prepareSelectOneAuthorMappedStatement(config);
+      MappedStatement selectBlog = ExecutorTestHelper.prepareComplexSelectBlogMappedStatement(config);
+      MappedStatement selectDiscriminatedPost = ExecutorTestHelper.prepareSelectDiscriminatedPost(config);
+      MappedStatement selectAuthorViaOutParams = ExecutorTestHelper.prepareSelectAuthorViaOutParams(config);
+      assertTrue(executor.isCacheKeyRequired(selectAuthor));
+
+      config.setSkipUnusedCacheKey(true);
+      assertTrue(executor.isCacheKeyRequired(selectAuthor));
+
+      config.setLocalCacheScope(LocalCacheScope.STATEMENT);
+      assertFalse(executor.isCacheKeyRequired(selectAuthor));
+      assertTrue(executor.isCacheKeyRequired(selectBlog));
+      assertTrue(executor.isCacheKeyRequired(selectDiscriminatedPost));
+      assertTrue(executor.isCacheKeyRequired(selectAuthorViaOutParams));
+
+      config.addInterceptor(new Interceptor() {
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable {
+          return invocation.proceed();
+        }
+      });
+      assertTrue(executor.isCacheKeyRequired(selectAuthor));
+    } finally {
+      executor.close(false);
+    }
+  }
+
   protected Executor createExecutor(Transaction transaction) {
     return new SimpleExecutor(config, transaction);
   }
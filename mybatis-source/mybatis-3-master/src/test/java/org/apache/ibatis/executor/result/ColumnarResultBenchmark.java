@@ -0,0 +1,129 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.result;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares selecting a numeric report (two integer, two double and one low cardinality string column) from an
+ * in-memory HSQLDB table as {@code resultType="map"} and as {@code resultType="columnar"}. The score is the time to
+ * map all rows; the retained heap of one result is printed at the end of the trial. Add {@code -prof gc} to compare
+ * the allocation rate.
+ * <p>
+ * Run with {@code main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColumnarResultBenchmark {
+
+  @Param({"map", "columnar"})
+  private String resultType;
+
+  @Param({"100000"})
+  private int rows;
+
+  private SqlSession sqlSession;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    UnpooledDataSource dataSource = new UnpooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:columnar_result", "sa", "");
+    try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+      statement.execute("drop table report if exists");
+      statement.execute("create table report (id bigint, quantity integer, amount double, cost double, region varchar(20))");
+      try (PreparedStatement ps = connection.prepareStatement("insert into report values (?, ?, ?, ?, ?)")) {
+        for (int row = 0; row < rows; row++) {
+          ps.setLong(1, row);
+          ps.setInt(2, row % 100);
+          ps.setDouble(3, row * 1.25);
+          ps.setDouble(4, row * 0.75);
+          ps.setString(5, "region" + row % 16);
+          ps.addBatch();
+        }
+        ps.executeBatch();
+      }
+    }
+
+    Configuration configuration = new Configuration(new Environment("bench", new JdbcTransactionFactory(), dataSource));
+    Class<?> type = configuration.getTypeAliasRegistry().resolveAlias(resultType);
+    List<ResultMap> resultMaps = new ArrayList<>();
+    resultMaps.add(new ResultMap.Builder(configuration, "reportMap", type, new ArrayList<>()).build());
+    configuration.addMappedStatement(new MappedStatement.Builder(configuration, "selectReport",
+      new StaticSqlSource(configuration, "select id, quantity, amount, cost, region from report"), SqlCommandType.SELECT)
+      .resultMaps(resultMaps).build());
+    sqlSession = new SqlSessionFactoryBuilder().build(configuration).openSession();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    Runtime runtime = Runtime.getRuntime();
+    System.gc();
+    long before = runtime.totalMemory() - runtime.freeMemory();
+    List<Object> result = selectList();
+    System.gc();
+    long after = runtime.totalMemory() - runtime.freeMemory();
+    System.out.println(resultType + " retained about " + (after - before) / 1024 + " KB for " + rows + " rows: " + result.get(0));
+    sqlSession.close();
+  }
+
+  @Benchmark
+  public List<Object> selectList() {
+    List<Object> result = sqlSession.selectList("selectReport");
+    // 避免一级缓存命中
+    sqlSession.clearCache();
+    return result;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(ColumnarResultBenchmark.class.getSimpleName()).build()).run();
+  }
+
+}
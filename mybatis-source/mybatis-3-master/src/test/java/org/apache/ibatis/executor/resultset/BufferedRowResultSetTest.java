@@ -0,0 +1,120 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+import org.apache.ibatis.type.OffsetDateTimeTypeHandler;
+import org.apache.ibatis.type.OffsetTimeTypeHandler;
+import org.apache.ibatis.type.SqlTimestampTypeHandler;
+import org.apache.ibatis.type.ZonedDateTimeTypeHandler;
+import org.junit.jupiter.api.Test;
+
+class BufferedRowResultSetTest {
+
+  @Test
+  void shouldReplayTypedReadsOfTheFirstRow() throws SQLException {
+    OffsetDateTime offsetDateTime = OffsetDateTime.of(2019, 1, 1, 10, 0, 0, 0, ZoneOffset.ofHours(9));
+    ZonedDateTime zonedDateTime = ZonedDateTime.of(2019, 1, 1, 10, 0, 0, 0, ZoneId.of("Asia/Tokyo"));
+    OffsetTime offsetTime = OffsetTime.of(10, 0, 0, 0, ZoneOffset.ofHours(9));
+    Timestamp timestamp = Timestamp.valueOf("2019-01-01 10:00:00");
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.findColumn("ODT")).thenReturn(1);
+    when(rs.getObject("ODT", OffsetDateTime.class)).thenReturn(offsetDateTime, offsetDateTime.plusDays(1));
+    when(rs.getObject(2, ZonedDateTime.class)).thenReturn(zonedDateTime, (ZonedDateTime) null);
+    when(rs.getObject(3, OffsetTime.class)).thenReturn(offsetTime, offsetTime.plusHours(1));
+    // 驱动特有的类型只能通过 getTimestamp 转换
+    when(rs.getObject(4)).thenReturn(new Object());
+    when(rs.getTimestamp(4)).thenReturn(timestamp, new Timestamp(timestamp.getTime() + 1000));
+
+    BufferedRowResultSet.Recorder recorder = new BufferedRowResultSet.Recorder(rs,
+      Arrays.asList("ODT", "ZDT", "OT", "TS"), Collections.nCopies(4, JdbcType.OTHER));
+    ResultSet recording = recorder.getResultSet();
+    assertEquals(offsetDateTime, new OffsetDateTimeTypeHandler().getResult(recording, "ODT"));
+    assertEquals(zonedDateTime, new ZonedDateTimeTypeHandler().getResult(recording, 2));
+    assertEquals(offsetTime, new OffsetTimeTypeHandler().getResult(recording, 3));
+    assertEquals(timestamp, new SqlTimestampTypeHandler().getResult(recording, 4));
+
+    BufferedRowResultSet.ColumnReads reads = recorder.getReads();
+    BufferedRowResultSet buffered = new BufferedRowResultSet(reads);
+    buffered.setRow(reads.readRow(rs));
+    ResultSet row = buffered.getResultSet();
+    assertEquals(offsetDateTime.plusDays(1), new OffsetDateTimeTypeHandler().getResult(row, "ODT"));
+    assertNull(new ZonedDateTimeTypeHandler().getResult(row, 2));
+    assertEquals(offsetTime.plusHours(1), new OffsetTimeTypeHandler().getResult(row, 3));
+    assertEquals(new Timestamp(timestamp.getTime() + 1000), new SqlTimestampTypeHandler().getResult(row, 4));
+    verify(rs, never()).getObject(4);
+  }
+
+  @Test
+  void shouldConvertOtherReadsOfTheSameColumn() throws SQLException {
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getInt(1)).thenReturn(5, 0);
+    when(rs.wasNull()).thenReturn(true);
+
+    BufferedRowResultSet.Recorder recorder = new BufferedRowResultSet.Recorder(rs,
+      Arrays.asList("ID", "NAME"), Collections.nCopies(2, JdbcType.INTEGER));
+    assertEquals(5, new IntegerTypeHandler().getResult(recorder.getResultSet(), 1));
+    BufferedRowResultSet.ColumnReads reads = recorder.getReads();
+    BufferedRowResultSet buffered = new BufferedRowResultSet(reads);
+
+    buffered.setRow(reads.readRow(rs));
+    ResultSet row = buffered.getResultSet();
+    assertNull(new IntegerTypeHandler().getResult(row, 1));
+    assertNull(row.getString("id"));
+    assertTrue(row.wasNull());
+  }
+
+  @Test
+  void shouldReadColumnsThatWereNotReadOnTheFirstRow() throws SQLException {
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getInt(1)).thenReturn(1, 2);
+    when(rs.getObject(2)).thenReturn("Jim");
+
+    BufferedRowResultSet.Recorder recorder = new BufferedRowResultSet.Recorder(rs,
+      Arrays.asList("ID", "NAME"), Arrays.asList(JdbcType.INTEGER, JdbcType.VARCHAR));
+    assertEquals(1, new IntegerTypeHandler().getResult(recorder.getResultSet(), 1));
+    BufferedRowResultSet.ColumnReads reads = recorder.getReads();
+    BufferedRowResultSet buffered = new BufferedRowResultSet(reads);
+
+    buffered.setRow(reads.readRow(rs));
+    ResultSet row = buffered.getResultSet();
+    assertEquals(2, new IntegerTypeHandler().getResult(row, 1));
+    assertEquals("Jim", row.getString("name"));
+    assertThatThrownBy(() -> row.getString(3)).isInstanceOf(SQLException.class);
+  }
+
+}
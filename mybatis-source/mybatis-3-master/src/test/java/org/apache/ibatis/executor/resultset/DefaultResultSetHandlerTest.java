@@ -18,6 +18,8 @@ package org.apache.ibatis.executor.resultset;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.sql.Connection;
@@ -101,6 +103,78 @@ class DefaultResultSetHandlerTest {
     assertEquals(100, ((HashMap) results.get(0)).get("cOlUmN1"));
   }
 
+  @Test
+  void shouldReuseRowMappingPlanAcrossExecutions() throws Exception {
+    final MappedStatement ms = getMappedStatement();
+    ms.getConfiguration().setUseColumnIndexForResults(true);
+    final RowMappingPlanCache planCache = ms.getConfiguration().getRowMappingPlanCache();
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true, false, true, false, true, false, true, false, true, false);
+    when(rs.getInt(1)).thenReturn(100);
+    when(rs.getInt(2)).thenReturn(200, 200, 200, 300);
+    when(rsmd.getColumnCount()).thenReturn(2);
+    when(rsmd.getColumnLabel(1)).thenReturn("CoLuMn1");
+    // 第四次执行时结果集的列布局发生变化
+    when(rsmd.getColumnLabel(2)).thenReturn("extra", "extra", "extra", "other");
+    when(rsmd.getColumnType(any(Integer.class))).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(any(Integer.class))).thenReturn(Integer.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false);
+
+    for (int i = 0; i < 3; i++) {
+      final List<Object> results = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds()).handleResultSets(stmt);
+      assertEquals(100, ((HashMap) results.get(0)).get("cOlUmN1"));
+      assertEquals(200, ((HashMap) results.get(0)).get("extra"));
+    }
+    assertEquals(1, planCache.size());
+    assertEquals(1, planCache.getMissCount());
+    assertEquals(2, planCache.getHitCount());
+
+    // 超过上限时淘汰最近最少使用的映射计划
+    planCache.setMaximumSize(1);
+    final List<Object> results = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds()).handleResultSets(stmt);
+    assertEquals(300, ((HashMap) results.get(0)).get("other"));
+    assertEquals(1, planCache.size());
+    assertEquals(2, planCache.getMissCount());
+
+    new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds()).handleResultSets(stmt);
+    assertEquals(2, planCache.getMissCount());
+    assertEquals(3, planCache.getHitCount());
+  }
+
+  @Test
+  void shouldReadMappedColumnsByIndex() throws Exception {
+    final MappedStatement ms = getMappedStatement();
+    ms.getConfiguration().setUseColumnIndexForResults(true);
+
+    when(stmt.getResultSet()).thenReturn(rs);
+    when(rs.getMetaData()).thenReturn(rsmd);
+    when(rs.getType()).thenReturn(ResultSet.TYPE_FORWARD_ONLY);
+    when(rs.next()).thenReturn(true, true, false);
+    when(rs.getInt(1)).thenReturn(1, 2);
+    when(rs.getInt(2)).thenReturn(100, 200);
+    when(rsmd.getColumnCount()).thenReturn(2);
+    when(rsmd.getColumnLabel(1)).thenReturn("extra");
+    when(rsmd.getColumnLabel(2)).thenReturn("column1");
+    when(rsmd.getColumnType(any(Integer.class))).thenReturn(Types.INTEGER);
+    when(rsmd.getColumnClassName(any(Integer.class))).thenReturn(Integer.class.getCanonicalName());
+    when(stmt.getConnection()).thenReturn(conn);
+    when(conn.getMetaData()).thenReturn(dbmd);
+    when(dbmd.supportsMultipleResultSets()).thenReturn(false);
+
+    final List<Object> results = new DefaultResultSetHandler(null, ms, null, null, null, new RowBounds()).handleResultSets(stmt);
+    assertEquals(2, results.size());
+    assertEquals(100, ((HashMap) results.get(0)).get("cOlUmN1"));
+    assertEquals(1, ((HashMap) results.get(0)).get("extra"));
+    assertEquals(200, ((HashMap) results.get(1)).get("cOlUmN1"));
+    assertEquals(2, ((HashMap) results.get(1)).get("extra"));
+    verify(rs, never()).getInt(any(String.class));
+  }
+
   @Test
   void shouldThrowExceptionWithColumnName() throws Exception {
     final MappedStatement ms = getMappedStatement();
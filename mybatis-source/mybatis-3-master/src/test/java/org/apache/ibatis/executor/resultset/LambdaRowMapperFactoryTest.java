@@ -0,0 +1,157 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.StringTypeHandler;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class LambdaRowMapperFactoryTest {
+
+  private static Environment environment;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    environment = new Environment("test", new JdbcTransactionFactory(), BaseDataTest.createBlogDataSource());
+  }
+
+  @Test
+  void shouldMapSameResultsAsReflection() {
+    List<Author> expected = selectAuthors(null, false);
+    CountingRowMapperFactory factory = new CountingRowMapperFactory();
+    List<Author> actual = selectAuthors(factory, false);
+    assertEquals(2, actual.size());
+    assertEquals(expected, actual);
+    assertEquals(Section.NEWS, actual.get(0).getFavouriteSection());
+    // 同一个映射计划只生成一次
+    assertEquals(1, factory.created.get());
+    assertEquals(1, factory.generated.get());
+  }
+
+  @Test
+  void shouldFallBackForNestedResultMaps() {
+    CountingRowMapperFactory factory = new CountingRowMapperFactory();
+    List<Author> actual = selectAuthors(factory, true);
+    assertEquals(selectAuthors(null, true), actual);
+    assertEquals(0, factory.created.get());
+  }
+
+  @Test
+  void shouldHonorReturnInstanceForEmptyRow() throws Exception {
+    List<ColumnAssignment> assignments = Collections.singletonList(
+      new ColumnAssignment(1, "username", String.class, new StringTypeHandler()));
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getString(1)).thenReturn(null, "jim");
+    when(rs.wasNull()).thenReturn(true, false);
+
+    Configuration configuration = new Configuration();
+    RowMapper rowMapper = new LambdaRowMapperFactory().newRowMapper(configuration, Author.class, assignments);
+    assertNull(rowMapper.mapRow(rs));
+    assertEquals("jim", ((Author) rowMapper.mapRow(rs)).getUsername());
+
+    configuration.setReturnInstanceForEmptyRow(true);
+    when(rs.getString(1)).thenReturn(null);
+    when(rs.wasNull()).thenReturn(true);
+    rowMapper = new LambdaRowMapperFactory().newRowMapper(configuration, Author.class, assignments);
+    assertNull(((Author) rowMapper.mapRow(rs)).getUsername());
+  }
+
+  @Test
+  void shouldNotGenerateForInaccessibleTypes() {
+    LambdaRowMapperFactory factory = new LambdaRowMapperFactory();
+    Configuration configuration = new Configuration();
+    assertNull(factory.newRowMapper(configuration, PackagePrivateBean.class, Collections.emptyList()));
+    assertNull(factory.newRowMapper(configuration, Author.class, Collections.singletonList(
+      new ColumnAssignment(1, "nothing", Integer.class, new IntegerTypeHandler()))));
+    // 生成的类不能访问非public的属性类型
+    assertNull(factory.newRowMapper(configuration, PublicBean.class, Collections.singletonList(
+      new ColumnAssignment(1, "value", PackagePrivateBean.class, new IntegerTypeHandler()))));
+  }
+
+  private List<Author> selectAuthors(RowMapperFactory rowMapperFactory, boolean nested) {
+    Configuration configuration = new Configuration(environment);
+    configuration.setMapUnderscoreToCamelCase(true);
+    configuration.setUseColumnIndexForResults(true);
+    configuration.setRowMapperFactory(rowMapperFactory);
+    List<ResultMapping> resultMappings = new ArrayList<>();
+    resultMappings.add(new ResultMapping.Builder(configuration, "username", "username", String.class).build());
+    ResultMap resultMap = new ResultMap.Builder(configuration, "authorMap", Author.class, resultMappings).build();
+    if (nested) {
+      resultMap.forceNestedResultMaps();
+    }
+    List<ResultMap> resultMaps = new ArrayList<>();
+    resultMaps.add(resultMap);
+    configuration.addMappedStatement(new MappedStatement.Builder(configuration, "selectAuthors",
+      new StaticSqlSource(configuration, "select * from author order by id"), SqlCommandType.SELECT)
+      .resultMaps(resultMaps).build());
+    try (SqlSession sqlSession = new SqlSessionFactoryBuilder().build(configuration).openSession()) {
+      List<Author> first = sqlSession.selectList("selectAuthors");
+      sqlSession.clearCache();
+      assertEquals(first, sqlSession.selectList("selectAuthors"));
+      return first;
+    }
+  }
+
+  static class PackagePrivateBean {
+  }
+
+  public static class PublicBean {
+    public void setValue(PackagePrivateBean value) {
+    }
+  }
+
+  private static class CountingRowMapperFactory extends LambdaRowMapperFactory {
+    private final AtomicInteger created = new AtomicInteger();
+    private final AtomicInteger generated = new AtomicInteger();
+
+    @Override
+    public RowMapper newRowMapper(Configuration configuration, Class<?> type, List<ColumnAssignment> assignments) {
+      created.incrementAndGet();
+      RowMapper rowMapper = super.newRowMapper(configuration, type, assignments);
+      if (rowMapper != null) {
+        generated.incrementAndGet();
+      }
+      return rowMapper;
+    }
+  }
+
+}
@@ -0,0 +1,105 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.type.IntegerTypeHandler;
+import org.apache.ibatis.type.TypeHandler;
+import org.junit.jupiter.api.Test;
+
+class RowKeyTest {
+
+  private final RowKeyColumns blogColumns = new RowKeyColumns("blogMap", null, new String[]{"id", "title"}, new int[]{1, 2}, null);
+  private final RowKeyColumns postColumns = new RowKeyColumns("postMap", "P_", new String[]{"P_ID"}, new int[]{3},
+    new TypeHandler<?>[]{new IntegerTypeHandler()});
+
+  private static ResultSet row(String id, String title, Integer postId) throws SQLException {
+    ResultSet rs = mock(ResultSet.class);
+    when(rs.getString(1)).thenReturn(id);
+    when(rs.getString(2)).thenReturn(title);
+    when(rs.getInt(3)).thenReturn(postId == null ? 0 : postId);
+    when(rs.wasNull()).thenReturn(postId == null);
+    return rs;
+  }
+
+  private RowKey read(RowKeyColumns columns, ResultSet rs, RowKey parent, boolean returnInstanceForEmptyRow) throws SQLException {
+    RowKey probe = new RowKey();
+    return probe.read(columns, rs, parent, true, returnInstanceForEmptyRow) ? probe.copy() : RowKey.NULL_ROW_KEY;
+  }
+
+  @Test
+  void shouldBeEqualForSameValues() throws SQLException {
+    RowKey first = read(blogColumns, row("1", "Blog", null), null, false);
+    RowKey second = read(blogColumns, row("1", "Blog", null), null, false);
+    assertEquals(first, second);
+    assertEquals(first.hashCode(), second.hashCode());
+    assertNotEquals(first, read(blogColumns, row("2", "Blog", null), null, false));
+  }
+
+  @Test
+  void shouldCompareValuesByPosition() throws SQLException {
+    RowKey first = read(blogColumns, row("1", null, null), null, false);
+    RowKey second = read(blogColumns, row(null, "1", null), null, false);
+    assertNotEquals(first, second);
+  }
+
+  @Test
+  void shouldIncludeParentKey() throws SQLException {
+    RowKey blog1 = read(blogColumns, row("1", "Blog", null), null, false);
+    RowKey blog2 = read(blogColumns, row("2", "Blog", null), null, false);
+    RowKey post1 = read(postColumns, row("1", "Blog", 10), blog1, false);
+    assertEquals(post1, read(postColumns, row("1", "Blog", 10), read(blogColumns, row("1", "Blog", null), null, false), false));
+    assertNotEquals(post1, read(postColumns, row("2", "Blog", 10), blog2, false));
+  }
+
+  @Test
+  void shouldNotMatchOtherColumns() throws SQLException {
+    RowKeyColumns otherColumns = new RowKeyColumns("authorMap", null, new String[]{"id", "title"}, new int[]{1, 2}, null);
+    assertNotEquals(read(blogColumns, row("1", "Blog", null), null, false), read(otherColumns, row("1", "Blog", null), null, false));
+    RowKeyColumns sameColumns = new RowKeyColumns("blogMap", null, new String[]{"id", "title"}, new int[]{1, 2}, null);
+    assertEquals(read(blogColumns, row("1", "Blog", null), null, false), read(sameColumns, row("1", "Blog", null), null, false));
+  }
+
+  @Test
+  void shouldReturnNullKeyWithoutValues() throws SQLException {
+    RowKey probe = new RowKey();
+    assertFalse(probe.read(blogColumns, row(null, null, null), null, true, true));
+    assertFalse(probe.read(postColumns, row("1", "Blog", null), null, true, false));
+    // mapped columns take part in the key even when null if returnInstanceForEmptyRow is enabled
+    assertTrue(probe.read(postColumns, row("1", "Blog", null), null, true, true));
+  }
+
+  @Test
+  void shouldNotCopyResultObject() throws SQLException {
+    RowKey probe = new RowKey();
+    assertTrue(probe.read(blogColumns, row("1", "Blog", null), null, true, false));
+    RowKey key = probe.copy();
+    key.setResultObject("blog");
+    assertEquals(key, probe);
+    assertNull(probe.copy().getResultObject());
+  }
+
+}
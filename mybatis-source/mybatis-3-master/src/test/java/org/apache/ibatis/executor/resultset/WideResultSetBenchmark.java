@@ -0,0 +1,150 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures mapping of a 100 column result set from an in-memory HSQLDB table, reading the columns by label or by the
+ * index resolved in the row mapping plan. {@code explicit} maps every column with a result mapping, {@code auto}
+ * relies on auto-mapping. The score is the time to map all rows; divide by {@code rows} for the per-row cost.
+ * <p>
+ * Run with {@code main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WideResultSetBenchmark {
+
+  private static final int COLUMNS = 100;
+
+  @Param({"true", "false"})
+  private boolean useColumnIndex;
+
+  @Param({"explicit", "auto"})
+  private String mapping;
+
+  @Param({"1000"})
+  private int rows;
+
+  private UnpooledDataSource dataSource;
+  private SqlSession sqlSession;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    dataSource = new UnpooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:wide_result_set", "sa", "");
+    StringBuilder ddl = new StringBuilder("create table wide (");
+    StringBuilder insert = new StringBuilder("insert into wide values (");
+    StringBuilder select = new StringBuilder("select ");
+    for (int i = 0; i < COLUMNS; i++) {
+      String separator = i == 0 ? "" : ", ";
+      ddl.append(separator).append("c").append(i).append(i % 2 == 0 ? " integer" : " varchar(20)");
+      insert.append(separator).append("?");
+      select.append(separator).append("c").append(i);
+    }
+    try (Connection connection = dataSource.getConnection(); Statement statement = connection.createStatement()) {
+      statement.execute("drop table wide if exists");
+      statement.execute(ddl.append(")").toString());
+      try (PreparedStatement ps = connection.prepareStatement(insert.append(")").toString())) {
+        for (int row = 0; row < rows; row++) {
+          for (int i = 0; i < COLUMNS; i++) {
+            if (i % 2 == 0) {
+              ps.setInt(i + 1, row + i);
+            } else {
+              ps.setString(i + 1, "value " + row);
+            }
+          }
+          ps.addBatch();
+        }
+        ps.executeBatch();
+      }
+    }
+
+    Configuration configuration = new Configuration(new Environment("bench", new JdbcTransactionFactory(), dataSource));
+    configuration.setUseColumnIndexForResults(useColumnIndex);
+    List<ResultMapping> resultMappings = new ArrayList<>();
+    if ("explicit".equals(mapping)) {
+      for (int i = 0; i < COLUMNS; i++) {
+        Class<?> javaType = i % 2 == 0 ? Integer.class : String.class;
+        resultMappings.add(new ResultMapping.Builder(configuration, "c" + i, "c" + i, javaType).build());
+      }
+    }
+    List<ResultMap> resultMaps = new ArrayList<>();
+    resultMaps.add(new ResultMap.Builder(configuration, "wideMap", HashMap.class, resultMappings).build());
+    configuration.addMappedStatement(new MappedStatement.Builder(configuration, "selectWide",
+      new StaticSqlSource(configuration, select.append(" from wide").toString()), SqlCommandType.SELECT)
+      .resultMaps(resultMaps).build());
+
+    SqlSessionFactory sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+    sqlSession = sqlSessionFactory.openSession();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    sqlSession.close();
+  }
+
+  @Benchmark
+  public List<Object> selectList() {
+    List<Object> result = sqlSession.selectList("selectWide");
+    // 避免一级缓存命中
+    sqlSession.clearCache();
+    return result;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(WideResultSetBenchmark.class.getSimpleName()).build()).run();
+  }
+
+}
@@ -24,10 +24,16 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.PoolEngine;
+import org.apache.ibatis.datasource.pooled.PoolStateSnapshot;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
 import org.hsqldb.jdbc.JDBCConnection;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
@@ -75,6 +81,147 @@ class PooledDataSourceTest extends BaseDataTest {
     }
   }
 
+  @Test
+  void shouldProperlyMaintainPoolWithConcurrentBagEngine() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolEngine(PoolEngine.CONCURRENT_BAG);
+      runScript(ds, JPETSTORE_DDL);
+      ds.setDefaultAutoCommit(false);
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolTimeToWait(10000);
+      List<Connection> connections = new ArrayList<>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(4, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(0, ds.getPoolState().getHadToWaitCount());
+      assertThrows(SQLException.class, () -> connections.get(0).createStatement());
+      assertNotNull(ds.getPoolState().toString());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldHandOffConnectionsToWaitingThreadsWithConcurrentBagEngine() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolEngine(PoolEngine.CONCURRENT_BAG);
+      ds.setPoolMaximumActiveConnections(2);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolTimeToWait(10000);
+      int threads = 8;
+      int iterations = 50;
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      List<Future<?>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(executor.submit(() -> {
+          for (int j = 0; j < iterations; j++) {
+            try (Connection c = ds.getConnection()) {
+              exexuteQuery(c, "select 1 from INFORMATION_SCHEMA.SYSTEM_USERS");
+            }
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get(30, TimeUnit.SECONDS);
+      }
+      executor.shutdown();
+      assertEquals(threads * iterations, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertTrue(ds.getPoolState().getIdleConnectionCount() <= 2);
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldReadStatisticsWithoutPoolLock() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(2);
+      Connection c1 = ds.getConnection();
+      Connection c2 = ds.getConnection();
+      // the monitor is held, as it is while popConnection() waits or creates a connection
+      synchronized (ds.getPoolState()) {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        assertEquals(2L, (long) executor.submit(() -> ds.getPoolState().getRequestCount()).get(5, TimeUnit.SECONDS));
+        assertEquals(2L, (long) executor.submit(() -> ds.getPoolState().getRequestTimeHistogram().getCount())
+            .get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+      }
+      PoolStateSnapshot snapshot = ds.getPoolState().snapshot();
+      assertEquals(2, snapshot.getActiveConnectionCount());
+      assertEquals(0, snapshot.getIdleConnectionCount());
+      assertEquals(2, snapshot.getRequestCount());
+      assertEquals(2, snapshot.getRequestTimeHistogram().getCount());
+      c1.close();
+      c2.close();
+      snapshot = ds.getPoolState().snapshot();
+      assertEquals(2, snapshot.getIdleConnectionCount());
+      assertEquals(2, snapshot.getCheckoutTimeHistogram().getCount());
+      assertEquals(0, snapshot.getWaitTimeHistogram().getCount());
+      assertEquals(snapshot.getAccumulatedCheckoutTime() / 2, snapshot.getAverageCheckoutTime());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  void shouldPrewarmAndEvictIdleConnectionsInBackground() throws Exception {
+    for (PoolEngine engine : PoolEngine.values()) {
+      PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+      try {
+        ds.setPoolEngine(engine);
+        ds.setPoolMaximumActiveConnections(5);
+        ds.setPoolMaximumIdleConnections(5);
+        ds.setPoolPingEnabled(true);
+        ds.setPoolPingQuery("select 1 from INFORMATION_SCHEMA.SYSTEM_USERS");
+        ds.setPoolMinimumIdle(3);
+        ds.setPoolMaintenanceInterval(10);
+        awaitIdleConnectionCount(ds, 3);
+        assertEquals(0, ds.getPoolState().getRequestCount());
+
+        ds.setPoolMinimumIdle(0);
+        ds.setPoolMaximumLifetime(1);
+        awaitIdleConnectionCount(ds, 0);
+        assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      } finally {
+        ds.setPoolMaintenanceInterval(0);
+        ds.forceCloseAll();
+      }
+    }
+  }
+
+  private void awaitIdleConnectionCount(PooledDataSource ds, int expected) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (ds.getPoolState().getIdleConnectionCount() != expected && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(expected, ds.getPoolState().getIdleConnectionCount());
+  }
+
+  @Test
+  void shouldSelectPoolEngineFromFactoryProperties() {
+    PooledDataSourceFactory factory = new PooledDataSourceFactory();
+    Properties props = new Properties();
+    props.setProperty("poolEngine", "concurrent_bag");
+    factory.setProperties(props);
+    assertEquals(PoolEngine.CONCURRENT_BAG, ((PooledDataSource) factory.getDataSource()).getPoolEngine());
+  }
+
   @Test
   void shouldNotFailCallingToStringOverAnInvalidConnection() throws Exception {
     PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
@@ -137,7 +284,11 @@ class PooledDataSourceTest extends BaseDataTest {
   }
 
   private void exexuteQuery(Connection con) throws SQLException {
-    try (PreparedStatement st = con.prepareStatement("select 1");
+    exexuteQuery(con, "select 1");
+  }
+
+  private void exexuteQuery(Connection con, String sql) throws SQLException {
+    try (PreparedStatement st = con.prepareStatement(sql);
          ResultSet rs = st.executeQuery()) {
       while (rs.next()) {
         assertEquals(1, rs.getInt(1));
@@ -18,7 +18,17 @@ package org.apache.ibatis.mapping;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.decorators.ConcurrentLoggingCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.ScheduledCache;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.decorators.SynchronizedCache;
+import org.apache.ibatis.cache.decorators.TinyLfuCache;
+import org.apache.ibatis.cache.impl.ConcurrentPerpetualCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.cache.serializer.CompactCacheSerializer;
+import org.apache.ibatis.cache.serializer.JavaCacheSerializer;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -43,13 +53,53 @@ class CacheBuilderTest {
       .hasMessage("Failed cache initialization for 'test' on 'org.apache.ibatis.mapping.CacheBuilderTest$InitializingFailureCache'");
   }
 
+  @Test
+  void shouldSynchronizeCacheThatIsNotConcurrentSafe() {
+    Cache cache = new CacheBuilder("test").readWrite(true).build();
+    Assertions.assertThat(cache).isInstanceOf(SynchronizedCache.class);
+    Assertions.assertThat(cache.isConcurrentSafe()).isTrue();
+    Assertions.assertThat((Cache) unwrap(cache)).isInstanceOf(LoggingCache.class);
+  }
+
+  @Test
+  void shouldNotSynchronizeConcurrentSafeCache() {
+    Cache cache = new CacheBuilder("test").addDecorator(TinyLfuCache.class).readWrite(true).clearInterval(60000L).build();
+    Assertions.assertThat(cache).isInstanceOf(ConcurrentLoggingCache.class);
+    Assertions.assertThat(cache.isConcurrentSafe()).isTrue();
+    Cache serialized = unwrap(cache);
+    Assertions.assertThat(serialized).isInstanceOf(SerializedCache.class);
+    Assertions.assertThat((Cache) unwrap(serialized)).isInstanceOf(ScheduledCache.class);
+
+    cache = new CacheBuilder("test").implementation(ConcurrentPerpetualCache.class).build();
+    Assertions.assertThat(cache).isInstanceOf(ConcurrentLoggingCache.class);
+    Assertions.assertThat((Cache) unwrap(cache)).isInstanceOf(ConcurrentPerpetualCache.class);
+
+    cache = new CacheBuilder("test").implementation(ConcurrentPerpetualCache.class).addDecorator(LruCache.class).build();
+    Assertions.assertThat(cache).isInstanceOf(SynchronizedCache.class);
+  }
+
+  @Test
+  void shouldUseConfiguredSerializer() {
+    SerializedCache cache = unwrap(unwrap(new CacheBuilder("test").readWrite(true).build()));
+    Assertions.assertThat(cache.getSerializer()).isInstanceOf(JavaCacheSerializer.class);
+
+    cache = unwrap(unwrap(new CacheBuilder("test").readWrite(true).serializer(CompactCacheSerializer.class).build()));
+    Assertions.assertThat(cache.getSerializer()).isInstanceOf(CompactCacheSerializer.class);
+  }
+
   @SuppressWarnings("unchecked")
   private <T> T unwrap(Cache cache) {
-    Field field;
-    try {
-      field = cache.getClass().getDeclaredField("delegate");
-    } catch (NoSuchFieldException e) {
-      throw new IllegalStateException(e);
+    Field field = null;
+    // ConcurrentLoggingCache 使用父类 LoggingCache 中的 delegate 字段
+    for (Class<?> type = cache.getClass(); field == null && type != null; type = type.getSuperclass()) {
+      try {
+        field = type.getDeclaredField("delegate");
+      } catch (NoSuchFieldException e) {
+        // 继续查找父类
+      }
+    }
+    if (field == null) {
+      throw new IllegalStateException("No delegate field in " + cache.getClass());
     }
     try {
       field.setAccessible(true);
@@ -0,0 +1,110 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.wrapper.DefaultObjectWrapperFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@code MetaObject.getValue/setValue} on nested property paths with the reflective invokers and with the
+ * invokers generated through {@code LambdaMetafactory}/{@code MethodHandle}.
+ * <p>
+ * Run with {@code main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetaObjectBenchmark {
+
+  @Param({"true", "false"})
+  private boolean useMethodHandleInvokers;
+
+  private MetaObject metaObject;
+  private Author author;
+  private Invoker getter;
+  private Invoker setter;
+  private int counter;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    reflectorFactory.setUseMethodHandleInvokers(useMethodHandleInvokers);
+    Blog blog = new Blog();
+    blog.setAuthor(new Author(1, "jim", "secret", "jim@example.com", "bio", null));
+    metaObject = MetaObject.forObject(blog, new DefaultObjectFactory(), new DefaultObjectWrapperFactory(), reflectorFactory);
+    author = blog.getAuthor();
+    Reflector reflector = reflectorFactory.findForClass(Author.class);
+    getter = reflector.getGetInvoker("username");
+    setter = reflector.getSetInvoker("id");
+  }
+
+  @Benchmark
+  public Object getNested() {
+    return metaObject.getValue("author.username");
+  }
+
+  @Benchmark
+  public Object setNested() {
+    metaObject.setValue("author.id", ++counter);
+    return metaObject;
+  }
+
+  @Benchmark
+  public Object getTopLevel() {
+    return metaObject.getValue("title");
+  }
+
+  /**
+   * The invoker alone, without the property tokenizing and wrapping done by {@link MetaObject}.
+   */
+  @Benchmark
+  public Object invokeGetter() throws Exception {
+    return getter.invoke(author, null);
+  }
+
+  @Benchmark
+  public Object invokeSetter() throws Exception {
+    return setter.invoke(author, new Object[] {++counter});
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(MetaObjectBenchmark.class.getSimpleName()).build()).run();
+  }
+
+}
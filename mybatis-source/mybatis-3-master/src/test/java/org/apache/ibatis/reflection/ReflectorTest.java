@@ -18,11 +18,19 @@ package org.apache.ibatis.reflection;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.Serializable;
+import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
 import java.util.List;
 
 import org.apache.ibatis.domain.blog.Author;
 import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
+import org.apache.ibatis.reflection.invoker.LambdaMethodInvoker;
+import org.apache.ibatis.reflection.invoker.MethodHandleGetFieldInvoker;
+import org.apache.ibatis.reflection.invoker.MethodHandleSetFieldInvoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
+import org.apache.ibatis.session.Configuration;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -323,4 +331,108 @@ class ReflectorTest {
             "Ambiguous setters defined for property 'bool' in class '" + Bean.class.getName().replace("$", "\\$")
                 + "' with types '(java.lang.Integer|boolean)' and '(java.lang.Integer|boolean)'\\.");
   }
+
+  @Test
+  void shouldUseMethodHandleInvokersWhenEnabled() throws Exception {
+    Reflector reflector = methodHandleReflectorFactory().findForClass(FieldBean.class);
+    assertTrue(reflector.getGetInvoker("count") instanceof LambdaMethodInvoker);
+    assertTrue(reflector.getSetInvoker("count") instanceof LambdaMethodInvoker);
+    assertTrue(reflector.getGetInvoker("name") instanceof MethodHandleGetFieldInvoker);
+    assertTrue(reflector.getSetInvoker("name") instanceof MethodHandleSetFieldInvoker);
+
+    FieldBean bean = new FieldBean();
+    reflector.getSetInvoker("count").invoke(bean, new Object[] {3});
+    reflector.getSetInvoker("name").invoke(bean, new Object[] {"foo"});
+    assertEquals(3, reflector.getGetInvoker("count").invoke(bean, null));
+    assertEquals("foo", reflector.getGetInvoker("name").invoke(bean, null));
+    // 需要拓宽转换的参数交给反射处理
+    reflector.getSetInvoker("count").invoke(bean, new Object[] {(short) 5});
+    assertEquals(5, bean.getCount());
+  }
+
+  @Test
+  void shouldNotOverrideAccessChecksWhenCreatingMethodHandleInvokers() throws Exception {
+    Reflector reflector = methodHandleReflectorFactory().findForClass(FieldBean.class);
+    assertEquals(GetFieldInvoker.class, reflector.getGetInvoker("secret").getClass());
+    assertEquals(SetFieldInvoker.class, reflector.getSetInvoker("secret").getClass());
+    assertFalse(FieldBean.class.getDeclaredField("secret").isAccessible());
+
+    FieldBean bean = new FieldBean();
+    reflector.getSetInvoker("secret").invoke(bean, new Object[] {"foo"});
+    assertEquals("foo", reflector.getGetInvoker("secret").invoke(bean, null));
+  }
+
+  @Test
+  void shouldKeepReflectionExceptionsWithMethodHandleInvokers() throws Exception {
+    Reflector reflector = methodHandleReflectorFactory().findForClass(FieldBean.class);
+    when(reflector.getSetInvoker("count")).invoke(new FieldBean(), new Object[] {null});
+    then(caughtException()).isInstanceOf(IllegalArgumentException.class);
+    when(reflector.getSetInvoker("count")).invoke(new FieldBean(), new Object[] {-1});
+    then(caughtException()).isInstanceOf(InvocationTargetException.class)
+      .hasCauseInstanceOf(IllegalStateException.class);
+    when(reflector.getSetInvoker("name")).invoke(new FieldBean(), new Object[] {1});
+    then(caughtException()).isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void shouldUseReflectionByDefault() {
+    Reflector reflector = new DefaultReflectorFactory().findForClass(FieldBean.class);
+    assertEquals(MethodInvoker.class, reflector.getGetInvoker("count").getClass());
+    assertEquals(SetFieldInvoker.class, reflector.getSetInvoker("name").getClass());
+
+    Configuration configuration = new Configuration();
+    assertFalse(((DefaultReflectorFactory) configuration.getReflectorFactory()).isUseMethodHandleInvokers());
+    configuration.setUseMethodHandleInvokers(true);
+    assertTrue(((DefaultReflectorFactory) configuration.getReflectorFactory()).isUseMethodHandleInvokers());
+    configuration.setReflectorFactory(new DefaultReflectorFactory());
+    assertTrue(((DefaultReflectorFactory) configuration.getReflectorFactory()).isUseMethodHandleInvokers());
+  }
+
+  @Test
+  void shouldUseReflectionForNonPublicPropertyTypes() throws Exception {
+    Reflector reflector = methodHandleReflectorFactory().findForClass(HiddenTypeBean.class);
+    assertEquals(MethodInvoker.class, reflector.getSetInvoker("hidden").getClass());
+    HiddenTypeBean bean = new HiddenTypeBean();
+    reflector.getSetInvoker("hidden").invoke(bean, new Object[] {HiddenType.A});
+    assertEquals(HiddenType.A, reflector.getGetInvoker("hidden").invoke(bean, null));
+  }
+
+  private static DefaultReflectorFactory methodHandleReflectorFactory() {
+    DefaultReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    reflectorFactory.setUseMethodHandleInvokers(true);
+    return reflectorFactory;
+  }
+
+  enum HiddenType {
+    A
+  }
+
+  public static class HiddenTypeBean {
+    private HiddenType hidden;
+
+    public HiddenType getHidden() {
+      return hidden;
+    }
+
+    public void setHidden(HiddenType hidden) {
+      this.hidden = hidden;
+    }
+  }
+
+  public static class FieldBean {
+    public String name;
+    private String secret;
+    private int count;
+
+    public int getCount() {
+      return count;
+    }
+
+    public void setCount(int count) {
+      if (count < 0) {
+        throw new IllegalStateException("negative count");
+      }
+      this.count = count;
+    }
+  }
 }
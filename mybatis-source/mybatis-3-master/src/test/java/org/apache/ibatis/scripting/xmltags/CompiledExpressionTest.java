@@ -0,0 +1,159 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class CompiledExpressionTest {
+
+  private static final Object[] VALUES = {null, 0, 1, 0L, 2L, (short) 3, "", "a", "abc", "true", 'a', true, false, 1.5,
+    BigDecimal.ZERO, Section.NEWS, new ArrayList<>(), new Object()};
+
+  @Test
+  void shouldCompileSimpleExpressions() {
+    for (String expression : new String[] {"x", "x != null", "x != null and x != ''", "x == null or (y > 0 && !z)",
+      "not x", "x.username eq 'cbegin'", "x gte -1", "x == \"a\"", "_parameter != null", "x neq true", "x.size > 0",
+      "x != null and x.size() > 0", "!x.isEmpty()", "x.isEmpty", "x.length", "x.length() > 3"}) {
+      assertTrue(CompiledExpression.compile(expression).isCompiled(), expression);
+    }
+  }
+
+  @Test
+  void shouldLeaveOtherExpressionsToOgnl() {
+    for (String expression : new String[] {"x.get(0) != null", "x.contains(1)", "x.trim()", "size > 0", "x.keys",
+      "list[0] != null", "x + 1 > 2", "x == 'a'", "x == 1.5", "x == 1L", "x in {1, 2}", "@java.lang.Math@max(x, 1)",
+      "x - 1", "x == 'it\\'s'", "#this"}) {
+      assertFalse(CompiledExpression.compile(expression).isCompiled(), expression);
+    }
+  }
+
+  @Test
+  void shouldEvaluateLikeOgnl() {
+    String[] expressions = {"x", "x == null", "x != null", "null == x", "x == ''", "x != ''", "x == 'abc'", "x == \"a\"",
+      "x == 0", "x == 1", "x > 0", "x >= 0", "x < 1", "x lte 2", "x == true", "x != false", "!x", "not x", "x and true",
+      "x or false", "y and x", "y or x", "x != null and x != ''", "x == null || x == ''", "x == y", "!(x == null)",
+      "x == 2147483648"};
+    for (String expression : expressions) {
+      CompiledExpression compiled = CompiledExpression.compile(expression);
+      for (Object value : VALUES) {
+        Map<String, Object> root = new HashMap<>();
+        root.put("x", value);
+        root.put("y", 1);
+        assertSameResult(compiled, root);
+      }
+    }
+  }
+
+  @Test
+  void shouldResolvePropertiesLikeOgnl() {
+    Author author = new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS);
+    Map<String, Object> map = new HashMap<>();
+    map.put("author", author);
+    map.put("nested", new HashMap<>(map));
+    Configuration configuration = new Configuration();
+    Object[] roots = {author, map, new DynamicContext(configuration, author).getBindings(),
+      new DynamicContext(configuration, map).getBindings(), new DynamicContext(configuration, 5).getBindings(),
+      new DynamicContext(configuration, null).getBindings()};
+    String[] expressions = {"username", "password == null", "id > 0", "author.username == 'cbegin'", "nested.author.id",
+      "author.favouriteSection", "_parameter", "_parameter.username", "_databaseId == null", "missing == null",
+      "author.password.length"};
+    for (String expression : expressions) {
+      CompiledExpression compiled = CompiledExpression.compile(expression);
+      for (Object root : roots) {
+        assertSameResult(compiled, root);
+      }
+    }
+  }
+
+  @Test
+  void shouldEvaluateSizesLikeOgnl() {
+    Map<String, Object> map = new HashMap<>();
+    map.put("size", 99);
+    Author author = new Author(1, "cbegin", null, "cbegin@apache.org", "N/A", Section.NEWS);
+    Object[] values = {null, Arrays.asList(1, 2, 3), new ArrayList<>(), new HashSet<>(Arrays.asList(1, 2)), map,
+      new HashMap<>(), new int[] {1, 2}, new String[0], "abc", "", 5, author};
+    String[] expressions = {"x.size", "x.size()", "x.isEmpty", "x.isEmpty()", "x.length", "x.length()",
+      "x != null and x.size > 0", "x == null or x.isEmpty()", "!x.isEmpty", "x.size() gte 2"};
+    for (String expression : expressions) {
+      CompiledExpression compiled = CompiledExpression.compile(expression);
+      assertTrue(compiled.isCompiled(), expression);
+      for (Object value : values) {
+        Map<String, Object> root = new HashMap<>();
+        root.put("x", value);
+        assertSameResult(compiled, root);
+        assertSameResult(compiled, new DynamicContext(new Configuration(), root).getBindings());
+      }
+    }
+  }
+
+  @Test
+  void shouldFallBackToOgnlForCollections() {
+    Map<String, Object> root = new HashMap<>();
+    root.put("ids", Arrays.asList(1, 2, 3));
+    assertEquals(Arrays.asList(1, 2, 3), CompiledExpression.compile("ids").getValue(root));
+    assertEquals(true, CompiledExpression.compile("ids != null and ids.contains(3)").getValue(root));
+  }
+
+  @Test
+  void shouldResolvePropertiesWithConfiguredReflectorFactory() {
+    Set<Class<?>> resolved = new HashSet<>();
+    Configuration configuration = new Configuration();
+    configuration.setReflectorFactory(new DefaultReflectorFactory() {
+      @Override
+      public Reflector findForClass(Class<?> type) {
+        resolved.add(type);
+        return super.findForClass(type);
+      }
+    });
+    Author author = new Author(1, "cbegin", "******", "cbegin@apache.org", "N/A", Section.NEWS);
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("author", author);
+    Object bindings = new DynamicContext(configuration, parameter).getBindings();
+    assertEquals("cbegin", CompiledExpression.compile("author.username").getValue(bindings));
+    assertTrue(resolved.contains(Author.class));
+  }
+
+  private void assertSameResult(CompiledExpression compiled, Object root) {
+    String expression = compiled.getExpression();
+    Object expected;
+    try {
+      expected = OgnlCache.getValue(expression, root);
+    } catch (RuntimeException e) {
+      assertThrows(e.getClass(), () -> compiled.getValue(root), expression + " on " + root);
+      return;
+    }
+    assertEquals(expected, compiled.getValue(root), expression + " on " + root);
+  }
+
+}
@@ -0,0 +1,352 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.LanguageDriver;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.junit.jupiter.api.Test;
+
+class CompiledLanguageDriverTest {
+
+  private final Configuration configuration = new Configuration();
+  private final LanguageDriver xmlDriver = new XMLLanguageDriver();
+  private final LanguageDriver compiledDriver = new CompiledLanguageDriver();
+
+  @Test
+  void shouldResolveAlias() {
+    assertEquals(CompiledLanguageDriver.class, configuration.getTypeAliasRegistry().resolveAlias("compiled"));
+  }
+
+  @Test
+  void shouldKeepStaticStatementsRaw() {
+    SqlSource sqlSource = compiledDriver.createSqlSource(configuration, "<script>select * from author where id = #{id}</script>", Author.class);
+    assertThat(sqlSource).isInstanceOf(RawSqlSource.class);
+  }
+
+  @Test
+  void shouldFallBackWhenAttributesContainPlaceholders() {
+    SqlSource sqlSource = compiledDriver.createSqlSource(configuration,
+      "<script>select * from author <trim prefix=\"where id = #{id} and\">1 = 1</trim></script>", Author.class);
+    assertThat(sqlSource).isInstanceOf(DynamicSqlSource.class);
+  }
+
+  @Test
+  void shouldGenerateSameSqlForWhereAndIf() {
+    String script = "<script>select * from author"
+      + " <where>"
+      + "  <if test=\"id != null\">and id = #{id}</if>"
+      + "  <if test=\"username != null and username != ''\">AND username = #{username,jdbcType=VARCHAR}</if>"
+      + "  <if test=\"favouriteSection == null\">or\tfavourite_section is null</if>"
+      + " </where></script>";
+    assertSameBoundSql(script, new Author(1, "cbegin", null, null, null, null));
+    assertSameBoundSql(script, new Author(-1, "", null, null, null, Section.NEWS));
+    Map<String, Object> map = new HashMap<>();
+    map.put("id", 3L);
+    map.put("username", null);
+    map.put("favouriteSection", null);
+    assertSameBoundSql(script, map);
+  }
+
+  @Test
+  void shouldGenerateSameSqlForSetTrimAndChoose() {
+    String script = "<script>update author"
+      + " <set>"
+      + "  <if test=\"username != null\">username = #{username},</if>"
+      + "  <if test=\"email != null\">email = #{email},</if>"
+      + "  <choose>"
+      + "   <when test=\"bio == null\">bio = null,</when>"
+      + "   <when test=\"bio == 'N/A'\">bio = 'unknown',</when>"
+      + "   <otherwise>bio = #{bio, javaType=string, jdbcType=VARCHAR},</otherwise>"
+      + "  </choose>"
+      + " </set>"
+      + " <trim prefix=\"where\" prefixOverrides=\"and |or \" suffix=\"\" suffixOverrides=\"and\">"
+      + "  and id = #{id} and"
+      + " </trim></script>";
+    assertSameBoundSql(script, new Author(1, "cbegin", null, "a@b.c", null, null));
+    assertSameBoundSql(script, new Author(2, null, null, null, "N/A", null));
+    assertSameBoundSql(script, new Author(3, null, null, null, "bio", null));
+  }
+
+  @Test
+  void shouldGenerateSameSqlForForEach() {
+    String script = "<script>select * from author where id in"
+      + " <foreach collection=\"ids\" item=\"id\" index=\"i\" open=\"(\" separator=\",\" close=\")\">#{id}</foreach>"
+      + " or (username, email) in"
+      + " <foreach collection=\"authors\" item=\"author\" open=\"(\" separator=\"),(\" close=\")\">"
+      + "  #{author.username}, #{ author.email , jdbcType=VARCHAR}"
+      + " </foreach>"
+      + " <foreach collection=\"names\" index=\"key\" item=\"value\" separator=\" or \">"
+      + "  <if test=\"value != null\">#{key} = #{value}</if>"
+      + " </foreach></script>";
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("ids", Arrays.asList(1, 2L, 3));
+    parameter.put("authors", Arrays.asList(new Author(1, "a", null, "a@b.c", null, null), new Author(2, "b", null, null, null, null)));
+    Map<String, Object> names = new LinkedHashMap<>();
+    names.put("first", null);
+    names.put("second", "x");
+    names.put("third", 3);
+    parameter.put("names", names);
+    assertSameBoundSql(script, parameter);
+    parameter.put("ids", new int[] {4});
+    parameter.put("authors", Collections.emptyList());
+    parameter.put("names", Collections.singletonMap("only", null));
+    assertSameBoundSql(script, parameter);
+  }
+
+  @Test
+  void shouldGenerateSameSqlForNestedForEachAndBind() {
+    String script = "<script>"
+      + " <bind name=\"pattern\" value=\"name\"/>"
+      + " select * from author where username like #{pattern}"
+      + " <foreach collection=\"groups\" item=\"group\" index=\"g\">"
+      + "  <foreach collection=\"group\" item=\"item\" index=\"i\" open=\"or id in (\" separator=\",\" close=\")\">"
+      + "   #{item} + #{g} + #{i}"
+      + "  </foreach>"
+      + "  <bind name=\"size\" value=\"group.size()\"/>"
+      + "  and #{size} > 0"
+      + " </foreach></script>";
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("name", "c%");
+    List<List<Object>> groups = new ArrayList<>();
+    groups.add(Arrays.asList(1, 2));
+    groups.add(Arrays.asList("a", null, 3L));
+    parameter.put("groups", groups);
+    assertSameBoundSql(script, parameter);
+  }
+
+  @Test
+  void shouldGenerateSameSqlForTextSubstitution() {
+    String script = "<script>select * from ${table}"
+      + " <where>"
+      + "  <foreach collection=\"columns\" item=\"column\" separator=\"and\">${column} = #{column}</foreach>"
+      + " </where>"
+      + " order by ${order}</script>";
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("table", "author");
+    parameter.put("columns", Arrays.asList("username", "email"));
+    parameter.put("order", "id");
+    assertSameBoundSql(script, parameter);
+  }
+
+  @Test
+  void shouldGenerateSameSqlForSimpleParameters() {
+    String script = "<script>select * from author <if test=\"_parameter != null\">where id = #{value}</if></script>";
+    assertSameBoundSql(script, 1);
+    assertSameBoundSql(script, "text");
+    assertSameBoundSql(script, null);
+  }
+
+  @Test
+  void shouldReuseParameterMappingsAcrossExecutions() {
+    String script = "<script>select * from author <where><if test=\"id != null\">id = #{id}</if></where></script>";
+    SqlSource sqlSource = compiledDriver.createSqlSource(configuration, script, Author.class);
+    Author author = new Author(1, "cbegin", null, null, null, null);
+    ParameterMapping first = sqlSource.getBoundSql(author).getParameterMappings().get(0);
+    ParameterMapping second = sqlSource.getBoundSql(author).getParameterMappings().get(0);
+    assertThat(second).isSameAs(first);
+  }
+
+  @Test
+  void shouldReadForEachParametersFromElements() {
+    String script = "<script>insert into author (id, username, email, favourite_section) values"
+      + " <foreach collection=\"authors\" item=\"author\" index=\"i\" separator=\",\">"
+      + "  (#{author.id}, #{author.username}, #{ author.email , jdbcType=VARCHAR}, #{author.favouriteSection}, #{i})"
+      + " </foreach>"
+      + " <foreach collection=\"names\" index=\"key\" item=\"value\" open=\"and (\" separator=\" or \" close=\")\">"
+      + "  <if test=\"value != null\">#{key} = #{value}</if>"
+      + " </foreach>"
+      + " <foreach collection=\"groups\" item=\"group\" index=\"g\">"
+      + "  <foreach collection=\"group\" item=\"item\" open=\"or id in (\" separator=\",\" close=\")\">#{item} + #{g}</foreach>"
+      + " </foreach></script>";
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("authors", Arrays.asList(new Author(1, "a", null, "a@b.c", null, Section.NEWS),
+      new Author(2, "b", null, null, null, null), new Author(3, "c", null, "c@d.e", null, Section.IMAGES)));
+    Map<String, Object> names = new LinkedHashMap<>();
+    names.put("first", null);
+    names.put("second", "x");
+    names.put("third", 3);
+    parameter.put("names", names);
+    parameter.put("groups", Arrays.asList(Arrays.asList(1, 2), Arrays.asList("a", null, 3L)));
+
+    BoundSql boundSql = assertSameParameterValues(script, parameter);
+    assertThat(boundSql.hasAdditionalParameter(ForEachSqlNode.ITEM_PREFIX + "author_0")).isFalse();
+    List<ParameterMapping> mappings = boundSql.getParameterMappings();
+    assertThat(mappings.get(5)).isSameAs(mappings.get(0));
+    assertEquals("author.id", mappings.get(5).getProperty());
+    for (int i = 0; i < mappings.size(); i++) {
+      assertThat(boundSql.hasElementParameter(i)).isTrue();
+    }
+  }
+
+  @Test
+  void shouldBindForEachVariablesWhenPlaceholdersAreOnlyKnownAtRuntime() {
+    String script = "<script>select * from author where"
+      + " <foreach collection=\"columns\" item=\"column\" separator=\"and\">${column} = #{column}</foreach>"
+      + " <foreach collection=\"ids\" item=\"id\" open=\"or id in (\" separator=\",\" close=\")\">#{id}</foreach></script>";
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("columns", Arrays.asList("username", "email"));
+    parameter.put("ids", Arrays.asList(1, 2));
+    BoundSql boundSql = assertSameParameterValues(script, parameter);
+    assertThat(boundSql.hasAdditionalParameter(ForEachSqlNode.ITEM_PREFIX + "column_0")).isTrue();
+    assertThat(boundSql.hasElementParameter(0)).isFalse();
+    assertThat(boundSql.hasElementParameter(2)).isTrue();
+  }
+
+  @Test
+  void shouldGenerateSameChunksForBucketedForEach() {
+    String script = "<script>select * from author where id in"
+      + " <foreach collection=\"ids\" item=\"id\" index=\"i\" open=\"(\" separator=\",\" close=\")\""
+      + " bucketed=\"true\" chunkSize=\"10\">#{id}</foreach>"
+      + " and username in <foreach collection=\"names\" item=\"name\" open=\"(\" separator=\",\" close=\")\""
+      + " bucketed=\"true\">#{name}</foreach></script>";
+    List<Integer> ids = new ArrayList<>();
+    for (int i = 0; i < 23; i++) {
+      ids.add(i);
+    }
+    Map<String, Object> parameter = new HashMap<>();
+    parameter.put("ids", ids);
+    parameter.put("names", Arrays.asList("a", "b", "c"));
+    Configuration directConfiguration = new Configuration();
+    directConfiguration.setDirectForEachParameters(true);
+    SqlSource expectedSource = xmlDriver.createSqlSource(configuration, script, Map.class);
+    SqlSource compiledSource = compiledDriver.createSqlSource(configuration, script, Map.class);
+    SqlSource directSource = compiledDriver.createSqlSource(directConfiguration, script, Map.class);
+    assertThat(compiledSource).isInstanceOf(CompiledSqlSource.class);
+    assertThat(expectedSource.isChunked()).isTrue();
+    assertThat(compiledSource.isChunked()).isTrue();
+    for (int chunk = -1; chunk < 3; chunk++) {
+      BoundSql expected = expectedSource.getBoundSql(parameter, chunk);
+      assertEquals(3, expected.getChunkCount());
+      for (SqlSource actualSource : Arrays.asList(compiledSource, directSource)) {
+        BoundSql actual = actualSource.getBoundSql(parameter, chunk);
+        assertEquals(expected.getSql(), actual.getSql());
+        assertEquals(expected.getChunkCount(), actual.getChunkCount());
+        assertEquals(setParameters(configuration, expectedSource, expected, parameter),
+          setParameters(configuration, actualSource, actual, parameter));
+      }
+    }
+    assertEquals(16, expectedSource.getBoundSql(parameter, 2).getParameterMappings().size());
+  }
+
+  @Test
+  void shouldRejectNestedChunkedForEach() {
+    String script = "<script>select * from author where"
+      + " <foreach collection=\"groups\" item=\"group\" separator=\" or \">id in"
+      + "  <foreach collection=\"group\" item=\"id\" open=\"(\" separator=\",\" close=\")\" chunkSize=\"10\">#{id}</foreach>"
+      + " </foreach></script>";
+    assertThatThrownBy(() -> compiledDriver.createSqlSource(configuration, script, Map.class))
+      .isInstanceOf(BuilderException.class).hasMessageContaining("chunkSize");
+  }
+
+  private BoundSql assertSameParameterValues(String script, Object parameter) {
+    Configuration directConfiguration = new Configuration();
+    directConfiguration.setDirectForEachParameters(true);
+    Class<?> parameterType = parameter.getClass();
+    SqlSource expectedSource = xmlDriver.createSqlSource(configuration, script, parameterType);
+    SqlSource directSource = compiledDriver.createSqlSource(directConfiguration, script, parameterType);
+    assertThat(directSource).isInstanceOf(CompiledSqlSource.class);
+    BoundSql actual = null;
+    for (int i = 0; i < 2; i++) {
+      BoundSql expected = expectedSource.getBoundSql(parameter);
+      actual = directSource.getBoundSql(parameter);
+      assertEquals(expected.getSql(), actual.getSql());
+      assertEquals(expected.getParameterMappings().size(), actual.getParameterMappings().size());
+      for (int j = 0; j < expected.getParameterMappings().size(); j++) {
+        ParameterMapping expectedMapping = expected.getParameterMappings().get(j);
+        ParameterMapping actualMapping = actual.getParameterMappings().get(j);
+        String property = expectedMapping.getProperty();
+        assertEquals(expectedMapping.getJavaType(), actualMapping.getJavaType(), property);
+        assertEquals(expectedMapping.getJdbcType(), actualMapping.getJdbcType(), property);
+        assertEquals(expectedMapping.getTypeHandler().getClass(), actualMapping.getTypeHandler().getClass(), property);
+      }
+      assertEquals(setParameters(configuration, expectedSource, expected, parameter),
+        setParameters(directConfiguration, directSource, actual, parameter));
+    }
+    return actual;
+  }
+
+  /**
+   * 使用 {@link DefaultParameterHandler} 设置参数，返回每个位置上设置的值
+   */
+  private static Map<Integer, Object> setParameters(Configuration configuration, SqlSource sqlSource, BoundSql boundSql,
+      Object parameter) {
+    MappedStatement ms = new MappedStatement.Builder(configuration, "insert", sqlSource, SqlCommandType.INSERT).build();
+    Map<Integer, Object> values = new HashMap<>();
+    PreparedStatement ps = (PreparedStatement) Proxy.newProxyInstance(CompiledLanguageDriverTest.class.getClassLoader(),
+      new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+        if (method.getName().startsWith("set") && args.length >= 2) {
+          values.put((Integer) args[0], method.getName().equals("setNull") ? null : args[1]);
+        }
+        return null;
+      });
+    new DefaultParameterHandler(ms, parameter, boundSql).setParameters(ps);
+    assertEquals(boundSql.getParameterMappings().size(), values.size());
+    return values;
+  }
+
+  private void assertSameBoundSql(String script, Object parameter) {
+    Class<?> parameterType = parameter == null ? Object.class : parameter.getClass();
+    SqlSource expectedSource = xmlDriver.createSqlSource(configuration, script, parameterType);
+    SqlSource compiledSource = compiledDriver.createSqlSource(configuration, script, parameterType);
+    assertThat(compiledSource).isInstanceOf(CompiledSqlSource.class);
+    // 执行两次，第二次使用缓存的 ParameterMapping
+    for (int i = 0; i < 2; i++) {
+      BoundSql expected = expectedSource.getBoundSql(parameter);
+      BoundSql actual = compiledSource.getBoundSql(parameter);
+      assertEquals(expected.getSql(), actual.getSql());
+      assertEquals(expected.getParameterMappings().size(), actual.getParameterMappings().size());
+      for (int j = 0; j < expected.getParameterMappings().size(); j++) {
+        ParameterMapping expectedMapping = expected.getParameterMappings().get(j);
+        ParameterMapping actualMapping = actual.getParameterMappings().get(j);
+        String property = expectedMapping.getProperty();
+        assertEquals(property, actualMapping.getProperty());
+        assertEquals(expectedMapping.getJavaType(), actualMapping.getJavaType(), property);
+        assertEquals(expectedMapping.getJdbcType(), actualMapping.getJdbcType(), property);
+        assertEquals(expectedMapping.getMode(), actualMapping.getMode(), property);
+        assertEquals(expectedMapping.getTypeHandler().getClass(), actualMapping.getTypeHandler().getClass(), property);
+        assertEquals(expected.hasAdditionalParameter(property), actual.hasAdditionalParameter(property), property);
+        if (expected.hasAdditionalParameter(property)) {
+          assertEquals(expected.getAdditionalParameter(property), actual.getAdditionalParameter(property), property);
+        }
+      }
+    }
+  }
+
+}
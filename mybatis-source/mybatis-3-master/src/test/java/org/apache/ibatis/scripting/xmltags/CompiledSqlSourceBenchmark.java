@@ -0,0 +1,115 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.LanguageDriver;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link SqlSource#getBoundSql(Object)} of the {@code xml} and {@code compiled} language drivers for a
+ * search statement with a {@code <where>} element and six {@code <if>} conditions, and for a multi-row insert
+ * built with {@code <foreach>} over 50 beans.
+ * <p>
+ * Run with {@code main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompiledSqlSourceBenchmark {
+
+  private static final String SEARCH = "<script>select * from author"
+    + "<where>"
+    + "<if test=\"id != null and id > 0\">and id = #{id}</if>"
+    + "<if test=\"username != null and username != ''\">and username = #{username,jdbcType=VARCHAR}</if>"
+    + "<if test=\"password != null\">and password = #{password}</if>"
+    + "<if test=\"email != null and email != ''\">and email = #{email,jdbcType=VARCHAR}</if>"
+    + "<if test=\"bio != null\">and bio like #{bio}</if>"
+    + "<if test=\"favouriteSection != null\">and favourite_section = #{favouriteSection}</if>"
+    + "</where>"
+    + "</script>";
+
+  private static final String INSERT = "<script>insert into author (id, username, email) values"
+    + "<foreach collection=\"list\" item=\"author\" separator=\",\">"
+    + "(#{author.id}, #{author.username}, #{author.email,jdbcType=VARCHAR})"
+    + "</foreach>"
+    + "</script>";
+
+  @Param({"XML", "COMPILED"})
+  private String language;
+
+  private SqlSource search;
+  private SqlSource insert;
+  private Author author;
+  private Map<String, Object> authors;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    Configuration configuration = new Configuration();
+    Class<?> driverClass = configuration.getTypeAliasRegistry().resolveAlias(language);
+    LanguageDriver driver = (LanguageDriver) driverClass.newInstance();
+    search = driver.createSqlSource(configuration, SEARCH, Author.class);
+    insert = driver.createSqlSource(configuration, INSERT, Map.class);
+    author = new Author(1, "cbegin", null, "cbegin@apache.org", null, null);
+    List<Author> list = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      list.add(new Author(i, "user" + i, null, "user" + i + "@apache.org", null, null));
+    }
+    authors = new HashMap<>();
+    authors.put("list", list);
+  }
+
+  @Benchmark
+  public BoundSql whereIf() {
+    return search.getBoundSql(author);
+  }
+
+  @Benchmark
+  public BoundSql forEach() {
+    return insert.getBoundSql(authors);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(CompiledSqlSourceBenchmark.class.getSimpleName()).build()).run();
+  }
+
+}
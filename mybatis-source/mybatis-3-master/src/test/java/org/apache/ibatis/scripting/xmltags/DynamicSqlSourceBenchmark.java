@@ -0,0 +1,122 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.parsing.XPathParser;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures {@link DynamicSqlSource#getBoundSql(Object)} of a search statement with a {@code <where>} element and
+ * eight {@code <if>} conditions, cycling through four parameter objects that produce four distinct SQL shapes.
+ * {@code dynamicSqlCacheSize=0} parses the {@code #{}} placeholders on every call.
+ * <p>
+ * Run with {@code main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DynamicSqlSourceBenchmark {
+
+  private static final String SELECT = "<select id=\"search\">"
+    + "select * from orders"
+    + "<where>"
+    + "<if test=\"id != null\">and id = #{id}</if>"
+    + "<if test=\"customer != null\">and customer = #{customer,jdbcType=VARCHAR}</if>"
+    + "<if test=\"status != null\">and status = #{status,jdbcType=VARCHAR}</if>"
+    + "<if test=\"minAmount != null\">and amount &gt;= #{minAmount,jdbcType=DECIMAL}</if>"
+    + "<if test=\"maxAmount != null\">and amount &lt;= #{maxAmount,jdbcType=DECIMAL}</if>"
+    + "<if test=\"from != null\">and created &gt;= #{from,jdbcType=TIMESTAMP}</if>"
+    + "<if test=\"to != null\">and created &lt; #{to,jdbcType=TIMESTAMP}</if>"
+    + "<if test=\"region != null\">and region = #{region,jdbcType=VARCHAR}</if>"
+    + "</where>"
+    + "</select>";
+
+  @Param({"0", "64"})
+  private int dynamicSqlCacheSize;
+
+  private SqlSource sqlSource;
+  private Map<String, Object>[] parameters;
+  private int next;
+
+  @Setup(Level.Trial)
+  @SuppressWarnings("unchecked")
+  public void setup() {
+    Configuration configuration = new Configuration();
+    configuration.setDynamicSqlCacheSize(dynamicSqlCacheSize);
+    XPathParser parser = new XPathParser(SELECT);
+    sqlSource = new XMLScriptBuilder(configuration, parser.evalNode("/select"), Map.class).parseScriptNode();
+    parameters = new Map[] {
+      parameter("customer", "acme", "status", "OPEN"),
+      parameter("id", 42L),
+      parameter("customer", "acme", "minAmount", 10, "maxAmount", 100, "region", "EU"),
+      parameter("status", "CLOSED", "from", new java.util.Date(0), "to", new java.util.Date())
+    };
+  }
+
+  private static Map<String, Object> parameter(Object... keyValues) {
+    Map<String, Object> parameter = new HashMap<>();
+    for (String name : new String[] {"id", "customer", "status", "minAmount", "maxAmount", "from", "to", "region"}) {
+      parameter.put(name, null);
+    }
+    for (int i = 0; i < keyValues.length; i += 2) {
+      parameter.put((String) keyValues[i], keyValues[i + 1]);
+    }
+    return parameter;
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    DynamicSqlSource source = (DynamicSqlSource) sqlSource;
+    System.out.println("hits=" + source.getCacheHitCount() + ", misses=" + source.getCacheMissCount()
+      + ", size=" + source.getCacheSize());
+  }
+
+  @Benchmark
+  public BoundSql getBoundSql() {
+    next = (next + 1) & 3;
+    return sqlSource.getBoundSql(parameters[next]);
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(DynamicSqlSourceBenchmark.class.getSimpleName()).build()).run();
+  }
+
+}
@@ -0,0 +1,94 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares {@link ExpressionEvaluator#evaluateBoolean(String, Object)} with plain OGNL evaluation
+ * ({@link OgnlCache#getValue(String, Object)}) for typical {@code <if test>} expressions, evaluated against the
+ * bindings of a {@link DynamicContext} whose parameter object is a JavaBean.
+ * <p>
+ * Run with {@code main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionEvaluatorBenchmark {
+
+  @Param({"username != null", "username != null and username != ''", "ids != null and ids.size > 0", "id gt 100"})
+  private String expression;
+
+  private final ExpressionEvaluator evaluator = new ExpressionEvaluator();
+  private Map<String, Object> bindings;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    Configuration configuration = new Configuration();
+    bindings = new DynamicContext(configuration, new SearchParameter()).getBindings();
+  }
+
+  @Benchmark
+  public Object ognl() {
+    return OgnlCache.getValue(expression, bindings);
+  }
+
+  @Benchmark
+  public boolean evaluator() {
+    return evaluator.evaluateBoolean(expression, bindings);
+  }
+
+  public static class SearchParameter extends Author {
+    private final Iterable<Integer> ids = Arrays.asList(1, 2, 3);
+
+    public SearchParameter() {
+      super(101, "cbegin", "******", "cbegin@apache.org", "N/A", Section.NEWS);
+    }
+
+    public Iterable<Integer> getIds() {
+      return ids;
+    }
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(ExpressionEvaluatorBenchmark.class.getSimpleName()).build()).run();
+  }
+
+}
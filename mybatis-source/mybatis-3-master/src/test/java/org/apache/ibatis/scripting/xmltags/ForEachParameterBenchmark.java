@@ -0,0 +1,110 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.scripting.xmltags;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.LanguageDriver;
+import org.apache.ibatis.scripting.defaults.DefaultParameterHandler;
+import org.apache.ibatis.session.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Measures building the {@link BoundSql} of a multi-row insert written with {@code <foreach>} and setting its
+ * parameters with {@link DefaultParameterHandler} on a no-op {@link PreparedStatement}.
+ * {@code DIRECT} is the {@code compiled} language driver with {@code directForEachParameters} enabled.
+ * Run with {@code -prof gc} to compare the allocation rate.
+ * <p>
+ * Run with {@code main} from the test classpath.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ForEachParameterBenchmark {
+
+  private static final String INSERT = "<script>insert into author (id, username, email) values"
+    + "<foreach collection=\"list\" item=\"author\" separator=\",\">"
+    + "(#{author.id}, #{author.username}, #{author.email,jdbcType=VARCHAR})"
+    + "</foreach>"
+    + "</script>";
+
+  @Param({"XML", "COMPILED", "DIRECT"})
+  private String mode;
+
+  @Param({"50", "5000"})
+  private int rows;
+
+  private MappedStatement statement;
+  private Map<String, Object> authors;
+  private PreparedStatement preparedStatement;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    Configuration configuration = new Configuration();
+    configuration.setDirectForEachParameters("DIRECT".equals(mode));
+    LanguageDriver driver = "XML".equals(mode) ? new XMLLanguageDriver() : new CompiledLanguageDriver();
+    SqlSource sqlSource = driver.createSqlSource(configuration, INSERT, Map.class);
+    statement = new MappedStatement.Builder(configuration, "insert", sqlSource, SqlCommandType.INSERT).build();
+    List<Author> list = new ArrayList<>();
+    for (int i = 0; i < rows; i++) {
+      list.add(new Author(i, "user" + i, null, "user" + i + "@apache.org", null, null));
+    }
+    authors = new HashMap<>();
+    authors.put("list", list);
+    preparedStatement = (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+      new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> null);
+  }
+
+  @Benchmark
+  public BoundSql bindParameters() {
+    BoundSql boundSql = statement.getBoundSql(authors);
+    new DefaultParameterHandler(statement, authors, boundSql).setParameters(preparedStatement);
+    return boundSql;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder().include(ForEachParameterBenchmark.class.getSimpleName()).build()).run();
+  }
+
+}
@@ -0,0 +1,182 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.columnar_result;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.executor.result.ColumnarResult;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ColumnarResultTest {
+
+  private static final int ROWS = 1000;
+  private static final String[] REGIONS = {"north", "south", "east", "west"};
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/columnar_result/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/columnar_result/CreateDB.sql");
+    try (Connection connection = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         PreparedStatement ps = connection.prepareStatement("insert into sales values (?, ?, ?, ?, ?, ?, ?)")) {
+      LocalDate base = LocalDate.of(2019, 1, 1);
+      for (int i = 1; i <= ROWS; i++) {
+        ps.setLong(1, i);
+        // every 10th row has null values
+        if (i % 10 == 0) {
+          ps.setNull(2, Types.VARCHAR);
+          ps.setNull(3, Types.INTEGER);
+          ps.setNull(4, Types.DOUBLE);
+        } else {
+          ps.setString(2, REGIONS[i % REGIONS.length]);
+          ps.setInt(3, i % 5);
+          ps.setDouble(4, i * 1.5);
+        }
+        ps.setBigDecimal(5, new BigDecimal(i).movePointLeft(2));
+        ps.setBigDecimal(6, new BigDecimal(i * 100L));
+        ps.setDate(7, Date.valueOf(base.plusDays(i % 365)));
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      connection.commit();
+    }
+  }
+
+  @Test
+  void shouldReadColumnsIntoArrays() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.getMapper(Mapper.class).getSales();
+      assertEquals(ROWS, result.getRowCount());
+      assertEquals(7, result.getColumnCount());
+
+      ColumnarResult.LongColumn id = (ColumnarResult.LongColumn) result.getColumn("ID");
+      assertEquals(ROWS, id.getValues().length);
+      assertEquals(1L, id.getLong(0));
+      assertEquals(ROWS, id.getLong(ROWS - 1));
+
+      ColumnarResult.LongColumn quantity = (ColumnarResult.LongColumn) result.getColumn("quantity");
+      assertEquals(1L, quantity.getLong(0));
+      assertTrue(quantity.isNull(9));
+      assertNull(quantity.getValue(9));
+      assertEquals(0L, quantity.getLong(9));
+
+      ColumnarResult.DoubleColumn amount = (ColumnarResult.DoubleColumn) result.getColumn("amount");
+      assertEquals(1.5, amount.getDouble(0));
+      assertTrue(amount.isNull(99));
+      assertFalse(amount.isNull(98));
+
+      // decimal without scale is stored as long, decimal with scale keeps BigDecimal
+      ColumnarResult.LongColumn total = (ColumnarResult.LongColumn) result.getColumn("total");
+      assertEquals(100L, total.getLong(0));
+      ColumnarResult.ObjectColumn price = (ColumnarResult.ObjectColumn) result.getColumn("price");
+      assertEquals(new BigDecimal("0.01"), price.getValue(0));
+      ColumnarResult.ObjectColumn sold = (ColumnarResult.ObjectColumn) result.getColumn("sold");
+      assertEquals(Date.valueOf(LocalDate.of(2019, 1, 2)), sold.getValue(0));
+    }
+  }
+
+  @Test
+  void shouldDictionaryEncodeStrings() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      ColumnarResult result = sqlSession.getMapper(Mapper.class).getSales();
+      ColumnarResult.StringColumn region = (ColumnarResult.StringColumn) result.getColumn("region");
+      assertArrayEquals(new String[] {"south", "east", "west", "north"}, region.getDictionary());
+      assertEquals(ROWS, region.getCodes().length);
+      assertEquals("south", region.getString(0));
+      assertEquals("north", region.getString(3));
+      assertEquals(-1, region.getCodes()[9]);
+      assertNull(region.getString(9));
+      assertTrue(region.isNull(9));
+    }
+  }
+
+  @Test
+  void shouldContainSameValuesAsMaps() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Map<String, Object>> maps = mapper.getSalesMaps();
+      ColumnarResult result = mapper.getSales();
+      assertEquals(maps.size(), result.getRowCount());
+      for (int row = 0; row < maps.size(); row++) {
+        Map<String, Object> map = maps.get(row);
+        assertEquals(((Number) map.get("ID")).longValue(), result.getColumn("id").getValue(row));
+        assertEquals(map.get("REGION"), result.getColumn("region").getValue(row));
+        assertEquals(map.get("PRICE"), result.getColumn("price").getValue(row));
+        Number amount = (Number) map.get("AMOUNT");
+        assertEquals(amount == null ? null : amount.doubleValue(), result.getColumn("amount").getValue(row));
+      }
+    }
+  }
+
+  @Test
+  void shouldApplyRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<ColumnarResult> results = sqlSession.selectList("org.apache.ibatis.submitted.columnar_result.Mapper.getSales", null, new RowBounds(10, 5));
+      assertEquals(1, results.size());
+      ColumnarResult result = results.get(0);
+      assertEquals(5, result.getRowCount());
+      assertArrayEquals(new long[] {11, 12, 13, 14, 15}, ((ColumnarResult.LongColumn) result.getColumn("id")).getValues());
+    }
+  }
+
+  @Test
+  void shouldMapAnnotatedStatements() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      ColumnarResult result = mapper.getAmountByRegion();
+      assertEquals(5, result.getRowCount());
+      assertNull(result.getColumn("region").getValue(0));
+      assertEquals("east", result.getColumn("region").getValue(1));
+
+      ColumnarResult empty = mapper.getNoSales();
+      assertEquals(0, empty.getRowCount());
+      assertEquals(2, empty.getColumnCount());
+      assertEquals(0, ((ColumnarResult.LongColumn) empty.getColumn("id")).getValues().length);
+
+      List<ColumnarResult> results = new ArrayList<>();
+      mapper.getSalesWithResultHandler(context -> results.add(context.getResultObject()));
+      assertEquals(1, results.size());
+      assertEquals(ROWS, results.get(0).getRowCount());
+    }
+  }
+
+}
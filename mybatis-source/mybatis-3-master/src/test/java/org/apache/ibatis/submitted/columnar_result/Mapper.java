@@ -0,0 +1,42 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.columnar_result;
+
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.executor.result.ColumnarResult;
+import org.apache.ibatis.session.ResultHandler;
+
+public interface Mapper {
+
+  ColumnarResult getSales();
+
+  List<Map<String, Object>> getSalesMaps();
+
+  @Select("select region, sum(amount) as amount from sales group by region order by region")
+  ColumnarResult getAmountByRegion();
+
+  @Select("select id, region from sales where id < 0")
+  ColumnarResult getNoSales();
+
+  @Select("select id, amount from sales order by id")
+  @ResultType(ColumnarResult.class)
+  void getSalesWithResultHandler(ResultHandler<ColumnarResult> handler);
+
+}
@@ -27,7 +27,9 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
 import java.io.Reader;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
 
 class CursorNestedTest {
 
@@ -105,4 +107,49 @@ class CursorNestedTest {
       Assertions.assertTrue(usersCursor.isConsumed());
     }
   }
+
+  @Test
+  void shouldGetAllUserWithAnnotatedCursor() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Assertions.assertTrue(sqlSession.getConfiguration()
+          .getMappedStatement(Mapper.class.getName() + ".getAllUsersAnnotated").isResultOrdered());
+      Cursor<User> usersCursor = mapper.getAllUsersAnnotated();
+      List<String> sizes = new ArrayList<>();
+      for (User user : usersCursor) {
+        sizes.add(user.getName() + ":" + user.getGroups().size() + ":" + user.getRoles().size());
+      }
+      Assertions.assertEquals("[User1:2:3, User2:1:3, User3:3:1, User4:2:2]", sizes.toString());
+    }
+  }
+
+  @Test
+  void shouldGetCompleteUsersInBatches() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<String> batches = new ArrayList<>();
+      for (List<User> batch : mapper.getAllUsersAnnotated().batches(3)) {
+        List<String> sizes = new ArrayList<>();
+        for (User user : batch) {
+          sizes.add(user.getName() + ":" + user.getGroups().size() + ":" + user.getRoles().size());
+        }
+        batches.add(sizes.toString());
+      }
+      Assertions.assertEquals("[[User1:2:3, User2:1:3, User3:3:1], [User4:2:2]]", batches.toString());
+    }
+  }
+
+  @Test
+  void shouldPassCompleteUsersToResultHandler() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<String> sizes = new ArrayList<>();
+      // a root object is passed to the handler only after all of its rows have been read
+      mapper.getAllUsersWithResultHandler(context -> {
+        User user = context.getResultObject();
+        sizes.add(user.getName() + ":" + user.getGroups().size() + ":" + user.getRoles().size());
+      });
+      Assertions.assertEquals("[User1:2:3, User2:1:3, User3:3:1, User4:2:2]", sizes.toString());
+    }
+  }
 }
@@ -0,0 +1,207 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cursor_prefetch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.cursor.defaults.DefaultCursor;
+import org.apache.ibatis.cursor.defaults.PrefetchingCursor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class CursorPrefetchTest {
+
+  private static final int ROWS = 200;
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cursor_prefetch/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/cursor_prefetch/CreateDB.sql");
+    try (Connection connection = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         PreparedStatement ps = connection.prepareStatement("insert into users values (?, ?, ?)")) {
+      for (int i = 1; i <= ROWS; i++) {
+        ps.setInt(1, i);
+        ps.setString(2, "User" + i);
+        ps.setInt(3, 1);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      connection.commit();
+    }
+  }
+
+  @Test
+  void shouldPrefetchAllUsersInOrder() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> cursor = sqlSession.getMapper(Mapper.class).getUsers();
+      assertTrue(cursor instanceof PrefetchingCursor);
+      assertFalse(cursor.isOpen());
+      assertEquals(-1, cursor.getCurrentIndex());
+
+      // 与 DefaultCursor 一样，开始读取之后才是打开状态
+      Iterator<User> iterator = cursor.iterator();
+      assertFalse(cursor.isOpen());
+      assertTrue(iterator.hasNext());
+      assertTrue(cursor.isOpen());
+
+      List<Integer> ids = new ArrayList<>();
+      while (iterator.hasNext()) {
+        User user = iterator.next();
+        assertTrue(cursor.isOpen());
+        ids.add(user.getId());
+        assertEquals(ids.size() - 1, cursor.getCurrentIndex());
+      }
+      assertEquals(ROWS, ids.size());
+      for (int i = 0; i < ROWS; i++) {
+        assertEquals(i + 1, (int) ids.get(i));
+      }
+      assertFalse(cursor.isOpen());
+      assertTrue(cursor.isConsumed());
+      cursor.close();
+    }
+  }
+
+  @Test
+  void shouldPrefetchBatches() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> cursor = sqlSession.getMapper(Mapper.class).getUsers();
+      List<Integer> sizes = new ArrayList<>();
+      int id = 0;
+      for (List<User> batch : cursor.batches(64)) {
+        sizes.add(batch.size());
+        for (User user : batch) {
+          assertEquals(++id, (int) user.getId());
+        }
+      }
+      assertEquals("[64, 64, 64, 8]", sizes.toString());
+      assertEquals(ROWS - 1, cursor.getCurrentIndex());
+      assertTrue(cursor.isConsumed());
+    }
+  }
+
+  @Test
+  void shouldApplyRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> cursor = sqlSession.getMapper(Mapper.class).getUsers(new RowBounds(10, 5));
+      List<Integer> ids = new ArrayList<>();
+      cursor.forEach(user -> ids.add(user.getId()));
+      assertEquals("[11, 12, 13, 14, 15]", ids.toString());
+      assertEquals(14, cursor.getCurrentIndex());
+      assertTrue(cursor.isConsumed());
+    }
+  }
+
+  @Test
+  void shouldPrefetchOnlyWhenTheStatementOptsIn() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertTrue(mapper.getUsersWithoutFetchAheadAttribute() instanceof DefaultCursor);
+      assertTrue(mapper.getUsersWithoutFetchAhead() instanceof DefaultCursor);
+    }
+  }
+
+  @Test
+  void shouldNotPrefetchNestedSelects() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Cursor<User> cursor = sqlSession.getMapper(Mapper.class).getUsersWithManager();
+      assertTrue(cursor instanceof DefaultCursor);
+      Iterator<User> iterator = cursor.iterator();
+      assertEquals("User1", iterator.next().getManager().getName());
+    }
+  }
+
+  @Test
+  void shouldRethrowMappingException() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<User> cursor = mapper.getFailingUsers();
+      Iterator<User> iterator = cursor.iterator();
+      List<Integer> ids = new ArrayList<>();
+      RuntimeException e = assertThrows(RuntimeException.class, () -> {
+        while (iterator.hasNext()) {
+          ids.add(iterator.next().getId());
+        }
+      });
+      assertTrue(e.getMessage().contains("Cannot read " + FailingTypeHandler.FAILING_NAME), e.getMessage());
+      assertEquals(49, ids.size());
+      assertFalse(cursor.isOpen());
+      assertFalse(iterator.hasNext());
+      // the session can be used again
+      assertEquals(ROWS, mapper.countUsers());
+    }
+  }
+
+  @Test
+  void shouldStopPrefetchingWhenClosed() throws Exception {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      Cursor<User> cursor = mapper.getUsers();
+      Iterator<User> iterator = cursor.iterator();
+      assertEquals(1, (int) iterator.next().getId());
+      // give the background thread time to fill the queue and block
+      Thread.sleep(100);
+      cursor.close();
+      assertFalse(cursor.isOpen());
+      assertFalse(cursor.isConsumed());
+      assertFalse(iterator.hasNext());
+      assertFalse(isPrefetchThreadAlive());
+      assertEquals(ROWS, mapper.countUsers());
+    }
+  }
+
+  @Test
+  void shouldStopPrefetchingWhenSessionIsClosed() {
+    Cursor<User> cursor;
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      cursor = sqlSession.getMapper(Mapper.class).getUsers();
+      assertEquals(1, (int) cursor.iterator().next().getId());
+    }
+    assertFalse(cursor.isOpen());
+    assertFalse(isPrefetchThreadAlive());
+  }
+
+  private static boolean isPrefetchThreadAlive() {
+    for (Thread thread : Thread.getAllStackTraces().keySet()) {
+      if (thread.getName().startsWith("mybatis-cursor-prefetch-") && thread.isAlive()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+}
@@ -0,0 +1,43 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.cursor_prefetch;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.ibatis.type.StringTypeHandler;
+
+public class FailingTypeHandler extends StringTypeHandler {
+
+  static final String FAILING_NAME = "User50";
+
+  @Override
+  public String getNullableResult(ResultSet rs, String columnName) throws SQLException {
+    return check(super.getNullableResult(rs, columnName));
+  }
+
+  @Override
+  public String getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+    return check(super.getNullableResult(rs, columnIndex));
+  }
+
+  private static String check(String name) throws SQLException {
+    if (FAILING_NAME.equals(name)) {
+      throw new SQLException("Cannot read " + name);
+    }
+    return name;
+  }
+}
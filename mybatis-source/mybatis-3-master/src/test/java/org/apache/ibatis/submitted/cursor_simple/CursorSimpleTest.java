@@ -37,6 +37,7 @@ import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
 
 class CursorSimpleTest {
 
@@ -162,6 +163,57 @@ class CursorSimpleTest {
     }
   }
 
+  @Test
+  void shouldGetUsersInBatches() throws IOException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+        Cursor<User> usersCursor = sqlSession.selectCursor("getAllUsers")) {
+      Iterator<List<User>> batches = usersCursor.batches(2).iterator();
+      List<String> names = new ArrayList<>();
+      List<User> first = null;
+      while (batches.hasNext()) {
+        List<User> batch = batches.next();
+        if (first == null) {
+          first = batch;
+        }
+        // the same list is refilled for every batch
+        Assertions.assertSame(first, batch);
+        names.add(batch.stream().map(User::getName).collect(Collectors.toList()).toString());
+        Assertions.assertEquals(names.size() == 3 ? 4 : names.size() * 2 - 1, usersCursor.getCurrentIndex());
+      }
+      Assertions.assertEquals("[[User1, User2], [User3, User4], [User5]]", names.toString());
+      Assertions.assertFalse(usersCursor.isOpen());
+      Assertions.assertTrue(usersCursor.isConsumed());
+      Assertions.assertThrows(NoSuchElementException.class, batches::next);
+    }
+  }
+
+  @Test
+  void shouldGetBatchesWithRowBound() throws IOException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+        Cursor<User> usersCursor = sqlSession.selectCursor("getAllUsers", null, new RowBounds(1, 3))) {
+      List<Integer> sizes = new ArrayList<>();
+      List<String> names = new ArrayList<>();
+      for (List<User> batch : usersCursor.batches(2)) {
+        sizes.add(batch.size());
+        batch.forEach(user -> names.add(user.getName()));
+      }
+      Assertions.assertEquals("[2, 1]", sizes.toString());
+      Assertions.assertEquals("[User2, User3, User4]", names.toString());
+      Assertions.assertEquals(3, usersCursor.getCurrentIndex());
+      Assertions.assertTrue(usersCursor.isConsumed());
+    }
+  }
+
+  @Test
+  void shouldNotOpenBatchesAfterIterator() throws IOException {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession();
+        Cursor<User> usersCursor = sqlSession.selectCursor("getAllUsers")) {
+      Assertions.assertThrows(IllegalArgumentException.class, () -> usersCursor.batches(0));
+      usersCursor.iterator();
+      Assertions.assertThrows(IllegalStateException.class, () -> usersCursor.batches(2));
+    }
+  }
+
   @Test
   void testCursorIteratorNoSuchElementExceptionWithHasNext() throws IOException {
 
@@ -0,0 +1,232 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.foreach_chunk;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.builder.BuilderException;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.scripting.xmltags.DynamicSqlSource;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ForEachChunkTest {
+
+  private static final int ROWS = 100;
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/foreach_chunk/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/foreach_chunk/CreateDB.sql");
+    try (Connection connection = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         PreparedStatement ps = connection.prepareStatement("insert into users values (?, ?)")) {
+      for (int i = 1; i <= ROWS; i++) {
+        ps.setInt(1, i);
+        ps.setString(2, "user" + i);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      connection.commit();
+    }
+  }
+
+  @Test
+  void shouldMergeResultsOfAllChunks() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Integer> ids = ids(25);
+      assertEquals(ids, mapper.getUsers(ids).stream().map(User::getId).sorted().collect(Collectors.toList()));
+      assertEquals(ids, mapper.getUsersCompiled(ids).stream().map(User::getId).sorted().collect(Collectors.toList()));
+      assertEquals(3, mapper.getUsers(Arrays.asList(1, 2, 3)).size());
+      assertEquals("user7", sqlSession.<User>selectOne(Mapper.class.getName() + ".getUsers",
+          Collections.singletonMap("ids", ids.subList(6, 7))).getName());
+    }
+  }
+
+  @Test
+  void shouldBoundDistinctStatements() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      for (int size = 1; size <= 40; size++) {
+        assertEquals(size, mapper.getUsers(ids(size)).size());
+        assertEquals(size, mapper.getUserNames(ids(size)).size());
+      }
+      MappedStatement ms = sqlSession.getConfiguration().getMappedStatement(Mapper.class.getName() + ".getUsers");
+      assertTrue(ms.isChunked());
+      // 每批补齐到8个或者10个元素
+      assertEquals(2, ((DynamicSqlSource) ms.getSqlSource()).getCacheSize());
+      // 没有分批时补齐到8、16、32、64个元素
+      ms = sqlSession.getConfiguration().getMappedStatement(Mapper.class.getName() + ".getUserNames");
+      assertEquals(4, ((DynamicSqlSource) ms.getSqlSource()).getCacheSize());
+    }
+  }
+
+  @Test
+  void shouldApplyRowBoundsAfterMerging() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<User> users = sqlSession.getMapper(Mapper.class).getUsers(ids(25), new RowBounds(8, 10));
+      assertEquals(10, users.size());
+      List<User> all = sqlSession.getMapper(Mapper.class).getUsers(ids(25));
+      assertEquals(all.subList(8, 18).stream().map(User::getId).collect(Collectors.toList()),
+          users.stream().map(User::getId).collect(Collectors.toList()));
+      assertEquals(5, sqlSession.getMapper(Mapper.class).getUsers(ids(25), new RowBounds(20, 10)).size());
+    }
+  }
+
+  @Test
+  void shouldPassResultsOfAllChunksToResultHandler() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Integer> ids = new ArrayList<>();
+      sqlSession.getMapper(Mapper.class).getUsers(ids(25), context -> ids.add(context.getResultObject().getId()));
+      ids.sort(null);
+      assertEquals(ids(25), ids);
+      assertThrows(PersistenceException.class, () -> sqlSession.select(Mapper.class.getName() + ".getUsers",
+          Collections.singletonMap("ids", ids(25)), new RowBounds(1, 1), context -> { }));
+    }
+  }
+
+  @Test
+  void shouldNotBypassQueryInterceptors() throws Exception {
+    SqlSessionFactory factory;
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/foreach_chunk/mybatis-config.xml")) {
+      factory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    QueryCounter counter = new QueryCounter();
+    factory.getConfiguration().addInterceptor(counter);
+    try (SqlSession sqlSession = factory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(3, mapper.getUsers(ids(3)).size());
+      assertEquals(1, counter.queries);
+      // 该插件看不到分批后的语句
+      assertThrows(PersistenceException.class, () -> mapper.getUsers(ids(25)));
+    }
+  }
+
+  @Test
+  void shouldPassEachChunkToQueryInterceptors() throws Exception {
+    SqlSessionFactory factory;
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/foreach_chunk/mybatis-config.xml")) {
+      factory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BoundSqlCounter counter = new BoundSqlCounter();
+    factory.getConfiguration().addInterceptor(counter);
+    try (SqlSession sqlSession = factory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      assertEquals(3, mapper.getUsers(ids(3)).size());
+      assertEquals(1, counter.queries);
+      assertEquals(25, mapper.getUsers(ids(25)).size());
+      assertEquals(4, counter.queries);
+    }
+  }
+
+  @Test
+  void shouldRejectBucketingAndChunkingOutsideSelect() {
+    String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>"
+        + "<!DOCTYPE mapper PUBLIC \"-//mybatis.org//DTD Mapper 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-mapper.dtd\">"
+        + "<mapper namespace=\"insertUsers\"><insert id=\"insertUsers\">insert into users values"
+        + "<foreach collection=\"list\" item=\"user\" separator=\",\" bucketed=\"true\">(#{user.id}, #{user.name})</foreach>"
+        + "</insert></mapper>";
+    Configuration configuration = new Configuration();
+    assertThrows(BuilderException.class, () -> new XMLMapperBuilder(
+        new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), configuration, "insertUsers.xml",
+        configuration.getSqlFragments()).parse());
+    assertThrows(BuilderException.class, () -> new Configuration().addMapper(ChunkedUpdateMapper.class));
+    assertThrows(BuilderException.class, () -> new Configuration().addMapper(BucketedInsertMapper.class));
+  }
+
+  interface BucketedInsertMapper {
+    @Insert("<script>insert into users values"
+        + "<foreach collection='list' item='user' separator=',' bucketed='true'>(#{user.id}, #{user.name})</foreach></script>")
+    int insertUsers(List<User> users);
+  }
+
+  interface ChunkedUpdateMapper {
+    @Update("<script>update users set name = #{name} where id in"
+        + "<foreach collection='ids' item='id' open='(' separator=',' close=')' chunkSize='10'>#{id}</foreach></script>")
+    int rename(@Param("ids") List<Integer> ids, @Param("name") String name);
+  }
+
+  @Intercepts(@Signature(type = Executor.class, method = "query",
+      args = { MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class }))
+  public static class QueryCounter implements Interceptor {
+    private int queries;
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      queries++;
+      return invocation.proceed();
+    }
+  }
+
+  @Intercepts(@Signature(type = Executor.class, method = "query",
+      args = { MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class, CacheKey.class, BoundSql.class }))
+  public static class BoundSqlCounter implements Interceptor {
+    private int queries;
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      queries++;
+      return invocation.proceed();
+    }
+  }
+
+  private static List<Integer> ids(int size) {
+    List<Integer> ids = new ArrayList<>();
+    for (int i = 1; i <= size; i++) {
+      ids.add(i);
+    }
+    return ids;
+  }
+
+}
@@ -0,0 +1,55 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parallel_mapping;
+
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+
+public class Event {
+
+  private Integer id;
+  private OffsetDateTime offsetDateTime;
+  private OffsetTime offsetTime;
+
+  public Integer getId() {
+    return id;
+  }
+
+  public void setId(Integer id) {
+    this.id = id;
+  }
+
+  public OffsetDateTime getOffsetDateTime() {
+    return offsetDateTime;
+  }
+
+  public void setOffsetDateTime(OffsetDateTime offsetDateTime) {
+    this.offsetDateTime = offsetDateTime;
+  }
+
+  public OffsetTime getOffsetTime() {
+    return offsetTime;
+  }
+
+  public void setOffsetTime(OffsetTime offsetTime) {
+    this.offsetTime = offsetTime;
+  }
+
+  @Override
+  public String toString() {
+    return id + "/" + offsetDateTime + "/" + offsetTime;
+  }
+}
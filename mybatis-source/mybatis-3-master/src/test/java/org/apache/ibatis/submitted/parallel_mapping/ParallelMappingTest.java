@@ -0,0 +1,235 @@
+/**
+ *    Copyright 2009-2019 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.submitted.parallel_mapping;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.OffsetTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class ParallelMappingTest {
+
+  private static final int ROWS = 2000;
+  private static final int EVENTS = 600;
+
+  private static SqlSessionFactory sqlSessionFactory;
+
+  @BeforeAll
+  static void setUp() throws Exception {
+    try (Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/parallel_mapping/mybatis-config.xml")) {
+      sqlSessionFactory = new SqlSessionFactoryBuilder().build(reader);
+    }
+    BaseDataTest.runScript(sqlSessionFactory.getConfiguration().getEnvironment().getDataSource(),
+        "org/apache/ibatis/submitted/parallel_mapping/CreateDB.sql");
+    try (Connection connection = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         PreparedStatement ps = connection.prepareStatement("insert into items values (?, ?, ?, ?, ?, ?)")) {
+      LocalDateTime base = LocalDateTime.of(2019, 1, 1, 10, 0);
+      for (int i = 1; i <= ROWS; i++) {
+        ps.setInt(1, i);
+        // every 7th row has null values
+        ps.setString(2, i % 7 == 0 ? null : "item" + i);
+        ps.setBigDecimal(3, i % 7 == 0 ? null : new BigDecimal(i).movePointLeft(2));
+        ps.setTimestamp(4, Timestamp.valueOf(base.plusMinutes(i)));
+        ps.setString(5, "description of item " + i);
+        ps.setBoolean(6, i % 2 == 0);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      connection.commit();
+    }
+    try (Connection connection = sqlSessionFactory.getConfiguration().getEnvironment().getDataSource().getConnection();
+         PreparedStatement ps = connection.prepareStatement("insert into events values (?, ?, ?)")) {
+      OffsetDateTime base = OffsetDateTime.of(2019, 1, 1, 10, 0, 0, 0, ZoneOffset.ofHours(9));
+      for (int i = 1; i <= EVENTS; i++) {
+        ps.setInt(1, i);
+        // every 5th row has null values
+        ps.setObject(2, i % 5 == 0 ? null : base.plusMinutes(i));
+        ps.setObject(3, i % 5 == 0 ? null : base.plusSeconds(i).toOffsetTime());
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      connection.commit();
+    }
+  }
+
+  @Test
+  void shouldMapSameResultsInOrder() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Item> expected = mapper.getItems();
+      List<Item> actual = mapper.getItemsInParallel();
+      assertEquals(ROWS, actual.size());
+      assertEquals(expected.toString(), actual.toString());
+      Item item = actual.get(6);
+      assertEquals(7, item.getId());
+      assertNull(item.getName());
+      assertNull(item.getPrice());
+      assertEquals(LocalDateTime.of(2019, 1, 1, 10, 7), item.getCreated());
+      assertEquals("description of item 7", item.getDescription());
+      assertFalse(item.getActive());
+    }
+  }
+
+  @Test
+  void shouldApplyRowBounds() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Item> items = mapper.getItemsInParallel(new RowBounds(10, 600));
+      assertEquals(600, items.size());
+      assertEquals(11, items.get(0).getId());
+      assertEquals(610, items.get(599).getId());
+    }
+  }
+
+  @Test
+  void shouldMapToMaps() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Map<String, Object>> items = sqlSession.getMapper(Mapper.class).getItemMapsInParallel();
+      assertEquals(ROWS, items.size());
+      assertEquals(1, items.get(0).get("ID"));
+      assertEquals(new BigDecimal("0.01"), items.get(0).get("PRICE"));
+      assertFalse(items.get(6).containsKey("NAME"));
+    }
+  }
+
+  @Test
+  void shouldPassResultsToResultHandlerInOrder() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      assertTrue(sqlSession.getConfiguration().getMappedStatement(Mapper.class.getName() + ".getItemsWithResultHandler").isParallelMapping());
+      List<Integer> ids = new ArrayList<>();
+      sqlSession.getMapper(Mapper.class).getItemsWithResultHandler(context -> {
+        ids.add(context.getResultObject().getId());
+        if (context.getResultCount() == 1000) {
+          context.stop();
+        }
+      });
+      assertEquals(1000, ids.size());
+      for (int i = 0; i < ids.size(); i++) {
+        assertEquals(i + 1, ids.get(i));
+      }
+    }
+  }
+
+  @Test
+  void shouldMapJavaTimeTypesInParallel() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      Mapper mapper = sqlSession.getMapper(Mapper.class);
+      List<Event> expected = mapper.getEvents();
+      List<Event> actual = mapper.getEventsInParallel();
+      assertEquals(EVENTS, actual.size());
+      assertEquals(expected.toString(), actual.toString());
+      Event event = actual.get(0);
+      assertEquals(OffsetDateTime.of(2019, 1, 1, 10, 1, 0, 0, ZoneOffset.ofHours(9)).toInstant(), event.getOffsetDateTime().toInstant());
+      assertEquals(OffsetTime.of(10, 0, 1, 0, ZoneOffset.ofHours(9)), event.getOffsetTime());
+      assertNull(actual.get(4).getOffsetDateTime());
+      assertNull(actual.get(4).getOffsetTime());
+    }
+  }
+
+  @Test
+  void shouldMapOnConfiguredExecutor() {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    ExecutorService executor = Executors.newFixedThreadPool(2, runnable -> {
+      Thread thread = new Thread(runnable, "custom-mapping-thread");
+      thread.setDaemon(true);
+      return thread;
+    });
+    List<String> threadNames = Collections.synchronizedList(new ArrayList<>());
+    configuration.setParallelMappingExecutor(new AbstractExecutorService() {
+      @Override
+      public void execute(Runnable command) {
+        executor.execute(() -> {
+          threadNames.add(Thread.currentThread().getName());
+          command.run();
+        });
+      }
+
+      @Override
+      public void shutdown() {
+        executor.shutdown();
+      }
+
+      @Override
+      public List<Runnable> shutdownNow() {
+        return executor.shutdownNow();
+      }
+
+      @Override
+      public boolean isShutdown() {
+        return executor.isShutdown();
+      }
+
+      @Override
+      public boolean isTerminated() {
+        return executor.isTerminated();
+      }
+
+      @Override
+      public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return executor.awaitTermination(timeout, unit);
+      }
+    });
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = sqlSession.getMapper(Mapper.class).getItemsInParallel();
+      assertEquals(ROWS, items.size());
+      // 第一行在当前线程中映射，其余每256行一个任务
+      assertEquals((ROWS - 1 + 255) / 256, threadNames.size());
+      assertTrue(threadNames.stream().allMatch("custom-mapping-thread"::equals));
+    } finally {
+      configuration.setParallelMappingExecutor(null);
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  void shouldAutoMapInParallel() {
+    try (SqlSession sqlSession = sqlSessionFactory.openSession()) {
+      List<Item> items = sqlSession.getMapper(Mapper.class).getAutoMappedItemsInParallel();
+      assertEquals(ROWS, items.size());
+      assertEquals("item1", items.get(0).getName());
+      assertEquals(ROWS, items.get(ROWS - 1).getId());
+    }
+  }
+
+}